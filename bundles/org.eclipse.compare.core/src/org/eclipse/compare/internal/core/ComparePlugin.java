@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2011 IBM Corporation and others.
+ * Copyright (c) 2008, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,6 +13,7 @@
  *******************************************************************************/
 package org.eclipse.compare.internal.core;
 
+import org.eclipse.compare.rangedifferencer.RangeDifferencer;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Plugin;
 import org.eclipse.core.runtime.Status;
@@ -31,6 +32,8 @@ public class ComparePlugin extends Plugin {
 
 	private boolean cappingDisabled;
 
+	private int diffAlgorithm = RangeDifferencer.MYERS;
+
 	/**
 	 * The constructor
 	 */
@@ -75,4 +78,18 @@ public class ComparePlugin extends Plugin {
 		return this.cappingDisabled;
 	}
 
+	/**
+	 * Sets the algorithm used by default to find differences.
+	 *
+	 * @param algorithm either {@link RangeDifferencer#MYERS} or
+	 *            {@link RangeDifferencer#HISTOGRAM}
+	 */
+	public void setDiffAlgorithm(int algorithm) {
+		this.diffAlgorithm = algorithm;
+	}
+
+	public int getDiffAlgorithm() {
+		return this.diffAlgorithm;
+	}
+
 }
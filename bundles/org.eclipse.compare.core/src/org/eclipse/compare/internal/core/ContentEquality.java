@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.internal.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Byte-wise content comparison that reads the contents in blocks and stops at
+ * the first difference.
+ */
+public final class ContentEquality {
+
+	private static final int BUFFER_SIZE = 8192;
+	private static final int FILE_BUFFER_SIZE = 64 * 1024;
+
+	private ContentEquality() {
+		// not to be instantiated
+	}
+
+	/**
+	 * Returns whether the given streams have the same contents. The streams
+	 * are read up to the first difference and are not closed.
+	 *
+	 * @param in1 the first stream
+	 * @param in2 the second stream
+	 * @return whether both streams have the same contents
+	 * @throws IOException if reading one of the streams fails
+	 */
+	public static boolean contentsEqual(InputStream in1, InputStream in2) throws IOException {
+		return contentsEqual(in1, in2, BUFFER_SIZE);
+	}
+
+	/**
+	 * Returns whether the given files have the same contents. Files of
+	 * different length are not read.
+	 *
+	 * @param file1 the first file
+	 * @param file2 the second file
+	 * @return whether both files have the same contents
+	 * @throws IOException if reading one of the files fails
+	 */
+	public static boolean contentsEqual(File file1, File file2) throws IOException {
+		if (file1.length() != file2.length())
+			return false;
+		if (file1.equals(file2))
+			return true;
+		// the files are read in blocks rather than mapped since they may be
+		// truncated while they are compared
+		try (InputStream in1 = new FileInputStream(file1); InputStream in2 = new FileInputStream(file2)) {
+			return contentsEqual(in1, in2, FILE_BUFFER_SIZE);
+		}
+	}
+
+	private static boolean contentsEqual(InputStream in1, InputStream in2, int bufferSize) throws IOException {
+		byte[] buffer1 = new byte[bufferSize];
+		byte[] buffer2 = new byte[bufferSize];
+		while (true) {
+			int count1 = readBlock(in1, buffer1);
+			int count2 = readBlock(in2, buffer2);
+			if (count1 != count2)
+				return false;
+			for (int i = 0; i < count1; i++) {
+				if (buffer1[i] != buffer2[i])
+					return false;
+			}
+			// a block that is not full is the end of both streams
+			if (count1 < bufferSize)
+				return true;
+		}
+	}
+
+	/*
+	 * Fills the buffer unless the end of the stream is reached and returns the
+	 * number of bytes read
+	 */
+	private static int readBlock(InputStream in, byte[] buffer) throws IOException {
+		int count = 0;
+		while (count < buffer.length) {
+			int read = in.read(buffer, count, buffer.length - count);
+			if (read < 0)
+				break;
+			count += read;
+		}
+		return count;
+	}
+}
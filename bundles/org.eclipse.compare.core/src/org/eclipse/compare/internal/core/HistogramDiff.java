@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.internal.core;
+
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubMonitor;
+
+/**
+ * Histogram diff for two sequences of line IDs, as known from git.
+ * <p>
+ * For a region of both sequences, the lines of the first sequence are counted.
+ * The common run of lines that contains the least frequent line found in both
+ * sequences is used as anchor, the longest such run if there are several, and
+ * the regions before and after the anchor are processed the same way. Lines
+ * that occur more than {@link #MAX_CHAIN_LENGTH} times in a region are never
+ * used as anchor. If a region has common lines but all of them are that
+ * frequent, the region is handed to Myers' algorithm.
+ * </p>
+ * <p>
+ * Unlike {@link LCS} the running time stays close to linear for large inputs
+ * with many changes, so no capping is needed. The regions handed to Myers'
+ * algorithm are not capped either.
+ * </p>
+ */
+public class HistogramDiff {
+
+	/*
+	 * Lines that occur more often than this in a region of the first sequence
+	 * are not used as anchors
+	 */
+	private static final int MAX_CHAIN_LENGTH = 64;
+
+	private final int[] ids1;
+	private final int[] ids2;
+
+	// matches[i] is j + 1 if ids1[i] is matched with ids2[j], 0 otherwise
+	private final int[] matches;
+
+	// histogram of the current region, indexed by line ID
+	private final int[] counts;
+	// first position of a line ID in the current region of the first sequence
+	private final int[] heads;
+	// next position of the same line ID, indexed by position in the first sequence
+	private final int[] next;
+
+	// the best anchor found by findAnchor
+	private int anchorStart1, anchorEnd1, anchorStart2;
+
+	public HistogramDiff(int[] ids1, int[] ids2) {
+		this.ids1 = ids1;
+		this.ids2 = ids2;
+		this.matches = new int[ids1.length];
+		int idCount = Math.max(maxId(ids1), maxId(ids2)) + 1;
+		this.counts = new int[idCount];
+		this.heads = new int[idCount];
+		this.next = new int[ids1.length];
+	}
+
+	private static int maxId(int[] ids) {
+		int max = -1;
+		for (int id : ids) {
+			if (id > max)
+				max = id;
+		}
+		return max;
+	}
+
+	/**
+	 * Matches the lines of both sequences.
+	 *
+	 * @param subMonitor
+	 * @return an array with the length of the first sequence where
+	 *         <code>result[i]</code> is <code>j + 1</code> if line
+	 *         <code>i</code> of the first sequence is matched with line
+	 *         <code>j</code> of the second sequence, or <code>0</code> if it
+	 *         is not matched
+	 */
+	public int[] match(SubMonitor subMonitor) {
+		subMonitor.beginTask(null, this.ids1.length);
+		// regions are processed from an explicit stack to avoid deep recursion
+		int[] stack = new int[64];
+		int top = 0;
+		stack[top++] = 0;
+		stack[top++] = this.ids1.length;
+		stack[top++] = 0;
+		stack[top++] = this.ids2.length;
+		while (top > 0) {
+			int end2 = stack[--top];
+			int start2 = stack[--top];
+			int end1 = stack[--top];
+			int start1 = stack[--top];
+			if (subMonitor.isCanceled())
+				throw new OperationCanceledException();
+
+			// common prefixes and suffixes are part of the result
+			while (start1 < end1 && start2 < end2 && this.ids1[start1] == this.ids2[start2]) {
+				setMatch(start1++, start2++, subMonitor);
+			}
+			while (start1 < end1 && start2 < end2 && this.ids1[end1 - 1] == this.ids2[end2 - 1]) {
+				setMatch(--end1, --end2, subMonitor);
+			}
+			if (start1 == end1 || start2 == end2)
+				continue;
+
+			int anchorLength = findAnchor(start1, end1, start2, end2);
+			if (anchorLength > 0) {
+				int s1 = this.anchorStart1;
+				int e1 = this.anchorEnd1;
+				int s2 = this.anchorStart2;
+				for (int i = 0; i < anchorLength; i++) {
+					setMatch(s1 + i, s2 + i, subMonitor);
+				}
+				if (top + 8 > stack.length) {
+					int[] newStack = new int[stack.length * 2];
+					System.arraycopy(stack, 0, newStack, 0, top);
+					stack = newStack;
+				}
+				stack[top++] = start1;
+				stack[top++] = s1;
+				stack[top++] = start2;
+				stack[top++] = s2;
+				stack[top++] = e1;
+				stack[top++] = end1;
+				stack[top++] = s2 + anchorLength;
+				stack[top++] = end2;
+			} else if (anchorLength < 0) {
+				new RegionLCS(start1, end1, start2, end2).longestCommonSubsequence(subMonitor.newChild(0));
+			}
+		}
+		return this.matches;
+	}
+
+	private void setMatch(int i1, int i2, SubMonitor subMonitor) {
+		this.matches[i1] = i2 + 1;
+		subMonitor.worked(1);
+	}
+
+	/*
+	 * Finds the anchor for the given region. Returns the length of the anchor,
+	 * 0 if both regions have no line in common or -1 if they have common lines
+	 * but all of them occur too often.
+	 */
+	private int findAnchor(int start1, int end1, int start2, int end2) {
+		for (int i = end1 - 1; i >= start1; i--) {
+			int id = this.ids1[i];
+			if (this.counts[id] == 0)
+				this.heads[id] = -1;
+			this.next[i] = this.heads[id];
+			this.heads[id] = i;
+			this.counts[id]++;
+		}
+
+		boolean hasCommon = false;
+		int bestLength = 0;
+		int bestCount = MAX_CHAIN_LENGTH + 1;
+		// among equally good anchors prefer the one closest to the middle so
+		// that the region is split evenly
+		int middle2 = start2 + end2;
+		int bestDistance = Integer.MAX_VALUE;
+		for (int i2 = start2; i2 < end2;) {
+			int id = this.ids2[i2];
+			int count = this.counts[id];
+			int nextI2 = i2 + 1;
+			if (count == 0) {
+				i2 = nextI2;
+				continue;
+			}
+			hasCommon = true;
+			if (count > MAX_CHAIN_LENGTH || count > bestCount) {
+				i2 = nextI2;
+				continue;
+			}
+			for (int i1 = this.heads[id]; i1 != -1; i1 = this.next[i1]) {
+				int s1 = i1, s2 = i2;
+				int e1 = i1 + 1, e2 = i2 + 1;
+				int runCount = count;
+				while (s1 > start1 && s2 > start2 && this.ids1[s1 - 1] == this.ids2[s2 - 1]) {
+					s1--;
+					s2--;
+					runCount = Math.min(runCount, this.counts[this.ids1[s1]]);
+				}
+				while (e1 < end1 && e2 < end2 && this.ids1[e1] == this.ids2[e2]) {
+					runCount = Math.min(runCount, this.counts[this.ids1[e1]]);
+					e1++;
+					e2++;
+				}
+				if (nextI2 < e2)
+					nextI2 = e2;
+				int distance = Math.abs(s2 + e2 - middle2);
+				if (runCount < bestCount
+						|| (runCount == bestCount && (bestLength < e2 - s2
+								|| (bestLength == e2 - s2 && distance < bestDistance)))) {
+					bestLength = e2 - s2;
+					bestCount = runCount;
+					bestDistance = distance;
+					this.anchorStart1 = s1;
+					this.anchorEnd1 = e1;
+					this.anchorStart2 = s2;
+				}
+				// skip the positions of the first sequence covered by this run
+				while (this.next[i1] != -1 && this.next[i1] < e1) {
+					i1 = this.next[i1];
+				}
+			}
+			i2 = nextI2;
+		}
+
+		for (int i = start1; i < end1; i++) {
+			this.counts[this.ids1[i]] = 0;
+		}
+		if (bestLength == 0 && hasCommon)
+			return -1;
+		return bestLength;
+	}
+
+	/*
+	 * Myers' algorithm for a region in which all common lines occur too often
+	 */
+	private class RegionLCS extends LCS {
+		private final int start1, end1, start2, end2;
+
+		RegionLCS(int start1, int end1, int start2, int end2) {
+			this.start1 = start1;
+			this.end1 = end1;
+			this.start2 = start2;
+			this.end2 = end2;
+		}
+
+		@Override
+		protected int getLength1() {
+			return this.end1 - this.start1;
+		}
+
+		@Override
+		protected int getLength2() {
+			return this.end2 - this.start2;
+		}
+
+		@Override
+		protected boolean isRangeEqual(int i1, int i2) {
+			return HistogramDiff.this.ids1[this.start1 + i1] == HistogramDiff.this.ids2[this.start2 + i2];
+		}
+
+		@Override
+		protected void setLcs(int sl1, int sl2) {
+			HistogramDiff.this.matches[this.start1 + sl1] = this.start2 + sl2 + 1;
+		}
+
+		@Override
+		protected void initializeLcs(int lcsLength) {
+			// matches are recorded in the enclosing diff
+		}
+
+		@Override
+		protected boolean isCappingDisabled() {
+			// the region lies between anchors, so it is usually small
+			return true;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -97,7 +97,13 @@ public abstract class LCS {
 
 	}
 
-	private boolean isCappingDisabled() {
+	/**
+	 * Returns whether the running time is not bounded for long sequences.
+	 * Subclasses may override to always find a longest common subsequence.
+	 *
+	 * @return <code>true</code> if the running time is not bounded
+	 */
+	protected boolean isCappingDisabled() {
 		return ComparePlugin.getDefault().isCappingDisabled();
 	}
 
@@ -461,4 +467,8 @@ public abstract class LCS {
 	public int getLength() {
 		return this.length;
 	}
+
+	protected void setLength(int length) {
+		this.length = length;
+	}
 }
@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.internal.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The lines of a text, represented by the offsets at which the lines start.
+ * <p>
+ * Lines are never copied out of the text unless {@link #getLine(int)} or
+ * {@link #getLineWithDelimiter(int)} is called. Line hashes are computed on
+ * first use and cached, so comparing lines with
+ * {@link #lineEquals(int, LineIndex, int)} does not create any garbage.
+ * </p>
+ * <p>
+ * The text must not be modified while the index is in use.
+ * </p>
+ */
+public final class LineIndex {
+
+	private final CharSequence text;
+
+	// offsets[i] is the start of line i, offsets[lineCount] is the end of the last line
+	private final int[] offsets;
+	private final int lineCount;
+
+	// lazily computed line hashes, 0 means not yet computed
+	private int[] hashes;
+
+	private LineIndex(CharSequence text, int[] offsets, int lineCount) {
+		this.text = text;
+		this.offsets = offsets;
+		this.lineCount = lineCount;
+	}
+
+	/**
+	 * Breaks the given text into lines. A line is terminated by '\n', '\r' or
+	 * "\r\n". There is one more line than there are line delimiters, so the
+	 * last line is empty if the text ends with a line delimiter, and the
+	 * empty text consists of one empty line.
+	 *
+	 * @param text the text to index
+	 * @return the line index of the text
+	 */
+	public static LineIndex create(CharSequence text) {
+		return create(text, false, true);
+	}
+
+	/**
+	 * Breaks the given text into lines the way the patch <code>LineReader</code>
+	 * does. A line is terminated by '\n' or "\r\n", and by a single '\r' if
+	 * <code>ignoreSingleCR</code> is <code>false</code> or if it is the last
+	 * character of the text. The last line is only part of the index if it is
+	 * not empty.
+	 *
+	 * @param text the text to index
+	 * @param ignoreSingleCR whether a '\r' that is not followed by '\n'
+	 *            terminates a line
+	 * @return the line index of the text
+	 */
+	public static LineIndex create(CharSequence text, boolean ignoreSingleCR) {
+		return create(text, ignoreSingleCR, false);
+	}
+
+	private static LineIndex create(CharSequence text, boolean ignoreSingleCR, boolean includeEmptyLastLine) {
+		int length = text.length();
+		int[] offsets = new int[16];
+		int count = 0;
+		int start = 0;
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if (c == '\r') {
+				if (i + 1 < length) {
+					if (text.charAt(i + 1) == '\n')
+						i++;
+					else if (ignoreSingleCR)
+						continue;
+				}
+			} else if (c != '\n') {
+				continue;
+			}
+			if (count + 2 > offsets.length)
+				offsets = grow(offsets);
+			offsets[count++] = start;
+			start = i + 1;
+		}
+		if (start < length || includeEmptyLastLine) {
+			if (count + 2 > offsets.length)
+				offsets = grow(offsets);
+			offsets[count++] = start;
+		}
+		offsets[count] = length;
+		return new LineIndex(text, offsets, count);
+	}
+
+	private static int[] grow(int[] offsets) {
+		int[] newOffsets = new int[offsets.length * 2];
+		System.arraycopy(offsets, 0, newOffsets, 0, offsets.length);
+		return newOffsets;
+	}
+
+	/**
+	 * Returns the number of lines.
+	 *
+	 * @return the number of lines
+	 */
+	public int getLineCount() {
+		return this.lineCount;
+	}
+
+	/**
+	 * Returns the offset of the given line in the text.
+	 *
+	 * @param line the line number, starting at 0
+	 * @return the offset of the first character of the line
+	 */
+	public int getLineOffset(int line) {
+		return this.offsets[line];
+	}
+
+	/**
+	 * Returns the length of the given line without its line delimiter.
+	 *
+	 * @param line the line number, starting at 0
+	 * @return the length of the line without its line delimiter
+	 */
+	public int getLineLength(int line) {
+		int start = this.offsets[line];
+		int end = this.offsets[line + 1];
+		if (end > start) {
+			char c = this.text.charAt(end - 1);
+			if (c == '\n') {
+				end--;
+				if (end > start && this.text.charAt(end - 1) == '\r')
+					end--;
+			} else if (c == '\r') {
+				end--;
+			}
+		}
+		return end - start;
+	}
+
+	/**
+	 * Returns the text of the given line without its line delimiter.
+	 *
+	 * @param line the line number, starting at 0
+	 * @return the text of the line
+	 */
+	public String getLine(int line) {
+		int start = this.offsets[line];
+		return this.text.subSequence(start, start + getLineLength(line)).toString();
+	}
+
+	/**
+	 * Returns the text of the given line including its line delimiter.
+	 *
+	 * @param line the line number, starting at 0
+	 * @return the text of the line and its line delimiter
+	 */
+	public String getLineWithDelimiter(int line) {
+		return this.text.subSequence(this.offsets[line], this.offsets[line + 1]).toString();
+	}
+
+	/**
+	 * Returns the text of all lines including their line delimiters.
+	 *
+	 * @return a modifiable list with the text of all lines
+	 */
+	public List<String> getLinesWithDelimiter() {
+		List<String> lines = new ArrayList<>(this.lineCount);
+		for (int i = 0; i < this.lineCount; i++) {
+			lines.add(getLineWithDelimiter(i));
+		}
+		return lines;
+	}
+
+	/**
+	 * Returns a hash code of the text of the given line without its line
+	 * delimiter. Equal lines of different indexes have equal hash codes.
+	 *
+	 * @param line the line number, starting at 0
+	 * @return the hash code of the line
+	 */
+	public int getLineHash(int line) {
+		if (this.hashes == null)
+			this.hashes = new int[this.lineCount];
+		int hash = this.hashes[line];
+		if (hash == 0) {
+			int start = this.offsets[line];
+			int end = start + getLineLength(line);
+			for (int i = start; i < end; i++) {
+				hash = 31 * hash + this.text.charAt(i);
+			}
+			if (hash == 0)
+				hash = 1;
+			this.hashes[line] = hash;
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns whether the given lines have the same text, ignoring their line
+	 * delimiters.
+	 *
+	 * @param line the line number in this index
+	 * @param other the index of the other line
+	 * @param otherLine the line number in the other index
+	 * @return whether both lines have the same text
+	 */
+	public boolean lineEquals(int line, LineIndex other, int otherLine) {
+		int length = getLineLength(line);
+		if (length != other.getLineLength(otherLine))
+			return false;
+		if (getLineHash(line) != other.getLineHash(otherLine))
+			return false;
+		int start = this.offsets[line];
+		int otherStart = other.offsets[otherLine];
+		for (int i = 0; i < length; i++) {
+			if (this.text.charAt(start + i) != other.text.charAt(otherStart + i))
+				return false;
+		}
+		return true;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2011 IBM Corporation and others.
+ * Copyright (c) 2006, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,10 +13,6 @@
  *******************************************************************************/
 package org.eclipse.compare.internal.core;
 
-import java.util.ArrayList;
-import java.util.List;
-
-
 public class TextLineLCS extends LCS {
 
 	private final TextLine[] lines1;
@@ -129,61 +125,41 @@ public class TextLineLCS extends LCS {
 	 * @return the array of TextLine object each corresponding to a line of text
 	 */
 	public static TextLine[] getTextLines(String text) {
-		List<TextLine> lines = new ArrayList<>();
-		int begin = 0;
-		int end = getEOL(text, 0);
-		int lineNum = 0;
-		while (end != -1) {
-			lines.add(new TextLine(lineNum++, text.substring(begin, end)));
-			begin = end + 1;
-			end = getEOL(text, begin);
-			if (end == begin && text.charAt(begin - 1) == '\r'
-					&& text.charAt(begin) == '\n') {
-				// we have '\r' followed by '\n', skip it
-				begin = end + 1;
-				end = getEOL(text, begin);
-			}
-		}
-
-		/*
-		 * this is the last line, no more newline characters, so take the rest
-		 * of the string
-		 */
-		lines.add(new TextLine(lineNum, text.substring(begin)));
-		TextLine[] aLines = new TextLine[lines.size()];
-		lines.toArray(aLines);
-		return aLines;
+		return getTextLines(LineIndex.create(text));
 	}
 
 	/**
-	 * Returns the index of the next end of line marker ('\n' or '\r') after
-	 * start
+	 * Returns an array of TextLine objects for the lines of the given index.
+	 * The text of the lines is not copied.
 	 *
-	 * @param text The string to examine
-	 * @param start The location in the string to start looking
-	 * @return the index such that text.charAt(index) == '\n' or '\r', -1 if not
-	 *         found
+	 * @param index the line index
+	 * @return the array of TextLine object each corresponding to a line of the
+	 *         index
 	 */
-	private static int getEOL(String text, int start) {
-		int max = text.length();
-		for (int i = start; i < max; i++) {
-			char c = text.charAt(i);
-			if (c == '\n' || c == '\r') {
-				return i;
-			}
+	public static TextLine[] getTextLines(LineIndex index) {
+		TextLine[] lines = new TextLine[index.getLineCount()];
+		for (int i = 0; i < lines.length; i++) {
+			lines[i] = new TextLine(i, index, i);
 		}
-		return -1;
+		return lines;
 	}
 
 	/* used to store information about a single line of text */
 	public static class TextLine {
 		private int number; // the line number
 
-		private String text; // the actual text
+		private LineIndex index; // the lines containing this line
+
+		private int line; // the number of this line in the index
 
 		public TextLine(int number, String text) {
+			this(number, LineIndex.create(text), 0);
+		}
+
+		TextLine(int number, LineIndex index, int line) {
 			this.number = number;
-			this.text = text;
+			this.index = index;
+			this.line = line;
 		}
 
 		/**
@@ -194,9 +170,9 @@ public class TextLineLCS extends LCS {
 		 * @return true if this and l have the same text
 		 */
 		public boolean sameText(TextLine l) {
-			// compare the hashCode() first since that is much faster and most
-			// of the time the text lines won't match
-			return this.text.hashCode() == l.text.hashCode() && l.text.equals(this.text);
+			// the line hashes are compared first since that is much faster and
+			// most of the time the text lines won't match
+			return this.index.lineEquals(this.line, l.index, l.line);
 		}
 
 		/**
@@ -210,7 +186,7 @@ public class TextLineLCS extends LCS {
 
 		@Override
 		public String toString() {
-			return "" + this.number + " " + this.text + "\n"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			return "" + this.number + " " + this.index.getLine(this.line) + "\n"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 		}
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2011 IBM Corporation and others.
+ * Copyright (c) 2006, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -159,13 +159,14 @@ public class FileDiffResult implements IFilePatchResult {
 			calculateFuzz(this.fBeforeLines, monitor);
 		}
 		int shift= 0;
+		HunkLocator locator = new HunkLocator(getConfiguration(), lines);
 		IHunk[] hunks = this.fDiff.getHunks();
 		for (IHunk h : hunks) {
 			Hunk hunk = (Hunk) h;
 			hunk.setCharset(getCharset());
 			HunkResult result = getHunkResult(hunk);
 			result.setShift(shift);
-			if (result.patch(lines)) {
+			if (result.patch(lines, locator)) {
 				shift = result.getShift();
 			}
 		}
@@ -228,6 +229,7 @@ public class FileDiffResult implements IFilePatchResult {
 		}
 		int shift= 0;
 		int highestFuzz = -1; // the maximum fuzz factor for all hunks
+		HunkLocator locator = new HunkLocator(getConfiguration(), lines);
 		String name = getTargetPath() != null ? getTargetPath().lastSegment() : ""; //$NON-NLS-1$
 		IHunk[] hunks = this.fDiff.getHunks();
 		for (int j = 0; j < hunks.length; j++) {
@@ -235,7 +237,7 @@ public class FileDiffResult implements IFilePatchResult {
 			monitor.subTask(NLS.bind(Messages.FileDiffResult_3, new String[] {name, Integer.toString(j + 1)}));
 			HunkResult result = getHunkResult(h);
 			result.setShift(shift);
-			int fuzz = result.calculateFuzz(lines, monitor);
+			int fuzz = result.calculateFuzz(lines, locator, monitor);
 			shift = result.getShift();
 			if (fuzz > highestFuzz)
 				highestFuzz = fuzz;
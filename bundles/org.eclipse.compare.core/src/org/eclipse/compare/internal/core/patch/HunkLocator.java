@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.internal.core.patch;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.compare.patch.PatchConfiguration;
+
+/**
+ * Finds the shifts at which a hunk may apply to the lines of a target file.
+ * <p>
+ * A deleted line of a hunk, or a context line if no fuzz is used, has to match
+ * the target file for {@link Hunk#tryPatch(PatchConfiguration, List, int, int)}
+ * to succeed. Such a line is used as anchor: the hunk can only apply at the
+ * shifts that place the anchor on a target line with the same hash. The
+ * positions of the target lines are indexed by hash on first use, so that
+ * shifted positions are only tried at these candidate shifts. Hunks without
+ * an anchor are tried at every shift.
+ * </p>
+ * <p>
+ * A locator is shared by the hunks of a file patch, so that the index is
+ * built at most once. The target lines must only be modified by applying
+ * hunks, and each applied hunk must be reported with
+ * {@link #hunkApplied(Hunk, int, int)} so that the index is kept up to date.
+ * </p>
+ */
+public class HunkLocator {
+
+	private final PatchConfiguration configuration;
+	private final List<String> lines;
+
+	// (hash << 32) | position for all target lines, sorted
+	private long[] index;
+
+	// the anchor of the last located hunk
+	private Hunk hunk;
+	private int fuzz;
+	private boolean anchored;
+	private int hash; // the hash of the anchor
+	private int from, to; // the range of the index with the hash of the anchor
+	private int base; // the position of the anchor for shift 0
+
+	public HunkLocator(PatchConfiguration configuration, List<String> lines) {
+		this.configuration = configuration;
+		this.lines = lines;
+	}
+
+	/**
+	 * Returns the largest shift below the given one at which the hunk may
+	 * apply.
+	 *
+	 * @return the shift or <code>Integer.MIN_VALUE</code> if there is none
+	 */
+	public int getPreviousShift(Hunk h, int f, int shift) {
+		if (!locate(h, f))
+			return shift - 1;
+		int position = Math.min(shift + this.base, this.lines.size());
+		if (position <= 0)
+			return Integer.MIN_VALUE;
+		int k = lowerBound(this.from, this.to, key(this.hash, position));
+		if (k == this.from)
+			return Integer.MIN_VALUE;
+		return (int) this.index[k - 1] - this.base;
+	}
+
+	/**
+	 * Returns the smallest shift above the given one at which the hunk may
+	 * apply.
+	 *
+	 * @return the shift or <code>Integer.MAX_VALUE</code> if there is none
+	 */
+	public int getNextShift(Hunk h, int f, int shift) {
+		if (!locate(h, f))
+			return shift + 1;
+		int position = Math.max(shift + this.base + 1, 0);
+		if (position >= this.lines.size())
+			return Integer.MAX_VALUE;
+		int k = lowerBound(this.from, this.to, key(this.hash, position));
+		if (k == this.to)
+			return Integer.MAX_VALUE;
+		return (int) this.index[k] - this.base;
+	}
+
+	/**
+	 * Updates the index after the given hunk was applied to the target lines.
+	 *
+	 * @param h
+	 *            the hunk
+	 * @param shift
+	 *            the shift at which the hunk was applied
+	 * @param oldSize
+	 *            the number of target lines before the hunk was applied
+	 */
+	public void hunkApplied(Hunk h, int shift, int oldSize) {
+		// the range of the anchor refers to the old positions
+		this.hunk = null;
+		if (this.index == null)
+			return;
+		boolean reverse = this.configuration.isReversed();
+		char added = reverse ? '-' : '+';
+		int oldLength = 0;
+		for (String line : h.getLines()) {
+			if (line.charAt(0) != added)
+				oldLength++;
+		}
+		// a hunk without old lines inserts after the line at its start, see
+		// Hunk#doPatch, so one more line is taken as replaced
+		int oldEnd = Math.min(Math.max(h.getStart(reverse) + shift, 0) + oldLength + 1, oldSize);
+		int start = Math.min(Math.max(h.getStart(reverse) + shift, 0), oldEnd);
+		update(start, oldEnd, oldEnd + this.lines.size() - oldSize);
+	}
+
+	/*
+	 * Replaces the entries of the old lines [start, oldEnd) by the entries of
+	 * the new lines [start, newEnd) and moves the positions of the lines
+	 * after them. Moving the positions keeps the order of the index.
+	 */
+	private void update(int start, int oldEnd, int newEnd) {
+		int delta = newEnd - oldEnd;
+		long[] added = new long[newEnd - start];
+		for (int i = start; i < newEnd; i++) {
+			added[i - start] = key(hash(this.lines.get(i), 0), i);
+		}
+		Arrays.sort(added);
+		long[] updated = new long[this.index.length + delta];
+		int n = 0;
+		int a = 0;
+		for (long key : this.index) {
+			int position = (int) key;
+			if (position >= start && position < oldEnd)
+				continue;
+			if (position >= oldEnd)
+				key += delta;
+			while (a < added.length && added[a] < key) {
+				updated[n++] = added[a++];
+			}
+			updated[n++] = key;
+		}
+		while (a < added.length) {
+			updated[n++] = added[a++];
+		}
+		this.index = updated;
+	}
+
+	/*
+	 * Finds the anchor of the given hunk and returns whether there is one
+	 */
+	private boolean locate(Hunk h, int f) {
+		if (h == this.hunk && f == this.fuzz)
+			return this.anchored;
+		this.hunk = h;
+		this.fuzz = f;
+		this.anchored = false;
+
+		boolean reverse = this.configuration.isReversed();
+		char deleted = reverse ? '+' : '-';
+		String anchor = null;
+		int anchorOffset = 0;
+		int offset = 0;
+		for (String line : h.getLines()) {
+			char controlChar = line.charAt(0);
+			if (controlChar == deleted) {
+				anchor = line;
+				anchorOffset = offset;
+				break;
+			}
+			if (controlChar == ' ') {
+				if (f == 0 && anchor == null) {
+					anchor = line;
+					anchorOffset = offset;
+				}
+				offset++;
+			}
+		}
+		if (anchor == null)
+			return false;
+
+		if (this.index == null)
+			createIndex();
+		// the range is empty if the anchor is not part of the target
+		this.hash = hash(anchor, 1);
+		this.from = lowerBound(0, this.index.length, key(this.hash, 0));
+		this.to = lowerBound(this.from, this.index.length, key(this.hash, Integer.MAX_VALUE));
+		this.base = h.getStart(reverse) + anchorOffset;
+		this.anchored = true;
+		return true;
+	}
+
+	private void createIndex() {
+		int size = this.lines.size();
+		this.index = new long[size];
+		for (int i = 0; i < size; i++) {
+			this.index[i] = key(hash(this.lines.get(i), 0), i);
+		}
+		Arrays.sort(this.index);
+	}
+
+	private static long key(int hash, int position) {
+		return ((long) hash << 32) | position;
+	}
+
+	private int lowerBound(int low, int high, long key) {
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (this.index[mid] < key)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/*
+	 * Returns a hash of the line starting at the given index that is equal for
+	 * lines that match in Hunk#linesMatch
+	 */
+	private int hash(String line, int start) {
+		int hash = 0;
+		if (this.configuration.isIgnoreWhitespace()) {
+			int length = line.length();
+			for (int i = start; i < length; i++) {
+				char c = line.charAt(i);
+				if (!Character.isWhitespace(c))
+					hash = 31 * hash + c;
+			}
+		} else {
+			int length = LineReader.length(line);
+			for (int i = start; i < length; i++) {
+				hash = 31 * hash + line.charAt(i);
+			}
+		}
+		return hash;
+	}
+}
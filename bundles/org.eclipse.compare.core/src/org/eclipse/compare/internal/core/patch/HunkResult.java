@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2011 IBM Corporation and others.
+ * Copyright (c) 2006, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -55,6 +55,19 @@ public class HunkResult {
 	 * @return whether the hunk could be applied
 	 */
 	public boolean patch(List<String> lines) {
+		return patch(lines, new HunkLocator(getConfiguration(), lines));
+	}
+
+	/**
+	 * Try to apply the specified hunk to the given lines.
+	 * If the hunk cannot be applied at the original position
+	 * the method tries shift lines up and down.
+	 * @param lines the lines to be patched
+	 * @param locator the locator for the lines, which is shared by the
+	 * hunks of the file patch
+	 * @return whether the hunk could be applied
+	 */
+	public boolean patch(List<String> lines, HunkLocator locator) {
 		this.fMatches = false;
 		PatchConfiguration configuration = getConfiguration();
 		// if the fuzz is not set for the current hunk use the one from fDiffResult
@@ -62,36 +75,15 @@ public class HunkResult {
 		if (isEnabled(configuration)) {
 			if (this.fHunk.tryPatch(configuration, lines, this.fShift, fuzz)) {
 				// it's a perfect match, no shifting is needed
-				this.fShift += this.fHunk.doPatch(configuration, lines, this.fShift, fuzz);
+				this.fShift += doPatch(configuration, lines, fuzz, locator);
 				this.fMatches = true;
 			} else {
-				boolean found= false;
 				int oldShift= this.fShift;
-
-				int hugeShift = lines.size();
-				for (int i = 1; i <= hugeShift; i++) {
-					if (this.fHunk.tryPatch(configuration, lines, this.fShift - i, fuzz)) {
-						if (isAdjustShift())
-							this.fShift -= i;
-						found = true;
-						break;
-					}
-				}
-
-				if (!found) {
-					for (int i = 1; i <= hugeShift; i++) {
-						if (this.fHunk.tryPatch(configuration, lines, this.fShift + i, fuzz)) {
-							if (isAdjustShift())
-								this.fShift += i;
-							found = true;
-							break;
-						}
-					}
-				}
+				boolean found= shift(configuration, lines, fuzz, locator, null);
 
 				if (found) {
 					if (DEBUG) System.out.println("patched hunk at offset: " + (this.fShift-oldShift)); //$NON-NLS-1$
-					this.fShift+= this.fHunk.doPatch(configuration, lines, this.fShift, fuzz);
+					this.fShift+= doPatch(configuration, lines, fuzz, locator);
 					this.fMatches = true;
 				}
 			}
@@ -99,6 +91,58 @@ public class HunkResult {
 		return this.fMatches;
 	}
 
+	/*
+	 * Tries to apply the hunk at shifts above and then below the current
+	 * shift, closest first. Only the shifts at which the hunk may apply
+	 * according to the given locator are tried.
+	 */
+	private boolean shift(PatchConfiguration configuration, List<String> lines, int fuzz, HunkLocator locator, IProgressMonitor monitor) {
+		// TODO (tzarna): hugeShift=lines.size() is more than we need.
+		// Lines to the beg/end of a file would be enough but this can still
+		// in matching hunks out of order. Try to shift using only lines
+		// available "between" hunks.
+		int hugeShift = lines.size();
+
+		// shift up
+		for (int shift = locator.getPreviousShift(this.fHunk, fuzz, this.fShift);
+				shift >= this.fShift - hugeShift;
+				shift = locator.getPreviousShift(this.fHunk, fuzz, shift)) {
+			if (monitor != null && monitor.isCanceled()) {
+				throw new OperationCanceledException();
+			}
+			if (this.fHunk.tryPatch(configuration, lines, shift, fuzz)) {
+				if (isAdjustShift())
+					this.fShift = shift;
+				return true;
+			}
+		}
+
+		// shift down
+		for (int shift = locator.getNextShift(this.fHunk, fuzz, this.fShift);
+				shift <= this.fShift + hugeShift;
+				shift = locator.getNextShift(this.fHunk, fuzz, shift)) {
+			if (monitor != null && monitor.isCanceled()) {
+				throw new OperationCanceledException();
+			}
+			if (this.fHunk.tryPatch(configuration, lines, shift, fuzz)) {
+				if (isAdjustShift())
+					this.fShift = shift;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Applies the hunk at the current shift and updates the locator
+	 */
+	private int doPatch(PatchConfiguration configuration, List<String> lines, int fuzz, HunkLocator locator) {
+		int oldSize = lines.size();
+		int shift = this.fHunk.doPatch(configuration, lines, this.fShift, fuzz);
+		locator.hunkApplied(this.fHunk, this.fShift, oldSize);
+		return shift;
+	}
+
 	private boolean isAdjustShift() {
 		return true;
 	}
@@ -119,6 +163,24 @@ public class HunkResult {
 	 * @return the fuzz factor or -1 if the hunk could not be matched
 	 */
 	public int calculateFuzz(List<String> lines, IProgressMonitor monitor) {
+		return calculateFuzz(lines, new HunkLocator(getConfiguration(), lines), monitor);
+	}
+
+	/**
+	 * Calculate the fuzz that will allow the most hunks to be matched. Even
+	 * though we're interested only in the value of the fuzz, the shifting is
+	 * done anyway.
+	 *
+	 * @param lines
+	 *            the lines of the target file
+	 * @param locator
+	 *            the locator for the lines, which is shared by the hunks of
+	 *            the file patch
+	 * @param monitor
+	 *            a progress monitor
+	 * @return the fuzz factor or -1 if the hunk could not be matched
+	 */
+	public int calculateFuzz(List<String> lines, HunkLocator locator, IProgressMonitor monitor) {
 		this.fMatches = false;
 		PatchConfiguration configuration = getConfiguration();
 		int fuzz = 0;
@@ -128,47 +190,15 @@ public class HunkResult {
 			// try to apply using lines coordinates from the patch
 			if (this.fHunk.tryPatch(configuration, lines, this.fShift, fuzz)) {
 				// it's a perfect match, no adjustment is needed
-				this.fShift += this.fHunk.doPatch(configuration, lines, this.fShift, fuzz);
+				this.fShift += doPatch(configuration, lines, fuzz, locator);
 				this.fMatches = true;
 				break;
 			}
 
-			// TODO (tzarna): hugeShift=lines.size() is more than we need.
-			// Lines to the beg/end of a file would be enough but this can still
-			// in matching hunks out of order. Try to shift using only lines
-			// available "between" hunks.
-			int hugeShift = lines.size();
-
-			// shift up
-			for (int i = 1; i <= hugeShift; i++) {
-				if (monitor.isCanceled()) {
-					throw new OperationCanceledException();
-				}
-				if (this.fHunk.tryPatch(configuration, lines, this.fShift - i, fuzz)) {
-					if (isAdjustShift())
-						this.fShift -= i;
-					this.fMatches = true;
-					break;
-				}
-			}
-
-			// shift down
-			if (!this.fMatches) {
-				for (int i = 1; i <= hugeShift; i++) {
-					if (monitor.isCanceled()) {
-						throw new OperationCanceledException();
-					}
-					if (this.fHunk.tryPatch(configuration, lines, this.fShift + i, fuzz)) {
-						if (isAdjustShift())
-							this.fShift += i;
-						this.fMatches = true;
-						break;
-					}
-				}
-			}
+			this.fMatches = shift(configuration, lines, fuzz, locator, monitor);
 
 			if (this.fMatches) {
-				this.fShift += this.fHunk.doPatch(configuration, lines, this.fShift, fuzz);
+				this.fShift += doPatch(configuration, lines, fuzz, locator);
 				break;
 			}
 		}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.util.*;
 
 import org.eclipse.compare.internal.core.ComparePlugin;
+import org.eclipse.compare.internal.core.LineIndex;
 import org.eclipse.compare.patch.ReaderCreator;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
@@ -178,15 +179,35 @@ public class LineReader {
 	}
 
 	public List<String> readLines() {
+		LineIndex index= readLineIndex();
+		if (index != null)
+			return index.getLinesWithDelimiter();
+		return null;
+	}
+
+	/**
+	 * Reads the remaining contents and returns the lines found in them. Unlike
+	 * {@link #readLines()} no string is created for the individual lines.
+	 * @return the lines of the remaining contents, or <code>null</code> if an
+	 *	I/O error occurs
+	 */
+	public LineIndex readLineIndex() {
 		try {
-			List<String> lines= new ArrayList<>();
-			String line;
-			while ((line= readLine()) != null)
-				lines.add(line);
-			return lines;
+			StringBuilder text= new StringBuilder();
+			if (this.fHaveChar) {
+				this.fHaveChar= false;
+				text.append((char) this.fLastChar);
+			}
+			if (!this.fSawEOF) {
+				char[] buffer= new char[8192];
+				int read;
+				while ((read= this.fReader.read(buffer)) != -1)
+					text.append(buffer, 0, read);
+				this.fSawEOF= true;
+			}
+			return LineIndex.create(text, this.fIgnoreSingleCR);
 		} catch (IOException ex) {
 			// NeedWork
-			//System.out.println("error while reading file: " + fileName + "(" + ex + ")");
 		} finally {
 			close();
 		}
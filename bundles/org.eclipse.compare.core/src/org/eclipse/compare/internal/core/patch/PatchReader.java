@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2018 IBM Corporation and others.
+ * Copyright (c) 2006, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -17,6 +17,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 import org.eclipse.compare.patch.IFilePatch2;
@@ -49,6 +50,7 @@ public class PatchReader {
 	private boolean fIsGitPatch;
 	private DiffProject[] fDiffProjects;
 	private FilePatch2[] fDiffs;
+	private Consumer<? super FilePatch2> fConsumer;
 
 	// API for writing new multi-project patch format
 	public static final String MULTIPROJECTPATCH_HEADER= "### Eclipse Workspace Patch"; //$NON-NLS-1$
@@ -78,6 +80,30 @@ public class PatchReader {
 		this.fDateFormats = dateFormats;
 	}
 
+	/**
+	 * Parses the patch and passes each file patch to the given consumer as
+	 * soon as all of its hunks have been read. The file patches are not
+	 * collected, {@link #getDiffs()} returns an empty array afterwards and the
+	 * projects returned by {@link #getDiffProjects()} have no file patches.
+	 * File patches of workspace patches are passed with project relative
+	 * paths, like the ones returned by {@link #getAdjustedDiffs()}.
+	 *
+	 * @param reader
+	 *            the reader of the patch
+	 * @param consumer
+	 *            the consumer of the file patches
+	 * @throws IOException
+	 *             if an error occurs reading the patch
+	 */
+	public void parse(BufferedReader reader, Consumer<? super FilePatch2> consumer) throws IOException {
+		this.fConsumer= consumer;
+		try {
+			parse(reader);
+		} finally {
+			this.fConsumer= null;
+		}
+	}
+
 	public void parse(BufferedReader reader) throws IOException {
 		List<FilePatch2> diffs= new ArrayList<>();
 		HashMap<String, DiffProject> diffProjects= new HashMap<>(4);
@@ -140,6 +166,7 @@ public class PatchReader {
 				}
 
 				line= readUnifiedDiff(diffs, lr, line, diffArgs, fileName, diffProject);
+				consume(diffs);
 				diffArgs= fileName= null;
 				reread= true;
 			}
@@ -192,15 +219,23 @@ public class PatchReader {
 				foundDiff= true;
 				diffArgs= line.substring(4).trim();
 			} else if (line.startsWith("--- ")) { //$NON-NLS-1$
+				int count= diffs.size();
 				line= readUnifiedDiff(diffs, lr, line, diffArgs, fileName);
-				if (!headerLines.isEmpty())
-					setHeader(diffs.get(diffs.size() - 1), headerLines);
+				if (diffs.size() > count) {
+					if (!headerLines.isEmpty())
+						setHeader(diffs.get(diffs.size() - 1), headerLines);
+					consume(diffs);
+				}
 				diffArgs= fileName= null;
 				reread= true;
 			} else if (line.startsWith("*** ")) { //$NON-NLS-1$
+				int count= diffs.size();
 				line= readContextDiff(diffs, lr, line, diffArgs, fileName);
-				if (!headerLines.isEmpty())
-					setHeader(diffs.get(diffs.size() - 1), headerLines);
+				if (diffs.size() > count) {
+					if (!headerLines.isEmpty())
+						setHeader(diffs.get(diffs.size() - 1), headerLines);
+					consume(diffs);
+				}
 				diffArgs= fileName= null;
 				reread= true;
 			}
@@ -217,6 +252,26 @@ public class PatchReader {
 		this.fDiffs = diffs.toArray(new FilePatch2[diffs.size()]);
 	}
 
+	/*
+	 * Passes the given file patches to the consumer and forgets about them.
+	 * Does nothing if the file patches are collected.
+	 */
+	private void consume(List<FilePatch2> diffs) {
+		if (this.fConsumer == null)
+			return;
+		for (FilePatch2 diff : diffs) {
+			DiffProject project= diff.getProject();
+			if (project != null) {
+				FilePatch2 relativeDiff= diff.asRelativeDiff();
+				project.remove(diff);
+				this.fConsumer.accept(relativeDiff);
+			} else {
+				this.fConsumer.accept(diff);
+			}
+		}
+		diffs.clear();
+	}
+
 	private void setHeader(FilePatch2 diff, List<String> headerLines) {
 		String header = LineReader.createString(false, headerLines);
 		diff.setHeader(header);
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.patch;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Commits the result of applying a file patch, usually by writing the patched
+ * contents to the target file.
+ *
+ * @see PatchApplier#applyPatches(IFilePatch2[], ReaderCreator[],
+ *      PatchConfiguration, IFilePatchCommitter, IProgressMonitor)
+ * @since org.eclipse.compare.core 3.7
+ */
+public interface IFilePatchCommitter {
+
+	/**
+	 * Commits the result of applying the given file patch. This method is
+	 * called on the thread that applies the patches, once for every file
+	 * patch, in the order of the file patches.
+	 *
+	 * @param filePatch
+	 *            the file patch
+	 * @param result
+	 *            the result of applying the file patch
+	 * @param monitor
+	 *            a progress monitor
+	 * @throws CoreException
+	 *             if the result cannot be committed, this stops applying the
+	 *             remaining file patches
+	 */
+	public void commit(IFilePatch2 filePatch, IFilePatchResult result,
+			IProgressMonitor monitor) throws CoreException;
+
+}
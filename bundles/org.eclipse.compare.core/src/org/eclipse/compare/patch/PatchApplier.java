@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.patch;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubMonitor;
+
+/**
+ * Helper class for applying the file patches of a multi-file patch.
+ *
+ * @noextend This class is not intended to be subclassed by clients.
+ * @noinstantiate This class is not intended to be instantiated by clients.
+ *
+ * @since org.eclipse.compare.core 3.7
+ */
+public class PatchApplier {
+
+	/*
+	 * The number of file patches that may be applied ahead of the one
+	 * waiting to be committed, per worker thread
+	 */
+	private static final int WINDOW_PER_THREAD = 4;
+
+	/*
+	 * The number of worker threads, which are shared by all callers
+	 */
+	private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+	private static ExecutorService executor;
+
+	/**
+	 * Apply the given file patches to the given contents and return the
+	 * results. The file patches are applied on a bounded pool of worker
+	 * threads as described in
+	 * {@link #applyPatches(IFilePatch2[], ReaderCreator[], PatchConfiguration, IFilePatchCommitter, IProgressMonitor)}.
+	 * All results are kept in memory, so large patches should rather be
+	 * applied with a committer.
+	 *
+	 * @param filePatches
+	 *            the file patches
+	 * @param contents
+	 *            the contents to apply the file patch with the same index to,
+	 *            or <code>null</code> entries for additions
+	 * @param configuration
+	 *            the patch configuration
+	 * @param monitor
+	 *            a progress monitor, or <code>null</code> if progress
+	 *            reporting is not desired
+	 * @return the results of applying the file patches, in the order of the
+	 *         file patches
+	 * @throws OperationCanceledException
+	 *             if the monitor is canceled
+	 */
+	public static IFilePatchResult[] applyPatches(IFilePatch2[] filePatches,
+			ReaderCreator[] contents, PatchConfiguration configuration,
+			IProgressMonitor monitor) {
+		IFilePatchResult[] results = new IFilePatchResult[filePatches.length];
+		int[] index = new int[1];
+		try {
+			applyPatches(filePatches, contents, configuration,
+					(filePatch, result, m) -> results[index[0]++] = result, monitor);
+		} catch (CoreException e) {
+			// the committer does not fail
+			throw new IllegalStateException(e);
+		}
+		return results;
+	}
+
+	/**
+	 * Apply the given file patches to the given contents. The file patches
+	 * are loaded, matched and their fuzz is calculated on a bounded pool of
+	 * worker threads that is shared by all callers, but the results are
+	 * passed to the committer on the calling thread in the order of the file
+	 * patches. Only a bounded number of file patches is applied ahead of the
+	 * one waiting to be committed, and a result is not referenced any longer
+	 * once it is committed.
+	 * <p>
+	 * The file patches are independent of each other, so the given contents
+	 * must not depend on the results of other file patches being committed.
+	 * The configuration must not be modified while the patches are applied.
+	 * The workers check the monitor for cancellation, so a cancellation is
+	 * noticed once the file patches that are being applied are done.
+	 * </p>
+	 *
+	 * @param filePatches
+	 *            the file patches
+	 * @param contents
+	 *            the contents to apply the file patch with the same index to,
+	 *            or <code>null</code> entries for additions
+	 * @param configuration
+	 *            the patch configuration
+	 * @param committer
+	 *            the committer of the results
+	 * @param monitor
+	 *            a progress monitor, or <code>null</code> if progress
+	 *            reporting is not desired
+	 * @throws CoreException
+	 *             if the committer fails
+	 * @throws OperationCanceledException
+	 *             if the monitor is canceled
+	 */
+	public static void applyPatches(IFilePatch2[] filePatches,
+			ReaderCreator[] contents, PatchConfiguration configuration,
+			IFilePatchCommitter committer, IProgressMonitor monitor)
+			throws CoreException {
+		if (filePatches.length != contents.length)
+			throw new IllegalArgumentException();
+		SubMonitor progress = SubMonitor.convert(monitor, filePatches.length * 2);
+		if (filePatches.length == 0)
+			return;
+
+		int window = Math.min(filePatches.length, THREADS) * WINDOW_PER_THREAD;
+		// the workers only check for cancellation, progress is reported here
+		NullProgressMonitor workerMonitor = new NullProgressMonitor() {
+			@Override
+			public boolean isCanceled() {
+				return super.isCanceled() || progress.isCanceled();
+			}
+		};
+		@SuppressWarnings("unchecked")
+		Future<IFilePatchResult>[] futures = new Future[filePatches.length];
+		try {
+			for (int i = 0; i < Math.min(window, filePatches.length); i++) {
+				futures[i] = submit(filePatches[i], contents[i], configuration, workerMonitor);
+			}
+			for (int i = 0; i < filePatches.length; i++) {
+				IFilePatchResult result = waitFor(futures[i], progress);
+				futures[i] = null;
+				progress.worked(1);
+				if (i + window < filePatches.length) {
+					futures[i + window] = submit(filePatches[i + window], contents[i + window], configuration, workerMonitor);
+				}
+				committer.commit(filePatches[i], result, progress.newChild(1));
+			}
+		} finally {
+			// stop the file patches that are still queued or being applied
+			workerMonitor.setCanceled(true);
+			for (Future<IFilePatchResult> future : futures) {
+				if (future != null)
+					future.cancel(false);
+			}
+		}
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<>(), r -> {
+						Thread thread = new Thread(r, "Patch Applier"); //$NON-NLS-1$
+						thread.setDaemon(true);
+						return thread;
+					});
+			// the threads end when no patches are applied
+			pool.allowCoreThreadTimeOut(true);
+			executor = pool;
+		}
+		return executor;
+	}
+
+	private static Future<IFilePatchResult> submit(IFilePatch2 filePatch,
+			ReaderCreator content, PatchConfiguration configuration,
+			IProgressMonitor workerMonitor) {
+		return getExecutor().submit(() -> {
+			if (workerMonitor.isCanceled())
+				throw new OperationCanceledException();
+			return filePatch.apply(content, configuration, workerMonitor);
+		});
+	}
+
+	private static IFilePatchResult waitFor(Future<IFilePatchResult> future,
+			IProgressMonitor monitor) {
+		if (monitor.isCanceled())
+			throw new OperationCanceledException();
+		try {
+			// the worker fails if the monitor is canceled
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		}
+	}
+}
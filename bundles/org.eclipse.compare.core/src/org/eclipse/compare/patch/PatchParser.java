@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2011 IBM Corporation and others.
+ * Copyright (c) 2008, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,6 +15,7 @@ package org.eclipse.compare.patch;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.util.function.Consumer;
 
 import org.eclipse.compare.internal.core.ComparePlugin;
 import org.eclipse.compare.internal.core.patch.PatchReader;
@@ -57,4 +58,42 @@ public class PatchParser {
 			}
 		}
 	}
+
+	/**
+	 * Parse the given patch and pass each file patch that it contains to the
+	 * given consumer as soon as all of its hunks have been read. Unlike
+	 * {@link #parsePatch(ReaderCreator)} the file patches are not collected,
+	 * so the consumer can preview, apply or drop them one after the other
+	 * without the whole patch being kept in memory.
+	 * <p>
+	 * The file patches are passed in the order in which they appear in the
+	 * patch, on the calling thread. Parsing stops if the consumer throws an
+	 * exception.
+	 * </p>
+	 *
+	 * @param content
+	 *            a patch reader creator
+	 * @param consumer
+	 *            the consumer of the file patches
+	 * @throws CoreException
+	 *             if an error occurs reading the contents
+	 * @since org.eclipse.compare.core 3.7
+	 */
+	public static void parsePatch(ReaderCreator content,
+			Consumer<? super IFilePatch2> consumer) throws CoreException {
+		BufferedReader reader = new BufferedReader(content.createReader());
+		try {
+			PatchReader patchReader = new PatchReader();
+			patchReader.parse(reader, consumer);
+		} catch (IOException e) {
+			throw new CoreException(new Status(IStatus.ERROR,
+					ComparePlugin.PLUGIN_ID, 0, e.getMessage(), e));
+		} finally {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				// ignored
+			}
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2011 IBM Corporation and others.
+ * Copyright (c) 2009, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,12 +13,30 @@
  *******************************************************************************/
 package org.eclipse.compare.rangedifferencer;
 
+import org.eclipse.compare.internal.core.ComparePlugin;
+
 /**
  * @since org.eclipse.compare.core 3.5
  */
 public abstract class AbstractRangeDifferenceFactory {
 	protected abstract RangeDifference createRangeDifference();
 
+	/**
+	 * Returns the algorithm used to find the differences for this factory,
+	 * either {@link RangeDifferencer#MYERS} or
+	 * {@link RangeDifferencer#HISTOGRAM}. The default implementation returns
+	 * the algorithm selected in the preferences. Subclasses may override.
+	 *
+	 * @return the algorithm used to find the differences
+	 * @since org.eclipse.compare.core 3.7
+	 */
+	protected int getAlgorithm() {
+		ComparePlugin plugin = ComparePlugin.getDefault();
+		if (plugin == null)
+			return RangeDifferencer.MYERS;
+		return plugin.getDiffAlgorithm();
+	}
+
 	RangeDifference createRangeDifference(int changeKind) {
 		RangeDifference rangeDifference = createRangeDifference();
 		rangeDifference.kind = changeKind;
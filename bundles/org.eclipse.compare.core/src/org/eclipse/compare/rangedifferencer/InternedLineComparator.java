@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.rangedifferencer;
+
+/**
+ * A range comparator over lines that have been mapped to integer IDs by a
+ * {@link LineInterner}.
+ */
+/* package */ final class InternedLineComparator implements IRangeComparator {
+
+	final LineInterner interner;
+	final int[] ids;
+
+	InternedLineComparator(LineInterner interner, int[] ids) {
+		this.interner = interner;
+		this.ids = ids;
+	}
+
+	/*
+	 * Returns whether the lines of both comparators share the same ID space.
+	 */
+	boolean isCompatible(IRangeComparator other) {
+		return other instanceof InternedLineComparator
+				&& ((InternedLineComparator) other).interner == this.interner;
+	}
+
+	@Override
+	public int getRangeCount() {
+		return this.ids.length;
+	}
+
+	/*
+	 * Lines interned by the same interner are compared by ID, lines of other
+	 * interners by their text. The lines of other kinds of comparators are
+	 * not known, so they never match.
+	 */
+	@Override
+	public boolean rangesEqual(int thisIndex, IRangeComparator other, int otherIndex) {
+		if (!(other instanceof InternedLineComparator))
+			return false;
+		InternedLineComparator o = (InternedLineComparator) other;
+		if (o.interner == this.interner)
+			return this.ids[thisIndex] == o.ids[otherIndex];
+		return this.interner.getLine(this.ids[thisIndex]).equals(o.interner.getLine(o.ids[otherIndex]));
+	}
+
+	@Override
+	public boolean skipRangeComparison(int length, int maxLength, IRangeComparator other) {
+		return false;
+	}
+}
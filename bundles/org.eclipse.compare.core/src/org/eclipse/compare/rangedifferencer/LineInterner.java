@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.rangedifferencer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A <code>LineInterner</code> maps lines of text to dense integer IDs so that
+ * the <code>RangeDifferencer</code> can compare them with plain integer
+ * equality instead of calling <code>String.equals</code> for every probe.
+ * <p>
+ * All inputs of a single comparison must be interned with the same
+ * <code>LineInterner</code>:
+ * </p>
+ *
+ * <pre>
+ * LineInterner interner = new LineInterner();
+ * IRangeComparator left = interner.intern(leftLines);
+ * IRangeComparator right = interner.intern(rightLines);
+ * RangeDifference[] diffs = RangeDifferencer.findDifferences(left, right);
+ * </pre>
+ * <p>
+ * The differences found are identical to the ones found for an
+ * <code>IRangeComparator</code> that compares the same lines with
+ * <code>String.equals</code>.
+ * </p>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @since org.eclipse.compare.core 3.7
+ * @noextend This class is not intended to be subclassed by clients.
+ */
+public final class LineInterner {
+
+	private final Map<String, Integer> fIds = new HashMap<>();
+	private final List<String> fLines = new ArrayList<>();
+
+	/**
+	 * Interns the given lines and returns a range comparator for them.
+	 *
+	 * @param lines the lines to intern, must not contain <code>null</code>
+	 * @return a range comparator over the given lines
+	 */
+	public IRangeComparator intern(String[] lines) {
+		int[] ids = new int[lines.length];
+		for (int i = 0; i < lines.length; i++) {
+			ids[i] = getId(lines[i]);
+		}
+		return new InternedLineComparator(this, ids);
+	}
+
+	/**
+	 * Returns the number of distinct lines interned so far.
+	 *
+	 * @return the number of distinct lines
+	 */
+	public int size() {
+		return this.fLines.size();
+	}
+
+	private int getId(String line) {
+		Integer id = this.fIds.get(line);
+		if (id == null) {
+			id = Integer.valueOf(this.fLines.size());
+			this.fIds.put(line, id);
+			this.fLines.add(line);
+		}
+		return id.intValue();
+	}
+
+	String getLine(int id) {
+		return this.fLines.get(id);
+	}
+}
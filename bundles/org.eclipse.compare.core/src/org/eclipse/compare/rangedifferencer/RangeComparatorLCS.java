@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2011 IBM Corporation and others.
+ * Copyright (c) 2006, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,6 +16,7 @@ package org.eclipse.compare.rangedifferencer;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.eclipse.compare.internal.core.HistogramDiff;
 import org.eclipse.compare.internal.core.LCS;
 import org.eclipse.compare.internal.core.Messages;
 import org.eclipse.core.runtime.*;
@@ -23,13 +24,18 @@ import org.eclipse.core.runtime.*;
 /* package */ class RangeComparatorLCS extends LCS {
 
 	private final IRangeComparator comparator1, comparator2;
+	// the line IDs of both sides if they were interned by the same LineInterner
+	private final int[] ids1, ids2;
 	private int[][] lcs;
 
 	public static RangeDifference[] findDifferences(AbstractRangeDifferenceFactory factory, IProgressMonitor pm, IRangeComparator left, IRangeComparator right) {
 		RangeComparatorLCS lcs = new RangeComparatorLCS(left, right);
 		SubMonitor monitor = SubMonitor.convert(pm, Messages.RangeComparatorLCS_0, 100);
 		try {
-			lcs.longestCommonSubsequence(monitor.newChild(95));
+			if (factory.getAlgorithm() == RangeDifferencer.HISTOGRAM && lcs.ids1 != null)
+				lcs.histogramCommonSubsequence(monitor.newChild(95));
+			else
+				lcs.longestCommonSubsequence(monitor.newChild(95));
 			return lcs.getDifferences(monitor.newChild(5), factory);
 		} finally {
 			if (pm != null)
@@ -40,6 +46,13 @@ import org.eclipse.core.runtime.*;
 	public RangeComparatorLCS(IRangeComparator comparator1, IRangeComparator comparator2) {
 		this.comparator1 = comparator1;
 		this.comparator2 = comparator2;
+		if (comparator1 instanceof InternedLineComparator
+				&& ((InternedLineComparator) comparator1).isCompatible(comparator2)) {
+			this.ids1 = ((InternedLineComparator) comparator1).ids;
+			this.ids2 = ((InternedLineComparator) comparator2).ids;
+		} else {
+			this.ids1 = this.ids2 = null;
+		}
 	}
 
 	@Override
@@ -59,6 +72,8 @@ import org.eclipse.core.runtime.*;
 
 	@Override
 	protected boolean isRangeEqual(int i1, int i2) {
+		if (this.ids1 != null)
+			return this.ids1[i1] == this.ids2[i2];
 		return this.comparator1.rangesEqual(i1, this.comparator2, i2);
 	}
 
@@ -185,6 +200,29 @@ import org.eclipse.core.runtime.*;
 		}
 	}
 
+	/*
+	 * Finds a common subsequence of the interned lines with the histogram
+	 * algorithm instead of Myers' algorithm.
+	 */
+	private void histogramCommonSubsequence(SubMonitor subMonitor) {
+		int length = 0;
+		if (this.ids1.length > 0 && this.ids2.length > 0) {
+			int[] matches = new HistogramDiff(this.ids1, this.ids2).match(subMonitor);
+			initializeLcs(this.ids1.length);
+			for (int i = 0; i < matches.length; i++) {
+				if (matches[i] != 0) {
+					setLcs(i, matches[i] - 1);
+					length++;
+				}
+			}
+		}
+		setLength(length);
+		if (this.lcs != null) {
+			compactAndShiftLCS(this.lcs[0], length, this.comparator1);
+			compactAndShiftLCS(this.lcs[1], length, this.comparator2);
+		}
+	}
+
 	@Override
 	public void longestCommonSubsequence(SubMonitor subMonitor) {
 		super.longestCommonSubsequence(subMonitor);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,6 +15,9 @@ package org.eclipse.compare.rangedifferencer;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import org.eclipse.compare.internal.core.Messages;
 import org.eclipse.core.runtime.*;
@@ -34,12 +37,42 @@ import org.eclipse.core.runtime.*;
  * Alternatively, the <code>findRanges</code> methods not only return objects for
  * the differing ranges but for non-differing ranges too.
  * </p>
+ * <p>
+ * When comparing lines of text, clients can use a <code>LineInterner</code>
+ * to create the range comparators so that lines are compared by integer ID.
+ * Interned lines can also be compared with the histogram algorithm, which is
+ * selected by the <code>AbstractRangeDifferenceFactory</code>.
+ * </p>
  *
  * @see IRangeComparator
+ * @see LineInterner
  * @see RangeDifference
  */
 public final class RangeDifferencer {
 
+	/**
+	 * Constant for Myers' algorithm, which finds a longest common subsequence.
+	 * To bound the running time for very long inputs, the search is capped
+	 * unless capping is disabled in the preferences.
+	 *
+	 * @see AbstractRangeDifferenceFactory#getAlgorithm()
+	 * @since org.eclipse.compare.core 3.7
+	 */
+	public static final int MYERS= 0;
+
+	/**
+	 * Constant for the histogram algorithm, which anchors the differences at
+	 * the least frequent common lines. It stays fast for large inputs with many
+	 * changes and tends to produce more readable differences. The histogram
+	 * algorithm is only used if the range comparators have been created by the
+	 * same <code>LineInterner</code>, otherwise Myers' algorithm is used.
+	 *
+	 * @see AbstractRangeDifferenceFactory#getAlgorithm()
+	 * @see LineInterner
+	 * @since org.eclipse.compare.core 3.7
+	 */
+	public static final int HISTOGRAM= 1;
+
 	private static final RangeDifference[] EMPTY_RESULT= new RangeDifference[0];
 
 	private static final AbstractRangeDifferenceFactory defaultFactory = new AbstractRangeDifferenceFactory() {
@@ -150,15 +183,51 @@ public final class RangeDifferencer {
 	 * @since org.eclipse.compare.core 3.5
 	 */
 	public static RangeDifference[] findDifferences(AbstractRangeDifferenceFactory factory, IProgressMonitor pm, IRangeComparator ancestor, IRangeComparator left, IRangeComparator right) {
+		return findDifferences(factory, pm, null, ancestor, left, right);
+	}
+
+	/**
+	 * Finds the differences among three <code>IRangeComparator</code>s.
+	 * The differences are returned as a list of <code>RangeDifference</code>s.
+	 * If no differences are detected an empty list is returned.
+	 * If the ancestor range comparator is <code>null</code>, a two-way
+	 * comparison is performed.
+	 * <p>
+	 * If an executor is given, the differences between the ancestor and the
+	 * left side are computed on the executor while the differences between
+	 * the ancestor and the right side are computed in the calling thread. The
+	 * ancestor comparator is then accessed from two threads at the same time
+	 * and must support concurrent calls to <code>rangesEqual</code>. The result
+	 * is the same as for the sequential computation.
+	 * </p>
+	 *
+	 * @param factory
+	 * @param pm if not <code>null</code> used to report progress
+	 * @param executor the executor used to compute the two edit scripts in
+	 *            parallel or <code>null</code> to compute them sequentially
+	 * @param ancestor the ancestor range comparator or <code>null</code>
+	 * @param left the left range comparator
+	 * @param right the right range comparator
+	 * @return an array of range differences, or an empty array if no differences were found
+	 * @since org.eclipse.compare.core 3.7
+	 */
+	public static RangeDifference[] findDifferences(AbstractRangeDifferenceFactory factory, IProgressMonitor pm, Executor executor, IRangeComparator ancestor, IRangeComparator left, IRangeComparator right) {
 		try {
 			if (ancestor == null)
 				return findDifferences(factory, pm, left, right);
 			SubMonitor monitor = SubMonitor.convert(pm, Messages.RangeComparatorLCS_0, 100);
 			RangeDifference[] leftAncestorScript= null;
-			RangeDifference[] rightAncestorScript= findDifferences(factory, monitor.newChild(50), ancestor, right);
-			if (rightAncestorScript != null) {
-				monitor.setWorkRemaining(100);
-				leftAncestorScript= findDifferences(factory, monitor.newChild(50), ancestor, left);
+			RangeDifference[] rightAncestorScript= null;
+			if (executor != null) {
+				RangeDifference[][] scripts= findDifferencesInParallel(factory, monitor.newChild(100), executor, ancestor, left, right);
+				rightAncestorScript= scripts[0];
+				leftAncestorScript= scripts[1];
+			} else {
+				rightAncestorScript= findDifferences(factory, monitor.newChild(50), ancestor, right);
+				if (rightAncestorScript != null) {
+					monitor.setWorkRemaining(100);
+					leftAncestorScript= findDifferences(factory, monitor.newChild(50), ancestor, left);
+				}
 			}
 			if (rightAncestorScript == null || leftAncestorScript == null)
 				return null;
@@ -361,10 +430,53 @@ public final class RangeDifferencer {
 	 * @since org.eclipse.compare.core 3.5
 	 */
 	public static RangeDifference[] findRanges(AbstractRangeDifferenceFactory factory, IProgressMonitor pm, IRangeComparator ancestor, IRangeComparator left, IRangeComparator right) {
+		return findRanges(factory, pm, null, ancestor, left, right);
+	}
+
+	/**
+	 * Finds the differences among three <code>IRangeComparator</code>s.
+	 * In contrast to <code>findDifferences</code>, the result
+	 * contains <code>RangeDifference</code> elements for non-differing ranges too.
+	 * If the ancestor range comparator is <code>null</code>, a two-way
+	 * comparison is performed.
+	 *
+	 * @param pm if not <code>null</code> used to report progress
+	 * @param executor the executor used to compute the two edit scripts in
+	 *            parallel or <code>null</code> to compute them sequentially
+	 * @param ancestor the ancestor range comparator or <code>null</code>
+	 * @param left the left range comparator
+	 * @param right the right range comparator
+	 * @return an array of range differences
+	 * @see #findDifferences(AbstractRangeDifferenceFactory, IProgressMonitor, Executor, IRangeComparator, IRangeComparator, IRangeComparator)
+	 * @since org.eclipse.compare.core 3.7
+	 */
+	public static RangeDifference[] findRanges(IProgressMonitor pm, Executor executor, IRangeComparator ancestor, IRangeComparator left, IRangeComparator right) {
+		return findRanges(defaultFactory, pm, executor, ancestor, left, right);
+	}
+
+	/**
+	 * Finds the differences among three <code>IRangeComparator</code>s.
+	 * In contrast to <code>findDifferences</code>, the result
+	 * contains <code>RangeDifference</code> elements for non-differing ranges too.
+	 * If the ancestor range comparator is <code>null</code>, a two-way
+	 * comparison is performed.
+	 *
+	 * @param factory
+	 * @param pm if not <code>null</code> used to report progress
+	 * @param executor the executor used to compute the two edit scripts in
+	 *            parallel or <code>null</code> to compute them sequentially
+	 * @param ancestor the ancestor range comparator or <code>null</code>
+	 * @param left the left range comparator
+	 * @param right the right range comparator
+	 * @return an array of range differences
+	 * @see #findDifferences(AbstractRangeDifferenceFactory, IProgressMonitor, Executor, IRangeComparator, IRangeComparator, IRangeComparator)
+	 * @since org.eclipse.compare.core 3.7
+	 */
+	public static RangeDifference[] findRanges(AbstractRangeDifferenceFactory factory, IProgressMonitor pm, Executor executor, IRangeComparator ancestor, IRangeComparator left, IRangeComparator right) {
 		if (ancestor == null)
 			return findRanges(factory,pm, left, right);
 
-		RangeDifference[] in= findDifferences(factory, pm, ancestor, left, right);
+		RangeDifference[] in= findDifferences(factory, pm, executor, ancestor, left, right);
 		List<RangeDifference> out= new ArrayList<>();
 
 		RangeDifference rd;
@@ -393,6 +505,82 @@ public final class RangeDifferencer {
 
 	//---- private methods
 
+	/*
+	 * Computes the ancestor-right and the ancestor-left edit scripts at the
+	 * same time. The ancestor-left script is computed on the executor. If the
+	 * executor has not started it by the time the ancestor-right script is
+	 * done, it is run in the calling thread. Like the sequential computation,
+	 * the ancestor-left script is skipped if there is no ancestor-right script.
+	 */
+	private static RangeDifference[][] findDifferencesInParallel(AbstractRangeDifferenceFactory factory, SubMonitor monitor, Executor executor,
+			IRangeComparator ancestor, IRangeComparator left, IRangeComparator right) {
+		// progress can only be reported from the calling thread
+		CancelationMonitor leftMonitor= new CancelationMonitor(monitor);
+		FutureTask<RangeDifference[]> leftTask= new FutureTask<>(() -> leftMonitor.isCanceled() ? null : findDifferences(factory, leftMonitor, ancestor, left));
+		executor.execute(leftTask);
+		RangeDifference[] rightAncestorScript;
+		try {
+			rightAncestorScript= findDifferences(factory, monitor.newChild(50), ancestor, right);
+		} catch (RuntimeException | Error e) {
+			leftMonitor.setCanceled(true);
+			throw e;
+		}
+		if (rightAncestorScript == null) {
+			// stop the ancestor-left script, but wait until the ancestor is no longer used
+			leftMonitor.setCanceled(true);
+			leftTask.run();
+			try {
+				leftTask.get();
+			} catch (ExecutionException e) {
+				// the script is not needed
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new OperationCanceledException();
+			}
+			return new RangeDifference[][] { null, null };
+		}
+		leftTask.run();
+		try {
+			RangeDifference[] leftAncestorScript= leftTask.get();
+			monitor.worked(50);
+			return new RangeDifference[][] { rightAncestorScript, leftAncestorScript };
+		} catch (ExecutionException e) {
+			Throwable cause= e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException(cause);
+		} catch (InterruptedException e) {
+			leftMonitor.setCanceled(true);
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		}
+	}
+
+	/*
+	 * A progress monitor that only forwards cancellation of the given monitor
+	 * so that it can be used from another thread.
+	 */
+	private static class CancelationMonitor extends NullProgressMonitor {
+		private final IProgressMonitor fMonitor;
+		private volatile boolean fCanceled;
+
+		CancelationMonitor(IProgressMonitor monitor) {
+			this.fMonitor= monitor;
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return this.fCanceled || this.fMonitor.isCanceled();
+		}
+
+		@Override
+		public void setCanceled(boolean canceled) {
+			this.fCanceled= canceled;
+		}
+	}
+
 	/*
 	 * Creates a <code>RangeDifference3</code> given the
 	 * state of two DifferenceIterators.
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,14 +14,20 @@
 package org.eclipse.compare;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import org.eclipse.compare.internal.CompareUIPlugin;
+import org.eclipse.compare.internal.IChecksumContentAccessor;
 import org.eclipse.compare.internal.Utilities;
 import org.eclipse.compare.structuremergeviewer.Differencer;
 import org.eclipse.compare.structuremergeviewer.IDiffContainer;
@@ -29,6 +35,8 @@ import org.eclipse.compare.structuremergeviewer.IStructureComparator;
 import org.eclipse.compare.structuremergeviewer.IStructureCreator;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.swt.graphics.Image;
 
 /**
@@ -137,10 +145,17 @@ public class ZipFileStructureCreator implements IStructureCreator {
 		}
 	}
 
-	static class ZipFile extends ZipResource implements IStreamContentAccessor {
+	static class ZipFile extends ZipResource implements IChecksumContentAccessor {
 
 		private byte[] fContents;
 
+		// the archive and the entry to read the contents from, if they are not in memory
+		private File fArchive;
+		private String fEntryName;
+
+		private long fSize= -1;
+		private long fChecksum= -1;
+
 		ZipFile(String name) {
 			super(name);
 		}
@@ -160,16 +175,80 @@ public class ZipFileStructureCreator implements IStructureCreator {
 		}
 
 		@Override
-		public InputStream getContents() {
+		public InputStream getContents() throws CoreException {
+			if (fContents == null && fArchive != null) {
+				try {
+					return openEntry();
+				} catch (IOException e) {
+					throw new CoreException(new Status(IStatus.ERROR, CompareUIPlugin.PLUGIN_ID, 0, e.getMessage(), e));
+				}
+			}
 			if (fContents == null)
 				fContents= new byte[0];
 			return new ByteArrayInputStream(fContents);
 		}
 
+		/*
+		 * Opens the entry in the archive. The archive is closed with the stream.
+		 */
+		private InputStream openEntry() throws IOException {
+			java.util.zip.ZipFile archive= new java.util.zip.ZipFile(fArchive);
+			try {
+				ZipEntry entry= archive.getEntry(fEntryName);
+				if (entry == null)
+					throw new FileNotFoundException(fEntryName);
+				return new FilterInputStream(archive.getInputStream(entry)) {
+					@Override
+					public void close() throws IOException {
+						try {
+							super.close();
+						} finally {
+							archive.close();
+						}
+					}
+				};
+			} catch (IOException | RuntimeException e) {
+				archive.close();
+				throw e;
+			}
+		}
+
+		@Override
+		public long getSize() {
+			return fSize;
+		}
+
+		@Override
+		public long getChecksum() {
+			return fChecksum;
+		}
+
 		byte[] getBytes() {
+			if (fContents == null && fArchive != null) {
+				// the contents of entries in an archive are not kept in memory
+				try (InputStream in= openEntry()) {
+					ByteArrayOutputStream out= new ByteArrayOutputStream(fSize > 0 ? (int) fSize : 1024);
+					byte[] buffer= new byte[8192];
+					int n;
+					while ((n= in.read(buffer)) > 0)
+						out.write(buffer, 0, n);
+					return out.toByteArray();
+				} catch (IOException e) {
+					// the archive changed or is gone since the structure was created
+					CompareUIPlugin.log(e);
+					return null;
+				}
+			}
 			return fContents;
 		}
 
+		void setEntry(File archive, ZipEntry entry) {
+			fArchive= archive;
+			fEntryName= entry.getName();
+			fSize= entry.getSize();
+			fChecksum= entry.getCrc();
+		}
+
 		void setBytes(byte[] buffer) {
 			fContents= buffer;
 		}
@@ -214,6 +293,16 @@ public class ZipFileStructureCreator implements IStructureCreator {
 	@Override
 	public IStructureComparator getStructure(Object input) {
 
+		// local archives are read from their central directory, the entries are read on demand
+		File file= Utilities.getLocalFile(input);
+		if (file != null) {
+			try {
+				return getStructure(file);
+			} catch (IOException ex) {
+				// fall back to the stream
+			}
+		}
+
 		InputStream is= null;
 
 		if (input instanceof IStreamContentAccessor) {
@@ -271,6 +360,24 @@ public class ZipFileStructureCreator implements IStructureCreator {
 			}
 		}
 
+		return getRoot(root);
+	}
+
+	private IStructureComparator getStructure(File file) throws IOException {
+		ZipFolder root= new ZipFolder(""); //$NON-NLS-1$
+		try (java.util.zip.ZipFile zip= new java.util.zip.ZipFile(file)) {
+			Enumeration<? extends ZipEntry> entries= zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry= entries.nextElement();
+				ZipFile ze= root.createContainer(entry.getName());
+				if (ze != null)
+					ze.setEntry(file, entry);
+			}
+		}
+		return getRoot(root);
+	}
+
+	private static IStructureComparator getRoot(ZipFolder root) {
 		if (root.fChildren.size() == 1) {
 			Iterator<ZipResource> iter= root.fChildren.values().iterator();
 			return iter.next();
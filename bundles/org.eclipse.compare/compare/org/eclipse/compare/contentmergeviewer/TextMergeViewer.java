@@ -3519,6 +3519,28 @@ public class TextMergeViewer extends ContentMergeViewer implements IAdaptable {
 		}
 
 		invalidateTextPresentation();
+		prepareTokenDiffs();
+	}
+
+	/*
+	 * Computes the token diffs of the changes in and around the visible lines
+	 * of the right viewer in the background.
+	 */
+	private void prepareTokenDiffs() {
+		if (!fHighlightTokenChanges)
+			return;
+		IDocument doc= fRight.getSourceViewer().getDocument();
+		if (doc == null)
+			return;
+		int lines= fRight.getViewportLines();
+		int top= fRight.getSourceViewer().getTopIndex();
+		try {
+			int start= doc.getLineOffset(Math.max(0, top - lines));
+			IRegion last= doc.getLineInformation(Math.min(doc.getNumberOfLines() - 1, top + 2 * lines));
+			fMerger.prepareTokenDiffs(RIGHT_CONTRIBUTOR, new Region(start, last.getOffset() + last.getLength() - start));
+		} catch (BadLocationException e) {
+			// silently ignored
+		}
 	}
 
 	private Diff findDiff(char type, int pos) {
@@ -5150,6 +5172,8 @@ public class TextMergeViewer extends ContentMergeViewer implements IAdaptable {
 
 		if (fRightCanvas != null)
 			fRightCanvas.repaint();
+
+		prepareTokenDiffs();
 	}
 
 	/*
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -288,6 +288,8 @@ public final class CompareUIPlugin extends AbstractUIPlugin {
 		ComparePlugin.getDefault().setCappingDisabled(
 				getPreferenceStore().getBoolean(
 						ComparePreferencePage.CAPPING_DISABLED));
+		ComparePlugin.getDefault().setDiffAlgorithm(
+				ComparePreferencePage.getDiffAlgorithm(getPreferenceStore()));
 	}
 
 	@Override
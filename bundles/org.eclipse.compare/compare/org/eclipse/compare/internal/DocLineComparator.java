@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -201,6 +201,25 @@ public class DocLineComparator implements ITokenComparator {
 		return false;
 	}
 
+	/**
+	 * Returns a key for every line of this comparator, e.g. to intern the lines
+	 * with a <code>LineInterner</code>. Two lines have the same key if and only
+	 * if <code>rangesEqual</code> returns <code>true</code> for them. Keys are
+	 * only meaningful if whitespace is not ignored and no compare filters are
+	 * used.
+	 *
+	 * @return the keys of all lines
+	 */
+	public String[] getLineKeys() {
+		String[] keys= new String[fLineCount];
+		for (int i= 0; i < fLineCount; i++) {
+			String line= extract(i, false);
+			// lines only match if their delimiters have the same length
+			keys[i]= line + (char) (getTokenLength(i) - line.length());
+		}
+		return keys;
+	}
+
 	//---- private methods
 
 	private String[] extract(int thisIndex, int otherIndex,
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.internal;
+
+import org.eclipse.compare.IStreamContentAccessor;
+
+/**
+ * A stream content accessor that knows the size and the CRC-32 checksum of
+ * its contents without reading them, like an entry of a zip archive. Contents
+ * with equal size and checksum are considered equal.
+ */
+public interface IChecksumContentAccessor extends IStreamContentAccessor {
+
+	/**
+	 * Returns the size of the contents.
+	 *
+	 * @return the size of the contents in bytes, or -1 if it is not known
+	 */
+	public long getSize();
+
+	/**
+	 * Returns the CRC-32 checksum of the contents.
+	 *
+	 * @return the checksum of the contents, or -1 if it is not known
+	 */
+	public long getChecksum();
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,6 +18,7 @@ package org.eclipse.compare.internal;
 import java.lang.reflect.InvocationTargetException;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.eclipse.compare.CompareConfiguration;
 import org.eclipse.compare.CompareEditorInput;
@@ -66,6 +67,10 @@ class ResourceCompareInput extends CompareEditorInput {
 
 	private static final boolean NORMALIZE_CASE= true;
 
+	// the number of threads that read the resources of a compare; bounded
+	// since the threads block on I/O
+	private static final int COMPARE_THREADS= Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
 	private boolean fThreeWay= false;
 	private Object fRoot;
 	private IStructureComparator fAncestor;
@@ -424,8 +429,15 @@ class ResourceCompareInput extends CompareEditorInput {
 					return new MyDiffNode((IDiffContainer) parent, description, (ITypedElement)ancestor, (ITypedElement)left, (ITypedElement)right);
 				}
 			};
-
-			fRoot= d.findDifferences(fThreeWay, pm, null, fAncestor, fLeft, fRight);
+			// resources of different folders can be read concurrently, by a
+			// pool of the compare that does not tie up the common pool
+			ForkJoinPool pool= new ForkJoinPool(COMPARE_THREADS);
+			try {
+				d.setForkJoinPool(pool);
+				fRoot= d.findDifferences(fThreeWay, pm, null, fAncestor, fLeft, fRight);
+			} finally {
+				pool.shutdownNow();
+			}
 			return fRoot;
 
 		} catch (CoreException ex) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,6 +16,7 @@ package org.eclipse.compare.internal;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -274,6 +275,29 @@ public class Utilities {
 		return bos.toByteArray();
 	}
 
+	/**
+	 * Returns the file in the local file system that has the contents of the given
+	 * compare element, or <code>null</code> if there is none. The element must not
+	 * have been modified in the compare editor.
+	 *
+	 * @param input the compare element
+	 * @return the local file with the contents of the element or <code>null</code>
+	 */
+	public static File getLocalFile(Object input) {
+		if (input instanceof BufferedResourceNode && !((BufferedResourceNode) input).isDirty()) {
+			IResource resource= ((BufferedResourceNode) input).getResource();
+			if (resource instanceof IFile) {
+				IPath location= resource.getLocation();
+				if (location != null) {
+					File file= location.toFile();
+					if (file.isFile())
+						return file;
+				}
+			}
+		}
+		return null;
+	}
+
 	public static IPath getIconPath(Display display) {
 		return ICONS_PATH;
 	}
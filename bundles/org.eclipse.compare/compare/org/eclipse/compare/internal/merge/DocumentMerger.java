@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2017 IBM Corporation and others.
+ * Copyright (c) 2007, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -19,6 +19,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import org.eclipse.compare.CompareConfiguration;
 import org.eclipse.compare.ICompareFilter;
@@ -30,18 +32,23 @@ import org.eclipse.compare.internal.CompareUIPlugin;
 import org.eclipse.compare.internal.DocLineComparator;
 import org.eclipse.compare.internal.MergeViewerContentProvider;
 import org.eclipse.compare.internal.Utilities;
+import org.eclipse.compare.internal.core.ComparePlugin;
 import org.eclipse.compare.internal.core.LCS;
 import org.eclipse.compare.rangedifferencer.IRangeComparator;
+import org.eclipse.compare.rangedifferencer.LineInterner;
 import org.eclipse.compare.rangedifferencer.RangeDifference;
 import org.eclipse.compare.rangedifferencer.RangeDifferencer;
 import org.eclipse.compare.structuremergeviewer.Differencer;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.operation.IRunnableWithProgress;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.BadPositionCategoryException;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.Position;
 import org.eclipse.jface.text.Region;
@@ -65,10 +72,17 @@ public class DocumentMerger {
 	/** if true copying conflicts from one side to other concatenates both sides */
 	private static final boolean APPEND_CONFLICT= true;
 
+	/** Delay before the token ranges near the visible lines are computed, so that scrolling does not start a job per line */
+	private static final long TOKEN_DIFF_DELAY= 100;
+
 	/** All diffs for calculating scrolling position (includes line ranges without changes) */
 	private ArrayList<Diff> fAllDiffs;
 	/** Subset of above: just real differences. */
 	private ArrayList<Diff> fChangeDiffs;
+	/** Line heights of fAllDiffs for mapping between real and virtual positions, built by doDiff and rebuilt when the documents change */
+	private ScrollIndex fScrollIndex;
+	/** Computes the token ranges of the changes near the visible lines, see prepareTokenDiffs */
+	private Job fTokenDiffJob;
 
 	private IDocumentMergerInput fInput;
 
@@ -115,6 +129,10 @@ public class DocumentMerger {
 		boolean fIsToken= false;
 		/** child token diffs */
 		List<Diff> fDiffs;
+		/** if the child token diffs have not been computed yet */
+		boolean fTokenDiffsPending;
+		/** the token ranges computed in the background for the pending token diffs */
+		volatile TokenRanges fTokenRanges;
 		boolean fIsWhitespace= false;
 
 		/*
@@ -232,11 +250,24 @@ public class DocumentMerger {
 
 		void setResolved(boolean r) {
 			fResolved= r;
-			if (r)
+			if (r) {
 				fDiffs= null;
+				fTokenDiffsPending= false;
+				fTokenRanges= null;
+			}
+		}
+
+		/*
+		 * Returns the child token diffs, computing them on first access
+		 */
+		List<Diff> getChildren() {
+			if (fTokenDiffsPending)
+				computeTokenDiffs(this);
+			return fDiffs;
 		}
 
 		public boolean isResolved() {
+			// pending token diffs are not resolved, so the result is fResolved either way
 			if (!fResolved && fDiffs != null) {
 				Iterator<Diff> e= fDiffs.iterator();
 				while (e.hasNext()) {
@@ -299,9 +330,10 @@ public class DocumentMerger {
 		}
 
 		public Diff[] getChangeDiffs(int contributor, IRegion region) {
-			if (fDiffs != null && intersectsRegion(contributor, region)) {
+			List<Diff> children;
+			if (intersectsRegion(contributor, region) && (children= getChildren()) != null) {
 				List<Diff> result = new ArrayList<>();
-				for (Diff diff : fDiffs) {
+				for (Diff diff : children) {
 					if (diff.intersectsRegion(contributor, region)) {
 						result.add(diff);
 					}
@@ -319,7 +351,8 @@ public class DocumentMerger {
 		}
 
 		public boolean hasChildren() {
-			return fDiffs != null && !fDiffs.isEmpty();
+			List<Diff> children= getChildren();
+			return children != null && !children.isEmpty();
 		}
 
 		public int getKind() {
@@ -335,10 +368,122 @@ public class DocumentMerger {
 		}
 
 		public Iterator<Diff> childIterator() {
-			if (fDiffs == null)
+			List<Diff> children= getChildren();
+			if (children == null)
 				return new ArrayList<Diff>().iterator();
-			return fDiffs.iterator();
+			return children.iterator();
+		}
+	}
+
+	/*
+	 * The start lines of all diffs in the virtual view and in each document,
+	 * so that positions can be mapped by binary search. starts[i] is the sum
+	 * of the heights of the diffs before diff i, starts[size] the total height.
+	 * The index is only valid as long as the diffs and the documents are not
+	 * changed, which is checked with the modification stamps of the documents.
+	 */
+	private class ScrollIndex {
+		final List<Diff> fDiffs;
+		final boolean fThreeWay;
+		final IDocument[] fDocuments= new IDocument[3];
+		final long[] fStamps= new long[3];
+		final int[] fVirtualStarts;
+		final int[][] fRealStarts= new int[3][];
+
+		ScrollIndex(List<Diff> diffs) {
+			fDiffs= diffs;
+			fThreeWay= isThreeWay();
+			int size= diffs.size();
+			fVirtualStarts= new int[size + 1];
+			for (int c= 0; c < 3; c++) {
+				fDocuments[c]= getDocument(CONTRIBUTORS[c]);
+				fStamps[c]= getModificationStamp(fDocuments[c]);
+				fRealStarts[c]= new int[size + 1];
+			}
+			Point region= new Point(0, 0);
+			for (int i= 0; i < size; i++) {
+				Diff diff= diffs.get(i);
+				int virtualHeight= 0;
+				for (int c= 0; c < 3; c++) {
+					int height= getLineRange(fDocuments[c], diff.getPosition(CONTRIBUTORS[c]), region).y;
+					fRealStarts[c][i + 1]= fRealStarts[c][i] + height;
+					// see Diff#getMaxDiffHeight()
+					if (c != 0 || fThreeWay)
+						virtualHeight= Math.max(virtualHeight, height);
+				}
+				fVirtualStarts[i + 1]= fVirtualStarts[i] + virtualHeight;
+			}
+		}
+
+		boolean isValid(List<Diff> diffs) {
+			if (diffs != fDiffs || fThreeWay != isThreeWay())
+				return false;
+			for (int c= 0; c < 3; c++) {
+				IDocument document= getDocument(CONTRIBUTORS[c]);
+				if (document != fDocuments[c])
+					return false;
+				long stamp= getModificationStamp(document);
+				if (stamp != fStamps[c] || stamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP)
+					return false;
+			}
+			return true;
+		}
+
+		int[] getRealStarts(char contributor) {
+			switch (contributor) {
+			case MergeViewerContentProvider.ANCESTOR_CONTRIBUTOR:
+				return fRealStarts[0];
+			case MergeViewerContentProvider.LEFT_CONTRIBUTOR:
+				return fRealStarts[1];
+			default:
+				return fRealStarts[2];
+			}
+		}
+	}
+
+	private static final char[] CONTRIBUTORS= {
+		MergeViewerContentProvider.ANCESTOR_CONTRIBUTOR,
+		MergeViewerContentProvider.LEFT_CONTRIBUTOR,
+		MergeViewerContentProvider.RIGHT_CONTRIBUTOR
+	};
+
+	private static long getModificationStamp(IDocument document) {
+		if (document instanceof IDocumentExtension4)
+			return ((IDocumentExtension4) document).getModificationStamp();
+		return document == null ? 0 : IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+	}
+
+	/*
+	 * Returns the scroll index of the current diffs, or null if there are none
+	 */
+	private ScrollIndex getScrollIndex() {
+		ArrayList<Diff> allDiffs= fAllDiffs;
+		if (allDiffs == null)
+			return null;
+		ScrollIndex index= fScrollIndex;
+		if (index == null || !index.isValid(allDiffs)) {
+			index= new ScrollIndex(allDiffs);
+			fScrollIndex= index;
+		}
+		return index;
+	}
+
+	/*
+	 * Returns the smallest i with key <= starts[i + 1] (or key < starts[i + 1]
+	 * if exclusive is true), or the number of diffs if there is none.
+	 */
+	private static int findSlot(int[] starts, int key, boolean exclusive) {
+		int low= 0;
+		int high= starts.length - 1;
+		while (low < high) {
+			int mid= (low + high) >>> 1;
+			int end= starts[mid + 1];
+			if (exclusive ? key < end : key <= end)
+				high= mid;
+			else
+				low= mid + 1;
 		}
+		return low;
 	}
 
 	public DocumentMerger(IDocumentMergerInput input) {
@@ -352,6 +497,7 @@ public class DocumentMerger {
 	 */
 	public void doDiff() throws CoreException {
 
+		cancelTokenDiffJob();
 		fChangeDiffs= new ArrayList<>();
 		IDocument lDoc = getDocument(MergeViewerContentProvider.LEFT_CONTRIBUTOR);
 		IDocument rDoc = getDocument(MergeViewerContentProvider.RIGHT_CONTRIBUTOR);
@@ -401,7 +547,8 @@ public class DocumentMerger {
 		IRunnableWithProgress runnable= monitor -> {
 			monitor.beginTask(CompareMessages.DocumentMerger_0, maxWork(sa, sl, sr));
 			try {
-				result[0]= RangeDifferencer.findRanges(monitor, sa, sl, sr);
+				IRangeComparator[] comparators= getRangeComparators(ignoreWhiteSpace, compareFilters, sa, sl, sr);
+				result[0]= RangeDifferencer.findRanges(monitor, getDiffExecutor(compareFilters), comparators[0], comparators[1], comparators[2]);
 			} catch (OutOfMemoryError ex) {
 				System.gc();
 				throw new InvocationTargetException(ex);
@@ -438,7 +585,7 @@ public class DocumentMerger {
 			return;
 		}
 
-		if (isCapped(sa, sl, sr))
+		if (!useHistogram(ignoreWhiteSpace, compareFilters) && isCapped(sa, sl, sr))
 			fInput.getCompareConfiguration().setProperty(
 					CompareContentViewerSwitchingPane.OPTIMIZED_ALGORITHM_USED,
 					Boolean.TRUE);
@@ -484,37 +631,33 @@ public class DocumentMerger {
 			} else {
 				if (ignoreWhiteSpace || useChange(es.kind())) {
 
-					// Extract the string for each contributor.
-					String a= null;
-					if (sancestor != null)
-						a= extract2(aDoc, sancestor, es.ancestorStart(), es.ancestorLength());
-					String s= extract2(lDoc, sleft, es.leftStart(), es.leftLength());
-					String d= extract2(rDoc, sright, es.rightStart(), es.rightLength());
-
 					// Indicate whether all contributors are whitespace
-					if (ignoreWhiteSpace
-							&& (a == null || a.trim().length() == 0)
-							&& s.trim().length() == 0
-							&& d.trim().length() == 0) {
-						diff.fIsWhitespace= true;
+					if (ignoreWhiteSpace) {
+						// Extract the string for each contributor.
+						String a= null;
+						if (sancestor != null)
+							a= extract2(aDoc, sancestor, es.ancestorStart(), es.ancestorLength());
+						String s= extract2(lDoc, sleft, es.leftStart(), es.leftLength());
+						String d= extract2(rDoc, sright, es.rightStart(), es.rightLength());
+						if ((a == null || a.trim().length() == 0)
+								&& s.trim().length() == 0
+								&& d.trim().length() == 0) {
+							diff.fIsWhitespace= true;
+						}
 					}
 
-					// If the diff is of interest, record it and generate the token diffs
+					// If the diff is of interest, record it. The token diffs
+					// are generated when they are first needed, see Diff#getChildren()
 					if (useChange(diff)) {
 						recordChangeDiff(diff);
-						if (s.length() > 0 && d.length() > 0) {
-							if (a == null && sancestor != null)
-								a= extract2(aDoc, sancestor, es.ancestorStart(), es.ancestorLength());
-							if (USE_MERGING_TOKEN_DIFF)
-								mergingTokenDiff(diff, aDoc, a, rDoc, d, lDoc, s);
-							else
-								simpleTokenDiff(diff, aDoc, a, rDoc, d, lDoc, s);
-						}
+						if (diff.fLeftPos.getLength() > 0 && diff.fRightPos.getLength() > 0)
+							diff.fTokenDiffsPending= true;
 					}
 				}
 			}
 		}
 		fAllDiffs = newAllDiffs;
+		fScrollIndex= new ScrollIndex(newAllDiffs);
 	}
 
 	private boolean isCapped(DocLineComparator ancestor,
@@ -562,7 +705,8 @@ public class DocumentMerger {
 		IRunnableWithProgress runnable= monitor -> {
 			monitor.beginTask(CompareMessages.DocumentMerger_2, maxWork(sa, sl, sr));
 			try {
-				result[0]= RangeDifferencer.findRanges(monitor, sa, sl, sr);
+				IRangeComparator[] comparators= getRangeComparators(ignoreWhiteSpace, compareFilters, sa, sl, sr);
+				result[0]= RangeDifferencer.findRanges(monitor, getDiffExecutor(compareFilters), comparators[0], comparators[1], comparators[2]);
 			} catch (OutOfMemoryError ex) {
 				System.gc();
 				throw new InvocationTargetException(ex);
@@ -749,23 +893,20 @@ public class DocumentMerger {
 	 * It is "smart" because it tries to minimize the number of token diffs by merging them.
 	 */
 	private void mergingTokenDiff(Diff baseDiff,
-				IDocument ancestorDoc, String a,
-				IDocument rightDoc, String d,
-				IDocument leftDoc, String s) {
-		ITokenComparator sa= null;
+				IDocument ancestorDoc, IDocument rightDoc, IDocument leftDoc,
+				TokenRanges ranges) {
+		ITokenComparator sa= ranges.fAncestor;
 		int ancestorStart= 0;
-		if (ancestorDoc != null) {
-			sa= createTokenComparator(a);
+		if (ancestorDoc != null)
 			ancestorStart= baseDiff.fAncestorPos.getOffset();
-		}
 
 		int rightStart= baseDiff.fRightPos.getOffset();
-		ITokenComparator sm= createTokenComparator(d);
+		ITokenComparator sm= ranges.fRight;
 
 		int leftStart= baseDiff.fLeftPos.getOffset();
-		ITokenComparator sy= createTokenComparator(s);
+		ITokenComparator sy= ranges.fLeft;
 
-		RangeDifference[] r= RangeDifferencer.findRanges(sa, sy, sm);
+		RangeDifference[] r= ranges.getRanges();
 		for (int i= 0; i < r.length; i++) {
 			RangeDifference  es= r[i];
 			// determine range of diffs in one line
@@ -840,24 +981,21 @@ public class DocumentMerger {
 	 * Performs a token based 3-way diff on the character range specified by the given baseDiff.
 	 */
 	private void simpleTokenDiff(final Diff baseDiff,
-				IDocument ancestorDoc, String a,
-				IDocument rightDoc, String d,
-				IDocument leftDoc, String s) {
+				IDocument ancestorDoc, IDocument rightDoc, IDocument leftDoc,
+				TokenRanges ranges) {
 
 		int ancestorStart= 0;
-		ITokenComparator sa= null;
-		if (ancestorDoc != null) {
+		ITokenComparator sa= ranges.fAncestor;
+		if (ancestorDoc != null)
 			ancestorStart= baseDiff.fAncestorPos.getOffset();
-			sa= createTokenComparator(a);
-		}
 
 		int rightStart= baseDiff.fRightPos.getOffset();
-		ITokenComparator sm= createTokenComparator(d);
+		ITokenComparator sm= ranges.fRight;
 
 		int leftStart= baseDiff.fLeftPos.getOffset();
-		ITokenComparator sy= createTokenComparator(s);
+		ITokenComparator sy= ranges.fLeft;
 
-		RangeDifference[] e= RangeDifferencer.findRanges(sa, sy, sm);
+		RangeDifference[] e= ranges.getRanges();
 		for (RangeDifference es : e) {
 			int kind= es.kind();
 			if (kind != RangeDifference.NOCHANGE) {
@@ -899,6 +1037,210 @@ public class DocumentMerger {
 		return fInput.createTokenComparator(s);
 	}
 
+	/*
+	 * The token comparators and token ranges of a line diff. The comparators
+	 * are created from the documents on the calling thread, since clients
+	 * implement createTokenComparator and may access their viewers. The
+	 * ranges only depend on the comparators, so they can be found in the
+	 * background. The modification stamps of the documents tell whether the
+	 * text has changed since the comparators were created.
+	 */
+	private class TokenRanges {
+		final IDocument[] fDocuments;
+		final long[] fStamps= new long[3];
+		final ITokenComparator fAncestor, fLeft, fRight;
+		private volatile RangeDifference[] fRanges;
+
+		TokenRanges(Diff diff, IDocument[] documents) throws BadLocationException {
+			fDocuments= documents;
+			for (int c= 0; c < 3; c++)
+				fStamps[c]= getModificationStamp(documents[c]);
+			fAncestor= documents[0] != null ? createTokenComparator(getText(documents[0], diff.fAncestorPos)) : null;
+			fLeft= createTokenComparator(getText(documents[1], diff.fLeftPos));
+			fRight= createTokenComparator(getText(documents[2], diff.fRightPos));
+		}
+
+		/*
+		 * Returns the token ranges, finding them if the background job has
+		 * not done so yet. This only reads the comparators, so it may be
+		 * called from any thread.
+		 */
+		RangeDifference[] getRanges() {
+			RangeDifference[] ranges= fRanges;
+			if (ranges == null) {
+				ranges= RangeDifferencer.findRanges(fAncestor, fLeft, fRight);
+				fRanges= ranges;
+			}
+			return ranges;
+		}
+
+		private String getText(IDocument document, Position position) throws BadLocationException {
+			return document.get(position.getOffset(), position.getLength());
+		}
+
+		boolean isValid(IDocument[] documents) {
+			for (int c= 0; c < 3; c++) {
+				if (documents[c] != fDocuments[c])
+					return false;
+				long stamp= getModificationStamp(documents[c]);
+				if (stamp != fStamps[c] || stamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP)
+					return false;
+			}
+			return true;
+		}
+	}
+
+	/*
+	 * Returns the ancestor, left and right document used for the token diffs
+	 * of the given diff
+	 */
+	private IDocument[] getTokenDocuments(Diff diff) {
+		IDocument aDoc= null;
+		if (diff.fAncestorPos != null && isThreeWay() && !isIgnoreAncestor())
+			aDoc= getDocument(MergeViewerContentProvider.ANCESTOR_CONTRIBUTOR);
+		return new IDocument[] {
+			aDoc,
+			getDocument(MergeViewerContentProvider.LEFT_CONTRIBUTOR),
+			getDocument(MergeViewerContentProvider.RIGHT_CONTRIBUTOR)
+		};
+	}
+
+	/*
+	 * Generates the token diffs of the given line diff. The token ranges
+	 * computed by the background job are used if the documents have not been
+	 * changed since.
+	 */
+	private void computeTokenDiffs(Diff diff) {
+		TokenRanges ranges= diff.fTokenRanges;
+		diff.fTokenDiffsPending= false;
+		diff.fTokenRanges= null;
+		if (diff.isDeleted())
+			return;
+		IDocument[] documents= getTokenDocuments(diff);
+		try {
+			if (ranges == null || !ranges.isValid(documents))
+				ranges= new TokenRanges(diff, documents);
+		} catch (BadLocationException e) {
+			// silently ignored
+			return;
+		}
+		if (USE_MERGING_TOKEN_DIFF)
+			mergingTokenDiff(diff, documents[0], documents[2], documents[1], ranges);
+		else
+			simpleTokenDiff(diff, documents[0], documents[2], documents[1], ranges);
+	}
+
+	/**
+	 * Computes the token ranges of the changes that intersect the given region
+	 * in a background job, so that their token diffs are available without
+	 * delay once they become visible. A previously scheduled computation is
+	 * canceled. The token comparators of the changes are created on the
+	 * calling thread, only the ranges are found in the background.
+	 *
+	 * @param contributor the contributor of the region
+	 * @param region the region of the contributor's document, usually the
+	 *            visible lines and some lines above and below
+	 */
+	public void prepareTokenDiffs(char contributor, IRegion region) {
+		cancelTokenDiffJob();
+		if (fChangeDiffs == null)
+			return;
+		// the changes are ordered by offset, find the first one that may intersect
+		int low= 0;
+		int high= fChangeDiffs.size();
+		while (low < high) {
+			int mid= (low + high) >>> 1;
+			Position p= fChangeDiffs.get(mid).getPosition(contributor);
+			if (p != null && p.getOffset() + p.getLength() < region.getOffset())
+				low= mid + 1;
+			else
+				high= mid;
+		}
+		List<Diff> diffs= new ArrayList<>();
+		int end= region.getOffset() + region.getLength();
+		for (int i= low; i < fChangeDiffs.size(); i++) {
+			Diff diff= fChangeDiffs.get(i);
+			Position p= diff.getPosition(contributor);
+			if (p == null || p.getOffset() > end)
+				break;
+			if (diff.fTokenDiffsPending && diff.fTokenRanges == null && diff.intersectsRegion(contributor, region))
+				diffs.add(diff);
+		}
+		List<TokenRanges> prepared= new ArrayList<>(diffs.size());
+		for (Diff diff : diffs) {
+			try {
+				TokenRanges ranges= new TokenRanges(diff, getTokenDocuments(diff));
+				diff.fTokenRanges= ranges;
+				prepared.add(ranges);
+			} catch (BadLocationException e) {
+				// the token diffs are computed when they are needed
+			}
+		}
+		if (prepared.isEmpty())
+			return;
+		Job job= new Job(CompareMessages.DocumentMerger_0) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				for (TokenRanges ranges : prepared) {
+					if (monitor.isCanceled())
+						return Status.CANCEL_STATUS;
+					ranges.getRanges();
+				}
+				return Status.OK_STATUS;
+			}
+
+			@Override
+			public boolean belongsTo(Object family) {
+				return family == DocumentMerger.this;
+			}
+		};
+		job.setSystem(true);
+		job.setPriority(Job.DECORATE);
+		fTokenDiffJob= job;
+		job.schedule(TOKEN_DIFF_DELAY);
+	}
+
+	private void cancelTokenDiffJob() {
+		if (fTokenDiffJob != null) {
+			fTokenDiffJob.cancel();
+			fTokenDiffJob= null;
+		}
+	}
+
+	/*
+	 * The histogram algorithm is used when it is selected in the preferences
+	 * and lines are compared as they are, because it needs interned lines.
+	 */
+	private static boolean useHistogram(boolean ignoreWhiteSpace, ICompareFilter[] compareFilters) {
+		return ComparePlugin.getDefault().getDiffAlgorithm() == RangeDifferencer.HISTOGRAM
+				&& !ignoreWhiteSpace
+				&& (compareFilters == null || compareFilters.length == 0);
+	}
+
+	private static IRangeComparator[] getRangeComparators(boolean ignoreWhiteSpace,
+			ICompareFilter[] compareFilters, DocLineComparator... comparators) {
+		if (!useHistogram(ignoreWhiteSpace, compareFilters))
+			return comparators;
+		LineInterner interner= new LineInterner();
+		IRangeComparator[] result= new IRangeComparator[comparators.length];
+		for (int i= 0; i < comparators.length; i++) {
+			if (comparators[i] != null)
+				result[i]= interner.intern(comparators[i].getLineKeys());
+		}
+		return result;
+	}
+
+	/*
+	 * Returns the executor used to compute the two edit scripts of a
+	 * three-way diff in parallel. The ancestor comparator is shared by both
+	 * computations, which is not possible when it caches filtered lines.
+	 */
+	private static Executor getDiffExecutor(ICompareFilter[] compareFilters) {
+		if (compareFilters != null && compareFilters.length > 0)
+			return null;
+		return ForkJoinPool.commonPool();
+	}
+
 	private static int maxWork(IRangeComparator a, IRangeComparator l, IRangeComparator r) {
 		int ln= l.getRangeCount();
 		int rn= r.getRangeCount();
@@ -988,8 +1330,10 @@ public class DocumentMerger {
 	}
 
 	public void reset() {
+		cancelTokenDiffJob();
 		fChangeDiffs= null;
 		fAllDiffs= null;
+		fScrollIndex= null;
 	}
 
 	/**
@@ -1000,33 +1344,26 @@ public class DocumentMerger {
 	 */
 	public int realToVirtualPosition(char contributor, int vpos) {
 
-		if (fAllDiffs == null)
+		ScrollIndex index= getScrollIndex();
+		if (index == null)
 			return vpos;
 
-		int viewPos= 0;		// real view position
-		int virtualPos= 0;	// virtual position
-		Point region= new Point(0, 0);
-
-		Iterator<Diff> e= fAllDiffs.iterator();
-		while (e.hasNext()) {
-			Diff diff= e.next();
-			Position pos= diff.getPosition(contributor);
-			getLineRange(getDocument(contributor),pos, region);
-			int realHeight= region.y;
-			int virtualHeight= diff.getMaxDiffHeight();
-			if (vpos <= viewPos + realHeight) {	// OK, found!
-				vpos-= viewPos;	// make relative to this slot
-				// now scale position within this slot to virtual slot
-				if (realHeight <= 0)
-					vpos= 0;
-				else
-					vpos= (vpos*virtualHeight)/realHeight;
-				return virtualPos+vpos;
-			}
-			viewPos+= realHeight;
-			virtualPos+= virtualHeight;
-		}
-		return virtualPos;
+		int[] realStarts= index.getRealStarts(contributor);
+		int[] virtualStarts= index.fVirtualStarts;
+		int i= findSlot(realStarts, vpos, false);
+		if (i == realStarts.length - 1)
+			return virtualStarts[i];
+		int viewPos= realStarts[i];		// real view position
+		int virtualPos= virtualStarts[i];	// virtual position
+		int realHeight= realStarts[i + 1] - viewPos;
+		int virtualHeight= virtualStarts[i + 1] - virtualPos;
+		vpos-= viewPos;	// make relative to this slot
+		// now scale position within this slot to virtual slot
+		if (realHeight <= 0)
+			vpos= 0;
+		else
+			vpos= (vpos*virtualHeight)/realHeight;
+		return virtualPos+vpos;
 	}
 
 	/**
@@ -1037,62 +1374,47 @@ public class DocumentMerger {
 	 */
 	public int virtualToRealPosition(char contributor, int v) {
 
-		if (fAllDiffs == null)
+		ScrollIndex index= getScrollIndex();
+		if (index == null)
 			return v;
 
-		int virtualPos= 0;
-		int viewPos= 0;
-		Point region= new Point(0, 0);
-
-		Iterator<Diff> e= fAllDiffs.iterator();
-		while (e.hasNext()) {
-			Diff diff= e.next();
-			Position pos= diff.getPosition(contributor);
-			int viewHeight= getLineRange(getDocument(contributor), pos, region).y;
-			int virtualHeight= diff.getMaxDiffHeight();
-			if (v < (virtualPos + virtualHeight)) {
-				v-= virtualPos;		// make relative to this slot
-				if (viewHeight <= 0) {
-					v= 0;
-				} else {
-					v= (int) (v * ((double)viewHeight/virtualHeight));
-				}
-				return viewPos+v;
-			}
-			virtualPos+= virtualHeight;
-			viewPos+= viewHeight;
+		int[] realStarts= index.getRealStarts(contributor);
+		int[] virtualStarts= index.fVirtualStarts;
+		int i= findSlot(virtualStarts, v, true);
+		if (i == virtualStarts.length - 1)
+			return realStarts[i];
+		int virtualPos= virtualStarts[i];
+		int viewPos= realStarts[i];
+		int viewHeight= realStarts[i + 1] - viewPos;
+		int virtualHeight= virtualStarts[i + 1] - virtualPos;
+		v-= virtualPos;		// make relative to this slot
+		if (viewHeight <= 0) {
+			v= 0;
+		} else {
+			v= (int) (v * ((double)viewHeight/virtualHeight));
 		}
-		return viewPos;
+		return viewPos+v;
 	}
 
 	/*
 	 * Calculates virtual height (in lines) of views by adding the maximum of corresponding diffs.
 	 */
 	public int getVirtualHeight() {
-		int h= 1;
-		if (fAllDiffs != null) {
-			Iterator<Diff> e= fAllDiffs.iterator();
-			while (e.hasNext()) {
-				Diff diff= e.next();
-				h+= diff.getMaxDiffHeight();
-			}
-		}
-		return h;
+		ScrollIndex index= getScrollIndex();
+		if (index == null)
+			return 1;
+		return 1 + index.fVirtualStarts[index.fVirtualStarts.length - 1];
 	}
 
 	/*
 	 * Calculates height (in lines) of right view by adding the height of the right diffs.
 	 */
 	public int getRightHeight() {
-		int h= 1;
-		if (fAllDiffs != null) {
-			Iterator<Diff> e= fAllDiffs.iterator();
-			while (e.hasNext()) {
-				Diff diff= e.next();
-				h+= diff.getRightHeight();
-			}
-		}
-		return h;
+		ScrollIndex index= getScrollIndex();
+		if (index == null)
+			return 1;
+		int[] rightStarts= index.getRealStarts(MergeViewerContentProvider.RIGHT_CONTRIBUTOR);
+		return 1 + rightStarts[rightStarts.length - 1];
 	}
 
 	public int findInsertionPoint(Diff diff, char type) {
@@ -1298,12 +1620,14 @@ public class DocumentMerger {
 				int startOffset= p.getOffset();
 				if (end < startOffset)  // <=
 					return diff;
-				if (deep && diff.hasChildren()) {
+				if (deep) {
+					// Only the token diffs of the diff that contains the range are computed
 					Diff d= null;
 					int endOffset= startOffset + p.getLength();
 					if (start == startOffset && (end == endOffset || end == endOffset-1)) {
-						d= findNext(contributor, diff.fDiffs, start-1, start-1, deep);
-					} else if (end < endOffset) {
+						if (diff.hasChildren())
+							d= findNext(contributor, diff.fDiffs, start-1, start-1, deep);
+					} else if (end < endOffset && diff.hasChildren()) {
 						d= findNext(contributor, diff.fDiffs, start, end, deep);
 					}
 					if (d != null)
@@ -1334,12 +1658,13 @@ public class DocumentMerger {
 					}
 					return diff;
 				}
-				if (deep && diff.hasChildren()) {
+				if (deep) {
+					// Only the token diffs of the diff that contains the range are computed
 					Diff d= null;
 					if (start == startOffset && end == endOffset) {
 						// A whole diff is selected so we'll fall through
 						// and go the the last change in the previous diff
-					} else if (start >= startOffset) {
+					} else if (start >= startOffset && diff.hasChildren()) {
 						// If we are at or before the first diff, select the
 						// entire diff so next and previous are symmetrical
 						if (isFirstChildDiff(contributor, start, diff)) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2017 IBM Corporation and others.
+ * Copyright (c) 2004, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,12 +13,12 @@
  *******************************************************************************/
 package org.eclipse.compare.internal.merge;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
+import java.io.Reader;
 
+import org.eclipse.compare.internal.core.LineIndex;
 import org.eclipse.compare.rangedifferencer.IRangeComparator;
 
 /**
@@ -26,35 +26,34 @@ import org.eclipse.compare.rangedifferencer.IRangeComparator;
  */
 class LineComparator implements IRangeComparator {
 
-	private String[] fLines;
+	private LineIndex fLines;
 
 	public LineComparator(InputStream is, String encoding) throws IOException {
 
-		BufferedReader br = new BufferedReader(new InputStreamReader(is, encoding));
-		String line;
-		ArrayList<String> ar = new ArrayList<>();
-		while ((line = br.readLine()) != null) {
-			ar.add(line);
+		Reader reader = new InputStreamReader(is, encoding);
+		StringBuilder text = new StringBuilder();
+		char[] buffer = new char[8192];
+		int read;
+		while ((read = reader.read(buffer)) != -1) {
+			text.append(buffer, 0, read);
 		}
 		// It is the responsibility of the caller to close the stream
-		fLines = ar.toArray(new String[ar.size()]);
+		fLines = LineIndex.create(text, false);
 	}
 
 	String getLine(int ix) {
-		return fLines[ix];
+		return fLines.getLine(ix);
 	}
 
 	@Override
 	public int getRangeCount() {
-		return fLines.length;
+		return fLines.getLineCount();
 	}
 
 	@Override
 	public boolean rangesEqual(int thisIndex, IRangeComparator other,
 			int otherIndex) {
-		String s1 = fLines[thisIndex];
-		String s2 = ((LineComparator) other).fLines[otherIndex];
-		return s1.equals(s2);
+		return fLines.lineEquals(thisIndex, ((LineComparator) other).fLines, otherIndex);
 	}
 
 	@Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -25,6 +25,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import org.eclipse.compare.internal.CompareUIPlugin;
+import org.eclipse.compare.internal.core.LineIndex;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IStorage;
 import org.eclipse.core.runtime.Assert;
@@ -206,16 +207,35 @@ public class LineReader {
 	}
 
 	public List<String> readLines() {
+		LineIndex index = readLineIndex();
+		if (index != null)
+			return index.getLinesWithDelimiter();
+		return null;
+	}
+
+	/**
+	 * Reads the remaining contents and returns the lines found in them. Unlike
+	 * {@link #readLines()} no string is created for the individual lines.
+	 * @return the lines of the remaining contents, or <code>null</code> if an
+	 *	I/O error occurs
+	 */
+	public LineIndex readLineIndex() {
 		try {
-			List<String> lines = new ArrayList<>();
-			String line;
-			while ((line = readLine()) != null)
-				lines.add(line);
-			return lines;
+			StringBuilder text = new StringBuilder();
+			if (fHaveChar) {
+				fHaveChar = false;
+				text.append((char) fLastChar);
+			}
+			if (!fSawEOF) {
+				char[] buffer = new char[8192];
+				int read;
+				while ((read = fReader.read(buffer)) != -1)
+					text.append(buffer, 0, read);
+				fSawEOF = true;
+			}
+			return LineIndex.create(text, fIgnoreSingleCR);
 		} catch (IOException ex) {
 			// NeedWork
-			// System.out.println("error while reading file: " + fileName + "("
-			// + ex + ")");
 		} finally {
 			close();
 		}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,6 +13,7 @@
  *******************************************************************************/
 package org.eclipse.compare.structuremergeviewer;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -21,11 +22,16 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 import org.eclipse.compare.IStreamContentAccessor;
 import org.eclipse.compare.ITypedElement;
+import org.eclipse.compare.internal.IChecksumContentAccessor;
 import org.eclipse.compare.internal.MergeViewerContentProvider;
 import org.eclipse.compare.internal.Utilities;
+import org.eclipse.compare.internal.core.ContentEquality;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -58,6 +64,11 @@ import com.ibm.icu.text.MessageFormat;
  * In the two-way case only NO_CHANGE, ADDITION, DELETION, and CHANGE are used.
  * In the three-way case these constants are bitwise ORed with one of directional constants
  * LEFT, RIGHT, and CONFLICTING.
+ * <p>
+ * By default the inputs are traversed on the thread that calls <code>findDifferences</code>.
+ * If a pool is set with {@link #setForkJoinPool(ForkJoinPool)}, subtrees and leaf comparisons
+ * are processed in parallel by the pool.
+ * </p>
  */
 public class Differencer {
 	// The kind of differences.
@@ -195,6 +206,31 @@ public class Differencer {
 //		}
 	}
 
+	/*
+	 * Traverses a node and its children in a pool
+	 */
+	private class TraverseTask extends RecursiveTask<Integer> {
+		private static final long serialVersionUID= 1L;
+		private final boolean fThreeWay;
+		private final Node fNode;
+		private final IProgressMonitor fProgressMonitor;
+
+		TraverseTask(boolean threeWay, Node node, IProgressMonitor pm) {
+			fThreeWay= threeWay;
+			fNode= node;
+			fProgressMonitor= pm;
+		}
+
+		@Override
+		protected Integer compute() {
+			return traverse(fThreeWay, fNode, fProgressMonitor, true);
+		}
+	}
+
+	private ForkJoinPool fPool;
+	// serializes the calls to updateProgress from the threads of the pool
+	private final Object fProgressLock= new Object();
+
 	/**
 	 * Creates a new differencing engine.
 	 */
@@ -202,6 +238,23 @@ public class Differencer {
 		// nothing to do
 	}
 
+	/**
+	 * Sets the pool in which the inputs are traversed. If a pool is set, the children of
+	 * a node and the contents of leaf objects are compared in parallel by the threads of the pool.
+	 * <code>getChildren</code>, <code>contentsEqual</code> and <code>updateProgress</code>
+	 * are then called from these threads, but <code>updateProgress</code> is never called
+	 * concurrently and each input object is only passed to the hooks by one thread.
+	 * <code>visit</code> is always called from the thread that calls <code>findDifferences</code>
+	 * once all inputs are compared, in the same order and with the same results as without a pool.
+	 *
+	 * @param pool the pool in which the inputs are traversed or <code>null</code> to traverse
+	 *   them on the thread that calls <code>findDifferences</code>
+	 * @since 3.8
+	 */
+	public void setForkJoinPool(ForkJoinPool pool) {
+		fPool= pool;
+	}
+
 	/**
 	 * Starts the differencing engine on the three input objects. If threeWay is <code>true</code> a
 	 * three-way comparison is performed, otherwise a two-way compare (in the latter case the ancestor argument is ignored).
@@ -221,7 +274,12 @@ public class Differencer {
 	public Object findDifferences(boolean threeWay, IProgressMonitor pm, Object data, Object ancestor, Object left, Object right) {
 		Node root= new Node();
 
-		int code= traverse(threeWay, root, pm, threeWay ? ancestor : null, left, right);
+		Node node= new Node(root, threeWay ? ancestor : null, left, right);
+		int code;
+		if (fPool != null)
+			code= fPool.invoke(new TraverseTask(threeWay, node, pm));
+		else
+			code= traverse(threeWay, node, pm, false);
 
 		if (code != NO_CHANGE) {
 			List<Node> l= root.fChildren;
@@ -234,18 +292,19 @@ public class Differencer {
 	}
 
 	/*
-	 * Traverse tree in postorder.
+	 * Traverse tree in postorder. If parallel is true, the children are
+	 * traversed in tasks of the pool.
 	 */
-	private int traverse(boolean threeWay, Node parent, IProgressMonitor pm,
-			Object ancestor, Object left, Object right) {
+	private int traverse(boolean threeWay, Node node, IProgressMonitor pm, boolean parallel) {
+		Object ancestor= node.fAncestor;
+		Object left= node.fLeft;
+		Object right= node.fRight;
 		Object[] ancestorChildren= getChildren(ancestor);
 		Object[] rightChildren= getChildren(right);
 		Object[] leftChildren= getChildren(left);
 
 		int code= NO_CHANGE;
 
-		Node node= new Node(parent, ancestor, left, right);
-
 		boolean content= true;	// we reset this if we have at least one child
 
 		if (((threeWay && ancestorChildren != null) || !threeWay)
@@ -282,25 +341,45 @@ public class Differencer {
 				}
 			}
 
+			List<TraverseTask> tasks= parallel ? new ArrayList<>(allSet.size()) : null;
 			for (Object keyChild : allSet) {
 				if (pm != null) {
 					if (pm.isCanceled())
 						throw new OperationCanceledException();
 
-					updateProgress(pm, keyChild);
+					if (parallel) {
+						synchronized (fProgressLock) {
+							updateProgress(pm, keyChild);
+						}
+					} else {
+						updateProgress(pm, keyChild);
+					}
 				}
 
 				Object ancestorChild= ancestorSet != null ? ancestorSet.get(keyChild) : null;
 				Object leftChild= leftSet != null ? leftSet.get(keyChild) : null;
 				Object rightChild= rightSet != null ? rightSet.get(keyChild) : null;
 
-				int c= traverse(threeWay, node, pm, ancestorChild, leftChild, rightChild);
+				// the child nodes are created in the same order in both modes
+				Node child= new Node(node, ancestorChild, leftChild, rightChild);
+				if (parallel) {
+					tasks.add(new TraverseTask(threeWay, child, pm));
+					continue;
+				}
 
-				if ((c & CHANGE_TYPE_MASK) != NO_CHANGE) {
-					code|= CHANGE;	// deletions and additions of child result in a change of the container
-					code|= (c & DIRECTION_MASK);	// incoming & outgoing are just ored
+				int c= traverse(threeWay, child, pm, false);
+				code= merge(code, c);
+				if (code != NO_CHANGE)
 					content= false;
+			}
+
+			if (parallel) {
+				ForkJoinTask.invokeAll(tasks);
+				for (TraverseTask task : tasks) {
+					code= merge(code, task.join().intValue());
 				}
+				if (code != NO_CHANGE)
+					content= false;
 			}
 		}
 
@@ -312,6 +391,17 @@ public class Differencer {
 		return code;
 	}
 
+	/*
+	 * Returns the code of a container given its current code and the code of a child
+	 */
+	private static int merge(int code, int childCode) {
+		if ((childCode & CHANGE_TYPE_MASK) != NO_CHANGE) {
+			code|= CHANGE;	// deletions and additions of child result in a change of the container
+			code|= (childCode & DIRECTION_MASK);	// incoming & outgoing are just ored
+		}
+		return code;
+	}
+
 	/**
 	 * Called for every node or leaf comparison.
 	 * The differencing engine passes in the input objects of the compare and the result of the compare.
@@ -458,6 +548,29 @@ public class Differencer {
 		if (input1 == input2)
 			return true;
 
+		// entries of zip archives are compared by their size and checksum
+		if (input1 instanceof IChecksumContentAccessor && input2 instanceof IChecksumContentAccessor) {
+			IChecksumContentAccessor accessor1= (IChecksumContentAccessor) input1;
+			IChecksumContentAccessor accessor2= (IChecksumContentAccessor) input2;
+			long size1= accessor1.getSize();
+			long size2= accessor2.getSize();
+			long checksum1= accessor1.getChecksum();
+			long checksum2= accessor2.getChecksum();
+			if (size1 != -1 && size2 != -1 && checksum1 != -1 && checksum2 != -1)
+				return size1 == size2 && checksum1 == checksum2;
+		}
+
+		// compare local files directly, which avoids reading them if their sizes differ
+		File file1= Utilities.getLocalFile(input1);
+		File file2= file1 != null ? Utilities.getLocalFile(input2) : null;
+		if (file1 != null && file2 != null) {
+			try {
+				return ContentEquality.contentsEqual(file1, file2);
+			} catch (IOException ex) {
+				// fall back to the streams
+			}
+		}
+
 		InputStream is1= getStream(input1);
 		InputStream is2= getStream(input2);
 
@@ -468,15 +581,7 @@ public class Differencer {
 			if (is1 == null || is2 == null)	// only one has contents
 				return false;
 
-			while (true) {
-				int c1= is1.read();
-				int c2= is2.read();
-				if (c1 == -1 && c2 == -1)
-					return true;
-				if (c1 != c2)
-					break;
-
-			}
+			return ContentEquality.contentsEqual(is1, is2);
 		} catch (IOException ex) {
 			// NeedWork
 		} finally {
@@ -0,0 +1,229 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.net;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matches host names against a list of non-proxied host filters. A host
+ * matches a filter if it ends with it, see
+ * {@link StringUtil#hostMatchesFilter(String, String)}. In addition a filter
+ * of the form <code>address/prefixLength</code> matches the IPv4 or IPv6
+ * address literals in that range.
+ * <p>
+ * The filters are compiled once: filters without wildcards (except for
+ * leading '*') are stored reversed in a suffix trie, so that a host is matched
+ * against all of them by walking its characters from the end. Only the
+ * remaining wildcard filters are matched one by one.
+ * </p>
+ */
+public class NonProxiedHostsMatcher {
+
+	private final String[] filters;
+
+	// the filters without leading '*' and wildcards, reversed and upper case
+	private final Node suffixes = new Node();
+	private final List<AddressRange> ranges = new ArrayList<>();
+	private final List<StringMatcher> patterns = new ArrayList<>();
+
+	private static class Node {
+		Map<Character, Node> children;
+		boolean terminal;
+
+		Node getChild(char c) {
+			return children == null ? null : children.get(Character.valueOf(c));
+		}
+
+		Node addChild(char c) {
+			if (children == null)
+				children = new HashMap<>(4);
+			return children.computeIfAbsent(Character.valueOf(c), k -> new Node());
+		}
+	}
+
+	private static class AddressRange {
+		final byte[] network;
+		final int prefixLength;
+
+		AddressRange(byte[] network, int prefixLength) {
+			this.network = network;
+			this.prefixLength = prefixLength;
+		}
+
+		boolean contains(byte[] address) {
+			if (address.length != network.length)
+				return false;
+			int bytes = prefixLength / 8;
+			for (int i = 0; i < bytes; i++) {
+				if (address[i] != network[i])
+					return false;
+			}
+			int bits = prefixLength % 8;
+			if (bits == 0)
+				return true;
+			int mask = (0xFF << (8 - bits)) & 0xFF;
+			return ((address[bytes] ^ network[bytes]) & mask) == 0;
+		}
+	}
+
+	/**
+	 * Compiles the given filters.
+	 *
+	 * @param filters
+	 *            the non-proxied host filters, not modified afterwards
+	 */
+	public NonProxiedHostsMatcher(String[] filters) {
+		this.filters = filters;
+		for (String filter : filters) {
+			if (!addRange(filter))
+				addFilter(filter);
+		}
+	}
+
+	private void addFilter(String filter) {
+		int start = 0;
+		while (start < filter.length() && filter.charAt(start) == '*')
+			start++;
+		for (int i = start; i < filter.length(); i++) {
+			char c = filter.charAt(i);
+			if (c == '*' || c == '?' || c == '\\') {
+				patterns.add(new StringMatcher("*" + filter, true, false)); //$NON-NLS-1$
+				return;
+			}
+		}
+		Node node = suffixes;
+		for (int i = filter.length() - 1; i >= start; i--) {
+			node = node.addChild(Character.toUpperCase(filter.charAt(i)));
+		}
+		node.terminal = true;
+	}
+
+	private boolean addRange(String filter) {
+		int slash = filter.indexOf('/');
+		if (slash == -1)
+			return false;
+		byte[] network = toAddress(filter.substring(0, slash));
+		if (network == null)
+			return false;
+		int prefixLength;
+		try {
+			prefixLength = Integer.parseInt(filter.substring(slash + 1));
+		} catch (NumberFormatException e) {
+			return false;
+		}
+		if (prefixLength < 0 || prefixLength > network.length * 8)
+			return false;
+		ranges.add(new AddressRange(network, prefixLength));
+		return true;
+	}
+
+	/**
+	 * Returns whether this matcher was compiled from filters equal to the
+	 * given ones.
+	 *
+	 * @param otherFilters
+	 *            the filters to compare with
+	 * @return whether the filters are equal
+	 */
+	public boolean hasFilters(String[] otherFilters) {
+		return Arrays.equals(filters, otherFilters);
+	}
+
+	/**
+	 * Returns whether the given host matches any of the filters.
+	 *
+	 * @param host
+	 *            a host name or address literal, may be <code>null</code>
+	 * @return whether the host should not be proxied
+	 */
+	public boolean matches(String host) {
+		if (host == null)
+			return false;
+		if (matchesSuffix(host))
+			return true;
+		if (!ranges.isEmpty()) {
+			byte[] address = toAddress(host);
+			if (address != null) {
+				for (AddressRange range : ranges) {
+					if (range.contains(address))
+						return true;
+				}
+			}
+		}
+		for (StringMatcher pattern : patterns) {
+			if (pattern.match(host))
+				return true;
+		}
+		return false;
+	}
+
+	private boolean matchesSuffix(String host) {
+		Node node = suffixes;
+		for (int i = host.length() - 1; !node.terminal; i--) {
+			if (i < 0)
+				return false;
+			node = node.getChild(Character.toUpperCase(host.charAt(i)));
+			if (node == null)
+				return false;
+		}
+		return true;
+	}
+
+	/*
+	 * Returns the bytes of the given IPv4 or IPv6 address literal or null if it
+	 * is not an address literal. Never resolves a host name.
+	 */
+	private static byte[] toAddress(String literal) {
+		if (literal.length() > 2 && literal.charAt(0) == '[' && literal.charAt(literal.length() - 1) == ']')
+			literal = literal.substring(1, literal.length() - 1);
+		if (literal.indexOf(':') != -1) {
+			// InetAddress only parses literals that start with a hex digit or ':'
+			if (Character.digit(literal.charAt(0), 16) == -1 && literal.charAt(0) != ':')
+				return null;
+			try {
+				return InetAddress.getByName(literal).getAddress();
+			} catch (UnknownHostException e) {
+				return null;
+			}
+		}
+		byte[] address = new byte[4];
+		int part = 0;
+		int value = -1;
+		for (int i = 0; i < literal.length(); i++) {
+			char c = literal.charAt(i);
+			if (c == '.') {
+				if (value == -1 || part == 3)
+					return null;
+				address[part++] = (byte) value;
+				value = -1;
+			} else if (c >= '0' && c <= '9') {
+				value = value == -1 ? c - '0' : value * 10 + c - '0';
+				if (value > 255)
+					return null;
+			} else {
+				return null;
+			}
+		}
+		if (value == -1 || part != 3)
+			return null;
+		address[3] = (byte) value;
+		return address;
+	}
+}
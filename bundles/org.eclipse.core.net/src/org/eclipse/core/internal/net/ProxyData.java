@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2017 IBM Corporation and others.
+ * Copyright (c) 2007, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -39,6 +39,23 @@ public class ProxyData implements IProxyData {
 		this.type = type;
 	}
 
+	/**
+	 * Creates a copy of the given proxy data.
+	 *
+	 * @param data
+	 *            the proxy data to copy
+	 */
+	public ProxyData(ProxyData data) {
+		this.type = data.type;
+		this.host = data.host;
+		this.port = data.port;
+		this.user = data.user;
+		this.password = data.password;
+		this.requiresAuthentication = data.requiresAuthentication;
+		this.source = data.source;
+		this.dynamic = data.dynamic;
+	}
+
 	@Override
 	public String getHost() {
 		return host;
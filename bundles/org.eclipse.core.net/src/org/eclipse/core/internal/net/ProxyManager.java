@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2018 IBM Corporation and others.
+ * Copyright (c) 2007, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,7 +18,9 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import org.eclipse.core.net.proxy.IProxyChangeEvent;
@@ -46,6 +48,9 @@ public class ProxyManager implements IProxyService, IPreferenceChangeListener {
 	static final String PREF_ENABLED = "proxiesEnabled"; //$NON-NLS-1$
 	static final String PREF_OS = "systemProxiesEnabled"; //$NON-NLS-1$
 
+	// the maximum number of hosts whose proxy data is cached
+	private static final int HOST_CACHE_SIZE = 256;
+
 	private static IProxyService proxyManager;
 
 	private AbstractProxyProvider nativeProxyProvider;
@@ -54,6 +59,19 @@ public class ProxyManager implements IProxyService, IPreferenceChangeListener {
 
 	ListenerList<IProxyChangeListener> listeners = new ListenerList<>(ListenerList.IDENTITY);
 	private String[] nonProxiedHosts;
+	private NonProxiedHostsMatcher nonProxiedHostsMatcher;
+
+	// host -> IProxyData[] for the proxies configured in the preferences, least recently used first
+	private final Map<String, IProxyData[]> hostCache = new LinkedHashMap<String, IProxyData[]>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, IProxyData[]> eldest) {
+			return size() > HOST_CACHE_SIZE;
+		}
+	};
+	// incremented whenever the cache is cleared
+	private int hostCacheGeneration;
 	private final ProxyType[] proxies = new ProxyType[] {
 			new ProxyType(IProxyData.HTTP_PROXY_TYPE),
 			new ProxyType(IProxyData.HTTPS_PROXY_TYPE),
@@ -109,16 +127,43 @@ public class ProxyManager implements IProxyService, IPreferenceChangeListener {
 
 	@Override
 	public synchronized String[] getNonProxiedHosts() {
+		String[] hosts = internalGetNonProxiedHosts();
+		if (hosts.length == 0)
+			return hosts;
+		String[] result = new String[hosts.length];
+		System.arraycopy(hosts, 0, result, 0, hosts.length );
+		return result;
+	}
+
+	private synchronized String[] internalGetNonProxiedHosts() {
 		checkMigrated();
 		if (nonProxiedHosts == null) {
 			String prop = preferenceManager.getString(PreferenceManager.ROOT, PREF_NON_PROXIED_HOSTS);
 			nonProxiedHosts = ProxyType.convertPropertyStringToHosts(prop);
 		}
-		if (nonProxiedHosts.length == 0)
-			return nonProxiedHosts;
-		String[] result = new String[nonProxiedHosts.length];
-		System.arraycopy(nonProxiedHosts, 0, result, 0, nonProxiedHosts.length );
-		return result;
+		return nonProxiedHosts;
+	}
+
+	private synchronized NonProxiedHostsMatcher getNonProxiedHostsMatcher() {
+		if (nonProxiedHostsMatcher == null)
+			nonProxiedHostsMatcher = new NonProxiedHostsMatcher(internalGetNonProxiedHosts());
+		return nonProxiedHostsMatcher;
+	}
+
+	private synchronized void resetNonProxiedHosts() {
+		nonProxiedHosts = null;
+		nonProxiedHostsMatcher = null;
+	}
+
+	/**
+	 * Clears the cached proxy data of all hosts. Must be called whenever the
+	 * proxy data or the non-proxied hosts change.
+	 */
+	void clearHostCache() {
+		synchronized (hostCache) {
+			hostCache.clear();
+			hostCacheGeneration++;
+		}
 	}
 
 	public String[] getNativeNonProxiedHosts() {
@@ -140,7 +185,11 @@ public class ProxyManager implements IProxyService, IPreferenceChangeListener {
 		if (Arrays.equals(oldHosts, hosts)) {
 			return;
 		}
-		nonProxiedHosts = hosts;
+		synchronized (this) {
+			nonProxiedHosts = hosts;
+			nonProxiedHostsMatcher = null;
+		}
+		clearHostCache();
 		preferenceManager.putString(PreferenceManager.ROOT, PREF_NON_PROXIED_HOSTS, ProxyType.convertHostsToPropertyString(nonProxiedHosts));
 		try {
 			preferenceManager.flush();
@@ -184,6 +233,7 @@ public class ProxyManager implements IProxyService, IPreferenceChangeListener {
 		String[] hosts = getNonProxiedHosts();
 		IProxyData[] changedProxies = internalSetProxyData(proxyDatas);
 		if (changedProxies.length > 0) {
+			clearHostCache();
 			IProxyChangeEvent event = new ProxyChangeEvent(IProxyChangeEvent.PROXY_SERVICE_ENABLEMENT_CHANGE, hosts, hosts, oldData, changedProxies);
 			fireChange(event);
 		}
@@ -285,14 +335,42 @@ public class ProxyManager implements IProxyService, IPreferenceChangeListener {
 		if (!internalIsProxiesEnabled()) {
 			return new IProxyData[0];
 		}
-		URI uri = tryGetURI(host);
-		if (uri == null) {
-			return new IProxyData[0];
-		}
 		if (hasSystemProxies() && isSystemProxiesEnabled()) {
+			// not cached, the native provider may change at any time
+			URI uri = tryGetURI(host);
+			if (uri == null) {
+				return new IProxyData[0];
+			}
 			return resolveType(nativeProxyProvider.select(uri));
 		}
 
+		IProxyData[] result;
+		int generation;
+		synchronized (hostCache) {
+			result = hostCache.get(host);
+			generation = hostCacheGeneration;
+		}
+		if (result == null) {
+			result = internalGetProxyDataForHost(host);
+			synchronized (hostCache) {
+				// don't cache data that was computed before the cache was cleared
+				if (generation == hostCacheGeneration)
+					hostCache.put(host, result);
+			}
+		}
+		// callers may modify the returned data
+		IProxyData[] copy = new IProxyData[result.length];
+		for (int i = 0; i < result.length; i++) {
+			copy[i] = new ProxyData((ProxyData) result[i]);
+		}
+		return copy;
+	}
+
+	private IProxyData[] internalGetProxyDataForHost(String host) {
+		URI uri = tryGetURI(host);
+		if (uri == null) {
+			return new IProxyData[0];
+		}
 		if (isHostFiltered(uri))
 			return new IProxyData[0];
 		IProxyData[] data = getProxyData();
@@ -318,12 +396,7 @@ public class ProxyManager implements IProxyService, IPreferenceChangeListener {
 	}
 
 	private boolean isHostFiltered(URI uri) {
-		String[] filters = getNonProxiedHosts();
-		for (String filter : filters) {
-			if (StringUtil.hostMatchesFilter(uri.getHost(), filter))
-				return true;
-		}
-		return false;
+		return getNonProxiedHostsMatcher().matches(uri.getHost());
 	}
 
 	@Override
@@ -391,6 +464,9 @@ public class ProxyManager implements IProxyService, IPreferenceChangeListener {
 
 	@Override
 	public void preferenceChange(PreferenceChangeEvent event) {
+		if (event.getKey().equals(PREF_NON_PROXIED_HOSTS))
+			resetNonProxiedHosts();
+		clearHostCache();
 		if (event.getKey().equals(PREF_ENABLED) || event.getKey().equals(PREF_OS)) {
 			checkMigrated();
 			internalSetEnabled(preferenceManager.getBoolean(PreferenceManager.ROOT, PREF_ENABLED),
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2017 IBM Corporation and others.
+ * Copyright (c) 2007, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -596,6 +596,7 @@ public class ProxyType implements INodeChangeListener, IPreferenceChangeListener
 
 	@Override
 	public void preferenceChange(PreferenceChangeEvent event) {
+		((ProxyManager) ProxyManager.getProxyManager()).clearHostCache();
 		if (updatingPreferences)
 			return;
 		updateSystemProperties(getProxyData(DO_NOT_VERIFY));
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2018 Oakland Software Incorporated and others
+ * Copyright (c) 2008, 2019 Oakland Software Incorporated and others
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -25,6 +25,7 @@ import java.util.Properties;
 
 import org.eclipse.core.internal.net.AbstractProxyProvider;
 import org.eclipse.core.internal.net.Activator;
+import org.eclipse.core.internal.net.NonProxiedHostsMatcher;
 import org.eclipse.core.internal.net.Policy;
 import org.eclipse.core.internal.net.ProxyData;
 import org.eclipse.core.internal.net.StringUtil;
@@ -38,6 +39,9 @@ public class UnixProxyProvider extends AbstractProxyProvider {
 
 	private static boolean isGnomeLibLoaded = false;
 
+	// compiled from the last non-proxied hosts, recompiled when they change
+	private NonProxiedHostsMatcher nonProxiedHostsMatcher;
+
 	static {
 		// Load the GSettings JNI library if org.eclipse.core.net.enableGnome is specified
 		String value = System.getProperty(ENABLE_GNOME);
@@ -53,13 +57,8 @@ public class UnixProxyProvider extends AbstractProxyProvider {
 	@Override
 	public IProxyData[] select(URI uri) {
 		String[] nonProxyHosts = getNonProxiedHosts();
-		if (nonProxyHosts != null) {
-			String host = uri.getHost();
-			for (String nonProxyHost : nonProxyHosts) {
-				if (StringUtil.hostMatchesFilter(host, nonProxyHost)) {
-					return new IProxyData[0];
-				}
-			}
+		if (nonProxyHosts != null && getNonProxiedHostsMatcher(nonProxyHosts).matches(uri.getHost())) {
+			return new IProxyData[0];
 		}
 		IProxyData[] proxies = new IProxyData[0];
 		if (uri.getScheme() != null) {
@@ -77,6 +76,12 @@ public class UnixProxyProvider extends AbstractProxyProvider {
 		return proxies;
 	}
 
+	private synchronized NonProxiedHostsMatcher getNonProxiedHostsMatcher(String[] nonProxyHosts) {
+		if (nonProxiedHostsMatcher == null || !nonProxiedHostsMatcher.hasFilters(nonProxyHosts))
+			nonProxiedHostsMatcher = new NonProxiedHostsMatcher(nonProxyHosts);
+		return nonProxiedHostsMatcher;
+	}
+
 	@Override
 	public IProxyData[] getProxyData() {
 		String[] commonTypes = new String[] { IProxyData.HTTP_PROXY_TYPE,
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Set;
 
 import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.ResourcesPlugin;
@@ -71,9 +72,19 @@ public class ThreeWaySynchronizer {
 
 	private static final byte[] IGNORED_BYTES = "i".getBytes(); //$NON-NLS-1$
 
-	private ILock lock = Job.getJobManager().newLock();
+	/*
+	 * The number of locks that guard the byte store if it can be accessed
+	 * concurrently. Each lock guards the resources of some of the projects.
+	 */
+	private static final int LOCK_STRIPES = 16;
+
+	private ILock[] locks;
+	// the lock of each stripe on its own, as acquired by operations on a single project
+	private ILock[][] stripes;
 	private BatchingLock batchingLock = new BatchingLock();
 	private ResourceVariantByteStore cache;
+	// whether the byte store can be read and written concurrently by different threads
+	private boolean concurrentStore;
 	private Set<ISynchronizerChangeListener> listeners = new HashSet<>();
 
 	/**
@@ -93,6 +104,16 @@ public class ThreeWaySynchronizer {
 	 */
 	public ThreeWaySynchronizer(ResourceVariantByteStore store) {
 		cache = store;
+		// The persistent store keeps the bytes in the workspace synchronizer, which is
+		// thread-safe. Subclasses may keep state of their own, so they are guarded by a
+		// single lock like all other stores.
+		concurrentStore = store.getClass() == PersistantResourceVariantByteStore.class;
+		locks = new ILock[concurrentStore ? LOCK_STRIPES : 1];
+		stripes = new ILock[locks.length][];
+		for (int i = 0; i < locks.length; i++) {
+			locks[i] = Job.getJobManager().newLock();
+			stripes[i] = new ILock[] { locks[i] };
+		}
 	}
 
 	/**
@@ -137,15 +158,15 @@ public class ThreeWaySynchronizer {
 	 * @throws TeamException
 	 */
 	public byte[] getBaseBytes(IResource resource) throws TeamException {
+		ILock[] acquired = beginRead(resource);
 		try {
-			beginOperation();
 			byte[] syncBytes = internalGetSyncBytes(resource);
 			if (syncBytes == null) return null;
 			byte[] baseBytes = getSlot(syncBytes, 1);
 			if (baseBytes == null || baseBytes.length == 0) return null;
 			return baseBytes;
 		} finally {
-			endOperation();
+			endOperation(acquired);
 		}
 	}
 
@@ -167,8 +188,8 @@ public class ThreeWaySynchronizer {
 		ISchedulingRule rule = null;
 		try {
 			rule = beginBatching(resource, null);
+			ILock[] acquired = beginOperation(resource);
 			try {
-				beginOperation();
 				String base = new String(baseBytes);
 				String[] slots = new String[] {
 						Long.valueOf(resource.getModificationStamp()).toString(),
@@ -179,7 +200,7 @@ public class ThreeWaySynchronizer {
 				internalSetSyncBytes(resource, syncBytes);
 				batchingLock.resourceChanged(resource);
 			} finally {
-				endOperation();
+				endOperation(acquired);
 			}
 		} finally {
 			if (rule != null) endBatching(rule, null);
@@ -213,15 +234,15 @@ public class ThreeWaySynchronizer {
 	 * @throws TeamException
 	 */
 	public byte[] getRemoteBytes(IResource resource) throws TeamException {
+		ILock[] acquired = beginRead(resource);
 		try {
-			beginOperation();
 			byte[] syncBytes = internalGetSyncBytes(resource);
 			if (syncBytes == null) return null;
 			byte[] remoteBytes = getSlot(syncBytes, 2);
 			if (remoteBytes == null || remoteBytes.length == 0) return null;
 			return remoteBytes;
 		} finally {
-			endOperation();
+			endOperation(acquired);
 		}
 	}
 
@@ -243,8 +264,8 @@ public class ThreeWaySynchronizer {
 		ISchedulingRule rule = null;
 		try {
 			rule = beginBatching(resource, null);
+			ILock[] acquired = beginOperation(resource);
 			try {
-				beginOperation();
 				byte[] syncBytes = internalGetSyncBytes(resource);
 				if (syncBytes == null) {
 					String[] slots = new String[] {
@@ -262,7 +283,7 @@ public class ThreeWaySynchronizer {
 				batchingLock.resourceChanged(resource);
 				return true;
 			} finally {
-				endOperation();
+				endOperation(acquired);
 			}
 		} finally {
 			if (rule != null) endBatching(rule, null);
@@ -280,8 +301,8 @@ public class ThreeWaySynchronizer {
 		ISchedulingRule rule = null;
 		try {
 			rule = beginBatching(resource, null);
+			ILock[] acquired = beginOperation(resource);
 			try {
-				beginOperation();
 				byte[] syncBytes = internalGetSyncBytes(resource);
 				if (syncBytes != null) {
 					String currentRemote = new String(getSlot(syncBytes, 2));
@@ -293,7 +314,7 @@ public class ThreeWaySynchronizer {
 				}
 				return false;
 			} finally {
-				endOperation();
+				endOperation(acquired);
 			}
 		} finally {
 			if (rule != null) endBatching(rule, null);
@@ -376,13 +397,13 @@ public class ThreeWaySynchronizer {
 		ISchedulingRule rule = null;
 		try {
 			rule = beginBatching(resource, null);
+			ILock[] acquired = beginOperation(resource);
 			try {
-				beginOperation();
 				if (cache.flushBytes(resource, depth)) {
 					batchingLock.resourceChanged(resource);
 				}
 			} finally {
-				endOperation();
+				endOperation(acquired);
 			}
 		} finally {
 			if (rule != null) endBatching(rule, null);
@@ -464,15 +485,15 @@ public class ThreeWaySynchronizer {
 	}
 
 	private long getLocalTimestamp(IResource resource) throws TeamException {
+		ILock[] acquired = beginRead(resource);
 		try {
-			beginOperation();
 			byte[] syncBytes = internalGetSyncBytes(resource);
 			if (syncBytes == null) return -1;
 			byte[] bytes = getSlot(syncBytes, 0);
 			if (bytes == null || bytes.length == 0) return -1;
 			return Long.parseLong(new String(bytes));
 		} finally {
-			endOperation();
+			endOperation(acquired);
 		}
 	}
 
@@ -486,24 +507,55 @@ public class ThreeWaySynchronizer {
 
 	/*
 	 * Begin an access to the internal data structures of the synchronizer
+	 * for the given resource. Return the locks that were obtained or null.
 	 */
-	private void beginOperation() {
+	private ILock[] beginOperation(IResource resource) {
 		// Do not try to acquire the lock if the resources tree is locked
 		// The reason for this is that during the resource delta phase (i.e. when the tree is locked)
 		// the workspace lock is held. If we obtain our lock, there is
 		// a chance of deadlock. It is OK if we don't as we are still protected
 		// by scheduling rules and the workspace lock.
-		if (ResourcesPlugin.getWorkspace().isTreeLocked()) return;
-		lock.acquire();
+		if (ResourcesPlugin.getWorkspace().isTreeLocked()) return null;
+		ILock[] acquired = getLocks(resource);
+		// Locks are always acquired in the same order
+		for (ILock lock : acquired) {
+			lock.acquire();
+		}
+		return acquired;
+	}
+
+	/*
+	 * Begin a read access to the internal data structures of the synchronizer.
+	 * A single read of a thread-safe store does not need a lock.
+	 */
+	private ILock[] beginRead(IResource resource) {
+		if (concurrentStore) return null;
+		return beginOperation(resource);
 	}
 
 	/*
 	 * End an access to the internal data structures of the synchronizer
 	 */
-	private void endOperation() {
-		// See beginOperation() for a description of why the lock is not obtained when the tree is locked
-		if (ResourcesPlugin.getWorkspace().isTreeLocked()) return;
-		lock.release();
+	private void endOperation(ILock[] acquired) {
+		// See beginOperation() for a description of why the locks may not have been obtained
+		if (acquired == null) return;
+		for (int i = acquired.length - 1; i >= 0; i--) {
+			acquired[i].release();
+		}
+	}
+
+	/*
+	 * Return the locks that guard the bytes of the given resource. Modifications
+	 * of resources in different projects do not wait for each other if the store
+	 * is thread-safe. Modifications of the same resource are guarded by the same lock.
+	 * Operations on the workspace root, like a flush of all bytes, may affect the
+	 * resources of every project and are guarded by all locks.
+	 */
+	private ILock[] getLocks(IResource resource) {
+		IProject project = resource.getProject();
+		if (project == null) return locks;
+		int hash = project.getName().hashCode();
+		return stripes[(hash & Integer.MAX_VALUE) % locks.length];
 	}
 
 	/*
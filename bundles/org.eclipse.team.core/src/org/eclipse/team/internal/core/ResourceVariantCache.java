@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,14 +13,29 @@
  *******************************************************************************/
 package org.eclipse.team.internal.core;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.jobs.ILock;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.osgi.util.NLS;
@@ -28,25 +43,77 @@ import org.eclipse.team.core.TeamException;
 import org.eclipse.team.core.variants.CachedResourceVariant;
 
 /**
- * This class implements a caching facility that can be used by TeamProviders to cache contents
+ * This class implements a caching facility that can be used by TeamProviders to cache contents.
+ * <p>
+ * Cache entries are identified by an id that denotes an immutable revision of a remote
+ * resource. The contents of an entry are stored in a file that is named after the hash
+ * of the contents, so entries with identical contents share one file. The entries that
+ * have contents are recorded in an index file as their contents are added and removed, and
+ * are restored from it the next time the cache is enabled, even if the cache was not shut
+ * down. Restored entries have contents but no cached handle.
+ * </p>
+ * <p>
+ * The total size of the content files is bounded by the {@link #PREF_CACHE_SIZE} preference.
+ * If the bound is exceeded, the least recently accessed entries are removed.
+ * </p>
+ * <p>
+ * Looking up and adding entries does not block. The contents of an entry are written
+ * while holding one of several locks that is chosen by the id of the entry, so the
+ * contents of different entries can be written concurrently.
+ * </p>
  */
 public class ResourceVariantCache {
 
+	/**
+	 * Preference of the team core plug-in with the maximum number of bytes used by the
+	 * contents of each cache.
+	 */
+	public static final String PREF_CACHE_SIZE = "resourceVariantCacheSize"; //$NON-NLS-1$
+	private static final long DEFAULT_CACHE_SIZE = 128*1024*1024; // 128MB
+
 	// Directory to cache file contents
 	private static final String CACHE_DIRECTORY = ".cache"; //$NON-NLS-1$
-	// Maximum lifespan of local cache file, in milliseconds
+	// File in the cache directory that records the entries with contents
+	private static final String INDEX_FILE = ".index"; //$NON-NLS-1$
+	private static final int INDEX_VERSION = 2;
+	// Records of the index file
+	private static final byte INDEX_ADD = 1;
+	private static final byte INDEX_REMOVE = 2;
+	// Maximum lifespan of an entry without contents, in milliseconds
 	private static final long CACHE_FILE_LIFESPAN = 60*60*1000; // 1hr
+	// Number of locks used to serialize the writing of cache contents, a power of two
+	private static final int LOCK_COUNT = 32;
+
+	// An entry with contents as recorded in the index
+	private static class IndexRecord {
+		final String fileName;
+		final long size;
+		final long lastAccess;
+
+		IndexRecord(String fileName, long size, long lastAccess) {
+			this.fileName = fileName;
+			this.size = size;
+			this.lastAccess = lastAccess;
+		}
+	}
 
 	// Map of registered caches indexed by local name of a QualifiedName
 	private static Map<String, ResourceVariantCache> caches = new HashMap<>(); // String (local name) > RemoteContentsCache
 
 	private String name;
-	private Map<String, ResourceVariantCacheEntry> cacheEntries;
-	private long lastCacheCleanup;
-	private int cacheDirSize;
+	private volatile Map<String, ResourceVariantCacheEntry> cacheEntries;
+	private volatile long lastCacheCleanup;
 
-	// Lock used to serialize the writing of cache contents
-	private ILock lock = Job.getJobManager().newLock();
+	// Number of entries that refer to each content file
+	private Map<String, Integer> fileReferences;
+	// Total size of the content files
+	private long cacheSize;
+	private long maxCacheSize;
+	// Stream used to append records to the index, null if the index could not be written
+	private FileOutputStream indexOut;
+
+	// Locks used to serialize the writing of the contents of an entry
+	private ILock[] locks = new ILock[LOCK_COUNT];
 
 	/**
 	 * Enables the use of remote contents caching for the given cacheId. The cache ID must be unique.
@@ -97,15 +164,43 @@ public class ResourceVariantCache {
 		return caches.get(cacheId);
 	}
 
+	/**
+	 * Shut down all caches. The entries with contents are written to the index of
+	 * each cache so that they are available the next time the cache is enabled.
+	 */
 	public static synchronized void shutdown() {
 		String[] keys = caches.keySet().toArray(new String[caches.size()]);
 		for (String id : keys) {
-			disableCache(id);
+			ResourceVariantCache cache = caches.remove(id);
+			cache.close(true);
+		}
+	}
+
+	/*
+	 * Method used for testing only. Close the cache like on shutdown or, if the index
+	 * is not compacted, as if the workbench had crashed so that the next time the cache
+	 * is enabled it is restored from the records that were appended to the index.
+	 */
+	public static synchronized void closeCache(String cacheId, boolean compactIndex) {
+		ResourceVariantCache cache = caches.remove(cacheId);
+		if (cache != null) {
+			cache.close(compactIndex);
 		}
 	}
 
 	private ResourceVariantCache(String name) {
 		this.name = name;
+		for (int i = 0; i < locks.length; i++) {
+			locks[i] = Job.getJobManager().newLock();
+		}
+	}
+
+	/*
+	 * Return the lock used to write the contents of the entry with the given id
+	 */
+	private ILock getLock(String id) {
+		int hash = id.hashCode();
+		return locks[(hash ^ (hash >>> 16)) & (LOCK_COUNT - 1)];
 	}
 
 	/**
@@ -125,13 +220,19 @@ public class ResourceVariantCache {
 		return TeamPlugin.getPlugin().getStateLocation();
 	}
 
-	private synchronized void clearOldCacheEntries() {
+	private void clearOldCacheEntries(Map<String, ResourceVariantCacheEntry> entries) {
 		long current = new Date().getTime();
 		if ((lastCacheCleanup!=-1) && (current - lastCacheCleanup < CACHE_FILE_LIFESPAN)) return;
+		synchronized (this) {
+			// Another thread may have started the cleanup
+			if ((lastCacheCleanup!=-1) && (current - lastCacheCleanup < CACHE_FILE_LIFESPAN)) return;
+			lastCacheCleanup = current;
+		}
 		List<ResourceVariantCacheEntry> stale = new ArrayList<>();
-		for (ResourceVariantCacheEntry entry : cacheEntries.values()) {
+		for (ResourceVariantCacheEntry entry : entries.values()) {
+			// Entries with contents are only removed when the cache grows too large
 			long lastHit = entry.getLastAccessTimeStamp();
-			if ((current - lastHit) > CACHE_FILE_LIFESPAN){
+			if (entry.getState() == ResourceVariantCacheEntry.UNINITIALIZED && (current - lastHit) > CACHE_FILE_LIFESPAN){
 				stale.add(entry);
 			}
 		}
@@ -140,44 +241,274 @@ public class ResourceVariantCache {
 		}
 	}
 
-	private synchronized void purgeFromCache(String id) {
-		ResourceVariantCacheEntry entry = cacheEntries.get(id);
+	/*
+	 * Remove the least recently accessed entries with contents until the contents
+	 * fit into the cache. The entries are disposed outside of the synchronized block
+	 * since disposing requires the lock that is held while the contents of an entry
+	 * are written.
+	 */
+	protected void trimToSize() {
+		List<ResourceVariantCacheEntry> evicted = new ArrayList<>();
+		synchronized (this) {
+			if (cacheEntries == null || cacheSize <= maxCacheSize) return;
+			List<ResourceVariantCacheEntry> entries = new ArrayList<>();
+			for (ResourceVariantCacheEntry entry : cacheEntries.values()) {
+				if (entry.getState() == ResourceVariantCacheEntry.READY) {
+					entries.add(entry);
+				}
+			}
+			entries.sort(Comparator.comparingLong(ResourceVariantCacheEntry::getLastAccessTimeStamp));
+			// Free a little more than necessary so that the next addition does not trim again
+			long size = cacheSize;
+			long target = maxCacheSize - maxCacheSize / 10;
+			Map<String, Integer> references = new HashMap<>(fileReferences);
+			for (ResourceVariantCacheEntry entry : entries) {
+				if (size <= target) break;
+				String fileName = entry.getFileName();
+				Integer count = references.get(fileName);
+				if (count == null) continue;
+				evicted.add(entry);
+				references.put(fileName, count - 1);
+				if (count == 1) {
+					size -= entry.getSize();
+				}
+			}
+		}
+		for (ResourceVariantCacheEntry entry : evicted) {
+			entry.dispose();
+		}
+	}
+
+	private synchronized void releaseContents(ResourceVariantCacheEntry entry) {
+		String fileName = entry.getFileName();
+		if (fileName == null || fileReferences == null) return;
+		appendToIndex(INDEX_REMOVE, entry.getId(), null, 0, 0);
+		int count = fileReferences.get(fileName) - 1;
+		if (count > 0) {
+			fileReferences.put(fileName, count);
+			return;
+		}
+		fileReferences.remove(fileName);
 		File f = entry.getFile();
+		cacheSize -= f.length();
 		try {
 			deleteFile(f);
 		} catch (TeamException e) {
 			// Ignore the deletion failure.
-			// A failure only really matters when purging the directory on startup
+			// Files that are not referenced are removed when the cache is enabled again
 		}
-		cacheEntries.remove(id);
+	}
+
+	/**
+	 * Move a file with contents for the given entry into the cache. The file becomes the
+	 * contents file with the given name unless such a file already exists, in which case
+	 * the existing file is shared. This method should only be invoked from an instance of
+	 * ResourceVariantCacheEntry while it holds the lock of the entry.
+	 *
+	 * @param entry the entry whose contents were written
+	 * @param file the file with the contents
+	 * @param fileName the name of the contents file, derived from the contents
+	 * @throws IOException if the file could not be moved
+	 */
+	protected synchronized void addContents(ResourceVariantCacheEntry entry, File file, String fileName) throws IOException {
+		File target = new File(getCachePath().toFile(), fileName);
+		Integer count = fileReferences.get(fileName);
+		if (count == null) {
+			if (target.exists()) {
+				// A left over from an entry that was not purged completely
+				file.delete();
+			} else {
+				Files.move(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			cacheSize += target.length();
+			count = 0;
+		} else {
+			// The contents are already cached for another revision
+			file.delete();
+		}
+		fileReferences.put(fileName, count + 1);
+		appendToIndex(INDEX_ADD, entry.getId(), fileName, target.length(), entry.getLastAccessTimeStamp());
+	}
+
+	/*
+	 * Append a record to the index. Each record is written with a single write so that
+	 * a crash leaves at most the last record incomplete, which is ignored when the index
+	 * is read.
+	 */
+	private synchronized void appendToIndex(byte type, String id, String fileName, long size, long lastAccess) {
+		if (indexOut == null) return;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			DataOutputStream record = new DataOutputStream(bytes);
+			record.writeByte(type);
+			record.writeUTF(id);
+			if (type == INDEX_ADD) {
+				record.writeUTF(fileName);
+				record.writeLong(size);
+				record.writeLong(lastAccess);
+			}
+			indexOut.write(bytes.toByteArray());
+		} catch (IOException e) {
+			// The index is written completely on shutdown
+			TeamPlugin.log(new TeamException(NLS.bind(Messages.RemoteContentsCache_fileError, new String[] { getIndexFile().getAbsolutePath() }), e));
+			closeIndex();
+		}
+	}
+
+	private void closeIndex() {
+		if (indexOut == null) return;
+		try {
+			indexOut.close();
+		} catch (IOException e) {
+			// Ignore close errors
+		}
+		indexOut = null;
+	}
+
+	private File getIndexFile() {
+		return new File(getCachePath().toFile(), INDEX_FILE);
 	}
 
 	private synchronized void createCacheDirectory() {
 		IPath cacheLocation = getCachePath();
 		File file = cacheLocation.toFile();
-		if (file.exists()) {
+		if (! file.exists() && ! file.mkdirs()) {
+			TeamPlugin.log(new TeamException(NLS.bind(Messages.RemoteContentsCache_fileError, new String[] { file.getAbsolutePath() })));
+		}
+		cacheEntries = new ConcurrentHashMap<>();
+		fileReferences = new HashMap<>();
+		lastCacheCleanup = -1;
+		cacheSize = 0;
+		maxCacheSize = Platform.getPreferencesService().getLong(TeamPlugin.ID, PREF_CACHE_SIZE, DEFAULT_CACHE_SIZE, null);
+		readIndex();
+		deleteUnreferencedFiles();
+		if (writeIndex()) {
 			try {
-				deleteFile(file);
-			} catch (TeamException e) {
-				// Check to see if were in an acceptable state
-				File[] fileList = file.listFiles();
-				if (file.exists() && (!file.isDirectory() || (fileList != null && fileList.length != 0))) {
+				indexOut = new FileOutputStream(getIndexFile(), true);
+			} catch (IOException e) {
+				// The index is written completely on shutdown
+				TeamPlugin.log(new TeamException(NLS.bind(Messages.RemoteContentsCache_fileError, new String[] { getIndexFile().getAbsolutePath() }), e));
+			}
+		}
+	}
+
+	/*
+	 * Restore the entries recorded in the index. The index starts with the entries
+	 * that had contents when it was last written completely, followed by the records
+	 * of the contents that were added and removed afterwards. Entries whose contents
+	 * file is missing or has the wrong size are dropped.
+	 */
+	private void readIndex() {
+		File indexFile = getIndexFile();
+		if (!indexFile.exists()) return;
+		Map<String, IndexRecord> records = new LinkedHashMap<>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+			if (in.readInt() != INDEX_VERSION) return;
+			for (;;) {
+				int type = in.read();
+				if (type == -1) break;
+				String id = in.readUTF();
+				if (type == INDEX_ADD) {
+					String fileName = in.readUTF();
+					long size = in.readLong();
+					long lastAccess = in.readLong();
+					records.put(id, new IndexRecord(fileName, size, lastAccess));
+				} else if (type == INDEX_REMOVE) {
+					records.remove(id);
+				} else {
+					throw new IOException(NLS.bind(Messages.RemoteContentsCache_fileError, new String[] { indexFile.getAbsolutePath() }));
+				}
+			}
+		} catch (EOFException e) {
+			// The last record was not written completely
+		} catch (IOException e) {
+			// Keep the entries read so far, the remaining files are deleted as unreferenced
+			TeamPlugin.log(new TeamException(NLS.bind(Messages.RemoteContentsCache_fileError, new String[] { indexFile.getAbsolutePath() }), e));
+		}
+		for (Map.Entry<String, IndexRecord> e : records.entrySet()) {
+			String id = e.getKey();
+			IndexRecord record = e.getValue();
+			File contents = new File(getCachePath().toFile(), record.fileName);
+			if (contents.length() != record.size || !contents.isFile()) continue;
+			cacheEntries.put(id, new ResourceVariantCacheEntry(this, getLock(id), id, record.fileName, record.lastAccess));
+			Integer references = fileReferences.get(record.fileName);
+			if (references == null) {
+				cacheSize += record.size;
+				references = 0;
+			}
+			fileReferences.put(record.fileName, references + 1);
+		}
+	}
+
+	/*
+	 * Write the entries that have contents to a new index, which replaces the
+	 * previous one once it is written completely. Return whether it was written.
+	 */
+	private synchronized boolean writeIndex() {
+		File indexFile = getIndexFile();
+		List<ResourceVariantCacheEntry> entries = new ArrayList<>();
+		for (ResourceVariantCacheEntry entry : cacheEntries.values()) {
+			if (entry.getState() == ResourceVariantCacheEntry.READY) {
+				entries.add(entry);
+			}
+		}
+		File tempFile = new File(indexFile.getParentFile(), INDEX_FILE + ".tmp"); //$NON-NLS-1$
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+				out.writeInt(INDEX_VERSION);
+				for (ResourceVariantCacheEntry entry : entries) {
+					out.writeByte(INDEX_ADD);
+					out.writeUTF(entry.getId());
+					out.writeUTF(entry.getFileName());
+					out.writeLong(entry.getSize());
+					out.writeLong(entry.getLastAccessTimeStamp());
+				}
+			}
+			Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			return true;
+		} catch (IOException e) {
+			// Without an index the cache starts empty
+			TeamPlugin.log(new TeamException(NLS.bind(Messages.RemoteContentsCache_fileError, new String[] { indexFile.getAbsolutePath() }), e));
+			tempFile.delete();
+			indexFile.delete();
+			return false;
+		}
+	}
+
+	private void deleteUnreferencedFiles() {
+		File[] children = getCachePath().toFile().listFiles();
+		if (children == null) return;
+		for (File child : children) {
+			if (!fileReferences.containsKey(child.getName()) && !child.getName().equals(INDEX_FILE)) {
+				try {
+					deleteFile(child);
+				} catch (TeamException e) {
 					TeamPlugin.log(e);
 				}
 			}
 		}
-		if (! file.exists() && ! file.mkdirs()) {
-			TeamPlugin.log(new TeamException(NLS.bind(Messages.RemoteContentsCache_fileError, new String[] { file.getAbsolutePath() })));
+	}
+
+	/*
+	 * Close the cache. The index is compacted so that it records the current access
+	 * time stamps of the entries and no longer contains the removed entries.
+	 */
+	private synchronized void close(boolean compactIndex) {
+		if (cacheEntries == null) return;
+		closeIndex();
+		if (compactIndex) {
+			writeIndex();
 		}
-		cacheEntries = new HashMap<>();
-		lastCacheCleanup = -1;
-		cacheDirSize = 0;
+		cacheEntries = null;
+		fileReferences = null;
 	}
 
 	private synchronized void deleteCacheDirectory() {
+		closeIndex();
 		cacheEntries = null;
+		fileReferences = null;
 		lastCacheCleanup = -1;
-		cacheDirSize = 0;
+		cacheSize = 0;
 		IPath cacheLocation = getCachePath();
 		File file = cacheLocation.toFile();
 		if (file.exists()) {
@@ -211,15 +542,24 @@ public class ResourceVariantCache {
 	 * @param entry
 	 */
 	protected void purgeFromCache(ResourceVariantCacheEntry entry) {
-		purgeFromCache(entry.getId());
+		Map<String, ResourceVariantCacheEntry> entries = cacheEntries;
+		// The cache may have been shut down or the id may be used by a new entry
+		if (entries != null && entries.remove(entry.getId(), entry)) {
+			releaseContents(entry);
+		}
 	}
 
-	private synchronized ResourceVariantCacheEntry internalGetCacheEntry(String id) {
-		if (cacheEntries == null) {
+	private Map<String, ResourceVariantCacheEntry> getEntryMap() {
+		Map<String, ResourceVariantCacheEntry> entries = cacheEntries;
+		if (entries == null) {
 			// This probably means that the cache has been disposed
 			throw new IllegalStateException(NLS.bind(Messages.RemoteContentsCache_cacheDisposed, new String[] { name }));
 		}
-		ResourceVariantCacheEntry entry = cacheEntries.get(id);
+		return entries;
+	}
+
+	private ResourceVariantCacheEntry internalGetCacheEntry(String id) {
+		ResourceVariantCacheEntry entry = getEntryMap().get(id);
 		if (entry != null) {
 			entry.registerHit();
 		}
@@ -234,12 +574,19 @@ public class ResourceVariantCache {
 		return internalGetCacheEntry(id);
 	}
 
-	public synchronized ResourceVariantCacheEntry add(String id, CachedResourceVariant resource) {
-		clearOldCacheEntries();
-		String filePath = String.valueOf(cacheDirSize++);
-		ResourceVariantCacheEntry entry = new ResourceVariantCacheEntry(this, lock, id, filePath);
+	/**
+	 * Cache the given handle for the given id. If there already is an entry for the id,
+	 * its handle is replaced and its contents remain.
+	 * @param id the id that uniquely identifies the remote resource that is cached.
+	 * @param resource the handle to cache
+	 * @return the cache entry
+	 */
+	public ResourceVariantCacheEntry add(String id, CachedResourceVariant resource) {
+		Map<String, ResourceVariantCacheEntry> entries = getEntryMap();
+		clearOldCacheEntries(entries);
+		ResourceVariantCacheEntry entry = entries.computeIfAbsent(id, key -> new ResourceVariantCacheEntry(this, getLock(key), key));
+		entry.registerHit();
 		entry.setResourceVariant(resource);
-		cacheEntries.put(id, entry);
 		return entry;
 	}
 
@@ -251,7 +598,7 @@ public class ResourceVariantCache {
 	 * Method used for testing only
 	 */
 	public ResourceVariantCacheEntry[] getEntries() {
-		return cacheEntries.values().toArray(new ResourceVariantCacheEntry[cacheEntries.size()]);
+		return getEntryMap().values().toArray(new ResourceVariantCacheEntry[0]);
 	}
 
 }
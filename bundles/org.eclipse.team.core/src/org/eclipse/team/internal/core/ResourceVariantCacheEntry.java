@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,11 +18,13 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -41,22 +43,34 @@ public class ResourceVariantCacheEntry {
 	public static final int DISPOSED = 2;
 
 	private String id;
-	private String filePath;
+	// the name of the contents file, null until the contents are written
+	private volatile String fileName;
 	private ResourceVariantCache cache;
-	private int state = UNINITIALIZED;
-	private long lastAccess;
-	private CachedResourceVariant resourceVariant;
+	private volatile int state = UNINITIALIZED;
+	private volatile long lastAccess;
+	private volatile CachedResourceVariant resourceVariant;
 	private ILock lock;
 
-	public ResourceVariantCacheEntry(ResourceVariantCache cache, ILock lock, String id, String filePath) {
+	public ResourceVariantCacheEntry(ResourceVariantCache cache, ILock lock, String id) {
 		this.lock = lock;
 		state = UNINITIALIZED;
 		this.cache = cache;
 		this.id = id;
-		this.filePath = filePath;
 		registerHit();
 	}
 
+	/*
+	 * Create an entry for contents that were cached in a previous session
+	 */
+	ResourceVariantCacheEntry(ResourceVariantCache cache, ILock lock, String id, String fileName, long lastAccess) {
+		this.lock = lock;
+		state = READY;
+		this.cache = cache;
+		this.id = id;
+		this.fileName = fileName;
+		this.lastAccess = lastAccess;
+	}
+
 	public InputStream getContents() throws TeamException {
 		if (state != READY) return null;
 		registerHit();
@@ -80,25 +94,36 @@ public class ResourceVariantCacheEntry {
 	}
 
 	protected File getFile() {
-		return new File(cache.getCachePath().toFile(), filePath);
+		if (fileName == null) return null;
+		return new File(cache.getCachePath().toFile(), fileName);
+	}
+
+	/*
+	 * Return the name of the contents file which is shared by all entries with the
+	 * same contents or null if the contents have not been written
+	 */
+	String getFileName() {
+		return fileName;
 	}
 
 	/**
 	 * Set the contents of for this cache entry. This method supports concurrency by only allowing
-	 * one cache entry to be written at a time. In the case of two concurrent writes to the same cache entry,
+	 * one write to this cache entry at a time; other cache entries may be written concurrently.
+	 * In the case of two concurrent writes to the same cache entry,
 	 * the contents from the first write is used and the content from subsequent writes is ignored.
 	 * @param stream an InputStream that provides the contents to be cached
 	 * @param monitor a progress monitor
 	 * @throws TeamException if the entry is DISPOSED or an I/O error occurred
 	 */
 	public void setContents(InputStream stream, IProgressMonitor monitor) throws TeamException {
-		// Use a lock to only allow one write at a time
+		// Use a lock to only allow one write to this entry at a time
 		beginOperation();
 		try {
 			internalSetContents(stream, monitor);
 		} finally {
 			endOperation();
 		}
+		cache.trimToSize();
 	}
 
 	private void endOperation() {
@@ -116,27 +141,32 @@ public class ResourceVariantCacheEntry {
 		}
 		// Otherwise, the state is UNINITIALIZED or READY so we can proceed
 		registerHit();
-		File ioFile = getFile();
+		File ioFile = null;
 		try {
 
-			// Open the cache file for writing
+			// Open a temporary file for writing. It is moved to a file named after the
+			// hash of the contents once all contents are written.
 			OutputStream out;
+			DigestOutputStream digestStream = null;
 			try {
 				if (state == UNINITIALIZED) {
-					out = new BufferedOutputStream(new FileOutputStream(ioFile));
+					ioFile = File.createTempFile("contents", ".tmp", cache.getCachePath().toFile()); //$NON-NLS-1$ //$NON-NLS-2$
+					digestStream = new DigestOutputStream(new FileOutputStream(ioFile), MessageDigest.getInstance("SHA-1")); //$NON-NLS-1$
+					out = new BufferedOutputStream(digestStream);
 				} else {
 					// If the entry is READY, the contents must have been read in another thread.
 					// We still need to red the contents but they can be ignored since presumably they are the same
 					out = new ByteArrayOutputStream();
 				}
-			} catch (FileNotFoundException e) {
-				throw new TeamException(NLS.bind(Messages.RemoteContentsCache_fileError, new String[] { ioFile.getAbsolutePath() }), e);
+			} catch (NoSuchAlgorithmException e) {
+				// Every Java platform supports SHA-1
+				throw new IOException(e);
 			}
 
 			// Transfer the contents
 			try {
 				try {
-					byte[] buffer = new byte[1024];
+					byte[] buffer = new byte[8192];
 					int read;
 					while ((read = stream.read(buffer)) >= 0) {
 						Policy.checkCanceled(monitor);
@@ -145,8 +175,16 @@ public class ResourceVariantCacheEntry {
 				} finally {
 					out.close();
 				}
+				if (digestStream != null) {
+					String name = toHexString(digestStream.getMessageDigest().digest());
+					cache.addContents(this, ioFile, name);
+					fileName = name;
+				}
 			} catch (IOException e) {
 				// Make sure we don't leave the cache file around as it may not have the right contents
+				if (ioFile != null) {
+					ioFile.delete();
+				}
 				cache.purgeFromCache(this);
 				throw e;
 			}
@@ -154,8 +192,13 @@ public class ResourceVariantCacheEntry {
 			// Mark the cache entry as ready
 			state = READY;
 		} catch (IOException e) {
-			throw new TeamException(NLS.bind(Messages.RemoteContentsCache_fileError, new String[] { ioFile.getAbsolutePath() }), e);
+			File errorFile = ioFile != null ? ioFile : cache.getCachePath().toFile();
+			throw new TeamException(NLS.bind(Messages.RemoteContentsCache_fileError, new String[] { errorFile.getAbsolutePath() }), e);
 		} finally {
+			if (state != READY && ioFile != null) {
+				// The transfer was canceled
+				ioFile.delete();
+			}
 			try {
 				stream.close();
 			} catch (IOException e1) {
@@ -165,6 +208,15 @@ public class ResourceVariantCacheEntry {
 
 	}
 
+	private static String toHexString(byte[] bytes) {
+		StringBuilder buffer = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			buffer.append(Character.forDigit((b >> 4) & 0xF, 16));
+			buffer.append(Character.forDigit(b & 0xF, 16));
+		}
+		return buffer.toString();
+	}
+
 	/*
 	 * @see org.eclipse.team.core.sync.ICacheEntry#getState()
 	 */
@@ -178,7 +230,7 @@ public class ResourceVariantCacheEntry {
 	public long getSize() {
 		if (state != READY) return 0;
 		File ioFile = getFile();
-		if (ioFile.exists()) {
+		if (ioFile != null && ioFile.exists()) {
 			return ioFile.length();
 		}
 		return 0;
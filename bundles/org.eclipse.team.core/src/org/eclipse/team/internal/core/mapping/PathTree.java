@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,25 +16,41 @@ package org.eclipse.team.internal.core.mapping;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import org.eclipse.core.runtime.IPath;
 
 /**
- * A tree of objects keyed by path
+ * A tree of objects keyed by path.
+ * <p>
+ * The tree is a trie with one node per path segment. A node exists for each path
+ * with an object and for each ancestor of such a path. Each node counts the
+ * objects below it and, for each property bit, the objects below it that have
+ * the bit set. Adding or removing an object is therefore proportional to the
+ * depth of its path and listing the children of a path is proportional to the
+ * number of children.
+ * </p>
  */
 public class PathTree {
 
 	class Node {
+		final IPath path;
+		final Node parent;
+		Map<String, Node> children;
 		Object payload;
-		Set<IPath> descendantsWithPayload;
 		int flags;
+		// the number of descendants with a payload
+		int descendantsWithPayload;
+		// the number of descendants with a payload that have each flag set, indexed by bit
+		int[] descendantFlags;
+
+		Node(IPath path, Node parent) {
+			this.path = path;
+			this.parent = parent;
+		}
 		public boolean isEmpty() {
-			return payload == null && (descendantsWithPayload == null || descendantsWithPayload.isEmpty());
+			return payload == null && !hasDescendants();
 		}
 		public Object getPayload() {
 			return payload;
@@ -43,7 +59,7 @@ public class PathTree {
 			this.payload = payload;
 		}
 		public boolean hasDescendants() {
-			return descendantsWithPayload != null && !descendantsWithPayload.isEmpty();
+			return descendantsWithPayload > 0;
 		}
 		public boolean hasFlag(int propertyBit) {
 			return (flags & propertyBit) != 0;
@@ -55,20 +71,52 @@ public class PathTree {
 				flags ^= propertyBit;
 		}
 		public boolean descendantHasFlag(int property) {
-			if (hasDescendants()) {
-				for (Iterator<IPath> iter = descendantsWithPayload.iterator(); iter.hasNext();) {
-					IPath path = iter.next();
-					Node child = getNode(path);
-					if (child.hasFlag(property)) {
+			if (descendantFlags != null) {
+				for (int bit = 0; bit < descendantFlags.length; bit++) {
+					if ((property & (1 << bit)) != 0 && descendantFlags[bit] > 0)
 						return true;
-					}
 				}
 			}
 			return false;
 		}
+		Node getChild(String segment) {
+			if (children == null)
+				return null;
+			return children.get(segment);
+		}
+		Node addChild(IPath childPath, String segment) {
+			if (children == null)
+				children = new HashMap<>(4);
+			Node child = new Node(childPath, this);
+			children.put(segment, child);
+			return child;
+		}
+		/*
+		 * Record that the number of descendants with a payload has changed by
+		 * the given count and that the number of these descendants that have
+		 * each of the given flags set has changed by the given flag count
+		 */
+		void updateDescendants(int count, int changedFlags, int flagCount) {
+			descendantsWithPayload += count;
+			if (changedFlags == 0 || flagCount == 0)
+				return;
+			int highest = 32 - Integer.numberOfLeadingZeros(changedFlags);
+			if (descendantFlags == null || descendantFlags.length < highest) {
+				int[] newFlags = new int[highest];
+				if (descendantFlags != null)
+					System.arraycopy(descendantFlags, 0, newFlags, 0, descendantFlags.length);
+				descendantFlags = newFlags;
+			}
+			for (int bit = 0; bit < highest; bit++) {
+				if ((changedFlags & (1 << bit)) != 0)
+					descendantFlags[bit] += flagCount;
+			}
+		}
 	}
 
-	private Map<IPath, Node> objects = new HashMap<>();
+	// the nodes for the paths without segments, one per device and kind of path
+	private Map<IPath, Node> roots = new HashMap<>();
+	private int size;
 
 	/**
 	 * Return the object at the given path or <code>null</code>
@@ -87,11 +135,16 @@ public class PathTree {
 	 * Put the object at the given path. Return the
 	 * previous object at that path or <code>null</code>
 	 * if the path did not previously have an object.
+	 * Putting <code>null</code> removes the object at the path,
+	 * as if {@link #remove(IPath)} was called, so that the counts of
+	 * the paths with an object stay consistent.
 	 * @param path the path of the object
-	 * @param object the object
+	 * @param object the object or <code>null</code>
 	 * @return the previous object at that path or <code>null</code>
 	 */
 	public synchronized Object put(IPath path, Object object) {
+		if (object == null)
+			return remove(path);
 		Node node = getNode(path);
 		if (node == null) {
 			node = addNode(path);
@@ -99,7 +152,8 @@ public class PathTree {
 		Object previous = node.getPayload();
 		node.setPayload(object);
 		if(previous == null) {
-			addToParents(path, path);
+			size++;
+			updateParents(node, 1, node.flags, 1);
 		}
 		return previous;
 	}
@@ -119,10 +173,9 @@ public class PathTree {
 		Object previous = node.getPayload();
 		node.setPayload(null);
 		if(previous != null) {
-			removeFromParents(path, path);
-			if (node.isEmpty()) {
-				removeNode(path);
-			}
+			size--;
+			updateParents(node, -1, node.flags, -1);
+			removeEmptyNodes(node);
 		}
 		return previous;
 
@@ -134,7 +187,7 @@ public class PathTree {
 	 * @return whether there are children for the given path
 	 */
 	public synchronized boolean hasChildren(IPath path) {
-		if (path.isEmpty()) return !objects.isEmpty();
+		if (path.isEmpty()) return !roots.isEmpty();
 		Node node = getNode(path);
 		if (node == null)
 			return false;
@@ -147,93 +200,50 @@ public class PathTree {
 	 * @return the paths for any children of the given path in this set
 	 */
 	public synchronized IPath[] getChildren(IPath path) {
-		// OPTIMIZE: could be optimized so that we don't traverse all the deep
-		// children to find the immediate ones.
-		Set<IPath> children = new HashSet<>();
 		Node node = getNode(path);
-		if (node != null) {
-			Set possibleChildren = node.descendantsWithPayload;
-			if(possibleChildren != null) {
-				for (Iterator it = possibleChildren.iterator(); it.hasNext();) {
-					Object next = it.next();
-					IPath descendantPath = (IPath)next;
-					IPath childPath = null;
-					if(descendantPath.segmentCount() == (path.segmentCount() +  1)) {
-						childPath = descendantPath;
-					} else if (descendantPath.segmentCount() > path.segmentCount()) {
-						childPath = descendantPath.removeLastSegments(descendantPath.segmentCount() - path.segmentCount() - 1);
-					}
-					if (childPath != null) {
-						children.add(childPath);
-					}
-				}
-			}
+		if (node == null || node.children == null)
+			return new IPath[0];
+		IPath[] children = new IPath[node.children.size()];
+		int i = 0;
+		for (Node child : node.children.values()) {
+			children[i++] = child.path;
 		}
-		return children.toArray(new IPath[children.size()]);
+		return children;
 	}
 
-	private boolean addToParents(IPath path, IPath parent) {
-		// this flag is used to indicate if the parent was previously in the set
-		boolean addedParent = false;
-		if (path == parent) {
-			// this is the leaf that was just added
-			addedParent = true;
-		} else {
-			Node node = getNode(parent);
-			if (node == null)
-				node = addNode(parent);
-			Set<IPath> children = node.descendantsWithPayload;
-			if (children == null) {
-				children = new HashSet<>();
-				node.descendantsWithPayload = children;
-				// this is a new folder in the sync set
-				addedParent = true;
-			}
-			children.add(path);
-		}
-		// if the parent already existed and the resource is new, record it
-		if ((parent.segmentCount() == 0 || !addToParents(path, parent.removeLastSegments(1))) && addedParent) {
-			// TODO: we may not need to record the removed subtree
-			// internalAddedSubtreeRoot(parent);
+	/*
+	 * Update the counts of the ancestors of the given node after the node or
+	 * one of its descendants has gained or lost a payload or flags
+	 */
+	private void updateParents(Node node, int count, int flags, int flagCount) {
+		for (Node parent = node.parent; parent != null; parent = parent.parent) {
+			parent.updateDescendants(count, flags, flagCount);
 		}
-		return addedParent;
 	}
 
-	private boolean removeFromParents(IPath path, IPath parent) {
-		// this flag is used to indicate if the parent was removed from the set
-		boolean removedParent = false;
-		Node node = getNode(parent);
-		if (node == null) {
-			// this is the leaf
-			removedParent = true;
-		} else {
-			Set children = node.descendantsWithPayload;
-			if (children == null) {
-				// this is the leaf
-				removedParent = true;
+	/*
+	 * Remove the given node and its ancestors as long as they neither have a
+	 * payload nor descendants with a payload
+	 */
+	private void removeEmptyNodes(Node node) {
+		while (node != null && node.isEmpty()) {
+			if (node.parent == null) {
+				roots.remove(node.path);
 			} else {
-				children.remove(path);
-				if (children.isEmpty()) {
-					node.descendantsWithPayload = null;
-					if (node.isEmpty())
-						removeNode(parent);
-					removedParent = true;
-				}
+				node.parent.children.remove(node.path.lastSegment());
+				if (node.parent.children.isEmpty())
+					node.parent.children = null;
 			}
+			node = node.parent;
 		}
-		//	if the parent wasn't removed and the resource was, record it
-		if ((parent.segmentCount() == 0 || !removeFromParents(path, parent.removeLastSegments(1))) && removedParent) {
-			// TODO: may not need to record this
-			//internalRemovedSubtreeRoot(parent);
-		}
-		return removedParent;
 	}
 
 	/**
 	 * Clear all entries from the path tree.
 	 */
 	public synchronized void clear() {
-		objects.clear();
+		roots.clear();
+		size = 0;
 	}
 
 	/**
@@ -241,7 +251,7 @@ public class PathTree {
 	 * @return whether the path tree is empty
 	 */
 	public synchronized boolean isEmpty() {
-		return objects.isEmpty();
+		return roots.isEmpty();
 	}
 
 	/**
@@ -249,12 +259,9 @@ public class PathTree {
 	 * @return the paths in this tree that contain diffs.
 	 */
 	public synchronized IPath[] getPaths() {
-		List<IPath> result = new ArrayList<>();
-		for (Iterator iter = objects.keySet().iterator(); iter.hasNext();) {
-			IPath path = (IPath) iter.next();
-			Node node = getNode(path);
-			if (node.getPayload() != null)
-				result.add(path);
+		List<IPath> result = new ArrayList<>(size);
+		for (Node root : roots.values()) {
+			collectPayloads(root, result, true);
 		}
 		return result.toArray(new IPath[result.size()]);
 	}
@@ -264,39 +271,60 @@ public class PathTree {
 	 * @return all the values in the tree
 	 */
 	public synchronized Collection values() {
-		List<Object> result = new ArrayList<>();
-		for (Iterator iter = objects.keySet().iterator(); iter.hasNext();) {
-			IPath path = (IPath) iter.next();
-			Node node = getNode(path);
-			if (node.getPayload() != null)
-				result.add(node.getPayload());
+		List<Object> result = new ArrayList<>(size);
+		for (Node root : roots.values()) {
+			collectPayloads(root, result, false);
 		}
 		return result;
 	}
 
+	private void collectPayloads(Node node, List result, boolean paths) {
+		if (node.getPayload() != null)
+			result.add(paths ? node.path : node.getPayload());
+		if (node.children != null) {
+			for (Node child : node.children.values()) {
+				collectPayloads(child, result, paths);
+			}
+		}
+	}
+
 	/**
 	 * Return the number of nodes contained in this path tree.
 	 * @return the number of nodes contained in this path tree
 	 */
-	public int size() {
-		return values().size();
+	public synchronized int size() {
+		return size;
 	}
 
 	private Node getNode(IPath path) {
-		return objects.get(path);
+		Node node = roots.get(path.uptoSegment(0));
+		int segmentCount = path.segmentCount();
+		for (int i = 0; node != null && i < segmentCount; i++) {
+			node = node.getChild(path.segment(i));
+		}
+		return node;
 	}
 
 	private Node addNode(IPath path) {
-		Node node;
-		node = new Node();
-		objects.put(path, node);
+		IPath rootPath = path.uptoSegment(0);
+		Node node = roots.get(rootPath);
+		if (node == null) {
+			node = new Node(rootPath, null);
+			roots.put(rootPath, node);
+		}
+		int segmentCount = path.segmentCount();
+		for (int i = 0; i < segmentCount; i++) {
+			String segment = path.segment(i);
+			Node child = node.getChild(segment);
+			if (child == null) {
+				IPath childPath = i == segmentCount - 1 ? path : path.uptoSegment(i + 1);
+				child = node.addChild(childPath, segment);
+			}
+			node = child;
+		}
 		return node;
 	}
 
-	private Object removeNode(IPath path) {
-		return objects.remove(path);
-	}
-
 	/**
 	 * Set the property for the given path and propogate the
 	 * bit to the root. The property is only set if the given path
@@ -307,28 +335,30 @@ public class PathTree {
 	 * @return the paths whose bit changed
 	 */
 	public synchronized IPath[] setPropogatedProperty(IPath path, int property, boolean value) {
-		Set<IPath> changed = new HashSet<>();
-		internalSetPropertyBit(path, property, value, changed);
+		List<IPath> changed = new ArrayList<>();
+		// the number of nodes with a payload below the current node whose bit changed
+		int changedPayloads = 0;
+		boolean propagate = true;
+		for (Node node = getNode(path); node != null; node = node.parent) {
+			node.updateDescendants(0, property, value ? changedPayloads : -changedPayloads);
+			// The bit is never set for the root
+			if (!propagate || node.parent == null)
+				continue;
+			// No need to set it if the value hans't changed
+			// Only unset the property if no descendants have the flag set
+			if (value == node.hasFlag(property) || (!value && node.descendantHasFlag(property))) {
+				// The remaining ancestors still count the changed descendants
+				propagate = false;
+				continue;
+			}
+			node.setProperty(property, value);
+			changed.add(node.path);
+			if (node.getPayload() != null)
+				changedPayloads++;
+		}
 		return changed.toArray(new IPath[changed.size()]);
 	}
 
-	private void internalSetPropertyBit(IPath path, int property, boolean value, Set<IPath> changed) {
-		if (path.segmentCount() == 0)
-			return;
-		Node node = getNode(path);
-		if (node == null)
-			return;
-		// No need to set it if the value hans't changed
-		if (value == node.hasFlag(property))
-			return;
-		// Only unset the property if no descendants have the flag set
-		if (!value && node.descendantHasFlag(property))
-			return;
-		node.setProperty(property, value);
-		changed.add(path);
-		internalSetPropertyBit(path.removeLastSegments(1), property, value, changed);
-	}
-
 	public synchronized boolean getProperty(IPath path, int property) {
 		if (path.segmentCount() == 0)
 			return false;
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.core.streams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.team.internal.core.Messages;
+
+/**
+ * Reads from a socket channel with timeouts and cancellation but without a
+ * helper thread. The channel is put into non-blocking mode and a read waits
+ * on a selector in the calling thread. It replaces the combination of a
+ * {@link PollingInputStream} and a {@link TimeoutInputStream} for sockets.
+ *
+ * Closing the stream does not close the channel.
+ */
+public class ChannelInputStream extends InputStream {
+	private final SocketChannel channel;
+	private final ChannelSelector selector;
+	private final byte[] single = new byte[1];
+	private ByteBuffer buffer; // wraps the array that was last read into
+
+	/**
+	 * Creates a new channel input stream.
+	 * @param channel the connected socket channel
+	 * @param timeout the number of milliseconds to wait for data before a read throws
+	 *        an InterruptedIOException; 0 waits indefinitely until canceled
+	 * @param monitor the progress monitor to be polled for cancellation
+	 * @throws IOException if the channel cannot be put into non-blocking mode
+	 */
+	public ChannelInputStream(SocketChannel channel, long timeout, IProgressMonitor monitor) throws IOException {
+		this.channel = channel;
+		this.selector = new ChannelSelector(channel, SelectionKey.OP_READ, timeout, monitor);
+	}
+
+	/**
+	 * @throws OperationCanceledException if the progress monitor is canceled
+	 * @throws InterruptedIOException if no data was received before the timeout
+	 */
+	@Override
+	public int read() throws IOException {
+		int n = read(single, 0, 1);
+		return n == -1 ? -1 : single[0] & 0xFF;
+	}
+
+	/**
+	 * @throws OperationCanceledException if the progress monitor is canceled
+	 * @throws InterruptedIOException if no data was received before the timeout
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0)
+			return 0;
+		selector.checkCanceled();
+		if (buffer == null || buffer.array() != b)
+			buffer = ByteBuffer.wrap(b);
+		buffer.limit(off + len);
+		buffer.position(off);
+		long deadline = selector.getDeadline();
+		for (;;) {
+			int n = channel.read(buffer);
+			if (n != 0)
+				return n;
+			selector.select(deadline, Messages.PollingInputStream_readTimeout);
+		}
+	}
+
+	@Override
+	public int available() throws IOException {
+		return 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		selector.close();
+	}
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.core.streams;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.team.internal.core.Messages;
+
+/**
+ * Writes to a socket channel with timeouts and cancellation but without a
+ * helper thread. The channel is put into non-blocking mode and a write waits
+ * on a selector in the calling thread while the socket's send buffer is full.
+ * It replaces the combination of a {@link PollingOutputStream} and a
+ * {@link TimeoutOutputStream} for sockets.
+ *
+ * The stream is not buffered. Closing the stream does not close the channel.
+ */
+public class ChannelOutputStream extends OutputStream {
+	private final SocketChannel channel;
+	private final ChannelSelector selector;
+	private final byte[] single = new byte[1];
+
+	/**
+	 * Creates a new channel output stream.
+	 * @param channel the connected socket channel
+	 * @param timeout the number of milliseconds a write may make no progress before
+	 *        it throws an InterruptedIOException; 0 waits indefinitely until canceled
+	 * @param monitor the progress monitor to be polled for cancellation
+	 * @throws IOException if the channel cannot be put into non-blocking mode
+	 */
+	public ChannelOutputStream(SocketChannel channel, long timeout, IProgressMonitor monitor) throws IOException {
+		this.channel = channel;
+		this.selector = new ChannelSelector(channel, SelectionKey.OP_WRITE, timeout, monitor);
+	}
+
+	/**
+	 * @throws OperationCanceledException if the progress monitor is canceled
+	 * @throws InterruptedIOException if the write made no progress before the timeout
+	 */
+	@Override
+	public void write(int b) throws IOException {
+		single[0] = (byte) b;
+		write(single, 0, 1);
+	}
+
+	/**
+	 * @throws OperationCanceledException if the progress monitor is canceled
+	 * @throws InterruptedIOException if the write made no progress before the timeout,
+	 *         bytesTransferred contains the number of bytes that were written
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		selector.checkCanceled();
+		ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+		long deadline = selector.getDeadline();
+		while (buffer.hasRemaining()) {
+			if (channel.write(buffer) > 0) {
+				deadline = selector.getDeadline();
+				continue;
+			}
+			try {
+				selector.select(deadline, Messages.PollingOutputStream_writeTimeout);
+			} catch (InterruptedIOException e) {
+				e.bytesTransferred = buffer.position() - off;
+				throw e;
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		selector.close();
+	}
+}
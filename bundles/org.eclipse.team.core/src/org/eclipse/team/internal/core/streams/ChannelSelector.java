@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.core.streams;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.*;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * Waits on the calling thread until a non-blocking channel is ready for an
+ * operation. The wait is split into short intervals so that the progress
+ * monitor is polled for cancellation, and it fails once the deadline of the
+ * operation passes.
+ */
+public class ChannelSelector {
+	// the maximum number of millis to wait before polling the monitor again
+	private static final long POLL_INTERVAL = 100;
+
+	private final Selector selector;
+	private final long timeout; // timeout in millis, or 0
+	private final IProgressMonitor monitor;
+
+	/**
+	 * Puts the channel into non-blocking mode and registers it for the given
+	 * operations.
+	 * @param channel the channel
+	 * @param ops the operations to wait for, see {@link SelectionKey}
+	 * @param timeout the number of milliseconds without progress before an
+	 *        operation fails with an InterruptedIOException; 0 waits indefinitely
+	 * @param monitor the progress monitor to be polled for cancellation
+	 */
+	public ChannelSelector(SelectableChannel channel, int ops, long timeout, IProgressMonitor monitor) throws IOException {
+		this.timeout = timeout;
+		this.monitor = monitor;
+		channel.configureBlocking(false);
+		selector = Selector.open();
+		try {
+			channel.register(selector, ops);
+		} catch (IOException e) {
+			selector.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the deadline for an operation that starts now.
+	 */
+	public long getDeadline() {
+		return System.nanoTime() + timeout * 1000000L;
+	}
+
+	/**
+	 * Blocks until the channel is ready, the monitor is canceled or at most
+	 * for one poll interval.
+	 * @param deadline the deadline of the operation, see {@link #getDeadline()}
+	 * @param timeoutMessage the message of the exception if the deadline passed
+	 * @throws OperationCanceledException if the progress monitor is canceled
+	 * @throws InterruptedIOException if the deadline passed
+	 */
+	public void select(long deadline, String timeoutMessage) throws IOException {
+		checkCanceled();
+		long wait = POLL_INTERVAL;
+		if (timeout > 0) {
+			long remaining = (deadline - System.nanoTime()) / 1000000L;
+			if (remaining <= 0)
+				throw new InterruptedIOException(timeoutMessage);
+			wait = Math.min(wait, remaining);
+		}
+		selector.select(wait);
+		selector.selectedKeys().clear();
+	}
+
+	/**
+	 * @throws OperationCanceledException if the progress monitor is canceled
+	 */
+	public void checkCanceled() {
+		if (monitor.isCanceled())
+			throw new OperationCanceledException();
+	}
+
+	/**
+	 * Closes the selector, the channel stays open.
+	 */
+	public void close() throws IOException {
+		selector.close();
+	}
+}
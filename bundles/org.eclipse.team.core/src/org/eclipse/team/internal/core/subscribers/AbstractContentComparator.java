@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011 IBM Corporation and others.
+ * Copyright (c) 2011, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,13 +16,17 @@ package org.eclipse.team.internal.core.subscribers;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
 
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileInfo;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.team.core.TeamException;
 import org.eclipse.team.core.history.IFileRevision;
+import org.eclipse.team.core.variants.CachedResourceVariant;
 import org.eclipse.team.core.variants.IResourceVariant;
 import org.eclipse.team.internal.core.Policy;
 import org.eclipse.team.internal.core.TeamPlugin;
@@ -56,6 +60,13 @@ public abstract class AbstractContentComparator {
 		InputStream is2 = null;
 		try {
 			monitor.beginTask(null, 100);
+			if (isByteComparison()) {
+				// Contents of different size cannot be equal, so avoid reading them
+				long size1 = getSize(e1);
+				long size2 = getSize(e2);
+				if (size1 != -1 && size2 != -1 && size1 != size2)
+					return false;
+			}
 			is1 = getContents(e1, Policy.subMonitorFor(monitor, 30));
 			is2 = getContents(e2, Policy.subMonitorFor(monitor, 30));
 			return contentsEqual(Policy.subMonitorFor(monitor, 40), is1, is2, shouldIgnoreWhitespace());
@@ -84,9 +95,45 @@ public abstract class AbstractContentComparator {
 		return ignoreWhitespace;
 	}
 
+	/**
+	 * Return whether this comparator considers contents equal only if they
+	 * have the same bytes. If so, the contents are not compared if their sizes
+	 * are known to differ. Subclasses that perform an exact comparison may
+	 * override.
+	 *
+	 * @return whether contents are only equal if they have the same bytes
+	 */
+	protected boolean isByteComparison() {
+		return false;
+	}
+
 	abstract protected boolean contentsEqual(IProgressMonitor monitor, InputStream is1, InputStream is2,
 			boolean ignoreWhitespace);
 
+	/*
+	 * Return the size of the contents if it is available without reading the
+	 * contents or -1 otherwise
+	 */
+	private long getSize(Object resource) {
+		if (resource instanceof IFile) {
+			URI location = ((IFile) resource).getLocationURI();
+			if (location == null)
+				return -1;
+			try {
+				IFileInfo info = EFS.getStore(location).fetchInfo();
+				return info.exists() ? info.getLength() : -1;
+			} catch (CoreException e) {
+				return -1;
+			}
+		} else if (resource instanceof CachedResourceVariant) {
+			CachedResourceVariant variant = (CachedResourceVariant) resource;
+			// The size of variants is only known once their contents are cached
+			if (!variant.isContainer() && variant.isContentsCached())
+				return variant.getSize();
+		}
+		return -1;
+	}
+
 	private InputStream getContents(Object resource, IProgressMonitor monitor)
 			throws TeamException {
 		try {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,6 +16,7 @@ package org.eclipse.team.internal.core.subscribers;
 import java.io.IOException;
 import java.io.InputStream;
 
+import org.eclipse.compare.internal.core.ContentEquality;
 import org.eclipse.core.runtime.IProgressMonitor;
 
 /**
@@ -30,6 +31,11 @@ public class ContentComparator extends AbstractContentComparator{
 		super(ignoreWhitespace);
 	}
 
+	@Override
+	protected boolean isByteComparison() {
+		return !shouldIgnoreWhitespace();
+	}
+
 	/**
 	 * Returns <code>true</code> if both input streams byte contents is
 	 * identical.
@@ -53,6 +59,9 @@ public class ContentComparator extends AbstractContentComparator{
 			if (is1 == null || is2 == null)
 				return false;
 
+			if (!shouldIgnoreWhitespace())
+				return ContentEquality.contentsEqual(is1, is2);
+
 			while (true) {
 				int c1 = is1.read();
 				while (shouldIgnoreWhitespace() && isWhitespace(c1))
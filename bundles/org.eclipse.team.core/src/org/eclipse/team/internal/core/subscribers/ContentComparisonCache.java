@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.core.subscribers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.team.core.history.IFileRevision;
+
+/**
+ * Remembers the results of comparing local files with remote file revisions.
+ * A result is only returned while the local file has the modification stamp
+ * and the remote revision has the content identifier that they had when they
+ * were compared, so the diffs that did not change since the last refresh are
+ * not compared again. Files without a modification stamp and revisions without
+ * a content identifier are not cached.
+ * <p>
+ * Results that are no longer valid are dropped when they are looked up, and
+ * only the {@link #MAX_ENTRIES} most recently used results are kept. The cache
+ * may be used by several threads concurrently.
+ * </p>
+ */
+public class ContentComparisonCache {
+
+	private static class Entry {
+		final long modificationStamp;
+		final String contentIdentifier;
+		final boolean result;
+
+		Entry(long modificationStamp, String contentIdentifier, boolean result) {
+			this.modificationStamp = modificationStamp;
+			this.contentIdentifier = contentIdentifier;
+			this.result = result;
+		}
+	}
+
+	/**
+	 * The maximum number of results that are remembered.
+	 */
+	public static final int MAX_ENTRIES = 10000;
+
+	// the entries in the order of their last use, guarded by the map
+	private final Map<IPath, Entry> entries = new LinkedHashMap<IPath, Entry>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<IPath, Entry> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	/**
+	 * Return the remembered result of comparing the given file and revision.
+	 * @param local a local file
+	 * @param remote a revision of the file
+	 * @return the result or <code>null</code> if the file or the revision
+	 * changed since they were compared or they were never compared
+	 */
+	public Boolean get(IFile local, IFileRevision remote) {
+		IPath path = local.getFullPath();
+		synchronized (entries) {
+			Entry entry = entries.get(path);
+			if (entry == null)
+				return null;
+			if (entry.modificationStamp != local.getModificationStamp()
+					|| !entry.contentIdentifier.equals(remote.getContentIdentifier())) {
+				entries.remove(path);
+				return null;
+			}
+			return Boolean.valueOf(entry.result);
+		}
+	}
+
+	/**
+	 * Remember the result of comparing the given file and revision.
+	 * @param local a local file
+	 * @param stamp the modification stamp of the file before its contents
+	 * were read, so that a change during the comparison is not missed
+	 * @param remote a revision of the file
+	 * @param result the result of the comparison
+	 */
+	public void put(IFile local, long stamp, IFileRevision remote, boolean result) {
+		String identifier = remote.getContentIdentifier();
+		IPath path = local.getFullPath();
+		synchronized (entries) {
+			if (stamp == IResource.NULL_STAMP || identifier == null) {
+				entries.remove(path);
+				return;
+			}
+			entries.put(path, new Entry(stamp, identifier, result));
+		}
+	}
+
+	/**
+	 * Forget all results.
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Return the number of remembered results.
+	 * @return the number of results
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+}
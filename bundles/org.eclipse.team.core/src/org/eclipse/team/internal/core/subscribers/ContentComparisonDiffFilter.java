@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2017 IBM Corporation and others.
+ * Copyright (c) 2006, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -25,6 +25,7 @@ import org.eclipse.team.internal.core.mapping.SyncInfoToDiffConverter;
 
 public class ContentComparisonDiffFilter extends DiffFilter {
 	ContentComparator criteria = new ContentComparator(false);
+	private final ContentComparisonCache cache = new ContentComparisonCache();
 
 	/**
 	 * Create a filter that does not ignore whitespace.
@@ -43,7 +44,8 @@ public class ContentComparisonDiffFilter extends DiffFilter {
 	/**
 	 * Compare the contents of the local file and its variant.
 	 * This is used by the <code>select</code> method to compare the
-	 * contents of two non-null files.
+	 * contents of two non-null files. The result is remembered until
+	 * the local file or the remote revision changes.
 	 * @param local a local file
 	 * @param remote a resource variant of the file
 	 * @param monitor a progress monitor
@@ -52,7 +54,13 @@ public class ContentComparisonDiffFilter extends DiffFilter {
 	public boolean compareContents(IFile local, IFileRevision remote, IProgressMonitor monitor) {
 		Assert.isNotNull(local);
 		Assert.isNotNull(remote);
-		return criteria.compare(local, remote, monitor);
+		long stamp = local.getModificationStamp();
+		Boolean result = cache.get(local, remote);
+		if (result != null)
+			return result.booleanValue();
+		boolean equal = criteria.compare(local, remote, monitor);
+		cache.put(local, stamp, remote, equal);
+		return equal;
 	}
 
 	@Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,12 +13,25 @@
  *******************************************************************************/
 package org.eclipse.team.internal.core.subscribers;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.resources.mapping.ResourceTraversal;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.team.core.ITeamStatus;
@@ -50,11 +63,16 @@ public class SubscriberDiffTreeEventHandler extends SubscriberEventHandler {
 	private static final int EXCEPTION_CANCELED = 1;
 	private static final int EXCEPTION_ERROR = 2;
 
+	// The filters may fetch remote contents, so a few threads are shared by all handlers
+	private static final int FILTER_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+	private static ExecutorService filterExecutor;
+
 	private ResourceDiffTree tree;
 	private SubscriberDiffCollector collector;
 	private ISynchronizationScopeManager manager;
 	private Object family;
 	private DiffFilter filter;
+	private boolean parallelFilter;
 	private int state = STATE_NEW;
 	private int exceptionState = EXCEPTION_NONE;
 
@@ -204,6 +222,8 @@ public class SubscriberDiffTreeEventHandler extends SubscriberEventHandler {
 	@Override
 	protected void dispatchEvents(SubscriberEvent[] events,
 			IProgressMonitor monitor) {
+		DiffFilter filter = this.filter;
+		Map<IDiff, Boolean> selected = selectDiffs(events, filter, monitor);
 		try {
 			tree.beginInput();
 			for (SubscriberEvent event : events) {
@@ -215,7 +235,7 @@ public class SubscriberDiffTreeEventHandler extends SubscriberEventHandler {
 							if (changedNode.getKind() == IDiff.NO_CHANGE) {
 								tree.remove(changedNode.getPath());
 							} else {
-								addDiff(changedNode, monitor);
+								addDiff(changedNode, filter, selected, monitor);
 							}
 						}
 						break;
@@ -232,14 +252,113 @@ public class SubscriberDiffTreeEventHandler extends SubscriberEventHandler {
 		}
 	}
 
-	private void addDiff(IDiff diff, IProgressMonitor monitor) {
-		if (filter == null || filter.select(diff, monitor)) {
+	private void addDiff(IDiff diff, DiffFilter filter, Map<IDiff, Boolean> selected, IProgressMonitor monitor) {
+		Boolean select = selected == null ? null : selected.get(diff);
+		if (select == null)
+			select = Boolean.valueOf(filter == null || filter.select(diff, monitor));
+		if (select.booleanValue()) {
 			tree.add(diff);
 		} else {
 			tree.remove(diff.getPath());
 		}
 	}
 
+	/*
+	 * Evaluate the filter for the changed diffs of the events by the filter
+	 * threads. Return whether each diff is selected or null if the filter is to
+	 * be evaluated as the diffs are added to the tree.
+	 */
+	private Map<IDiff, Boolean> selectDiffs(SubscriberEvent[] events, DiffFilter filter, IProgressMonitor monitor) {
+		if (filter == null || !isParallelFilter())
+			return null;
+		List<IDiff> diffs = new ArrayList<>();
+		for (SubscriberEvent event : events) {
+			if (event.getType() == SubscriberEvent.CHANGE && event instanceof SubscriberDiffChangedEvent) {
+				IDiff changedNode = ((SubscriberDiffChangedEvent) event).getChangedNode();
+				if (changedNode.getKind() != IDiff.NO_CHANGE)
+					diffs.add(changedNode);
+			}
+		}
+		if (diffs.size() < 2)
+			return null;
+		boolean[] results = select(filter, diffs.toArray(new IDiff[diffs.size()]), monitor);
+		Map<IDiff, Boolean> selected = new IdentityHashMap<>(diffs.size());
+		for (int i = 0; i < results.length; i++) {
+			selected.put(diffs.get(i), Boolean.valueOf(results[i]));
+		}
+		return selected;
+	}
+
+	private synchronized boolean isParallelFilter() {
+		return parallelFilter && state != STATE_SHUTDOWN;
+	}
+
+	/**
+	 * Set whether the filter is evaluated by several threads for the changes
+	 * dispatched together. The filter must be thread safe if it is. The diffs
+	 * are still added to the tree by the handler in the order of the changes.
+	 * @param parallel whether the filter is evaluated by several threads
+	 */
+	public synchronized void setParallelFilter(boolean parallel) {
+		parallelFilter = parallel;
+	}
+
+	/**
+	 * Evaluate the filter for the given diffs by the filter threads that are
+	 * shared by all handlers. The filter must be thread safe. The threads only
+	 * poll the monitor for cancellation.
+	 * @param filter a filter
+	 * @param diffs the diffs
+	 * @param monitor a progress monitor
+	 * @return whether each diff is selected, in the order of the diffs
+	 */
+	public static boolean[] select(final DiffFilter filter, IDiff[] diffs, final IProgressMonitor monitor) {
+		// The monitor is not thread safe, so the threads only poll it for cancellation
+		final IProgressMonitor canceler = new NullProgressMonitor() {
+			@Override
+			public boolean isCanceled() {
+				return monitor.isCanceled();
+			}
+		};
+		List<Callable<Boolean>> tasks = new ArrayList<>(diffs.length);
+		for (final IDiff diff : diffs) {
+			tasks.add(() -> Boolean.valueOf(filter.select(diff, canceler)));
+		}
+		boolean[] selected = new boolean[diffs.length];
+		try {
+			List<Future<Boolean>> results = getFilterExecutor().invokeAll(tasks);
+			for (int i = 0; i < diffs.length; i++) {
+				selected[i] = results.get(i).get().booleanValue();
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		}
+		return selected;
+	}
+
+	private static synchronized ExecutorService getFilterExecutor() {
+		if (filterExecutor == null) {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(FILTER_THREADS, FILTER_THREADS, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<>(), r -> {
+						Thread thread = new Thread(r, "Diff Filter"); //$NON-NLS-1$
+						thread.setDaemon(true);
+						return thread;
+					});
+			// the threads end when no filters are evaluated
+			pool.allowCoreThreadTimeOut(true);
+			filterExecutor = pool;
+		}
+		return filterExecutor;
+	}
+
 	/**
 	 * Return the resource diff tree that contains the out-of-sync diffs for the
 	 * subscriber.
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2011 IBM Corporation and others.
+ * Copyright (c) 2005, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -55,6 +55,7 @@ public class CVSMessages extends NLS {
 	public static String Connection_readUnestablishedConnection;
 	public static String Connection_writeUnestablishedConnection;
 	public static String Connection_0;
+	public static String ConnectionPool_0;
 	public static String PrepareForReplaceVisitor_DeletedFileWithoutHistoryCannotBeRestoredWhileRevertToBase;
 	public static String PrepareForReplaceVisitor_FileCannotBeReplacedWithBase;
 
@@ -101,6 +102,7 @@ public class CVSMessages extends NLS {
 	public static String RemoteFolderTreeBuilder_0;
 	public static String RemoteFolderTreeBuilder_receivingDelta;
 	public static String RemoteFolderTreeBuilder_receivingRevision;
+	public static String RemoteFolderTreeBuilder_fetchingRevisions;
 	public static String RemoteFolderTreeBuilder_missingParent;
 	public static String RemoteFolderTreeBuild_folderDeletedFromServer;
 
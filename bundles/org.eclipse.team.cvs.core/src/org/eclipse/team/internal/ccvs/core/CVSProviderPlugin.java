@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -62,6 +62,10 @@ public class CVSProviderPlugin extends Plugin {
 	public static final int DEFAULT_TIMEOUT = 60;
 	// file transfer compression level (0 - 9)
 	public static final int DEFAULT_COMPRESSION_LEVEL = 0;
+	// number of idle connections kept per repository location
+	public static final int DEFAULT_CONNECTION_POOL_SIZE = 2;
+	// time in seconds after which idle connections are closed
+	public static final int DEFAULT_CONNECTION_IDLE_TIMEOUT = 60;
 	// default text keyword substitution mode
 	public static final KSubstOption DEFAULT_TEXT_KSUBST_OPTION = Command.KSUBST_TEXT_EXPAND;
 
@@ -78,6 +82,8 @@ public class CVSProviderPlugin extends Plugin {
 	private KSubstOption defaultTextKSubstOption = DEFAULT_TEXT_KSUBST_OPTION;
 	private boolean usePlatformLineend = true;
 	private int communicationsTimeout = DEFAULT_TIMEOUT;
+	private int connectionPoolSize = DEFAULT_CONNECTION_POOL_SIZE;
+	private int connectionIdleTimeout = DEFAULT_CONNECTION_IDLE_TIMEOUT;
 	private boolean pruneEmptyDirectories = DEFAULT_PRUNE;
 	private boolean fetchAbsentDirectories = DEFAULT_FETCH;
 	private boolean replaceUnmanaged = true;
@@ -262,6 +268,40 @@ public class CVSProviderPlugin extends Plugin {
 		this.communicationsTimeout = Math.max(0, timeout);
 	}
 	
+	/**
+	 * Get the number of idle connections that are kept open per repository location
+	 */
+	public int getConnectionPoolSize() {
+		return connectionPoolSize;
+	}
+	
+	/**
+	 * Set the number of idle connections that are kept open per repository location.
+	 * If it is 0, connections are closed when their session is closed.
+	 */
+	public void setConnectionPoolSize(int size) {
+		this.connectionPoolSize = Math.max(0, size);
+		if (connectionPoolSize == 0)
+			ConnectionPool.getInstance().clear();
+	}
+	
+	/**
+	 * Get the time in seconds after which idle connections are closed
+	 */
+	public int getConnectionIdleTimeout() {
+		return connectionIdleTimeout;
+	}
+	
+	/**
+	 * Set the time in seconds after which idle connections are closed.
+	 * If it is 0, connections are closed when their session is closed.
+	 */
+	public void setConnectionIdleTimeout(int timeout) {
+		this.connectionIdleTimeout = Math.max(0, timeout);
+		if (connectionIdleTimeout == 0)
+			ConnectionPool.getInstance().clear();
+	}
+	
 	/**
 	 * Set the quietness option to use with cvs commands.
 	 * Can be "", "-q" or "-Q"
@@ -337,6 +377,8 @@ public class CVSProviderPlugin extends Plugin {
 			
 			getChangeSetManager().dispose();
 			
+			ConnectionPool.getInstance().clear();
+			
 			tracker.close();
 			
 			deleteCrashFile();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2007 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -325,7 +325,9 @@ public abstract class Command extends Request {
 			// run the command
 			try {
 				session.setCurrentCommand(Command.this);
+				session.beginCommand(gOptions, monitor);
 				status[0] = doExecute(session, gOptions, lOptions, arguments, listener, monitor);
+				session.endCommand();
 				notifyConsoleOnCompletion(session, status[0], null);
 			} catch (CVSException e1) {
 				notifyConsoleOnCompletion(session, null, e1);
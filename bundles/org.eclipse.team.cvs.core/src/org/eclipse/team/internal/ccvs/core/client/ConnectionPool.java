@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.ccvs.core.client;
+
+import java.util.*;
+
+import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.team.internal.ccvs.core.CVSException;
+import org.eclipse.team.internal.ccvs.core.CVSMessages;
+import org.eclipse.team.internal.ccvs.core.CVSProviderPlugin;
+import org.eclipse.team.internal.ccvs.core.connection.CVSRepositoryLocation;
+import org.eclipse.team.internal.ccvs.core.connection.Connection;
+
+/**
+ * Keeps the connections of closed sessions open so that later sessions for
+ * the same location can skip connecting, authenticating and negotiating the
+ * valid requests.
+ * <p>
+ * A connection is only returned to the pool by a session whose commands all
+ * completed, so that the server is waiting for the next request. At most
+ * {@link CVSProviderPlugin#getConnectionPoolSize()} connections are kept per
+ * location, and connections that are not used again within
+ * {@link CVSProviderPlugin#getConnectionIdleTimeout()} seconds are closed.
+ * </p>
+ * <p>
+ * Before a connection is reused, a <code>noop</code> request checks that the
+ * server did not close it while it was idle, and the connection is given the
+ * progress monitor of the new session.
+ * </p>
+ */
+public class ConnectionPool {
+
+	private static ConnectionPool instance;
+
+	// CVSRepositoryLocation -> LinkedList of PooledConnection, most recently released first
+	private final Map pool = new HashMap();
+
+	private final Job reaper = new Job(CVSMessages.ConnectionPool_0) {
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			long next = closeExpiredConnections();
+			if (next > 0)
+				schedule(next);
+			return Status.OK_STATUS;
+		}
+	};
+
+	/**
+	 * An idle connection together with the state that was negotiated for it.
+	 */
+	static class PooledConnection {
+		final Connection connection;
+		final String validRequests;
+		final boolean useMT;
+		final int requestedCompressionLevel;
+		final int compressionLevel;
+		// the global options that the server keeps for the rest of the connection
+		final Set globalOptions;
+		long releaseTime;
+
+		PooledConnection(Connection connection, String validRequests, boolean useMT, int requestedCompressionLevel,
+				int compressionLevel, Set globalOptions) {
+			this.connection = connection;
+			this.validRequests = validRequests;
+			this.useMT = useMT;
+			this.requestedCompressionLevel = requestedCompressionLevel;
+			this.compressionLevel = compressionLevel;
+			this.globalOptions = globalOptions;
+		}
+	}
+
+	public static synchronized ConnectionPool getInstance() {
+		if (instance == null)
+			instance = new ConnectionPool();
+		return instance;
+	}
+
+	private ConnectionPool() {
+		reaper.setSystem(true);
+	}
+
+	/**
+	 * Removes an idle connection for the given location from the pool.
+	 * Connections that were opened for another compression level and
+	 * connections that the server closed are closed.
+	 *
+	 * @param location the location to connect to
+	 * @param requestedCompressionLevel the compression level requested for the session
+	 * @param monitor the progress monitor of the session
+	 * @return an open connection or <code>null</code>
+	 */
+	PooledConnection acquire(CVSRepositoryLocation location, int requestedCompressionLevel, IProgressMonitor monitor) {
+		for (;;) {
+			PooledConnection candidate = remove(location, requestedCompressionLevel);
+			if (candidate == null)
+				return null;
+			candidate.connection.setProgressMonitor(monitor);
+			boolean alive = false;
+			try {
+				alive = isAlive(candidate);
+			} finally {
+				if (!alive)
+					candidate.connection.close();
+			}
+			if (alive)
+				return candidate;
+		}
+	}
+
+	/*
+	 * Removes the most recently released connection that can be used with
+	 * the given compression level and closes the connections before it
+	 */
+	private PooledConnection remove(CVSRepositoryLocation location, int requestedCompressionLevel) {
+		List closed = new ArrayList();
+		PooledConnection result = null;
+		synchronized (pool) {
+			LinkedList connections = (LinkedList) pool.get(location);
+			if (connections == null)
+				return null;
+			long expiry = System.currentTimeMillis() - getIdleTimeout();
+			while (!connections.isEmpty()) {
+				PooledConnection candidate = (PooledConnection) connections.removeFirst();
+				if (candidate.releaseTime > expiry && candidate.requestedCompressionLevel == requestedCompressionLevel
+						&& candidate.connection.isEstablished()) {
+					result = candidate;
+					break;
+				}
+				closed.add(candidate);
+			}
+			if (connections.isEmpty())
+				pool.remove(location);
+		}
+		close(closed);
+		return result;
+	}
+
+	/*
+	 * Sends a noop request and reads its response, so that a connection that
+	 * the server closed while it was idle is not used
+	 */
+	private static boolean isAlive(PooledConnection pooled) {
+		if (!pooled.connection.isEstablished())
+			return false;
+		if (pooled.validRequests != null && !pooled.validRequests.contains(" noop ")) //$NON-NLS-1$
+			// the server cannot be asked
+			return true;
+		try {
+			pooled.connection.writeLine("noop"); //$NON-NLS-1$
+			pooled.connection.flush();
+			return "ok".equals(pooled.connection.readLine()); //$NON-NLS-1$
+		} catch (CVSException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns a connection to the pool. The connection is closed if the pool
+	 * of the location is full or pooling is disabled.
+	 *
+	 * @param location the location of the connection
+	 * @param connection the idle connection
+	 */
+	void release(CVSRepositoryLocation location, PooledConnection connection) {
+		// do not keep the monitor of the session
+		connection.connection.setProgressMonitor(null);
+		int size = CVSProviderPlugin.getPlugin().getConnectionPoolSize();
+		List closed = new ArrayList();
+		if (size > 0 && getIdleTimeout() > 0 && connection.connection.isEstablished()) {
+			connection.releaseTime = System.currentTimeMillis();
+			synchronized (pool) {
+				LinkedList connections = (LinkedList) pool.get(location);
+				if (connections == null) {
+					connections = new LinkedList();
+					pool.put(location, connections);
+				}
+				connections.addFirst(connection);
+				while (connections.size() > size) {
+					closed.add(connections.removeLast());
+				}
+			}
+			if (reaper.getState() != Job.SLEEPING)
+				reaper.schedule(getIdleTimeout());
+		} else {
+			closed.add(connection);
+		}
+		close(closed);
+	}
+
+	/**
+	 * Closes all idle connections for the given location. This must be called
+	 * whenever the authentication information of the location changes.
+	 *
+	 * @param location the location
+	 */
+	public void clear(CVSRepositoryLocation location) {
+		List closed;
+		synchronized (pool) {
+			closed = (List) pool.remove(location);
+		}
+		if (closed != null)
+			close(closed);
+	}
+
+	/**
+	 * Closes all idle connections.
+	 */
+	public void clear() {
+		List closed = new ArrayList();
+		synchronized (pool) {
+			for (Iterator iter = pool.values().iterator(); iter.hasNext();) {
+				closed.addAll((List) iter.next());
+			}
+			pool.clear();
+		}
+		reaper.cancel();
+		close(closed);
+	}
+
+	/*
+	 * Closes the connections that expired and returns the delay until the
+	 * next connection expires, or 0 if the pool is empty
+	 */
+	private long closeExpiredConnections() {
+		List closed = new ArrayList();
+		long timeout = getIdleTimeout();
+		long now = System.currentTimeMillis();
+		long next = 0;
+		synchronized (pool) {
+			for (Iterator iter = pool.values().iterator(); iter.hasNext();) {
+				LinkedList connections = (LinkedList) iter.next();
+				for (Iterator iter2 = connections.iterator(); iter2.hasNext();) {
+					PooledConnection connection = (PooledConnection) iter2.next();
+					long remaining = connection.releaseTime + timeout - now;
+					if (remaining <= 0) {
+						closed.add(connection);
+						iter2.remove();
+					} else if (next == 0 || remaining < next) {
+						next = remaining;
+					}
+				}
+				if (connections.isEmpty())
+					iter.remove();
+			}
+		}
+		close(closed);
+		return next;
+	}
+
+	private static long getIdleTimeout() {
+		return CVSProviderPlugin.getPlugin().getConnectionIdleTimeout() * 1000L;
+	}
+
+	private static void close(List connections) {
+		for (Iterator iter = connections.iterator(); iter.hasNext();) {
+			((PooledConnection) iter.next()).connection.close();
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -28,6 +28,10 @@ import org.eclipse.team.internal.ccvs.core.connection.CVSServerException;
 public abstract class Request {
 	public static final ExpandModules EXPAND_MODULES = new ExpandModules();
 	public static final ValidRequests VALID_REQUESTS = new ValidRequests();
+	
+	// the prefixes of the M and E responses
+	private static final byte[] MESSAGE_PREFIX = { 'M', ' ' };
+	private static final byte[] ERROR_PREFIX = { 'E', ' ' };
 
 	/*** Response handler map ***/
 	private static final Map responseHandlers = new HashMap();
@@ -142,14 +146,22 @@ public abstract class Request {
 			}			
 			Policy.checkCanceled(monitor);
 
-			// retrieve a response line
-			String response = session.readLine();
-			int spacePos = response.indexOf(' ');
+			// retrieve a response line, recognizing the frequent message
+			// responses without splitting the line
+			String response;
 			String argument;
-			if (spacePos != -1) {
-				argument = response.substring(spacePos + 1);
-				response = response.substring(0, spacePos);
-			} else argument = "";  //$NON-NLS-1$
+			if ((argument = session.readLine(MESSAGE_PREFIX)) != null) {
+				response = "M"; //$NON-NLS-1$
+			} else if ((argument = session.readLine(ERROR_PREFIX)) != null) {
+				response = "E"; //$NON-NLS-1$
+			} else {
+				response = session.readLine();
+				int spacePos = response.indexOf(' ');
+				if (spacePos != -1) {
+					argument = response.substring(spacePos + 1);
+					response = response.substring(0, spacePos);
+				} else argument = "";  //$NON-NLS-1$
+			}
 
 			// handle completion responses
 			if (response.equals("ok")) {  //$NON-NLS-1$
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2007 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -19,9 +19,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
@@ -55,6 +57,11 @@ import org.eclipse.team.internal.core.streams.*;
  * re-opened for use with the same server though no state is persisted from
  * previous connections except for console attributes.
  * 
+ * The connection of a closed session is kept in the {@link ConnectionPool}
+ * if all commands issued to the server completed and no request was sent
+ * that the server remembers beyond the command (Sticky and Static-directory).
+ * A session that is opened later for the same location reuses it.
+ * 
  * CVSExceptions are thrown only as a result of unrecoverable errors.  Once
  * this happens, commands must no longer be issued to the server.  If the
  * Session is in the OPEN state, it is still the responsibility of the
@@ -77,8 +84,11 @@ public class Session {
 	private CVSRepositoryLocation location;
 	private ICVSFolder localRoot;
 	private boolean outputToConsole;
+	private CVSRepositoryLocation connectionLocation;
 	private Connection connection = null;
 	private String validRequests = null;
+	private boolean useMT;
+	private int requestedCompressionLevel;
 	private Date modTime = null;
 	private boolean noLocalChanges = false;
 	private boolean createBackups = true;
@@ -98,6 +108,14 @@ public class Session {
 	
 	private Command currentCommand;
 
+	// whether the connection can be returned to the connection pool
+	private boolean reusable;
+	// whether a command was started that has not completed yet
+	private boolean commandInProgress;
+	// the global options sent over the connection and those sent by previous sessions
+	private Set globalOptions;
+	private Set inheritedGlobalOptions;
+
 	/**
 	 * Creates a new CVS session, initially in the CLOSED state.
 	 * By default, command output is directed to the console.
@@ -158,46 +176,9 @@ public class Session {
 		boolean opened = false;	
 	
 		try {
-			connection = getLocationForConnection(writeAccess).openConnection(Policy.subMonitorFor(monitor, 50));
-			
-			// If we're connected to a CVSNT server or we don't know the platform, 
-			// accept MT. Otherwise don't.
-			boolean useMT = ! (location.getServerPlatform() == CVSRepositoryLocation.CVS_SERVER);
-			if ( ! useMT) {
-				removeResponseHandler("MT"); //$NON-NLS-1$
-			}
-			
-			// tell the server the names of the responses we can handle
-			connection.writeLine("Valid-responses " + makeResponseList()); //$NON-NLS-1$
-			// Flush in order to recieve the valid requests
-			connection.flush();
-	
-			// ask for the set of valid requests
-			IStatus status = Request.VALID_REQUESTS.execute(this, Policy.subMonitorFor(monitor, 40));
-			if (!status.isOK()) {
-				throw new CVSException(status);
-			}
-			
-			// set the root directory on the server for this connection
-			connection.writeLine("Root " + getRepositoryRoot()); //$NON-NLS-1$
-
-			// enable compression
-			compressionLevel = CVSProviderPlugin.getPlugin().getCompressionLevel();
-			if (compressionLevel != 0 && isValidRequest("gzip-file-contents")) { //$NON-NLS-1$
-				// Enable the use of CVS 1.8 per-file compression mechanism.
-				// The newer Gzip-stream request seems to be problematic due to Java's
-				// GZIPInputStream tendency to block on read() rather than to return a
-				// partially filled buffer.  The latter option would be better since it
-				// can make more effective use of the code dictionary, if it can be made
-				// to work...
-				connection.writeLine("gzip-file-contents " + Integer.toString(compressionLevel)); //$NON-NLS-1$
-			} else {
-				compressionLevel = 0;
-			}
-			
-			// get the server platform if it is unknown
-			if (CVSProviderPlugin.getPlugin().isDetermineVersionEnabled() && location.getServerPlatform() == CVSRepositoryLocation.UNDETERMINED_PLATFORM) {
-				Command.VERSION.execute(this, location, Policy.subMonitorFor(monitor, 10));
+			connectionLocation = getLocationForConnection(writeAccess);
+			if (!openPooledConnection(monitor)) {
+				openConnection(monitor);
 			}
 			opened = true;
 		} finally {
@@ -208,6 +189,84 @@ public class Session {
 		}
 	}		
 	
+	/*
+	 * Use an idle connection of a previous session if there is one
+	 */
+	private boolean openPooledConnection(IProgressMonitor monitor) {
+		ConnectionPool.PooledConnection pooled = ConnectionPool.getInstance().acquire(connectionLocation, CVSProviderPlugin.getPlugin().getCompressionLevel(), monitor);
+		if (pooled == null)
+			return false;
+		connection = pooled.connection;
+		validRequests = pooled.validRequests;
+		useMT = pooled.useMT;
+		if ( ! useMT) {
+			removeResponseHandler("MT"); //$NON-NLS-1$
+		}
+		requestedCompressionLevel = pooled.requestedCompressionLevel;
+		compressionLevel = pooled.compressionLevel;
+		globalOptions = new HashSet(pooled.globalOptions);
+		inheritedGlobalOptions = pooled.globalOptions;
+		reusable = true;
+		commandInProgress = false;
+		return true;
+	}
+	
+	/*
+	 * Open, authenticate and initialize a new connection
+	 */
+	private void openConnection(IProgressMonitor monitor) throws CVSException {
+		reusable = false;
+		commandInProgress = false;
+		globalOptions = new HashSet();
+		inheritedGlobalOptions = null;
+		connection = connectionLocation.openConnection(Policy.subMonitorFor(monitor, 50));
+		
+		// If we're connected to a CVSNT server or we don't know the platform, 
+		// accept MT. Otherwise don't.
+		useMT = ! (location.getServerPlatform() == CVSRepositoryLocation.CVS_SERVER);
+		if ( ! useMT) {
+			removeResponseHandler("MT"); //$NON-NLS-1$
+		}
+		
+		// tell the server the names of the responses we can handle
+		connection.writeLine("Valid-responses " + makeResponseList()); //$NON-NLS-1$
+		// Flush in order to recieve the valid requests
+		connection.flush();
+
+		// ask for the set of valid requests
+		IStatus status = Request.VALID_REQUESTS.execute(this, Policy.subMonitorFor(monitor, 40));
+		if (!status.isOK()) {
+			throw new CVSException(status);
+		}
+		
+		// set the root directory on the server for this connection
+		connection.writeLine("Root " + getRepositoryRoot()); //$NON-NLS-1$
+
+		// enable compression
+		requestedCompressionLevel = CVSProviderPlugin.getPlugin().getCompressionLevel();
+		compressionLevel = requestedCompressionLevel;
+		if (compressionLevel != 0 && validRequests != null && isValidRequest("Gzip-stream")) { //$NON-NLS-1$
+			// Compress the whole dialogue, including the response lines, with a single
+			// code dictionary. The responses are inflated as soon as they arrive (see
+			// InflatingInputStream), so the stream does not block like GZIPInputStream.
+			connection.writeLine("Gzip-stream " + Integer.toString(compressionLevel)); //$NON-NLS-1$
+			connection.startCompression(compressionLevel);
+			// file contents are part of the compressed stream
+			compressionLevel = 0;
+		} else if (compressionLevel != 0 && isValidRequest("gzip-file-contents")) { //$NON-NLS-1$
+			// Fall back to the CVS 1.8 per-file compression mechanism.
+			connection.writeLine("gzip-file-contents " + Integer.toString(compressionLevel)); //$NON-NLS-1$
+		} else {
+			compressionLevel = 0;
+		}
+		
+		// get the server platform if it is unknown
+		if (CVSProviderPlugin.getPlugin().isDetermineVersionEnabled() && location.getServerPlatform() == CVSRepositoryLocation.UNDETERMINED_PLATFORM) {
+			Command.VERSION.execute(this, location, Policy.subMonitorFor(monitor, 10));
+		}
+		reusable = true;
+	}
+	
 	/*
 	 * Return the location to be used for this connection
 	 */
@@ -222,12 +281,65 @@ public class Session {
 	 */
 	public void close() {
 		if (connection != null) {
-			connection.close();
+			if (reusable && !commandInProgress) {
+				ConnectionPool.getInstance().release(connectionLocation, new ConnectionPool.PooledConnection(
+						connection, validRequests, useMT, requestedCompressionLevel, compressionLevel, globalOptions));
+			} else {
+				connection.close();
+			}
 			connection = null;
 			validRequests = null;
+			globalOptions = null;
+			inheritedGlobalOptions = null;
 		}
 	}
 	
+	/**
+	 * Prepares the connection for a command with the given global options.
+	 * <p>
+	 * The server keeps global options for the rest of the connection, so a
+	 * connection of a previous session is replaced by a new one if it was
+	 * used with global options that the command does not use. If the command
+	 * does not complete, the connection is not returned to the pool.
+	 * </p>
+	 * 
+	 * @param commandGlobalOptions the global options of the command
+	 * @param monitor the progress monitor
+	 */
+	void beginCommand(GlobalOption[] commandGlobalOptions, IProgressMonitor monitor) throws CVSException {
+		if (commandInProgress) {
+			// the previous command failed, the state of the server is unknown
+			reusable = false;
+		}
+		if (inheritedGlobalOptions != null && !inheritedGlobalOptions.isEmpty()) {
+			Set options = new HashSet();
+			for (GlobalOption globalOption : commandGlobalOptions) {
+				options.add(globalOption.option);
+			}
+			if (!options.containsAll(inheritedGlobalOptions)) {
+				connection.close();
+				connection = null;
+				validRequests = null;
+				monitor = Policy.monitorFor(monitor);
+				monitor.beginTask(null, 100);
+				try {
+					openConnection(monitor);
+				} finally {
+					monitor.done();
+				}
+			}
+		}
+		commandInProgress = true;
+	}
+	
+	/**
+	 * Records that the command started by {@link #beginCommand(GlobalOption[], IProgressMonitor)}
+	 * received its final response.
+	 */
+	void endCommand() {
+		commandInProgress = false;
+	}
+	
 	/**
 	 * Determines if the server supports the specified request.
 	 * 
@@ -301,6 +413,25 @@ public class Session {
 	public String readLine() throws CVSException {
 		return connection.readLine();
 	}
+	
+	/**
+	 * Receives a line of text minus the newline from the server if it starts
+	 * with the given bytes.
+	 * 
+	 * @param prefix the bytes the line must start with
+	 * @return the rest of the line after the prefix, or <code>null</code> if
+	 *         the line does not start with the prefix and was not received
+	 */
+	public String readLine(byte[] prefix) throws CVSException {
+		return connection.readLine(prefix);
+	}
+	
+	/**
+	 * Receives a line of text from the server and discards it.
+	 */
+	public void skipLine() throws CVSException {
+		connection.skipLine();
+	}
 
 	/**
 	 * Sends a line of text followed by a newline to the server.
@@ -395,6 +526,8 @@ public class Session {
 	 * </p>
 	 */
 	public void sendStaticDirectory() throws CVSException {
+		// the server keeps the request for the rest of the connection
+		reusable = false;
 		connection.writeLine("Static-directory"); //$NON-NLS-1$
 	}
 
@@ -500,6 +633,8 @@ public class Session {
 	 * @param option the global option to send
 	 */
 	public void sendGlobalOption(String option) throws CVSException {
+		if (globalOptions != null)
+			globalOptions.add(option);
 		connection.writeLine("Global_option " + option); //$NON-NLS-1$
 	}
 
@@ -558,6 +693,8 @@ public class Session {
 	 * @param tag the sticky tag associated with the directory
 	 */
 	public void sendSticky(String tag) throws CVSException {
+		// the server keeps the request for the rest of the connection
+		reusable = false;
 		connection.writeLine("Sticky " + tag); //$NON-NLS-1$
 	}
 
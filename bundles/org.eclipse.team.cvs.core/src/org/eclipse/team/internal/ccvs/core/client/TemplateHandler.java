@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2007 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -39,7 +39,7 @@ public class TemplateHandler extends ResponseHandler {
 
 	@Override
 	public void handle(Session session, String localDir, IProgressMonitor monitor) throws CVSException {
-		session.readLine(); /* read the remote dir which is not needed */
+		session.skipLine(); /* read the remote dir which is not needed */
 		// Only read the template file if the container exists.
 		// This is OK as we only use the template from the project folder which must exist
 		ICVSFolder localFolder = session.getLocalRoot().getFolder(localDir);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -77,6 +77,10 @@ public class CVSRepositoryLocation extends PlatformObject implements ICVSReposit
 	// Preference keys used to persist the state of the location
 	public static final String PREF_LOCATION = "location"; //$NON-NLS-1$
 	public static final String PREF_SERVER_ENCODING = "encoding"; //$NON-NLS-1$
+	public static final String PREF_MAX_CONNECTIONS = "maxConnections"; //$NON-NLS-1$
+	
+	// the number of connections that may be used at once for a single operation
+	public static final int DEFAULT_MAX_CONNECTIONS = 4;
 	
 	// server platform constants
 	public static final int UNDETERMINED_PLATFORM = 0;
@@ -157,6 +161,7 @@ public class CVSRepositoryLocation extends PlatformObject implements ICVSReposit
 	public static Preferences getDefaultPreferences() {
 		Preferences defaults = DefaultScope.INSTANCE.getNode(CVSProviderPlugin.ID).node(DEFAULT_REPOSITORY_SETTINGS_NODE);
 		defaults.put(PREF_SERVER_ENCODING, getDefaultEncoding());
+		defaults.putInt(PREF_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS);
 		return defaults;
 	}
 	
@@ -543,6 +548,7 @@ public class CVSRepositoryLocation extends PlatformObject implements ICVSReposit
 	 * down or a connection is being validated.
 	 */
 	public void dispose() {
+		ConnectionPool.getInstance().clear(this);
 		removeNode();
 		try {
 			if (hasPreferences()) {
@@ -630,6 +636,37 @@ public class CVSRepositoryLocation extends PlatformObject implements ICVSReposit
 			flushPreferences();
 		}
 	}	
+	
+	/**
+	 * Return the number of connections to this location that may be used at
+	 * once to fetch information for a single operation.
+	 * @return the maximum number of concurrent connections, at least 1
+	 */
+	public int getMaxConnections() {
+		if (hasPreferences()) {
+			return Math.max(1, internalGetPreferences().getInt(PREF_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS));
+		} else {
+			return DEFAULT_MAX_CONNECTIONS;
+		}
+	}
+	
+	/**
+	 * Set the number of connections to this location that may be used at
+	 * once to fetch information for a single operation. A value of 1 means
+	 * that the information is fetched over one connection after the other.
+	 * @param connections the maximum number of concurrent connections
+	 */
+	public void setMaxConnections(int connections) {
+		if (connections == DEFAULT_MAX_CONNECTIONS) {
+			if (hasPreferences()) {
+				internalGetPreferences().remove(PREF_MAX_CONNECTIONS);
+			}
+		} else {
+			ensurePreferencesStored();
+			internalGetPreferences().putInt(PREF_MAX_CONNECTIONS, Math.max(1, connections));
+			flushPreferences();
+		}
+	}
 
 	@Override
 	public ICVSRemoteResource[] members(CVSTag tag, boolean modules, IProgressMonitor progress) throws CVSException {
@@ -934,6 +971,8 @@ public class CVSRepositoryLocation extends PlatformObject implements ICVSReposit
 		// The password has been changed, reset the flag, so we won't 
 		// prompt before attempting to connect
 		previousAuthenticationFailed = false;
+		// Connections authenticated with the previous password must not be reused
+		ConnectionPool.getInstance().clear(this);
 	}
 	
 	@Override
@@ -941,6 +980,7 @@ public class CVSRepositoryLocation extends PlatformObject implements ICVSReposit
 		if (userFixed)
 			throw new UnsupportedOperationException();
 		this.user = user;
+		ConnectionPool.getInstance().clear(this);
 	}
 	
 	public void setUserMuteable(boolean muteable) {
@@ -1056,6 +1096,7 @@ public class CVSRepositoryLocation extends PlatformObject implements ICVSReposit
 	
 	@Override
 	public void flushUserInfo() {
+		ConnectionPool.getInstance().clear(this);
 		removeNode();
 	}
 	
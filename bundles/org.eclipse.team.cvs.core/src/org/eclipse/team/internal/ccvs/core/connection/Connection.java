@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,9 +16,14 @@ package org.eclipse.team.internal.ccvs.core.connection;
 
  
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.*;
+import java.util.zip.*;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.team.internal.ccvs.core.*;
 
@@ -38,16 +43,74 @@ import org.eclipse.team.internal.ccvs.core.*;
  *	<li> close: closes the connection. A closed connection can be reopened by
  *	     calling open again.
  * </ul>
+ * The streams of the server connection poll the monitor that is passed to
+ * <code>open</code> for cancellation for as long as the connection is open.
+ * A connection that is used by another operation later must be given the
+ * monitor of that operation with <code>setProgressMonitor</code>.
  */
 public class Connection {
 	private static final byte NEWLINE= 0xA;
+	private static final int RESPONSE_BUFFER_SIZE= 8192;
 	
 	private IServerConnection serverConnection;
 	private ICVSRepositoryLocation fCVSRoot;
 	private boolean fIsEstablished;
+	private InputStream fResponseSource;
 	private InputStream fResponseStream;
+	private OutputStream fRequestStream;
+	private Deflater fDeflater;
+	private Inflater fInflater;
 	private String fServerEncoding;
-	private byte[] readLineBuffer = new byte[256];
+	
+	// Responses are read in bulk. The bytes from fResponsePosition to fResponseCount
+	// have been read from the server but not yet consumed by readLine or fResponseStream.
+	private byte[] fResponseBuffer;
+	private int fResponsePosition;
+	private int fResponseCount;
+	private CharsetDecoder fDecoder;
+	private CharBuffer fDecodedLine;
+	private final OperationMonitor fMonitor = new OperationMonitor();
+
+	/*
+	 * The monitor that is given to the server connection when it is opened.
+	 * It forwards to the monitor of the operation that uses the connection.
+	 */
+	private static class OperationMonitor implements IProgressMonitor {
+		private volatile IProgressMonitor monitor = new NullProgressMonitor();
+
+		@Override
+		public void beginTask(String name, int totalWork) {
+			monitor.beginTask(name, totalWork);
+		}
+		@Override
+		public void done() {
+			monitor.done();
+		}
+		@Override
+		public void internalWorked(double work) {
+			monitor.internalWorked(work);
+		}
+		@Override
+		public boolean isCanceled() {
+			return monitor.isCanceled();
+		}
+		@Override
+		public void setCanceled(boolean value) {
+			monitor.setCanceled(value);
+		}
+		@Override
+		public void setTaskName(String name) {
+			monitor.setTaskName(name);
+		}
+		@Override
+		public void subTask(String name) {
+			monitor.subTask(name);
+		}
+		@Override
+		public void worked(int work) {
+			monitor.worked(work);
+		}
+	}
 
 	public Connection(ICVSRepositoryLocation cvsroot, IServerConnection serverConnection) {
 		fCVSRoot = cvsroot;
@@ -79,7 +142,20 @@ public class Connection {
 				CVSProviderPlugin.log(new CVSCommunicationException(CVSMessages.Connection_cannotClose, fCVSRoot, ex));
 			}
 		} finally {
+			fResponseSource = null;
 			fResponseStream = null;
+			fResponseBuffer = null;
+			fResponsePosition = 0;
+			fResponseCount = 0;
+			fRequestStream = null;
+			if (fDeflater != null) {
+				fDeflater.end();
+				fDeflater = null;
+			}
+			if (fInflater != null) {
+				fInflater.end();
+				fInflater = null;
+			}
 			fIsEstablished = false;
 		}
 	}
@@ -103,19 +179,87 @@ public class Connection {
 	public OutputStream getOutputStream() {
 		if (!isEstablished())
 			return null;
+		if (fRequestStream != null)
+			return fRequestStream;
 		return serverConnection.getOutputStream();
 	}
 	/**
 	 * Returns the <code>InputStream</code> used to read responses from
-	 * the server.
+	 * the server. The stream shares its buffer with {@link #readLine()}, so
+	 * both can be used alternately.
 	 */
 	public InputStream getInputStream() {
 		if (!isEstablished())
 			return null;
-		if (fResponseStream == null)
-			fResponseStream = serverConnection.getInputStream();
+		if (fResponseStream == null) {
+			fResponseSource = serverConnection.getInputStream();
+			fResponseBuffer = new byte[RESPONSE_BUFFER_SIZE];
+			fResponseStream = new ResponseStream();
+		}
 		return fResponseStream;	
 	}
+	
+	/*
+	 * The response stream, which first returns the bytes that are left in the
+	 * response buffer
+	 */
+	private class ResponseStream extends InputStream {
+		@Override
+		public int read() throws IOException {
+			if (fResponsePosition == fResponseCount && !fillResponseBuffer())
+				return -1;
+			return fResponseBuffer[fResponsePosition++] & 0xFF;
+		}
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return 0;
+			int buffered = fResponseCount - fResponsePosition;
+			if (buffered == 0) {
+				// large reads bypass the buffer
+				if (len >= fResponseBuffer.length)
+					return fResponseSource.read(b, off, len);
+				if (!fillResponseBuffer())
+					return -1;
+				buffered = fResponseCount - fResponsePosition;
+			}
+			int n = Math.min(len, buffered);
+			System.arraycopy(fResponseBuffer, fResponsePosition, b, off, n);
+			fResponsePosition += n;
+			return n;
+		}
+		@Override
+		public int available() throws IOException {
+			return fResponseCount - fResponsePosition + fResponseSource.available();
+		}
+		@Override
+		public void close() throws IOException {
+			fResponseSource.close();
+		}
+	}
+	
+	/*
+	 * Read more bytes from the server into the response buffer, keeping the
+	 * unconsumed bytes. Return false if the response stream has ended.
+	 */
+	private boolean fillResponseBuffer() throws IOException {
+		int remaining = fResponseCount - fResponsePosition;
+		if (fResponsePosition > 0) {
+			System.arraycopy(fResponseBuffer, fResponsePosition, fResponseBuffer, 0, remaining);
+			fResponsePosition = 0;
+			fResponseCount = remaining;
+		}
+		if (fResponseCount == fResponseBuffer.length) {
+			byte[] newBuffer= new byte[fResponseBuffer.length * 2];
+			System.arraycopy(fResponseBuffer, 0, newBuffer, 0, fResponseCount);
+			fResponseBuffer= newBuffer;
+		}
+		int read = fResponseSource.read(fResponseBuffer, fResponseCount, fResponseBuffer.length - fResponseCount);
+		if (read == -1)
+			return false;
+		fResponseCount += read;
+		return true;
+	}
 
 	/**
 	 * Returns <code>true</code> if the connection is established;
@@ -125,42 +269,183 @@ public class Connection {
 		return fIsEstablished;
 	}
 
+	/**
+	 * Compresses all further requests and decompresses all further responses.
+	 * This must be called right after the <code>Gzip-stream</code> request
+	 * was written, which is sent uncompressed. The request stream is flushed
+	 * with <code>SYNC_FLUSH</code> so that the server can decompress every
+	 * request that was sent.
+	 * 
+	 * @param level the compression level (1 - 9)
+	 */
+	public void startCompression(int level) throws CVSException {
+		if (!isEstablished() || fDeflater != null)
+			return;
+		flush();
+		fDeflater = new Deflater(level);
+		fInflater = new Inflater();
+		fRequestStream = new DeflaterOutputStream(serverConnection.getOutputStream(), fDeflater, 8192, true /* syncFlush */);
+		// The server only compresses the responses to requests sent from now on,
+		// so the response buffer does not contain compressed bytes yet
+		getInputStream();
+		fResponseSource = new InflatingInputStream(fResponseSource, fInflater);
+	}
+	
+	/**
+	 * Returns <code>true</code> if requests and responses are compressed;
+	 * otherwise <code>false</code>.
+	 */
+	public boolean isCompressed() {
+		return fDeflater != null;
+	}
+
 	/**
 	 * Opens the connection.
 	 */	
 	public void open(IProgressMonitor monitor) throws CVSException {
 		if (isEstablished())
 			return;
+		setProgressMonitor(monitor);
 		try {
-			serverConnection.open(monitor);
+			serverConnection.open(fMonitor);
 		} catch (IOException e) {
 			throw new CVSCommunicationException(NLS.bind(CVSMessages.Connection_0, new String[] { fCVSRoot.getLocation(true), CVSCommunicationException.getMessageFor(e) }), fCVSRoot, e); 
 		}
 		fIsEstablished= true; 
 	}
+	/**
+	 * Sets the monitor that is polled for cancellation while the connection
+	 * reads and writes. The monitor is replaced when another operation uses
+	 * the connection, so that the operation can be canceled without affecting
+	 * the operation that opened the connection.
+	 * 
+	 * @param monitor the monitor of the operation, or <code>null</code> if
+	 *        the connection is not used
+	 */
+	public void setProgressMonitor(IProgressMonitor monitor) {
+		fMonitor.monitor = monitor == null ? new NullProgressMonitor() : monitor;
+	}
+
 	/**
 	 * Reads a line from the response stream.
 	 */
 	public String readLine() throws CVSException {
+		return readLine(null);
+	}
+	
+	/**
+	 * Reads a line from the response stream if it starts with the given
+	 * bytes. This allows to recognize frequent responses, such as
+	 * <code>M </code>, without decoding the prefix.
+	 * 
+	 * @param prefix the bytes the line must start with, or <code>null</code>
+	 * @return the rest of the line after the prefix, or <code>null</code> if
+	 *         the line does not start with the prefix, in which case the line
+	 *         is not consumed
+	 */
+	public String readLine(byte[] prefix) throws CVSException {
 		if (!isEstablished())
 			throw new CVSCommunicationException(CVSMessages.Connection_readUnestablishedConnection,fCVSRoot,null);
 		try { 
-			InputStream in = getInputStream();
-			int index = 0;
-			int r;
-			while ((r = in.read()) != -1) {
-				if (r == NEWLINE) break;
-				readLineBuffer = append(readLineBuffer, index++, (byte) r);
+			getInputStream();
+			int offset = 0;
+			if (prefix != null) {
+				if (!startsWith(prefix))
+					return null;
+				offset = prefix.length;
 			}
-
-			String result = new String(readLineBuffer, 0, index, fServerEncoding);
-			if (Policy.isDebugProtocol()) Policy.printProtocolLine(result);
+			int end = findLineEnd(offset);
+			String result = decode(fResponsePosition + offset, end);
+			if (Policy.isDebugProtocol())
+				// decode the whole line, the prefix is in the server encoding as well
+				Policy.printProtocolLine(prefix == null ? result : decode(fResponsePosition, end));
+			fResponsePosition = end < fResponseCount ? end + 1 : end;
 			return result;
 		} catch (IOException e) {
 			throw new CVSCommunicationException(fCVSRoot,e);
 		}
 	}
 	
+	/**
+	 * Reads a line from the response stream and discards it without
+	 * decoding it.
+	 */
+	public void skipLine() throws CVSException {
+		if (!isEstablished())
+			throw new CVSCommunicationException(CVSMessages.Connection_readUnestablishedConnection,fCVSRoot,null);
+		try { 
+			getInputStream();
+			int end = findLineEnd(0);
+			fResponsePosition = end < fResponseCount ? end + 1 : end;
+		} catch (IOException e) {
+			throw new CVSCommunicationException(fCVSRoot,e);
+		}
+	}
+	
+	/*
+	 * Return whether the unconsumed response bytes start with the given prefix
+	 */
+	private boolean startsWith(byte[] prefix) throws IOException {
+		while (fResponseCount - fResponsePosition < prefix.length) {
+			// a shorter line cannot match
+			for (int i = fResponsePosition; i < fResponseCount; i++) {
+				if (fResponseBuffer[i] == NEWLINE)
+					return false;
+			}
+			if (!fillResponseBuffer())
+				return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (fResponseBuffer[fResponsePosition + i] != prefix[i])
+				return false;
+		}
+		return true;
+	}
+	
+	/*
+	 * Return the index of the next newline in the response buffer, starting the
+	 * search at the given offset from the response position and reading more bytes
+	 * as needed. Return the end of the buffered bytes if the response stream ends.
+	 */
+	private int findLineEnd(int offset) throws IOException {
+		int scanned = fResponsePosition + offset;
+		while (true) {
+			for (int i = scanned; i < fResponseCount; i++) {
+				if (fResponseBuffer[i] == NEWLINE)
+					return i;
+			}
+			// filling the buffer moves the unconsumed bytes to the start
+			scanned = fResponseCount - fResponsePosition;
+			if (!fillResponseBuffer())
+				return fResponseCount;
+		}
+	}
+	
+	/*
+	 * Decode the given bytes of the response buffer with the server encoding
+	 */
+	private String decode(int start, int end) throws IOException {
+		if (fDecoder == null) {
+			try {
+				fDecoder = Charset.forName(fServerEncoding).newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			} catch (IllegalArgumentException e) {
+				throw new UnsupportedEncodingException(fServerEncoding);
+			}
+		}
+		int length = end - start;
+		int capacity = (int) (length * (double) fDecoder.maxCharsPerByte()) + 1;
+		if (fDecodedLine == null || fDecodedLine.capacity() < capacity) {
+			fDecodedLine = CharBuffer.allocate(Math.max(capacity, 256));
+		}
+		fDecodedLine.clear();
+		fDecoder.reset();
+		fDecoder.decode(ByteBuffer.wrap(fResponseBuffer, start, length), fDecodedLine, true);
+		fDecoder.flush(fDecodedLine);
+		return new String(fDecodedLine.array(), 0, fDecodedLine.position());
+	}
+	
 	static String readLine(ICVSRepositoryLocation location, InputStream in) throws IOException {
 		byte[] buffer = new byte[256];
 		int index = 0;
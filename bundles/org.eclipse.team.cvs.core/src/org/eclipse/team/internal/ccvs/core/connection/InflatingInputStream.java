@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.ccvs.core.connection;
+
+import java.io.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses the zlib stream that a server sends after a Gzip-stream
+ * request.
+ * <p>
+ * The server flushes its compressor with <code>Z_SYNC_FLUSH</code> after
+ * each response, so all bytes of a response can be inflated from the bytes
+ * that were received so far. Unlike <code>GZIPInputStream</code>, this stream
+ * neither expects a gzip header nor reads ahead: a read only blocks while the
+ * inflater has produced no output and needs more input. The inflated bytes are
+ * buffered so that reading single bytes does not call the inflater each time.
+ * </p>
+ */
+class InflatingInputStream extends FilterInputStream {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Inflater inflater;
+	private final byte[] input = new byte[BUFFER_SIZE];
+	private final byte[] output = new byte[BUFFER_SIZE];
+	private int position;
+	private int count;
+
+	/**
+	 * Creates a stream that inflates the given stream with the given
+	 * inflater. The inflater is not ended when the stream is closed.
+	 */
+	InflatingInputStream(InputStream in, Inflater inflater) {
+		super(in);
+		this.inflater = inflater;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (position == count && !fill())
+			return -1;
+		return output[position++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0)
+			return 0;
+		if (position == count && !fill())
+			return -1;
+		int n = Math.min(len, count - position);
+		System.arraycopy(output, position, b, off, n);
+		position += n;
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = 0;
+		while (skipped < n) {
+			if (position == count && !fill())
+				break;
+			int step = (int) Math.min(n - skipped, count - position);
+			position += step;
+			skipped += step;
+		}
+		return skipped;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return count - position;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public synchronized void mark(int readlimit) {
+		// not supported
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		throw new IOException();
+	}
+
+	/*
+	 * Inflate the next bytes into the output buffer. Returns false if the end
+	 * of the compressed stream is reached.
+	 */
+	private boolean fill() throws IOException {
+		position = 0;
+		count = 0;
+		try {
+			while (true) {
+				int n = inflater.inflate(output);
+				if (n > 0) {
+					count = n;
+					return true;
+				}
+				if (inflater.finished() || inflater.needsDictionary())
+					return false;
+				if (inflater.needsInput()) {
+					// only blocks if no compressed bytes are available
+					int read = in.read(input, 0, input.length);
+					if (read == -1)
+						throw new EOFException();
+					inflater.setInput(input, 0, read);
+				}
+			}
+		} catch (DataFormatException e) {
+			throw new IOException(e.getMessage());
+		}
+	}
+}
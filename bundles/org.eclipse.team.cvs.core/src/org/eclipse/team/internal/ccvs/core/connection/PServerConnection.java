@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2007 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,6 +15,7 @@ package org.eclipse.team.internal.ccvs.core.connection;
  
 import java.io.*;
 import java.net.Socket;
+import java.nio.channels.SocketChannel;
 
 import org.eclipse.core.net.proxy.IProxyData;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -99,9 +100,6 @@ public class PServerConnection implements IServerConnection {
 		monitor.subTask(CVSMessages.PServerConnection_authenticating);
 		monitor.worked(1);
 		
-		InputStream is = null;
-		OutputStream os = null;
-		
 		Proxy proxy = getProxy();
 		if (proxy!=null) {
 			String host = cvsroot.getHost();
@@ -117,22 +115,24 @@ public class PServerConnection implements IServerConnection {
 			ex.printStackTrace();
 			throw new IOException(ex.getMessage());
 		}
-		is = proxy.getInputStream();
-		os = proxy.getOutputStream();
-		
-		} else {
-			fSocket = createSocket(monitor);
-			is = fSocket.getInputStream();
-			os = fSocket.getOutputStream();
 		}
 		
 		boolean connected = false;
 		try {
-			this.inputStream = new BufferedInputStream(new PollingInputStream(is,
-				cvsroot.getTimeout(), monitor));
-			this.outputStream = new PollingOutputStream(new TimeoutOutputStream(
-				os, 8192 /*bufferSize*/, 1000 /*writeTimeout*/, 1000 /*closeTimeout*/),
-				cvsroot.getTimeout(), monitor);
+			if (proxy != null) {
+				// The proxy streams cannot be selected so they are polled by helper threads
+				this.inputStream = new BufferedInputStream(new PollingInputStream(proxy.getInputStream(),
+					cvsroot.getTimeout(), monitor));
+				this.outputStream = new PollingOutputStream(new TimeoutOutputStream(
+					proxy.getOutputStream(), 8192 /*bufferSize*/, 1000 /*writeTimeout*/, 1000 /*closeTimeout*/),
+					cvsroot.getTimeout(), monitor);
+			} else {
+				SocketChannel channel = createSocketChannel(monitor);
+				fSocket = channel.socket();
+				long timeout = cvsroot.getTimeout() * 1000L;
+				this.inputStream = new BufferedInputStream(new ChannelInputStream(channel, timeout, monitor));
+				this.outputStream = new BufferedOutputStream(new ChannelOutputStream(channel, timeout, monitor), 8192);
+			}
 			authenticate();
 			connected = true;
 		} finally {
@@ -240,24 +240,29 @@ public class PServerConnection implements IServerConnection {
 	}
 
 	/**
-	 * Creates the actual socket
+	 * Creates the actual socket channel. The channel is read and written
+	 * in non-blocking mode, so no socket timeout is needed.
 	 */
-	protected Socket createSocket(IProgressMonitor monitor) throws IOException {
+	protected SocketChannel createSocketChannel(IProgressMonitor monitor) throws IOException {
 		// Determine what port to use
 		int port = cvsroot.getPort();
 		if (port == ICVSRepositoryLocation.USE_DEFAULT_PORT)
 			port = DEFAULT_PORT;
 		// Make the connection
-		Socket result;
+		SocketChannel result;
 		try {
-			result= Util.createSocket(cvsroot.getHost(), port, monitor);
-			// Bug 36351: disable buffering and send bytes immediately
-			result.setTcpNoDelay(true);
+			result= Util.createSocketChannel(cvsroot.getHost(), port, monitor);
 		} catch (InterruptedIOException e) {
 			// If we get this exception, chances are the host is not responding
 			throw new InterruptedIOException(NLS.bind(CVSMessages.PServerConnection_socket, (new Object[] {cvsroot.getHost()})));
 		}
-		result.setSoTimeout(1000); // 1 second between timeouts
+		try {
+			// Bug 36351: disable buffering and send bytes immediately
+			result.socket().setTcpNoDelay(true);
+		} catch (IOException e) {
+			result.close();
+			throw e;
+		}
 		return result;
 	}
 
@@ -0,0 +1,389 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.ccvs.core.resources;
+
+import java.io.*;
+import java.util.*;
+
+import org.eclipse.core.resources.*;
+import org.eclipse.core.runtime.*;
+import org.eclipse.team.internal.ccvs.core.*;
+import org.eclipse.team.internal.ccvs.core.util.SyncFileWriter;
+
+/**
+ * A snapshot of the dirty state of the files and folders of CVS projects that
+ * is kept between sessions, so that the decorator can show the dirty state of
+ * a project right after a restart instead of recomputing the state of every
+ * folder.
+ * <p>
+ * The snapshot of a project is stored in a binary file in the plug-in state
+ * location when the workspace or the project is saved. It is read the first
+ * time the dirty state of a resource of the project is requested. Only entries
+ * that still match the resources are used: the modification stamp, the local
+ * time stamp and the time stamp of the CVS/Entries file must be unchanged, and
+ * a folder must have the same unignored members which must all have valid
+ * entries, as the dirty state of ignored resources is not computed. An entry
+ * is validated when the dirty state of its resource is first requested, so
+ * only the folders that are decorated are traversed, and the resources are not
+ * accessed while the snapshot is locked. Entries are dropped as the dirty state
+ * of resources changes and only the projects that changed are written again.
+ * </p>
+ */
+/*package*/ class DecorationStateSnapshot implements IResourceStateChangeListener {
+
+	private static final String SNAPSHOT_DIRECTORY = "decorations"; //$NON-NLS-1$
+	private static final int SNAPSHOT_VERSION = 1;
+
+	private static class Entry {
+		final long stamp;
+		final long timestamp;
+		final long syncTimestamp;
+		final int memberCount;
+		final boolean dirty;
+		// whether the entry was found to match the resource, guarded by the snapshot
+		boolean validated;
+
+		Entry(long stamp, long timestamp, long syncTimestamp, int memberCount, boolean dirty) {
+			this.stamp = stamp;
+			this.timestamp = timestamp;
+			this.syncTimestamp = syncTimestamp;
+			this.memberCount = memberCount;
+			this.dirty = dirty;
+		}
+
+		/*
+		 * Create an entry for the current state of the resource.
+		 */
+		static Entry create(IResource resource, boolean dirty) throws CoreException {
+			if (resource.getType() == IResource.FILE) {
+				return new Entry(resource.getModificationStamp(), resource.getLocalTimeStamp(),
+						getSyncTimestamp(resource.getParent()), 0, dirty);
+			}
+			// The time stamp of a folder is not updated when its members change
+			IContainer container = (IContainer) resource;
+			return new Entry(resource.getModificationStamp(), 0, getSyncTimestamp(container),
+					getMembers(container).length, dirty);
+		}
+
+		boolean matches(IResource resource) throws CoreException {
+			Entry current = create(resource, dirty);
+			return current.stamp != IResource.NULL_STAMP
+					&& current.stamp == stamp
+					&& current.timestamp == timestamp
+					&& current.syncTimestamp == syncTimestamp
+					&& current.memberCount == memberCount;
+		}
+
+		String getIndicator() {
+			return dirty ? SyncInfoCache.IS_DIRTY_INDICATOR : SyncInfoCache.NOT_DIRTY_INDICATOR;
+		}
+	}
+
+	// the valid entries of the projects that were read, by project name
+	private final Map<String, Map<IPath, Entry>> projects = new HashMap<>();
+	// the names of the projects whose dirty state changed since they were written
+	private final Set<String> changedProjects = new HashSet<>();
+
+	/*
+	 * Return a value that changes when the sync info of the members of the
+	 * container is written, by Eclipse or by a command line client.
+	 */
+	private static long getSyncTimestamp(IContainer container) {
+		IFolder cvsFolder = container.getFolder(new Path(SyncFileWriter.CVS_DIRNAME));
+		return cvsFolder.getFile(SyncFileWriter.ENTRIES).getLocalTimeStamp() * 31
+				+ cvsFolder.getFile(SyncFileWriter.ENTRIES_LOG).getLocalTimeStamp();
+	}
+
+	/*
+	 * Return the members of the container whose dirty state is cached, which
+	 * are the existing members that are not ignored (see
+	 * EclipseSynchronizer#setModified(ICVSFolder, boolean)).
+	 */
+	private static IResource[] getMembers(IContainer container) throws CoreException {
+		List<IResource> members = new ArrayList<>();
+		for (ICVSResource member : CVSWorkspaceRoot.getCVSFolderFor(container).members(ICVSFolder.ALL_UNIGNORED_MEMBERS)) {
+			IResource resource = member.getIResource();
+			if (resource.exists())
+				members.add(resource);
+		}
+		return members.toArray(new IResource[members.size()]);
+	}
+
+	/**
+	 * Return the dirty indicator of the resource that was recorded in the
+	 * snapshot, or <code>null</code> if the snapshot has no valid entry for it.
+	 * The snapshot of the project is read the first time it is needed, and the
+	 * entries of the resource and, for a container, of its members are
+	 * validated the first time they are needed.
+	 * @param resource a file or container
+	 * @return the dirty indicator or <code>null</code>
+	 */
+	String getDirtyIndicator(IResource resource) {
+		if (resource.getType() == IResource.ROOT)
+			return null;
+		Map<IPath, Entry> entries = getEntries(resource.getProject());
+		try {
+			Entry entry = validate(resource, entries);
+			if (entry != null)
+				return entry.getIndicator();
+		} catch (CoreException e) {
+			// The resource no longer exists or changed while it was validated
+			synchronized (this) {
+				entries.remove(resource.getProjectRelativePath());
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Return the entry of the resource if it matches the resource and, for a
+	 * container, the entries of all members are valid. An entry that does not
+	 * match is dropped. The resources are accessed without holding the lock of
+	 * the snapshot, an entry that was dropped concurrently is not used.
+	 */
+	private Entry validate(IResource resource, Map<IPath, Entry> entries) throws CoreException {
+		IPath path = resource.getProjectRelativePath();
+		Entry entry;
+		synchronized (this) {
+			entry = entries.get(path);
+			if (entry == null || entry.validated)
+				return entry;
+		}
+		boolean valid = entry.matches(resource);
+		if (valid && resource.getType() != IResource.FILE) {
+			for (IResource member : getMembers((IContainer) resource)) {
+				if (validate(member, entries) == null) {
+					valid = false;
+					break;
+				}
+			}
+		}
+		synchronized (this) {
+			if (entries.get(path) != entry)
+				return null;
+			if (!valid) {
+				entries.remove(path);
+				return null;
+			}
+			entry.validated = true;
+			return entry;
+		}
+	}
+
+	/**
+	 * The dirty state of the resource changed. Drop the entries of the
+	 * resource and its parents and remember that the project must be written.
+	 * @param resource the resource
+	 * @param deep whether the state of the members of a container changed too
+	 */
+	synchronized void resourceChanged(IResource resource, boolean deep) {
+		if (resource.getType() == IResource.ROOT)
+			return;
+		String name = resource.getProject().getName();
+		changedProjects.add(name);
+		Map<IPath, Entry> entries = projects.get(name);
+		if (entries == null)
+			return;
+		IPath path = resource.getProjectRelativePath();
+		if (deep) {
+			entries.keySet().removeIf(path::isPrefixOf);
+		}
+		for (;;) {
+			entries.remove(path);
+			if (path.isEmpty())
+				break;
+			path = path.removeLastSegments(1);
+		}
+	}
+
+	/**
+	 * Write the snapshot of the project if its dirty state changed since it
+	 * was read or written. The state of a resource is taken from the session
+	 * cache or, if it is not cached, from the valid entry of the snapshot.
+	 * Resources whose state is not known are not written. The project is
+	 * traversed without holding the lock of the snapshot, a project that
+	 * changes meanwhile is written again the next time.
+	 * @param project the project
+	 * @param cache the cache that holds the current dirty state
+	 * @return whether the snapshot was written
+	 */
+	boolean write(IProject project, SessionPropertySyncInfoCache cache) {
+		String name = project.getName();
+		if (!project.isAccessible())
+			return false;
+		synchronized (this) {
+			if (!changedProjects.remove(name))
+				return false;
+		}
+		Map<IPath, Entry> entries = getEntries(project);
+		synchronized (this) {
+			entries = new HashMap<>(entries);
+		}
+		Map<IPath, Entry> written = new LinkedHashMap<>();
+		try {
+			collect(project, entries, cache, written);
+		} catch (CoreException e) {
+			CVSProviderPlugin.log(e);
+			markChanged(name);
+			return false;
+		}
+		File file = getSnapshotFile(project);
+		file.getParentFile().mkdirs();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(SNAPSHOT_VERSION);
+			out.writeInt(written.size());
+			for (Map.Entry<IPath, Entry> e : written.entrySet()) {
+				Entry entry = e.getValue();
+				out.writeUTF(e.getKey().toString());
+				out.writeLong(entry.stamp);
+				out.writeLong(entry.timestamp);
+				out.writeLong(entry.syncTimestamp);
+				out.writeInt(entry.memberCount);
+				out.writeBoolean(entry.dirty);
+			}
+		} catch (IOException e) {
+			// Without a snapshot the dirty state is computed again
+			CVSProviderPlugin.log(IStatus.ERROR, e.getMessage(), e);
+			file.delete();
+			markChanged(name);
+			return false;
+		}
+		synchronized (this) {
+			// The entries of a project that changed meanwhile may be stale
+			if (!changedProjects.contains(name))
+				projects.put(name, written);
+		}
+		return true;
+	}
+
+	private synchronized void markChanged(String projectName) {
+		changedProjects.add(projectName);
+	}
+
+	private void collect(IResource resource, Map<IPath, Entry> entries, SessionPropertySyncInfoCache cache,
+			Map<IPath, Entry> written) throws CoreException {
+		IPath path = resource.getProjectRelativePath();
+		String indicator = cache.getSessionDirtyIndicator(resource);
+		Entry entry = null;
+		if (indicator == SyncInfoCache.IS_DIRTY_INDICATOR || indicator == SyncInfoCache.NOT_DIRTY_INDICATOR) {
+			entry = Entry.create(resource, indicator == SyncInfoCache.IS_DIRTY_INDICATOR);
+		} else if (indicator == null) {
+			entry = entries.get(path);
+			if (entry != null && !entry.matches(resource))
+				entry = null;
+		}
+		if (entry != null)
+			written.put(path, entry);
+		if (resource.getType() != IResource.FILE) {
+			for (IResource member : getMembers((IContainer) resource)) {
+				collect(member, entries, cache, written);
+			}
+		}
+	}
+
+	/**
+	 * Forget the snapshot of the project that is held in memory. It is read
+	 * again when it is needed.
+	 * @param project the project
+	 */
+	synchronized void forget(IProject project) {
+		projects.remove(project.getName());
+	}
+
+	/*
+	 * Return the entries of the project, which are read from the snapshot file
+	 * the first time they are needed. The returned map is guarded by the
+	 * snapshot.
+	 */
+	private Map<IPath, Entry> getEntries(IProject project) {
+		synchronized (this) {
+			Map<IPath, Entry> entries = projects.get(project.getName());
+			if (entries != null)
+				return entries;
+		}
+		Map<IPath, Entry> read = read(project);
+		synchronized (this) {
+			Map<IPath, Entry> entries = projects.get(project.getName());
+			if (entries != null)
+				return entries;
+			projects.put(project.getName(), read);
+			return read;
+		}
+	}
+
+	private Map<IPath, Entry> read(IProject project) {
+		Map<IPath, Entry> entries = new HashMap<>();
+		File file = getSnapshotFile(project);
+		if (!file.exists())
+			return entries;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != SNAPSHOT_VERSION)
+				return entries;
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				IPath path = new Path(in.readUTF());
+				long stamp = in.readLong();
+				long timestamp = in.readLong();
+				long syncTimestamp = in.readLong();
+				int memberCount = in.readInt();
+				boolean dirty = in.readBoolean();
+				entries.put(path, new Entry(stamp, timestamp, syncTimestamp, memberCount, dirty));
+			}
+		} catch (EOFException e) {
+			// A snapshot that was only partly written, e.g. before a crash, is not used
+			entries.clear();
+		} catch (IOException e) {
+			CVSProviderPlugin.log(IStatus.ERROR, e.getMessage(), e);
+			entries.clear();
+		}
+		return entries;
+	}
+
+	private File getSnapshotFile(IProject project) {
+		return CVSProviderPlugin.getPlugin().getStateLocation().append(SNAPSHOT_DIRECTORY).append(project.getName()).toFile();
+	}
+
+	private void changed(IResource[] changedResources) {
+		for (IResource resource : changedResources) {
+			resourceChanged(resource, false);
+		}
+	}
+
+	@Override
+	public void resourceSyncInfoChanged(IResource[] changedResources) {
+		changed(changedResources);
+	}
+
+	@Override
+	public void externalSyncInfoChange(IResource[] changedResources) {
+		changed(changedResources);
+	}
+
+	@Override
+	public void resourceModified(IResource[] changedResources) {
+		changed(changedResources);
+	}
+
+	@Override
+	public void projectConfigured(IProject project) {
+		// The state of a new CVS project is computed when it is decorated
+	}
+
+	@Override
+	public synchronized void projectDeconfigured(IProject project) {
+		projects.remove(project.getName());
+		changedProjects.remove(project.getName());
+		getSnapshotFile(project).delete();
+	}
+}
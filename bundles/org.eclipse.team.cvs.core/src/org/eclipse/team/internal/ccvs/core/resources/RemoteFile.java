@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -400,6 +400,8 @@ public class RemoteFile extends RemoteResource implements ICVSRemoteFile  {
 	protected InputStream getCachedContents() throws TeamException {
 		if (isHandleCached()) {
 			RemoteFile file = (RemoteFile)getCachedHandle();
+			// Contents that were cached in a previous session have no handle. The sync
+			// bytes of this handle are kept then, the cache path names their revision.
 			if (file != null) {
 				byte[] newSyncBytes = file.getSyncBytes();
 				if (newSyncBytes != null) {
@@ -410,6 +412,24 @@ public class RemoteFile extends RemoteResource implements ICVSRemoteFile  {
 		}
 		return super.getCachedContents();
 	}
+
+	/**
+	 * Return the handle that received the cached contents of this revision,
+	 * which knows the executable bit and the time stamp that the server sent
+	 * with the contents. Contents that were cached in a previous session have
+	 * no such handle, so they are fetched again to get it.
+	 * @param monitor a progress monitor
+	 * @return the handle or <code>null</code> if no handle is cached
+	 * @throws TeamException if the contents could not be fetched
+	 */
+	public RemoteFile getContentsHandle(IProgressMonitor monitor) throws TeamException {
+		RemoteFile file = (RemoteFile)getCachedHandle();
+		if (file == null && isContentsCached()) {
+			fetchContents(monitor);
+			file = (RemoteFile)getCachedHandle();
+		}
+		return file;
+	}
 	
 	@Override
 	public void setContents(InputStream stream, int responseType, boolean keepLocalHistory, IProgressMonitor monitor) throws CVSException {
@@ -609,11 +629,11 @@ public class RemoteFile extends RemoteResource implements ICVSRemoteFile  {
 	public void setExecutable(boolean executable) throws CVSException {
 		// store executable bit;
 		this.executable = executable;
-		if (!isHandleCached()) {
-			cacheHandle();
-		}
 		RemoteFile file = (RemoteFile)getCachedHandle();
-		if (file != this) {
+		if (file == null) {
+			// contents cached in a previous session have no cached handle
+			cacheHandle();
+		} else if (file != this) {
 			file.setExecutable(executable);
 		}
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,6 +18,7 @@ import java.util.*;
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.team.internal.ccvs.core.*;
 import org.eclipse.team.internal.ccvs.core.client.*;
@@ -262,11 +263,32 @@ public class RemoteFolderTreeBuilder {
 			String[] allChangedFiles = changedFiles.toArray(new String[changedFiles.size()]);
 			int iterations = (allChangedFiles.length / MAX_REVISION_FETCHES_PER_CONNECTION) 
 				+ (allChangedFiles.length % MAX_REVISION_FETCHES_PER_CONNECTION == 0 ? 0 : 1);
+			List<String[]> groups = new ArrayList<>(iterations);
 			for (int i = 0; i < iterations ; i++) {
 				int length = Math.min(MAX_REVISION_FETCHES_PER_CONNECTION, 
 					allChangedFiles.length - (MAX_REVISION_FETCHES_PER_CONNECTION * i));
 				String buffer[] = new String[length];
 				System.arraycopy(allChangedFiles, i * MAX_REVISION_FETCHES_PER_CONNECTION, buffer, 0, length);
+				groups.add(buffer);
+			}
+			int connections = Math.min(iterations, repository.getMaxConnections());
+			if (connections > 1) {
+				String name = NLS.bind(CVSMessages.RemoteFolderTreeBuilder_fetchingRevisions, repository.getHost());
+				new RevisionFetcher(name, groups, monitor) {
+					@Override
+					protected void fetch(String[] fileNames, IProgressMonitor jobMonitor) throws CVSException {
+						Session session = new Session(repository, remoteRoot, false);
+						session.open(jobMonitor, false /* read-only */);
+						try {
+							fetchFileRevisions(session, fileNames, jobMonitor);
+						} finally {
+							session.close();
+						}
+					}
+				}.run(connections);
+				return;
+			}
+			for (String[] buffer : groups) {
 				Session session = new Session(repository, remoteRoot, false);
 				session.open(Policy.subMonitorFor(monitor, 1), false /* read-only */);
 				try {
@@ -278,6 +300,131 @@ public class RemoteFolderTreeBuilder {
 		}
 	}
 	
+	/**
+	 * Fetches the revisions of groups of files over several connections at once.
+	 * Each connection is served by a job that takes the next group until all groups
+	 * are fetched, while the calling thread reports progress and waits until it is
+	 * notified that the jobs are done. The errors of the jobs and the cancelation
+	 * of the calling thread's monitor are reported to the calling thread.
+	 * The groups contain different files, so the jobs update different remote files.
+	 */
+	public static abstract class RevisionFetcher {
+		private final String name;
+		private final Iterator<String[]> groups;
+		private final int groupCount;
+		private final IProgressMonitor monitor;
+		private final List<CVSException> exceptions = new ArrayList<>();
+		private int running;
+		private int completed;
+		
+		public RevisionFetcher(String name, List<String[]> groups, IProgressMonitor monitor) {
+			this.name = name;
+			this.groups = groups.iterator();
+			this.groupCount = groups.size();
+			this.monitor = Policy.monitorFor(monitor);
+		}
+		
+		/**
+		 * Fetches the revisions of the given files. This method is called by the jobs.
+		 * @param fileNames the files of a group
+		 * @param jobMonitor a monitor that is canceled with the calling thread's monitor
+		 * @throws CVSException
+		 */
+		protected abstract void fetch(String[] fileNames, IProgressMonitor jobMonitor) throws CVSException;
+		
+		/**
+		 * Fetches all groups using the given number of connections and returns when
+		 * all jobs are done.
+		 * @param connections the number of connections
+		 * @throws CVSException if the revisions of a group could not be fetched
+		 * @throws OperationCanceledException if the calling thread's monitor was canceled
+		 */
+		public void run(int connections) throws CVSException {
+			monitor.beginTask(null, groupCount * 3);
+			try {
+				// The jobs only check the calling thread's monitor for cancelation
+				final IProgressMonitor jobMonitor = new NullProgressMonitor() {
+					@Override
+					public boolean isCanceled() {
+						return monitor.isCanceled();
+					}
+				};
+				running = connections;
+				for (int i = 0; i < connections; i++) {
+					Job job = new Job(name) {
+						@Override
+						protected IStatus run(IProgressMonitor ignored) {
+							fetchGroups(jobMonitor);
+							return Status.OK_STATUS;
+						}
+					};
+					job.setSystem(true);
+					job.schedule();
+				}
+				// The jobs notify the calling thread of every fetched group and when they are done
+				int reported = 0;
+				synchronized (this) {
+					while (running > 0) {
+						monitor.worked((completed - reported) * 3);
+						reported = completed;
+						try {
+							wait();
+						} catch (InterruptedException e) {
+							// Ignore
+						}
+					}
+					monitor.worked((completed - reported) * 3);
+				}
+				Policy.checkCanceled(monitor);
+				if (exceptions.size() == 1) {
+					throw exceptions.get(0);
+				} else if (!exceptions.isEmpty()) {
+					MultiStatus multi = new MultiStatus(CVSProviderPlugin.ID, 0, CVSMessages.RemoteFolder_errorFetchingRevisions, null); 
+					for (int i = 0; i < exceptions.size(); i++) {
+						multi.merge(exceptions.get(i).getStatus());
+					}
+					throw new CVSException(multi);
+				}
+			} finally {
+				monitor.done();
+			}
+		}
+		
+		private void fetchGroups(IProgressMonitor jobMonitor) {
+			try {
+				String[] fileNames;
+				while ((fileNames = nextGroup()) != null) {
+					fetch(fileNames, jobMonitor);
+					synchronized (this) {
+						completed++;
+						notifyAll();
+					}
+				}
+			} catch (CVSException e) {
+				failed(e);
+			} catch (OperationCanceledException e) {
+				// The calling thread reports the cancelation
+			} catch (RuntimeException e) {
+				failed(CVSException.wrapException(e));
+			} finally {
+				synchronized (this) {
+					running--;
+					notifyAll();
+				}
+			}
+		}
+		
+		private synchronized String[] nextGroup() {
+			if (!exceptions.isEmpty() || monitor.isCanceled() || !groups.hasNext())
+				return null;
+			return groups.next();
+		}
+		
+		private synchronized void failed(CVSException e) {
+			exceptions.add(e);
+		}
+	}
+	
 	/* package */ RemoteFile buildTree(ICVSFile file, IProgressMonitor monitor) throws CVSException {
 		QuietOption quietness = CVSProviderPlugin.getPlugin().getQuietness();
 		try {
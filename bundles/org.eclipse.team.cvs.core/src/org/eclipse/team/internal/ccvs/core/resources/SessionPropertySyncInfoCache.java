@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2007 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -25,13 +25,14 @@ import org.eclipse.team.internal.ccvs.core.*;
 import org.eclipse.team.internal.ccvs.core.syncinfo.FolderSyncInfo;
 import org.eclipse.team.internal.ccvs.core.syncinfo.ResourceSyncInfo;
 import org.eclipse.team.internal.ccvs.core.util.FileNameMatcher;
+import org.eclipse.team.internal.ccvs.core.util.ResourceStateChangeListeners;
 import org.eclipse.team.internal.ccvs.core.util.SyncFileWriter;
 
 /**
  * This cache uses session properties to hold the bytes representing the sync
  * info. In addition when the workbench closes or a project is closed, the dirty 
- * state for all cvs managed folders are persisted using the resource's plugin
- * synchronizer.
+ * state of the files and folders of cvs managed projects is persisted in a
+ * {@link DecorationStateSnapshot}.
  */
 /*package*/ class SessionPropertySyncInfoCache extends SyncInfoCache implements ISaveParticipant {
 	
@@ -48,8 +49,12 @@ import org.eclipse.team.internal.ccvs.core.util.SyncFileWriter;
 	// (i.e. for those cases where a deleted resource is recreated)
 	private SynchronizerSyncInfoCache synchronizerCache;
 	
+	// the dirty state that was persisted in previous sessions
+	private final DecorationStateSnapshot snapshot = new DecorationStateSnapshot();
+	
 	/*package*/ SessionPropertySyncInfoCache(SynchronizerSyncInfoCache synchronizerCache) {
 		this.synchronizerCache = synchronizerCache;
+		ResourceStateChangeListeners.getListener().addResourceStateChangeListener(snapshot);
 		try {
 			// this save participant is removed when the plugin is shutdown.			
 			ResourcesPlugin.getWorkspace().addSaveParticipant(CVSProviderPlugin.getPlugin(), this);
@@ -222,10 +227,18 @@ import org.eclipse.team.internal.ccvs.core.util.SyncFileWriter;
 	
 	private void internalSetDirtyIndicator(IFile file, String indicator) throws CVSException {
 		safeSetSessionProperty(file, IS_DIRTY, indicator);
+		snapshot.resourceChanged(file, false);
 	}
 	
 	private String internalGetDirtyIndicator(IFile file, boolean threadSafeAccess) throws CVSException {
 		String di = (String)safeGetSessionProperty(file, IS_DIRTY);
+		if(di == null) {
+			// the file checks the persisted state against its sync info before using it
+			di = snapshot.getDirtyIndicator(file);
+			if (di != null && threadSafeAccess) {
+				safeSetSessionProperty(file, IS_DIRTY, di);
+			}
+		}
 		if(di == null) {
 			di = RECOMPUTE_INDICATOR;
 		}
@@ -234,13 +247,22 @@ import org.eclipse.team.internal.ccvs.core.util.SyncFileWriter;
 
 	private void internalSetDirtyIndicator(IContainer container, String indicator) throws CVSException {
 		safeSetSessionProperty(container, IS_DIRTY, indicator);
+		snapshot.resourceChanged(container, false);
 	}
 	
 	private String internalGetDirtyIndicator(IContainer container, boolean threadSafeAccess) throws CVSException {
 		try {
 			String di = (String)safeGetSessionProperty(container, IS_DIRTY);
 			
-			// if the session property is not available then restore from persisted sync info. At this
+			// if the session property is not available then restore from the snapshot
+			if(di == null) {
+				di = snapshot.getDirtyIndicator(container);
+				if (di != null && threadSafeAccess) {
+					safeSetSessionProperty(container, IS_DIRTY, di);
+				}
+			}
+			
+			// otherwise restore from sync info persisted by older versions. At this
 			// time the sync info is not flushed because we don't want the workspace to generate
 			// a delta.			
 			if(di == null) {
@@ -275,13 +297,22 @@ import org.eclipse.team.internal.ccvs.core.util.SyncFileWriter;
 		if (resource.exists()) {
 			if (resource.getType() == IResource.FILE) {
 				safeSetSessionProperty(resource, IS_DIRTY, null);
+				snapshot.resourceChanged(resource, false);
 			} else {
 				safeSetSessionProperty(resource, IS_DIRTY, null);
 				flushDirtyStateFromDisk((IContainer)resource);
+				snapshot.resourceChanged(resource, true);
 			}
 		}
 	}
 	
+	/*
+	 * Return the dirty indicator of the resource that is cached in this session
+	 */
+	/*package*/ String getSessionDirtyIndicator(IResource resource) throws CVSException {
+		return (String)safeGetSessionProperty(resource, IS_DIRTY);
+	}
+	
 	/**
 	 * Method isSyncInfoLoaded returns true if all the sync info for the
 	 * provided resources is loaded into the internal cache.
@@ -383,7 +414,7 @@ import org.eclipse.team.internal.ccvs.core.util.SyncFileWriter;
 	}
 
 	/* Called when the workbench is shutdown or projects are closed. The dirty state
-	 * of folders is persisted, using sync info, so that at startup or project open
+	 * of files and folders is persisted in a snapshot so that at startup or project open
 	 * the folder state can be quickly calculated. This is mainly for improving decorator
 	 * performance.
 	 * @see org.eclipse.core.resources.ISaveParticipant#saving(org.eclipse.core.resources.ISaveContext)
@@ -393,9 +424,6 @@ import org.eclipse.team.internal.ccvs.core.util.SyncFileWriter;
 		boolean projectSave = (context.getKind() == ISaveContext.PROJECT_SAVE);
 		
 		if((projectSave || fullSave)) {
-			// persist all session properties for folders into sync info.
-			final ISynchronizer synchronizer = ResourcesPlugin.getWorkspace().getSynchronizer();
-		
 			// traverse the workspace looking for CVS managed projects or just the 
 			// specific projects being closed
 			IProject[] projects;
@@ -410,26 +438,13 @@ import org.eclipse.team.internal.ccvs.core.util.SyncFileWriter;
 						project,
 						CVSProviderPlugin.getTypeId());
 
-				// found a project managed by CVS, convert each session property on a
-				// folder to a sync object.
-				if (provider != null) {
-					project.accept(new IResourceVisitor() {
-						public boolean visit(IResource resource) throws CoreException {
-							if(resource.getType() != IResource.FILE) {
-								String di = null;
-								try {
-									di = getDirtyIndicator(resource, true);
-								} catch (CVSException e) {
-									// continue traversal
-									CVSProviderPlugin.log(e);
-								}
-								if(di != null) {
-									synchronizer.setSyncInfo(FOLDER_DIRTY_STATE_KEY, resource, di.getBytes());
-								}								
-							}
-							return true;
-						}
-					});
+				// found a project managed by CVS, write the snapshot of its dirty state
+				// if it changed and drop the state persisted by older versions.
+				if (provider != null && snapshot.write(project, this)) {
+					flushDirtyStateFromDisk(project);
+				}
+				if (projectSave) {
+					snapshot.forget(project);
 				}
 			}
 		}
@@ -457,6 +472,7 @@ import org.eclipse.team.internal.ccvs.core.util.SyncFileWriter;
 			if (resource.getType() != IResource.ROOT) {
 				safeSetSessionProperty(resource, IS_DIRTY, null);
 			}
+			snapshot.resourceChanged(resource, false);
 			if (resource.getType() != IResource.FILE) {
 				ResourcesPlugin.getWorkspace().getSynchronizer().flushSyncInfo(FOLDER_DIRTY_STATE_KEY, resource, IResource.DEPTH_INFINITE);
 				IResource[] members = ((IContainer)resource).members();
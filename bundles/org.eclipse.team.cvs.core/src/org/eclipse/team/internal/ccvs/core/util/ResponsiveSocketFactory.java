@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007 IBM Corporation and others.
+ * Copyright (c) 2007, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,10 +13,14 @@
  *******************************************************************************/
 package org.eclipse.team.internal.ccvs.core.util;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InterruptedIOException;
-import java.lang.reflect.*;
 import java.net.*;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
 
 import org.eclipse.core.runtime.*;
 import org.eclipse.osgi.util.NLS;
@@ -26,12 +30,14 @@ import org.eclipse.team.internal.ccvs.core.*;
  * Class copied from "org.eclipse.jsch.internal.core"
  */
 public class ResponsiveSocketFactory {
-	private static final String JAVA_NET_PROXY="java.net.Proxy"; //$NON-NLS-1$
 	private static final int DEFAULT_TIMEOUT=60; // Seconds
+	private static final long ATTEMPT_DELAY=250; // Millis before the next address is tried
+	private static final long POLL_INTERVAL=50; // Millis between checks for cancellation
+	private static final int LOOKUP_THREADS=4; // Maximum number of concurrent host name lookups
+	private static final ExecutorService LOOKUP_EXECUTOR=createLookupExecutor();
+	private static final ExecutorService CONNECT_EXECUTOR=createConnectExecutor();
 	private IProgressMonitor monitor;
 	private final int timeout;
-	private static Class proxyClass;
-	private static boolean hasProxyClass = true;
 	public ResponsiveSocketFactory(IProgressMonitor monitor, int timeout) {
 		if (monitor == null)
 			monitor = new NullProgressMonitor();
@@ -49,133 +55,245 @@ public class ResponsiveSocketFactory {
 		return socket;
 	}
 	
+	/**
+	 * Connects a socket channel to the given host. The channel is returned
+	 * in non-blocking mode.
+	 */
+	public SocketChannel createSocketChannel(String host, int port) throws IOException, UnknownHostException {
+		int seconds = timeout / 1000;
+		if (seconds == 0) seconds = DEFAULT_TIMEOUT;
+		SocketChannel channel = connect(host, port, System.nanoTime() + seconds * 1000000000L, monitor, new Connector<SocketChannel>() {
+			@Override
+			public SocketChannel open() throws IOException {
+				return SocketChannel.open();
+			}
+			@Override
+			public void connect(SocketChannel channel, InetSocketAddress address, int timeout) throws IOException {
+				ResponsiveSocketFactory.this.connect(channel, address);
+			}
+		});
+		monitor = new NullProgressMonitor();
+		try {
+			channel.configureBlocking(false);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		return channel;
+	}
+	
 	/**
 	 * Helper method that will time out when making a socket connection.
-	 * This is required because there is no way to provide a timeout value
-	 * when creating a socket and in some instances, they don't seem to
-	 * timeout at all.
+	 * The connection attempts are made in the threads of the connect executor,
+	 * so that they can be abandoned as soon as the monitor is canceled.
 	 */
 	private Socket createSocket(final String host, final int port, int timeout, IProgressMonitor monitor) throws UnknownHostException, IOException {
-		
-		// Start a thread to open a socket
-		final Socket[] socket = new Socket[] { null };
-		final Exception[] exception = new Exception[] {null };
-		final Thread thread = new Thread(() -> {
-				try {
-					Socket newSocket = internalCreateSocket(host, port);
-					synchronized (socket) {
-						if (Thread.interrupted()) {
-							// we we're either canceled or timed out so just close the socket
-							newSocket.close();
-						} else {
-							socket[0] = newSocket;
-						}
-					}
-				} catch (UnknownHostException e1) {
-					exception[0] = e1;
-				} catch (IOException e2) {
-					exception[0] = e2;
-				}
-			});
-		thread.start();
-		
-		// Wait the appropriate number of seconds
 		if (timeout == 0) timeout = DEFAULT_TIMEOUT;
-		for (int i = 0; i < timeout; i++) {
-			try {
-				// wait for the thread to complete or 1 second, which ever comes first
-				thread.join(1000);
-			} catch (InterruptedException e) {
-				// I think this means the thread was interrupted but not necessarily timed out
-				// so we don't need to do anything
+		return connect(host, port, System.nanoTime() + timeout * 1000000000L, monitor, new Connector<Socket>() {
+			@Override
+			public Socket open() {
+				// Disable proxy support for the socket
+				return new Socket(Proxy.NO_PROXY);
+			}
+			@Override
+			public void connect(Socket socket, InetSocketAddress address, int timeout) throws IOException {
+				ResponsiveSocketFactory.this.connect(socket, address, timeout);
 			}
-			synchronized (socket) {
-				// if the user canceled, clean up before preempting the operation
-				if (monitor.isCanceled()) {
-					if (thread.isAlive()) {
-						thread.interrupt();
-					}
-					if (socket[0] != null) {
-						socket[0].close();
-					}
-					// this method will throw the proper exception
-					Policy.checkCanceled(monitor);
+		});
+	}
+	
+	/**
+	 * Resolves the addresses of the given host. This method is called in a
+	 * thread of the lookup executor.
+	 * @param host the host name
+	 * @return the addresses of the host
+	 * @throws UnknownHostException if the host is not known
+	 */
+	protected InetAddress[] getAllByName(String host) throws UnknownHostException {
+		return InetAddress.getAllByName(host);
+	}
+	
+	/**
+	 * Connects the socket to the given address. This method is called in a
+	 * thread of the connect executor, and an attempt that is no longer needed
+	 * is stopped by closing its socket.
+	 * @param socket the socket, without proxy support
+	 * @param address the address to connect to
+	 * @param timeout the timeout in milliseconds
+	 * @throws IOException if the socket cannot be connected
+	 */
+	protected void connect(Socket socket, InetSocketAddress address, int timeout) throws IOException {
+		socket.connect(address, timeout);
+	}
+	
+	/**
+	 * Connects the channel, which is in blocking mode, to the given address.
+	 * This method is called in a thread of the connect executor, and an attempt
+	 * that is no longer needed is stopped by closing its channel.
+	 * @param channel the channel
+	 * @param address the address to connect to
+	 * @throws IOException if the channel cannot be connected
+	 */
+	protected void connect(SocketChannel channel, InetSocketAddress address) throws IOException {
+		channel.connect(address);
+	}
+	
+	/*
+	 * Opens and connects the sockets or channels of a connection race
+	 */
+	private interface Connector<T extends Closeable> {
+		T open() throws IOException;
+		void connect(T connection, InetSocketAddress address, int timeout) throws IOException;
+	}
+	
+	/*
+	 * Connects to the host in the style of "Happy Eyeballs" (RFC 8305): the
+	 * addresses of the host are tried alternating between address families,
+	 * and the next attempt is started whenever the previous attempts have
+	 * neither succeeded nor failed within ATTEMPT_DELAY millis. The connection
+	 * of the first attempt to connect is returned, and the connections of the
+	 * other attempts are closed, which also stops the attempts that still wait.
+	 */
+	private <T extends Closeable> T connect(String host, int port, long deadline, IProgressMonitor monitor, Connector<T> connector) throws IOException {
+		InetAddress[] addresses = sortAddresses(lookup(host, deadline, monitor));
+		CompletionService<T> results = new ExecutorCompletionService<>(CONNECT_EXECUTOR);
+		List<T> attempts = new ArrayList<>();
+		T result = null;
+		IOException failure = null;
+		try {
+			int next = 0;
+			int pending = 0;
+			long nextAttempt = System.nanoTime();
+			while (result == null) {
+				Policy.checkCanceled(monitor);
+				long now = System.nanoTime();
+				if (now - deadline >= 0)
+					throw new InterruptedIOException(NLS.bind(CVSMessages.Util_timeout, new String[] { host }));
+				if (next < addresses.length && (pending == 0 || now - nextAttempt >= 0)) {
+					final T connection = connector.open();
+					final InetSocketAddress address = new InetSocketAddress(addresses[next], port);
+					final int timeout = (int) Math.max(1, Math.min((deadline - now) / 1000000L, Integer.MAX_VALUE));
+					attempts.add(connection);
+					results.submit(() -> {
+						connector.connect(connection, address, timeout);
+						return connection;
+					});
+					pending++;
+					next++;
+					nextAttempt = now + ATTEMPT_DELAY * 1000000L;
+					continue;
+				}
+				if (pending == 0)
+					// all addresses failed
+					throw failure;
+				long wait = Math.min(POLL_INTERVAL, (deadline - now) / 1000000L);
+				if (next < addresses.length)
+					wait = Math.min(wait, (nextAttempt - now) / 1000000L);
+				Future<T> attempt = results.poll(Math.max(wait, 1), TimeUnit.MILLISECONDS);
+				if (attempt == null)
+					continue;
+				pending--;
+				try {
+					result = attempt.get();
+				} catch (ExecutionException e) {
+					// start the next attempt without waiting
+					Throwable cause = e.getCause();
+					failure = cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage(), cause);
+					nextAttempt = now;
 				}
 			}
-		}
-		// If the thread is still running (i.e. we timed out) signal that it is too late
-		synchronized (socket) {
-			if (thread.isAlive()) {
-				thread.interrupt();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException(NLS.bind(CVSMessages.Util_timeout, new String[] { host }));
+		} finally {
+			for (T connection : attempts) {
+				if (connection != result)
+					connection.close();
 			}
 		}
-		if (exception[0] != null) {
-			if (exception[0] instanceof UnknownHostException)
-				throw (UnknownHostException)exception[0];
-			else
-				throw (IOException)exception[0];
-		}
-		if (socket[0] == null) {
-			throw new InterruptedIOException(NLS.bind(CVSMessages.Util_timeout, new String[] { host })); 
-		}
-		return socket[0];
+		return result;
 	}
 	
-	/* private */  Socket internalCreateSocket(final String host, final int port)
-			throws UnknownHostException, IOException{
-		Class proxyClass = getProxyClass();
-		if (proxyClass != null) {
-			// We need to disable proxy support for the socket
-			try{
-				
-				// Obtain the value of the NO_PROXY static field of the proxy class
-				Field field = proxyClass.getField("NO_PROXY"); //$NON-NLS-1$
-				Object noProxyObject = field.get(null);
-				Constructor constructor = Socket.class.getConstructor(new Class[] { proxyClass });
-				Object o = constructor.newInstance(new Object[] { noProxyObject });
-				if(o instanceof Socket){
-					Socket socket=(Socket)o;
-					socket.connect(new InetSocketAddress(host, port), timeout * 1000);
-					return socket;
+	/*
+	 * Resolves the addresses of the host in a thread of the lookup executor,
+	 * so that waiting for the name service can be canceled
+	 */
+	private InetAddress[] lookup(String host, long deadline, IProgressMonitor monitor) throws IOException {
+		Future<InetAddress[]> lookup = LOOKUP_EXECUTOR.submit(() -> getAllByName(host));
+		try {
+			for (;;) {
+				Policy.checkCanceled(monitor);
+				long remaining = (deadline - System.nanoTime()) / 1000000L;
+				if (remaining <= 0)
+					throw new InterruptedIOException(NLS.bind(CVSMessages.Util_timeout, new String[] { host }));
+				try {
+					return lookup.get(Math.min(remaining, POLL_INTERVAL), TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					// check for cancellation again
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof UnknownHostException)
+						throw (UnknownHostException) e.getCause();
+					throw new IOException(e.getCause().getMessage());
+				} catch (InterruptedException e) {
+					throw new InterruptedIOException(NLS.bind(CVSMessages.Util_timeout, new String[] { host }));
 				}
 			}
-			catch(SecurityException e){
-				CVSProviderPlugin.log(IStatus.ERROR, NLS.bind("An internal error occurred while connecting to {0}", host), e); //$NON-NLS-1$
-			}
-			catch(NoSuchFieldException e){
-				CVSProviderPlugin.log(IStatus.ERROR, NLS.bind("An internal error occurred while connecting to {0}", host), e); //$NON-NLS-1$
-			}
-			catch(IllegalArgumentException e){
-				CVSProviderPlugin.log(IStatus.ERROR, NLS.bind("An internal error occurred while connecting to {0}", host), e); //$NON-NLS-1$
-			}
-			catch(IllegalAccessException e){
-				CVSProviderPlugin.log(IStatus.ERROR, NLS.bind("An internal error occurred while connecting to {0}", host), e); //$NON-NLS-1$
-			}
-			catch(NoSuchMethodException e){
-				CVSProviderPlugin.log(IStatus.ERROR, NLS.bind("An internal error occurred while connecting to {0}", host), e); //$NON-NLS-1$
-			}
-			catch(InstantiationException e){
-				CVSProviderPlugin.log(IStatus.ERROR, NLS.bind("An internal error occurred while connecting to {0}", host), e); //$NON-NLS-1$
-			}
-			catch(InvocationTargetException e){
-				CVSProviderPlugin.log(IStatus.ERROR, NLS.bind("An internal error occurred while connecting to {0}", host), e); //$NON-NLS-1$
-			}
-			
+		} finally {
+			// a lookup that is still queued is not started
+			lookup.cancel(false);
 		}
-		return new Socket(host, port);
 	}
 	
-	private synchronized Class getProxyClass() {
-		if (hasProxyClass && proxyClass == null) {
-			try{
-				proxyClass = Class.forName(JAVA_NET_PROXY);
-			}
-			catch(ClassNotFoundException e){
-				// We couldn't find the class so we'll assume we are using pre-1.5 JRE
-				hasProxyClass = false;
-			}
+	/*
+	 * Creates the executor of the host name lookups. Its threads are daemons,
+	 * so that a lookup that does not return does not keep the VM alive, and
+	 * they end when they have been idle for a while.
+	 */
+	private static ExecutorService createLookupExecutor() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(LOOKUP_THREADS, LOOKUP_THREADS, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), runnable -> {
+					Thread thread = new Thread(runnable, "ResponsiveSocketFactory lookup"); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+	
+	/*
+	 * Creates the executor of the connection attempts. An attempt waits in
+	 * its thread until it connects, fails or its connection is closed, so the
+	 * executor starts a thread for every attempt and reuses the idle threads.
+	 */
+	private static ExecutorService createConnectExecutor() {
+		return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+			Thread thread = new Thread(runnable, "ResponsiveSocketFactory connect"); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/*
+	 * Orders the addresses so that the address families alternate, starting
+	 * with the family of the preferred address
+	 */
+	private static InetAddress[] sortAddresses(InetAddress[] addresses) {
+		boolean preferIPv6 = addresses[0] instanceof Inet6Address;
+		List<InetAddress> preferred = new ArrayList<>();
+		List<InetAddress> others = new ArrayList<>();
+		for (InetAddress address : addresses) {
+			if ((address instanceof Inet6Address) == preferIPv6)
+				preferred.add(address);
+			else
+				others.add(address);
+		}
+		InetAddress[] result = new InetAddress[addresses.length];
+		for (int i = 0, j = 0, k = 0; k < result.length;) {
+			if (i < preferred.size())
+				result[k++] = preferred.get(i++);
+			if (j < others.size())
+				result[k++] = others.get(j++);
 		}
-		return proxyClass;
+		return result;
 	}
 
 }
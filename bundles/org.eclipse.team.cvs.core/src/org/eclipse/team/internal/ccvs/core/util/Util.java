@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,6 +18,7 @@ import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.nio.channels.SocketChannel;
 import java.util.*;
 
 import org.eclipse.core.resources.*;
@@ -169,6 +170,19 @@ public class Util {
 		return factory.createSocket(host, port);
 	}
 	
+	/**
+	 * Helper method that connects a socket channel without blocking the
+	 * calling thread in the connect. The connection attempt is abandoned when
+	 * the monitor is canceled or the timeout expires. The channel is returned
+	 * in non-blocking mode.
+	 */
+	public static SocketChannel createSocketChannel(String host, int port, IProgressMonitor monitor) throws UnknownHostException, IOException {
+		int timeout = CVSProviderPlugin.getPlugin().getTimeout();
+		if (timeout == 0) timeout = CVSProviderPlugin.DEFAULT_TIMEOUT;
+		ResponsiveSocketFactory factory = new ResponsiveSocketFactory(monitor, timeout * 1000);
+		return factory.createSocketChannel(host, port);
+	}
+	
 	/**
 	 * Helper method that will time out when running an external command.
 	 * This is required because there is no way to provide a timeout value
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2018 IBM Corporation and others.
+ * Copyright (c) 2006, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -78,6 +78,15 @@ public abstract class CVSSubscriberMergeContext extends SubscriberMergeContext {
 	protected CVSSubscriberMergeContext(Subscriber subscriber, ISynchronizationScopeManager manager) {
 		super(subscriber, manager);
 	}
+
+	@Override
+	protected void initialize() {
+		super.initialize();
+		SubscriberDiffTreeEventHandler handler = getHandler();
+		if (handler != null)
+			// The content filters may fetch remote contents, so they are evaluated by several threads
+			handler.setParallelFilter(true);
+	}
 	
 	@Override
 	public void run(final IWorkspaceRunnable runnable, final ISchedulingRule rule, int flags, IProgressMonitor monitor) throws CoreException {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -251,8 +251,9 @@ public class WorkspaceSubscriberContext extends CVSSubscriberMergeContext implem
 			ensureRemotesMatch(resource, diff, info);
 			IResourceVariant remote = info.getRemote();
 			RemoteFile file = (RemoteFile)remote;
+			// contents cached in a previous session are fetched again to get their handle
 			if (file != null)
-				remote = file.getCachedHandle();
+				remote = file.getContentsHandle(monitor1);
 			
 			if (info instanceof CVSSyncInfo) {
 				CVSSyncInfo cvsInfo = (CVSSyncInfo) info;		
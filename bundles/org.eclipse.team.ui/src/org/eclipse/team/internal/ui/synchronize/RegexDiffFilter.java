@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011 IBM Corporation and others.
+ * Copyright (c) 2011, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,6 +15,7 @@ package org.eclipse.team.internal.ui.synchronize;
 
 import java.util.regex.Pattern;
 
+import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.team.core.diff.DiffFilter;
@@ -23,11 +24,20 @@ import org.eclipse.team.core.history.IFileRevision;
 import org.eclipse.team.core.mapping.provider.ResourceDiffTree;
 import org.eclipse.team.internal.core.mapping.SyncInfoToDiffConverter;
 import org.eclipse.team.internal.core.subscribers.AbstractContentComparator;
+import org.eclipse.team.internal.core.subscribers.ContentComparisonCache;
 
+/**
+ * Selects the diffs whose changes all match a regex pattern. The results are
+ * remembered until the local file or the remote revision changes, so a refresh
+ * only compares the diffs that changed. The filter may be used by several
+ * threads concurrently.
+ */
 public class RegexDiffFilter extends DiffFilter {
 
 	AbstractContentComparator criteria;
 
+	private final ContentComparisonCache cache = new ContentComparisonCache();
+
 	boolean ignoreWhiteSpace;
 
 	/**
@@ -63,6 +73,13 @@ public class RegexDiffFilter extends DiffFilter {
 			return !local.exists();
 		if (!local.exists())
 			return false;
-		return criteria.compare(local, remote, monitor);
+		IFile file = (IFile) local;
+		long stamp = file.getModificationStamp();
+		Boolean result = cache.get(file, remote);
+		if (result != null)
+			return result.booleanValue();
+		boolean match = criteria.compare(file, remote, monitor);
+		cache.put(file, stamp, remote, match);
+		return match;
 	}
 }
\ No newline at end of file
@@ -37,9 +37,17 @@ import org.junit.runners.Suite.SuiteClasses;
 	PatchLinesTest.class,
 	PatchUITest.class,
 	RangeDifferencerThreeWayDiffTest.class,
+	LineInternerTest.class,
+	HistogramDiffTest.class,
+	DifferencerTest.class,
+	ContentEqualityTest.class,
+	LineIndexTest.class,
 	CompareUIPluginTest.class,
 	StructureCreatorTest.class,
-	CompareFileRevisionEditorInputTest.class})
+	CompareFileRevisionEditorInputTest.class,
+	DocumentMergerTest.class,
+	HunkLocatorTest.class,
+	ZipFileStructureCreatorTest.class})
 public class AllTests {
 	// test suite
 }
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.eclipse.compare.internal.core.ContentEquality;
+
+public class ContentEqualityTest extends TestCase {
+
+	/*
+	 * A stream that returns at most a few bytes per read
+	 */
+	private static class SlowInputStream extends ByteArrayInputStream {
+		SlowInputStream(byte[] bytes) {
+			super(bytes);
+		}
+
+		@Override
+		public synchronized int read(byte[] b, int off, int len) {
+			return super.read(b, off, Math.min(len, 7));
+		}
+	}
+
+	public ContentEqualityTest(String name) {
+		super(name);
+	}
+
+	public void testStreams() throws IOException {
+		Random random= new Random(42);
+		for (int length : new int[] { 0, 1, 8191, 8192, 8193, 20000 }) {
+			byte[] bytes= new byte[length];
+			random.nextBytes(bytes);
+			assertTrue(ContentEquality.contentsEqual(new ByteArrayInputStream(bytes), new SlowInputStream(bytes)));
+			if (length > 0) {
+				byte[] changed= bytes.clone();
+				changed[length - 1]++;
+				assertFalse(ContentEquality.contentsEqual(new ByteArrayInputStream(bytes), new SlowInputStream(changed)));
+				byte[] shorter= Arrays.copyOf(bytes, length - 1);
+				assertFalse(ContentEquality.contentsEqual(new SlowInputStream(bytes), new ByteArrayInputStream(shorter)));
+			}
+		}
+	}
+
+	public void testFiles() throws IOException {
+		byte[] bytes= new byte[100000];
+		new Random(7).nextBytes(bytes);
+		File file1= createFile(bytes);
+		File file2= createFile(bytes);
+		bytes[50000]++;
+		File file3= createFile(bytes);
+		File file4= createFile(Arrays.copyOf(bytes, 10));
+		try {
+			assertTrue(ContentEquality.contentsEqual(file1, file2));
+			assertFalse(ContentEquality.contentsEqual(file1, file3));
+			assertFalse(ContentEquality.contentsEqual(file1, file4));
+		} finally {
+			file1.delete();
+			file2.delete();
+			file3.delete();
+			file4.delete();
+		}
+	}
+
+	private File createFile(byte[] bytes) throws IOException {
+		File file= File.createTempFile("content", ".txt"); //$NON-NLS-1$ //$NON-NLS-2$
+		try (OutputStream out= new FileOutputStream(file)) {
+			out.write(bytes);
+		}
+		return file;
+	}
+
+	public void testStreamsAreNotClosed() throws IOException {
+		InputStream in= new ByteArrayInputStream(new byte[] { 1, 2 }) {
+			@Override
+			public void close() {
+				fail();
+			}
+		};
+		assertFalse(ContentEquality.contentsEqual(in, new ByteArrayInputStream(new byte[] { 1 })));
+	}
+}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+import org.eclipse.compare.IStreamContentAccessor;
+import org.eclipse.compare.ITypedElement;
+import org.eclipse.compare.structuremergeviewer.Differencer;
+import org.eclipse.compare.structuremergeviewer.IStructureComparator;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.swt.graphics.Image;
+
+public class DifferencerTest extends TestCase {
+
+	private static class Element implements IStructureComparator, IStreamContentAccessor, ITypedElement {
+		private final String name;
+		private final String contents;
+		private final Element[] children;
+
+		Element(String name, String contents) {
+			this.name= name;
+			this.contents= contents;
+			this.children= null;
+		}
+
+		Element(String name, Element... children) {
+			this.name= name;
+			this.contents= null;
+			this.children= children;
+		}
+
+		@Override
+		public Object[] getChildren() {
+			return this.children;
+		}
+
+		@Override
+		public InputStream getContents() {
+			return this.contents == null ? null : new ByteArrayInputStream(this.contents.getBytes());
+		}
+
+		@Override
+		public String getName() {
+			return this.name;
+		}
+
+		@Override
+		public Image getImage() {
+			return null;
+		}
+
+		@Override
+		public String getType() {
+			return ITypedElement.UNKNOWN_TYPE;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Element && ((Element) other).name.equals(this.name);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.name.hashCode();
+		}
+	}
+
+	/*
+	 * Records the visited nodes as lines of path and result
+	 */
+	private static class RecordingDifferencer extends Differencer {
+		final StringBuilder result= new StringBuilder();
+
+		@Override
+		protected Object visit(Object data, int kind, Object ancestor, Object left, Object right) {
+			Element element= (Element) (left != null ? left : right != null ? right : ancestor);
+			String path= (data == null ? "" : (String) data) + '/' + element.getName(); //$NON-NLS-1$
+			this.result.append(path).append(' ').append(kind).append('\n');
+			return path;
+		}
+	}
+
+	public DifferencerTest(String name) {
+		super(name);
+	}
+
+	private static Element createTree(String variant) {
+		Element[] folders= new Element[20];
+		for (int i= 0; i < folders.length; i++) {
+			Element[] files= new Element[20];
+			for (int j= 0; j < files.length; j++) {
+				String contents= (i + j) % 7 == 0 ? variant : "same"; //$NON-NLS-1$
+				files[j]= new Element("file" + j, contents); //$NON-NLS-1$
+			}
+			if (i % 5 == 0 && variant.equals("left")) //$NON-NLS-1$
+				files[3]= new Element("added" + i, "new"); //$NON-NLS-1$ //$NON-NLS-2$
+			folders[i]= new Element("folder" + i, files); //$NON-NLS-1$
+		}
+		return new Element("root", folders); //$NON-NLS-1$
+	}
+
+	private static String findDifferences(ForkJoinPool pool, boolean threeWay) {
+		RecordingDifferencer differencer= new RecordingDifferencer();
+		differencer.setForkJoinPool(pool);
+		differencer.findDifferences(threeWay, new NullProgressMonitor(), null, createTree("ancestor"), createTree("left"), createTree("right")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		return differencer.result.toString();
+	}
+
+	public void testParallelTraversalIsDeterministic() {
+		ForkJoinPool pool= new ForkJoinPool(4);
+		try {
+			for (boolean threeWay : new boolean[] { false, true }) {
+				String expected= findDifferences(null, threeWay);
+				assertTrue(expected.length() > 0);
+				for (int i= 0; i < 10; i++) {
+					assertEquals(expected, findDifferences(pool, threeWay));
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	public void testParallelTraversalIsCanceled() {
+		NullProgressMonitor monitor= new NullProgressMonitor();
+		monitor.setCanceled(true);
+		Differencer differencer= new Differencer();
+		differencer.setForkJoinPool(ForkJoinPool.commonPool());
+		try {
+			differencer.findDifferences(false, monitor, null, null, createTree("left"), createTree("right")); //$NON-NLS-1$ //$NON-NLS-2$
+			fail();
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,287 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.tests;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.compare.CompareConfiguration;
+import org.eclipse.compare.contentmergeviewer.ITokenComparator;
+import org.eclipse.compare.contentmergeviewer.TokenComparator;
+import org.eclipse.compare.internal.MergeViewerContentProvider;
+import org.eclipse.compare.internal.merge.DocumentMerger;
+import org.eclipse.compare.internal.merge.DocumentMerger.Diff;
+import org.eclipse.compare.internal.merge.DocumentMerger.IDocumentMergerInput;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.Region;
+
+public class DocumentMergerTest extends TestCase {
+
+	private static final String LEFT= "a\nfirst left line\nb\nc\nsecond left line\nd\n"; //$NON-NLS-1$
+	private static final String RIGHT= "a\nfirst right line\nb\nc\nsecond right line\nd\n"; //$NON-NLS-1$
+
+	/*
+	 * An input that records the threads that create token comparators
+	 */
+	private static class TestInput implements IDocumentMergerInput {
+		final IDocument fLeft;
+		final IDocument fRight;
+		final CompareConfiguration fConfiguration= new CompareConfiguration();
+		final List<Thread> fComparatorThreads= new ArrayList<>();
+
+		TestInput() {
+			this(LEFT, RIGHT);
+		}
+
+		TestInput(String left, String right) {
+			fLeft= new Document(left);
+			fRight= new Document(right);
+		}
+
+		@Override
+		public IDocument getDocument(char contributor) {
+			switch (contributor) {
+			case MergeViewerContentProvider.LEFT_CONTRIBUTOR:
+				return fLeft;
+			case MergeViewerContentProvider.RIGHT_CONTRIBUTOR:
+				return fRight;
+			default:
+				return null;
+			}
+		}
+
+		@Override
+		public Position getRegion(char contributor) {
+			return null;
+		}
+
+		@Override
+		public boolean isIgnoreAncestor() {
+			return true;
+		}
+
+		@Override
+		public boolean isThreeWay() {
+			return false;
+		}
+
+		@Override
+		public CompareConfiguration getCompareConfiguration() {
+			return fConfiguration;
+		}
+
+		@Override
+		public synchronized ITokenComparator createTokenComparator(String s) {
+			fComparatorThreads.add(Thread.currentThread());
+			return new TokenComparator(s);
+		}
+
+		synchronized List<Thread> getComparatorThreads() {
+			return new ArrayList<>(fComparatorThreads);
+		}
+
+		@Override
+		public boolean isHunkOnLeft() {
+			return false;
+		}
+
+		@Override
+		public int getHunkStart() {
+			return 0;
+		}
+
+		@Override
+		public boolean isPatchHunk() {
+			return false;
+		}
+
+		@Override
+		public boolean isShowPseudoConflicts() {
+			return false;
+		}
+
+		@Override
+		public boolean isPatchHunkOk() {
+			return false;
+		}
+	}
+
+	public DocumentMergerTest(String name) {
+		super(name);
+	}
+
+	private List<Diff> getChanges(DocumentMerger merger) {
+		List<Diff> changes= new ArrayList<>();
+		for (Iterator<Diff> iterator= merger.changesIterator(); iterator.hasNext();)
+			changes.add(iterator.next());
+		return changes;
+	}
+
+	private List<String> getTokenDiffs(Diff diff) {
+		List<String> tokenDiffs= new ArrayList<>();
+		for (Iterator<Diff> iterator= diff.childIterator(); iterator.hasNext();) {
+			Diff child= iterator.next();
+			Position left= child.getPosition(MergeViewerContentProvider.LEFT_CONTRIBUTOR);
+			Position right= child.getPosition(MergeViewerContentProvider.RIGHT_CONTRIBUTOR);
+			tokenDiffs.add(left.getOffset() + "," + left.getLength() + ":" + right.getOffset() + "," + right.getLength()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		return tokenDiffs;
+	}
+
+	/*
+	 * Returns the given number of lines, each starting with the prefix
+	 */
+	private static String lines(String prefix, int count) {
+		StringBuilder lines= new StringBuilder();
+		for (int i= 0; i < count; i++)
+			lines.append(prefix).append(i).append('\n');
+		return lines.toString();
+	}
+
+	/*
+	 * Maps the real position to the virtual position by a linear scan over the ranges
+	 */
+	private static int linearRealToVirtual(DocumentMerger merger, char contributor, int vpos) {
+		int viewPos= 0;
+		int virtualPos= 0;
+		for (Iterator<Diff> iterator= merger.rangesIterator(); iterator.hasNext();) {
+			Diff diff= iterator.next();
+			int realHeight= contributor == MergeViewerContentProvider.LEFT_CONTRIBUTOR ? diff.getLeftHeight() : diff.getRightHeight();
+			int virtualHeight= diff.getMaxDiffHeight();
+			if (vpos <= viewPos + realHeight) {
+				if (realHeight <= 0)
+					return virtualPos;
+				return virtualPos + ((vpos - viewPos) * virtualHeight) / realHeight;
+			}
+			viewPos+= realHeight;
+			virtualPos+= virtualHeight;
+		}
+		return virtualPos;
+	}
+
+	/*
+	 * Maps the virtual position to the real position by a linear scan over the ranges
+	 */
+	private static int linearVirtualToReal(DocumentMerger merger, char contributor, int v) {
+		int viewPos= 0;
+		int virtualPos= 0;
+		for (Iterator<Diff> iterator= merger.rangesIterator(); iterator.hasNext();) {
+			Diff diff= iterator.next();
+			int viewHeight= contributor == MergeViewerContentProvider.LEFT_CONTRIBUTOR ? diff.getLeftHeight() : diff.getRightHeight();
+			int virtualHeight= diff.getMaxDiffHeight();
+			if (v < virtualPos + virtualHeight) {
+				if (viewHeight <= 0)
+					return viewPos;
+				return viewPos + (int) ((v - virtualPos) * ((double) viewHeight / virtualHeight));
+			}
+			viewPos+= viewHeight;
+			virtualPos+= virtualHeight;
+		}
+		return viewPos;
+	}
+
+	private void assertSameAsLinearScan(DocumentMerger merger, int maxRealHeight) {
+		char[] contributors= { MergeViewerContentProvider.LEFT_CONTRIBUTOR, MergeViewerContentProvider.RIGHT_CONTRIBUTOR };
+		int virtualHeight= merger.getVirtualHeight();
+		for (char contributor : contributors) {
+			for (int pos= 0; pos <= maxRealHeight + 2; pos++)
+				assertEquals(contributor + ":" + pos, linearRealToVirtual(merger, contributor, pos), merger.realToVirtualPosition(contributor, pos)); //$NON-NLS-1$
+			for (int v= 0; v <= virtualHeight + 2; v++)
+				assertEquals(contributor + ":" + v, linearVirtualToReal(merger, contributor, v), merger.virtualToRealPosition(contributor, v)); //$NON-NLS-1$
+		}
+	}
+
+	public void testScrollPositionsMatchLinearScan() throws Exception {
+		// unchanged gaps between insertions, deletions and changes of different sizes
+		String left= lines("a", 3) + lines("deleted", 5) + lines("b", 1) + lines("changed left", 2) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				+ lines("c", 4) + lines("d", 2) + lines("replaced", 7) + lines("e", 3); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		String right= lines("inserted", 2) + lines("a", 3) + lines("b", 1) + lines("changed right", 6) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				+ lines("c", 4) + lines("added", 9) + lines("d", 2) + lines("replacement", 1) + lines("e", 3); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+		TestInput input= new TestInput(left, right);
+		DocumentMerger merger= new DocumentMerger(input);
+		merger.doDiff();
+		assertTrue(getChanges(merger).size() >= 5);
+		int maxRealHeight= Math.max(input.fLeft.getNumberOfLines(), input.fRight.getNumberOfLines());
+		assertSameAsLinearScan(merger, maxRealHeight);
+
+		// the heights of the ranges change with the documents
+		input.fRight.replace(0, 0, lines("more", 4)); //$NON-NLS-1$
+		input.fLeft.replace(input.fLeft.getLength(), 0, lines("tail", 3)); //$NON-NLS-1$
+		maxRealHeight= Math.max(input.fLeft.getNumberOfLines(), input.fRight.getNumberOfLines());
+		assertSameAsLinearScan(merger, maxRealHeight);
+	}
+
+	public void testTokenDiffsAreComputedOnFirstAccess() throws Exception {
+		TestInput input= new TestInput();
+		DocumentMerger merger= new DocumentMerger(input);
+		merger.doDiff();
+
+		List<Diff> changes= getChanges(merger);
+		assertEquals(2, changes.size());
+		assertTrue(input.getComparatorThreads().isEmpty());
+
+		assertEquals(1, getTokenDiffs(changes.get(0)).size());
+		assertEquals(2, input.getComparatorThreads().size());
+
+		// the token diffs of a change are only computed once
+		assertTrue(changes.get(0).hasChildren());
+		assertEquals(2, input.getComparatorThreads().size());
+	}
+
+	public void testPreparedTokenDiffs() throws Exception {
+		TestInput expectedInput= new TestInput();
+		DocumentMerger expected= new DocumentMerger(expectedInput);
+		expected.doDiff();
+
+		TestInput input= new TestInput();
+		DocumentMerger merger= new DocumentMerger(input);
+		merger.doDiff();
+		merger.prepareTokenDiffs(MergeViewerContentProvider.LEFT_CONTRIBUTOR, new Region(0, input.fLeft.getLength()));
+
+		// the token comparators are created on the calling thread, only the
+		// ranges are found in the background
+		List<Thread> threads= input.getComparatorThreads();
+		assertEquals(4, threads.size());
+		for (Thread thread : threads)
+			assertSame(Thread.currentThread(), thread);
+		Job.getJobManager().join(merger, null);
+
+		List<Diff> changes= getChanges(merger);
+		List<Diff> expectedChanges= getChanges(expected);
+		assertEquals(expectedChanges.size(), changes.size());
+		for (int i= 0; i < changes.size(); i++)
+			assertEquals(getTokenDiffs(expectedChanges.get(i)), getTokenDiffs(changes.get(i)));
+		assertEquals(4, input.getComparatorThreads().size());
+	}
+
+	public void testPreparedTokenDiffsAfterChange() throws Exception {
+		TestInput input= new TestInput();
+		DocumentMerger merger= new DocumentMerger(input);
+		merger.doDiff();
+		merger.prepareTokenDiffs(MergeViewerContentProvider.LEFT_CONTRIBUTOR, new Region(0, input.fLeft.getLength()));
+		Job.getJobManager().join(merger, null);
+
+		// the prepared ranges are not used once the document has been changed
+		input.fLeft.replace(input.fLeft.getLength(), 0, "e\n"); //$NON-NLS-1$
+		Diff change= getChanges(merger).get(0);
+		assertEquals(1, getTokenDiffs(change).size());
+		assertEquals(6, input.getComparatorThreads().size());
+	}
+}
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.tests;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.eclipse.compare.rangedifferencer.AbstractRangeDifferenceFactory;
+import org.eclipse.compare.rangedifferencer.IRangeComparator;
+import org.eclipse.compare.rangedifferencer.LineInterner;
+import org.eclipse.compare.rangedifferencer.RangeDifference;
+import org.eclipse.compare.rangedifferencer.RangeDifferencer;
+
+public class HistogramDiffTest extends TestCase {
+
+	private static final AbstractRangeDifferenceFactory HISTOGRAM_FACTORY= new AbstractRangeDifferenceFactory() {
+		@Override
+		protected RangeDifference createRangeDifference() {
+			return new RangeDifference(RangeDifference.NOCHANGE) {
+				// subclass to access the protected constructor
+			};
+		}
+
+		@Override
+		protected int getAlgorithm() {
+			return RangeDifferencer.HISTOGRAM;
+		}
+	};
+
+	public HistogramDiffTest(String name) {
+		super(name);
+	}
+
+	public void testDeletedBlock() {
+		String[] left= { "{", "a", "}", "{", "b", "}" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+		String[] right= { "{", "b", "}" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		LineInterner interner= new LineInterner();
+		RangeDifference[] diffs= RangeDifferencer.findDifferences(HISTOGRAM_FACTORY, null, interner.intern(left), interner.intern(right));
+
+		assertEquals(1, diffs.length);
+		assertEquals(1, diffs[0].leftStart());
+		assertEquals(3, diffs[0].leftLength());
+		assertEquals(0, diffs[0].rightLength());
+	}
+
+	public void testIdenticalInputs() {
+		String[] lines= { "a", "b", "c" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		LineInterner interner= new LineInterner();
+		RangeDifference[] diffs= RangeDifferencer.findDifferences(HISTOGRAM_FACTORY, null, interner.intern(lines), interner.intern(lines));
+		assertEquals(0, diffs.length);
+	}
+
+	public void testRangesAreConsistent() {
+		Random random= new Random(7);
+		for (int i= 0; i < 300; i++) {
+			// small alphabets produce frequent lines that are not used as anchors
+			int alphabet= (i % 2 == 0) ? 4 : 100;
+			String[] left= createLines(random, alphabet);
+			String[] right= createLines(random, alphabet);
+			LineInterner interner= new LineInterner();
+			RangeDifference[] ranges= RangeDifferencer.findRanges(HISTOGRAM_FACTORY, null, interner.intern(left), interner.intern(right));
+			assertConsistent(left, right, ranges);
+		}
+	}
+
+	public void testNotInternedFallsBackToMyers() {
+		IRangeComparator left= new LineInterner().intern(new String[] { "a", "b" }); //$NON-NLS-1$ //$NON-NLS-2$
+		IRangeComparator right= new LineInterner().intern(new String[] { "b" }); //$NON-NLS-1$
+		RangeDifference[] diffs= RangeDifferencer.findDifferences(HISTOGRAM_FACTORY, null, left, right);
+		assertEquals(1, diffs.length);
+		assertEquals(1, diffs[0].leftLength());
+	}
+
+	public void testLeastFrequentLineIsAnchor() {
+		// the unique line is used as anchor although the repeated lines form a longer run
+		String[] left= { "a", "b", "a", "b", "u" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+		String[] right= { "u", "a", "b", "a", "b" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+		LineInterner interner= new LineInterner();
+		RangeDifference[] diffs= RangeDifferencer.findDifferences(HISTOGRAM_FACTORY, null, interner.intern(left), interner.intern(right));
+
+		assertEquals(2, diffs.length);
+		assertEquals(0, diffs[0].leftStart());
+		assertEquals(4, diffs[0].leftLength());
+		assertEquals(0, diffs[0].rightLength());
+		assertEquals(5, diffs[1].leftStart());
+		assertEquals(1, diffs[1].rightStart());
+		assertEquals(4, diffs[1].rightLength());
+	}
+
+	private static String[] createLines(Random random, int alphabet) {
+		String[] lines= new String[random.nextInt(200)];
+		for (int i= 0; i < lines.length; i++) {
+			lines[i]= "line " + random.nextInt(alphabet); //$NON-NLS-1$
+		}
+		return lines;
+	}
+
+	/*
+	 * Checks that the ranges cover both inputs and that unchanged ranges
+	 * contain the same lines
+	 */
+	private static void assertConsistent(String[] left, String[] right, RangeDifference[] ranges) {
+		int leftEnd= 0;
+		int rightEnd= 0;
+		for (RangeDifference range : ranges) {
+			assertEquals(leftEnd, range.leftStart());
+			assertEquals(rightEnd, range.rightStart());
+			if (range.kind() == RangeDifference.NOCHANGE) {
+				assertEquals(range.leftLength(), range.rightLength());
+				for (int i= 0; i < range.leftLength(); i++) {
+					assertEquals(left[range.leftStart() + i], right[range.rightStart() + i]);
+				}
+			}
+			leftEnd= range.leftEnd();
+			rightEnd= range.rightEnd();
+		}
+		assertEquals(left.length, leftEnd);
+		assertEquals(right.length, rightEnd);
+	}
+}
@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.tests;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.eclipse.compare.internal.core.patch.FileDiffResult;
+import org.eclipse.compare.internal.core.patch.FilePatch2;
+import org.eclipse.compare.internal.core.patch.Hunk;
+import org.eclipse.compare.internal.core.patch.HunkLocator;
+import org.eclipse.compare.internal.core.patch.HunkResult;
+import org.eclipse.compare.patch.IHunk;
+import org.eclipse.compare.patch.PatchConfiguration;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * Tests that the shifts found with a {@link HunkLocator} are the ones found
+ * by trying a hunk at every shift.
+ */
+public class HunkLocatorTest extends TestCase {
+
+	private static final String[] WORDS= { "a", "b", "c", "d", "e" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+
+	public HunkLocatorTest(String name) {
+		super(name);
+	}
+
+	private PatchConfiguration createConfiguration(int fuzz, boolean ignoreWhitespace, boolean reversed) {
+		PatchConfiguration configuration= new PatchConfiguration();
+		configuration.setFuzz(fuzz);
+		configuration.setIgnoreWhitespace(ignoreWhitespace);
+		configuration.setReversed(reversed);
+		return configuration;
+	}
+
+	private String createLine(Random random, boolean whitespace) {
+		String word= WORDS[random.nextInt(WORDS.length)];
+		if (whitespace && random.nextBoolean())
+			word= " " + word + "\t"; //$NON-NLS-1$ //$NON-NLS-2$
+		return word + "\n"; //$NON-NLS-1$
+	}
+
+	private List<String> createLines(Random random, int count, boolean whitespace) {
+		List<String> lines= new ArrayList<>();
+		for (int i= 0; i < count; i++)
+			lines.add(createLine(random, whitespace));
+		return lines;
+	}
+
+	/*
+	 * Creates a hunk from a range of the given lines that is declared at a
+	 * different position. Some of its context lines do not match the lines.
+	 */
+	private Hunk createHunk(Random random, FilePatch2 parent, List<String> lines, boolean reversed) {
+		char deleted= reversed ? '+' : '-';
+		char added= reversed ? '-' : '+';
+		int length= 1 + random.nextInt(5);
+		int start= random.nextInt(lines.size() - length);
+		List<String> hunkLines= new ArrayList<>();
+		int oldLength= 0;
+		int newLength= 0;
+		for (int i= start; i < start + length; i++) {
+			String line= lines.get(i).trim() + "\n"; //$NON-NLS-1$
+			if (random.nextInt(3) == 0) {
+				hunkLines.add(deleted + line);
+				oldLength++;
+			} else {
+				if (random.nextInt(4) == 0)
+					line= createLine(random, false);
+				hunkLines.add(' ' + line);
+				oldLength++;
+				newLength++;
+			}
+			if (random.nextInt(3) == 0) {
+				hunkLines.add(added + createLine(random, false));
+				newLength++;
+			}
+		}
+		int declared= Math.max(0, start + random.nextInt(21) - 10);
+		int[] oldRange= { declared + 1, reversed ? newLength : oldLength };
+		int[] newRange= { declared + 1, reversed ? oldLength : newLength };
+		return Hunk.createHunk(parent, reversed ? newRange : oldRange, reversed ? oldRange : newRange, hunkLines, true, true, true);
+	}
+
+	private List<Integer> getShifts(Hunk hunk, PatchConfiguration configuration, List<String> lines, int fuzz) {
+		List<Integer> shifts= new ArrayList<>();
+		for (int shift= -lines.size(); shift <= lines.size(); shift++) {
+			if (hunk.tryPatch(configuration, lines, shift, fuzz))
+				shifts.add(Integer.valueOf(shift));
+		}
+		return shifts;
+	}
+
+	private List<Integer> getNextShifts(HunkLocator locator, Hunk hunk, PatchConfiguration configuration, List<String> lines, int fuzz) {
+		List<Integer> shifts= new ArrayList<>();
+		for (int shift= locator.getNextShift(hunk, fuzz, -lines.size() - 1); shift <= lines.size(); shift= locator.getNextShift(hunk, fuzz, shift)) {
+			if (hunk.tryPatch(configuration, lines, shift, fuzz))
+				shifts.add(Integer.valueOf(shift));
+		}
+		return shifts;
+	}
+
+	private List<Integer> getPreviousShifts(HunkLocator locator, Hunk hunk, PatchConfiguration configuration, List<String> lines, int fuzz) {
+		List<Integer> shifts= new ArrayList<>();
+		for (int shift= locator.getPreviousShift(hunk, fuzz, lines.size() + 1); shift >= -lines.size(); shift= locator.getPreviousShift(hunk, fuzz, shift)) {
+			if (hunk.tryPatch(configuration, lines, shift, fuzz))
+				shifts.add(Integer.valueOf(shift));
+		}
+		Collections.reverse(shifts);
+		return shifts;
+	}
+
+	private void assertSameShifts(boolean ignoreWhitespace, boolean reversed) {
+		Random random= new Random(42);
+		for (int i= 0; i < 50; i++) {
+			List<String> lines= createLines(random, 20 + random.nextInt(40), ignoreWhitespace);
+			for (int fuzz= 0; fuzz <= 2; fuzz++) {
+				PatchConfiguration configuration= createConfiguration(fuzz, ignoreWhitespace, reversed);
+				HunkLocator locator= new HunkLocator(configuration, lines);
+				for (int j= 0; j < 5; j++) {
+					Hunk hunk= createHunk(random, null, lines, reversed);
+					List<Integer> expected= getShifts(hunk, configuration, lines, fuzz);
+					assertEquals(expected, getNextShifts(locator, hunk, configuration, lines, fuzz));
+					assertEquals(expected, getPreviousShifts(locator, hunk, configuration, lines, fuzz));
+				}
+			}
+		}
+	}
+
+	public void testShifts() {
+		assertSameShifts(false, false);
+	}
+
+	public void testShiftsIgnoringWhitespace() {
+		assertSameShifts(true, false);
+	}
+
+	public void testShiftsReversed() {
+		assertSameShifts(false, true);
+		assertSameShifts(true, true);
+	}
+
+	/*
+	 * Applies the hunks of a file patch with a shared locator, and with a new
+	 * locator for every hunk
+	 */
+	private void assertSamePatch(boolean ignoreWhitespace, boolean reversed) {
+		Random random= new Random(7);
+		for (int i= 0; i < 50; i++) {
+			List<String> lines= createLines(random, 40 + random.nextInt(40), ignoreWhitespace);
+			for (int fuzz= 0; fuzz <= 2; fuzz++) {
+				PatchConfiguration configuration= createConfiguration(fuzz, ignoreWhitespace, reversed);
+				FilePatch2 patch= new FilePatch2(new Path("file.txt"), 0, new Path("file.txt"), 0); //$NON-NLS-1$ //$NON-NLS-2$
+				for (int j= 0; j < 4; j++)
+					createHunk(random, patch, lines, reversed);
+
+				FileDiffResult result= new FileDiffResult(patch, configuration);
+				List<String> patched= new ArrayList<>(lines);
+				result.patch(patched, new NullProgressMonitor());
+
+				// the steps of FileDiffResult#patch, with a new locator for every hunk
+				FileDiffResult expectedResult= new FileDiffResult(patch, configuration);
+				IHunk[] hunks= patch.getHunks();
+				HunkResult[] hunkResults= new HunkResult[hunks.length];
+				for (int j= 0; j < hunks.length; j++)
+					hunkResults[j]= new HunkResult(expectedResult, (Hunk) hunks[j]);
+				if (fuzz != 0) {
+					List<String> before= new ArrayList<>(lines);
+					int shift= 0;
+					for (HunkResult hunkResult : hunkResults) {
+						hunkResult.setShift(shift);
+						hunkResult.calculateFuzz(before, null);
+						shift= hunkResult.getShift();
+					}
+				}
+				List<String> expected= new ArrayList<>(lines);
+				int shift= 0;
+				for (HunkResult hunkResult : hunkResults) {
+					hunkResult.setShift(shift);
+					if (hunkResult.patch(expected))
+						shift= hunkResult.getShift();
+				}
+
+				assertEquals(expected, patched);
+				HunkResult[] results= result.getHunkResults();
+				assertEquals(hunkResults.length, results.length);
+				for (int j= 0; j < hunkResults.length; j++) {
+					assertEquals(hunkResults[j].isOK(), results[j].isOK());
+					assertEquals(hunkResults[j].getShift(), results[j].getShift());
+				}
+			}
+		}
+	}
+
+	public void testPatch() {
+		assertSamePatch(false, false);
+	}
+
+	public void testPatchIgnoringWhitespace() {
+		assertSamePatch(true, false);
+	}
+
+	public void testPatchReversed() {
+		assertSamePatch(false, true);
+		assertSamePatch(true, true);
+	}
+}
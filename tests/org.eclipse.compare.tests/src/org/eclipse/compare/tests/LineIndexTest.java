@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.tests;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.compare.internal.core.LineIndex;
+import org.eclipse.compare.internal.core.TextLineLCS;
+import org.eclipse.compare.internal.core.patch.LineReader;
+
+public class LineIndexTest extends TestCase {
+
+	public LineIndexTest(String name) {
+		super(name);
+	}
+
+	public void testTextLines() {
+		assertLines(LineIndex.create(""), ""); //$NON-NLS-1$ //$NON-NLS-2$
+		assertLines(LineIndex.create("a\nb"), "a", "b"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertLines(LineIndex.create("a\r\nb\r\n"), "a", "b", ""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		assertLines(LineIndex.create("a\rb\n\rc"), "a", "b", "", "c"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+	}
+
+	public void testPatchLines() {
+		assertLinesWithDelimiter(LineIndex.create("", false)); //$NON-NLS-1$
+		assertLinesWithDelimiter(LineIndex.create("a\nb", false), "a\n", "b"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertLinesWithDelimiter(LineIndex.create("a\rb\r\n", false), "a\r", "b\r\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertLinesWithDelimiter(LineIndex.create("a\rb\r\n", true), "a\rb\r\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertLinesWithDelimiter(LineIndex.create("a\r\r", true), "a\r\r"); //$NON-NLS-1$ //$NON-NLS-2$
+		LineIndex index = LineIndex.create("a\r\r", true); //$NON-NLS-1$
+		assertEquals("a\r", index.getLine(0)); //$NON-NLS-1$
+	}
+
+	public void testLineEquals() {
+		LineIndex index1 = LineIndex.create("a\r\nb\nc"); //$NON-NLS-1$
+		LineIndex index2 = LineIndex.create("c\rb\na"); //$NON-NLS-1$
+		assertTrue(index1.lineEquals(0, index2, 2));
+		assertTrue(index1.lineEquals(1, index2, 1));
+		assertTrue(index1.lineEquals(2, index2, 0));
+		assertFalse(index1.lineEquals(0, index2, 0));
+		assertEquals(index1.getLineHash(1), index2.getLineHash(1));
+	}
+
+	public void testLineReader() {
+		String text = "[1]\r\n[2]\n\n[3]"; //$NON-NLS-1$
+		List<String> lines = LineReader.readLines(new BufferedReader(new StringReader(text)));
+		assertEquals(Arrays.asList("[1]\r\n", "[2]\n", "\n", "[3]"), lines); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+
+	public void testTextLineLCS() {
+		TextLineLCS.TextLine[] lines = TextLineLCS.getTextLines("a\nb\n"); //$NON-NLS-1$
+		assertEquals(3, lines.length);
+		assertEquals(2, lines[2].lineNumber());
+		assertTrue(lines[1].sameText(new TextLineLCS.TextLine(5, "b"))); //$NON-NLS-1$
+		assertFalse(lines[0].sameText(lines[2]));
+	}
+
+	private static void assertLines(LineIndex index, String... expected) {
+		assertEquals(expected.length, index.getLineCount());
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], index.getLine(i));
+		}
+	}
+
+	private static void assertLinesWithDelimiter(LineIndex index, String... expected) {
+		assertEquals(Arrays.asList(expected), index.getLinesWithDelimiter());
+	}
+}
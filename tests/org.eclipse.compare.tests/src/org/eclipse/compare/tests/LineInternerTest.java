@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.tests;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.eclipse.compare.rangedifferencer.IRangeComparator;
+import org.eclipse.compare.rangedifferencer.LineInterner;
+import org.eclipse.compare.rangedifferencer.RangeDifference;
+import org.eclipse.compare.rangedifferencer.RangeDifferencer;
+
+public class LineInternerTest extends TestCase {
+
+	private static class StringComparator implements IRangeComparator {
+		private final String[] fLines;
+
+		StringComparator(String[] lines) {
+			fLines= lines;
+		}
+
+		@Override
+		public int getRangeCount() {
+			return fLines.length;
+		}
+
+		@Override
+		public boolean rangesEqual(int thisIndex, IRangeComparator other, int otherIndex) {
+			return fLines[thisIndex].equals(((StringComparator) other).fLines[otherIndex]);
+		}
+
+		@Override
+		public boolean skipRangeComparison(int length, int maxLength, IRangeComparator other) {
+			return false;
+		}
+	}
+
+	public LineInternerTest(String name) {
+		super(name);
+	}
+
+	public void testDistinctLines() {
+		LineInterner interner= new LineInterner();
+		interner.intern(new String[] { "a", "b", "a" }); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		interner.intern(new String[] { "b", "c" }); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(3, interner.size());
+	}
+
+	public void testTwoWaySameAsStringComparator() {
+		Random random= new Random(42);
+		for (int i= 0; i < 200; i++) {
+			String[] left= createLines(random);
+			String[] right= createLines(random);
+			LineInterner interner= new LineInterner();
+			RangeDifference[] expected= RangeDifferencer.findDifferences(new StringComparator(left), new StringComparator(right));
+			RangeDifference[] actual= RangeDifferencer.findDifferences(interner.intern(left), interner.intern(right));
+			assertSameDifferences(expected, actual);
+		}
+	}
+
+	public void testThreeWaySameAsStringComparator() {
+		Random random= new Random(17);
+		for (int i= 0; i < 200; i++) {
+			String[] ancestor= createLines(random);
+			String[] left= createLines(random);
+			String[] right= createLines(random);
+			LineInterner interner= new LineInterner();
+			RangeDifference[] expected= RangeDifferencer.findRanges(new StringComparator(ancestor), new StringComparator(left), new StringComparator(right));
+			RangeDifference[] actual= RangeDifferencer.findRanges(interner.intern(ancestor), interner.intern(left), interner.intern(right));
+			assertSameDifferences(expected, actual);
+		}
+	}
+
+	public void testDifferentInterners() {
+		String[] left= { "a", "b", "c" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		String[] right= { "x", "a", "c" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		RangeDifference[] expected= RangeDifferencer.findDifferences(new StringComparator(left), new StringComparator(right));
+		RangeDifference[] actual= RangeDifferencer.findDifferences(new LineInterner().intern(left), new LineInterner().intern(right));
+		assertSameDifferences(expected, actual);
+	}
+
+	public void testOtherComparator() {
+		String[] lines= { "a", "b" }; //$NON-NLS-1$ //$NON-NLS-2$
+		IRangeComparator interned= new LineInterner().intern(lines);
+		// the lines of other comparators are not known, even if they are the same
+		assertFalse(interned.rangesEqual(0, new StringComparator(lines), 0));
+		assertTrue(interned.rangesEqual(0, new LineInterner().intern(lines), 0));
+		assertFalse(interned.rangesEqual(0, new LineInterner().intern(lines), 1));
+	}
+
+	private static String[] createLines(Random random) {
+		String[] lines= new String[random.nextInt(50)];
+		for (int i= 0; i < lines.length; i++) {
+			lines[i]= "line " + random.nextInt(8); //$NON-NLS-1$
+		}
+		return lines;
+	}
+
+	private static void assertSameDifferences(RangeDifference[] expected, RangeDifference[] actual) {
+		assertEquals(expected.length, actual.length);
+		for (int i= 0; i < expected.length; i++) {
+			assertEquals(expected[i], actual[i]);
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -23,6 +23,7 @@ import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 
 import org.eclipse.compare.internal.core.patch.*;
+import org.eclipse.compare.internal.patch.Utilities;
 import org.eclipse.compare.internal.patch.WorkspacePatcher;
 import org.eclipse.compare.patch.*;
 import org.eclipse.compare.tests.PatchUtils.*;
@@ -137,6 +138,97 @@ public class PatchTest extends TestCase {
 		assertFalse(IFilePatch.DATE_UNKNOWN == patches[0].getAfterDate());
 	}
 
+	public void testStreamingParse() throws CoreException {
+		String[] patchNames = { "patch_context3_header.txt", "patch_workspacePatchMod.txt" }; //$NON-NLS-1$ //$NON-NLS-2$
+		for (String patchName : patchNames) {
+			ReaderCreator content = Utilities.getReaderCreator(new StringStorage(patchName));
+			IFilePatch2[] expected = PatchParser.parsePatch(content);
+			List<IFilePatch2> actual = new ArrayList<>();
+			PatchParser.parsePatch(content, actual::add);
+			assertEquals(expected.length, actual.size());
+			for (int i = 0; i < expected.length; i++) {
+				PatchConfiguration configuration = new PatchConfiguration();
+				assertEquals(expected[i].getTargetPath(configuration), actual.get(i).getTargetPath(configuration));
+				assertEquals(expected[i].getHeader(), actual.get(i).getHeader());
+				IHunk[] expectedHunks = expected[i].getHunks();
+				IHunk[] actualHunks = actual.get(i).getHunks();
+				assertEquals(expectedHunks.length, actualHunks.length);
+				for (int j = 0; j < expectedHunks.length; j++) {
+					assertEquals(Arrays.asList(((Hunk) expectedHunks[j]).getLines()), Arrays.asList(((Hunk) actualHunks[j]).getLines()));
+				}
+			}
+		}
+	}
+
+	public void testStreamingParseTrailingHeader() throws CoreException {
+		// the last sections have a header but no file patch
+		final String patch = "Index: a.txt\n--- a.txt\n+++ a.txt\n@@ -1 +1 @@\n-a\n+b\n" //$NON-NLS-1$
+				+ "Index: b.txt\n--- b.txt\nIndex: c.txt\n*** c.txt\n"; //$NON-NLS-1$
+		ReaderCreator content = new ReaderCreator() {
+			public Reader createReader() {
+				return new StringReader(patch);
+			}
+		};
+		List<IFilePatch2> actual = new ArrayList<>();
+		PatchParser.parsePatch(content, actual::add);
+		assertEquals(1, actual.size());
+		assertEquals("Index: a.txt\n", actual.get(0).getHeader()); //$NON-NLS-1$
+		assertEquals(1, PatchParser.parsePatch(content).length);
+	}
+
+	public void testApplyPatches() throws CoreException, IOException {
+		IFilePatch2[] filePatches = new IFilePatch2[20];
+		ReaderCreator[] contents = new ReaderCreator[filePatches.length];
+		for (int i = 0; i < filePatches.length; i++) {
+			filePatches[i] = ApplyPatchOperation.parsePatch(new StringStorage("patch_context3.txt"))[0]; //$NON-NLS-1$
+			contents[i] = Utilities.getReaderCreator(new StringStorage("context.txt")); //$NON-NLS-1$
+		}
+		PatchConfiguration configuration = new PatchConfiguration();
+		List<IFilePatchResult> committed = new ArrayList<>();
+		PatchApplier.applyPatches(filePatches, contents, configuration,
+				(filePatch, result, monitor) -> {
+					assertSame(filePatches[committed.size()], filePatch);
+					committed.add(result);
+				}, new NullProgressMonitor());
+
+		assertEquals(filePatches.length, committed.size());
+		String expected = LineReader.createString(false, new LineReader(PatchUtils.getReader("exp_context.txt")).readLines()); //$NON-NLS-1$
+		for (IFilePatchResult result : committed) {
+			assertFalse(result.hasRejects());
+			assertEquals(expected, PatchUtils.asString(result.getPatchedContents()));
+		}
+
+		IFilePatchResult[] results = PatchApplier.applyPatches(filePatches, contents, configuration, new NullProgressMonitor());
+		assertEquals(filePatches.length, results.length);
+		for (IFilePatchResult result : results) {
+			assertFalse(result.hasRejects());
+			assertEquals(expected, PatchUtils.asString(result.getPatchedContents()));
+		}
+	}
+
+	public void testApplyPatchesCanceled() throws CoreException {
+		IFilePatch2[] filePatches = new IFilePatch2[20];
+		ReaderCreator[] contents = new ReaderCreator[filePatches.length];
+		for (int i = 0; i < filePatches.length; i++) {
+			filePatches[i] = ApplyPatchOperation.parsePatch(new StringStorage("patch_context3.txt"))[0]; //$NON-NLS-1$
+			contents[i] = Utilities.getReaderCreator(new StringStorage("context.txt")); //$NON-NLS-1$
+		}
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		List<IFilePatch2> committed = new ArrayList<>();
+		try {
+			PatchApplier.applyPatches(filePatches, contents, new PatchConfiguration(),
+					(filePatch, result, m) -> {
+						committed.add(filePatch);
+						if (committed.size() == 3)
+							monitor.setCanceled(true);
+					}, monitor);
+			fail("The monitor was canceled"); //$NON-NLS-1$
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+		assertEquals(3, committed.size());
+	}
+
 	//Test creation of new workspace patch
 	public void testWorkspacePatch_Create(){
 		//Note the order that exists in the array of expected results is based purely on the order of the files in the patch
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 IBM Corporation and others.
+ * Copyright (c) 2010, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,6 +13,9 @@
  *******************************************************************************/
 package org.eclipse.compare.tests;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import junit.framework.TestCase;
 
 import org.eclipse.compare.contentmergeviewer.ITokenComparator;
@@ -20,6 +23,7 @@ import org.eclipse.compare.internal.DocLineComparator;
 import org.eclipse.compare.rangedifferencer.RangeDifference;
 import org.eclipse.compare.rangedifferencer.RangeDifferencer;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.jface.text.Document;
 
 
@@ -125,6 +129,45 @@ public class RangeDifferencerThreeWayDiffTest extends TestCase {
 		assertEquals(RangeDifference.RIGHT, diffs[2].kind());
 	}
 
+	public void testParallelSameAsSequential() {
+		String a = "A" + S + "B" + S + "C" + S + "D" + S + "E" + S + "F"; //$NON-NLS-1$
+		String l = "A" + S + "x" + S + "C" + S + "D" + S + "E" + S + "f1"; //$NON-NLS-1$
+		String r = "A" + S + "B" + S + "y" + S + "D" + S + "f2"; //$NON-NLS-1$
+		ITokenComparator ancestor= new DocLineComparator(new Document(a), null, false);
+		ITokenComparator left= new DocLineComparator(new Document(l), null, false);
+		ITokenComparator right= new DocLineComparator(new Document(r), null, false);
+
+		RangeDifference[] expected= RangeDifferencer.findRanges(new NullProgressMonitor(), ancestor, left, right);
+		ExecutorService executor= Executors.newSingleThreadExecutor();
+		try {
+			RangeDifference[] actual= RangeDifferencer.findRanges(new NullProgressMonitor(), executor, ancestor, left, right);
+			assertEquals(expected.length, actual.length);
+			for (int i= 0; i < expected.length; i++) {
+				assertEquals(expected[i], actual[i]);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testParallelCanceled() {
+		String a = "A" + S + "B"; //$NON-NLS-1$
+		String l = "A" + S + "x"; //$NON-NLS-1$
+		String r = "y" + S + "B"; //$NON-NLS-1$
+		ITokenComparator ancestor= new DocLineComparator(new Document(a), null, false);
+		ITokenComparator left= new DocLineComparator(new Document(l), null, false);
+		ITokenComparator right= new DocLineComparator(new Document(r), null, false);
+
+		NullProgressMonitor monitor= new NullProgressMonitor();
+		monitor.setCanceled(true);
+		try {
+			RangeDifferencer.findRanges(monitor, Runnable::run, ancestor, left, right);
+			fail("Expected OperationCanceledException"); //$NON-NLS-1$
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+	}
+
 	private RangeDifference[] findRange(String a, String l, String r) {
 		ITokenComparator ancestor= new DocLineComparator(new Document(a), null, false);
 		ITokenComparator left= new DocLineComparator(new Document(l), null, false);
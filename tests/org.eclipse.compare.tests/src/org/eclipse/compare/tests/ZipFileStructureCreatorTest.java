@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.compare.IStreamContentAccessor;
+import org.eclipse.compare.ITypedElement;
+import org.eclipse.compare.ZipFileStructureCreator;
+import org.eclipse.compare.internal.BufferedResourceNode;
+import org.eclipse.compare.internal.IChecksumContentAccessor;
+import org.eclipse.compare.structuremergeviewer.Differencer;
+import org.eclipse.compare.structuremergeviewer.IStructureComparator;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+public class ZipFileStructureCreatorTest extends WorkspaceTest {
+
+	/*
+	 * Records the paths of the differences
+	 */
+	private static class RecordingDifferencer extends Differencer {
+		final StringBuilder result= new StringBuilder();
+
+		@Override
+		protected Object visit(Object data, int kind, Object ancestor, Object left, Object right) {
+			ITypedElement element= (ITypedElement) (left != null ? left : right);
+			String path= (data == null ? "" : (String) data) + '/' + element.getName(); //$NON-NLS-1$
+			if (!ITypedElement.FOLDER_TYPE.equals(element.getType()))
+				this.result.append(path).append(' ').append(kind).append('\n');
+			return path;
+		}
+	}
+
+	private final ZipFileStructureCreator creator= new ZipFileStructureCreator();
+
+	public ZipFileStructureCreatorTest() {
+		super();
+	}
+
+	public ZipFileStructureCreatorTest(String name) {
+		super(name);
+	}
+
+	private IFile createArchive(IProject project, String name, String... entries) throws CoreException, IOException {
+		ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+		try (ZipOutputStream out= new ZipOutputStream(bytes)) {
+			for (int i= 0; i < entries.length; i+= 2) {
+				out.putNextEntry(new ZipEntry(entries[i]));
+				if (entries[i + 1] != null)
+					out.write(entries[i + 1].getBytes());
+				out.closeEntry();
+			}
+		}
+		IFile file= project.getFile(name);
+		file.create(new ByteArrayInputStream(bytes.toByteArray()), true, null);
+		return file;
+	}
+
+	/*
+	 * Returns the paths and contents of the leaves of the given structure
+	 */
+	private String dump(Object node, String path) throws CoreException {
+		StringBuilder result= new StringBuilder();
+		String name= path + '/' + ((ITypedElement) node).getName();
+		Object[] children= ((IStructureComparator) node).getChildren();
+		if (children == null) {
+			result.append(name).append('=').append(this.creator.getContents(node, false)).append('\n');
+		} else {
+			for (Object child : children)
+				result.append(dump(child, name));
+		}
+		return result.toString();
+	}
+
+	public void testLocalArchive() throws Exception {
+		IFile file= createArchive(getUniqueTestProject(getName()), "archive.zip", //$NON-NLS-1$
+				"a.txt", "first", "folder/b.txt", "second", "folder/sub/c.txt", "", "folder/empty/", null); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
+
+		// the local archive is read from its central directory
+		IStructureComparator local= this.creator.getStructure(new BufferedResourceNode(file));
+		IStreamContentAccessor stream= () -> file.getContents();
+		IStructureComparator streamed= this.creator.getStructure(stream);
+		assertNotNull(local);
+		assertEquals(dump(streamed, ""), dump(local, "")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		Object[] children= local.getChildren();
+		IChecksumContentAccessor entry= null;
+		for (Object child : children) {
+			if (((ITypedElement) child).getName().equals("a.txt")) //$NON-NLS-1$
+				entry= (IChecksumContentAccessor) child;
+		}
+		assertNotNull(entry);
+		CRC32 crc= new CRC32();
+		crc.update("first".getBytes()); //$NON-NLS-1$
+		assertEquals(5, entry.getSize());
+		assertEquals(crc.getValue(), entry.getChecksum());
+	}
+
+	public void testEntriesAreComparedByChecksum() throws Exception {
+		IProject project= getUniqueTestProject(getName());
+		IFile left= createArchive(project, "left.zip", //$NON-NLS-1$
+				"same.txt", "contents", "changed.txt", "ab", "folder/same.txt", "more contents"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+		IFile right= createArchive(project, "right.zip", //$NON-NLS-1$
+				"same.txt", "contents", "changed.txt", "ba", "folder/same.txt", "more contents"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+		IStructureComparator leftStructure= this.creator.getStructure(new BufferedResourceNode(left));
+		IStructureComparator rightStructure= this.creator.getStructure(new BufferedResourceNode(right));
+
+		// the entries are compared without reading them from the archives,
+		// entries of the same size are told apart by their checksum
+		left.delete(true, null);
+		right.delete(true, null);
+		RecordingDifferencer differencer= new RecordingDifferencer();
+		differencer.findDifferences(false, new NullProgressMonitor(), null, null, leftStructure, rightStructure);
+		assertEquals("//changed.txt " + Differencer.CHANGE + '\n', differencer.result.toString()); //$NON-NLS-1$
+	}
+}
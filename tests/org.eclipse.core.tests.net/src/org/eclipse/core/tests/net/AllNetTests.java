@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2017 IBM Corporation and others.
+ * Copyright (c) 2007, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -19,7 +19,7 @@ import org.junit.runners.Suite;
 import junit.framework.*;
 
 @RunWith(Suite.class)
-@Suite.SuiteClasses({ NetTest.class, PreferenceModifyListenerTest.class })
+@Suite.SuiteClasses({ NetTest.class, PreferenceModifyListenerTest.class, NonProxiedHostsMatcherTest.class })
 public class AllNetTests extends TestCase {
 
 }
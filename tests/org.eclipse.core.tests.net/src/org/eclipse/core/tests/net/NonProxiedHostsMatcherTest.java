@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.core.internal.net.NonProxiedHostsMatcher;
+import org.eclipse.core.internal.net.StringUtil;
+import org.junit.Test;
+
+public class NonProxiedHostsMatcherTest {
+
+	@Test
+	public void testSuffixes() {
+		NonProxiedHostsMatcher matcher = new NonProxiedHostsMatcher(
+				new String[] { "ignore.com", "*.eclipse.org", "localhost" });
+		assertTrue(matcher.matches("ignore.com"));
+		assertTrue(matcher.matches("www.IGNORE.com"));
+		assertTrue(matcher.matches("download.eclipse.org"));
+		assertTrue(matcher.matches("localhost"));
+		assertFalse(matcher.matches("eclipse.org"));
+		assertFalse(matcher.matches("ignore.com.randomhost.com"));
+		assertFalse(matcher.matches(""));
+		assertFalse(matcher.matches(null));
+	}
+
+	@Test
+	public void testWildcards() {
+		NonProxiedHostsMatcher matcher = new NonProxiedHostsMatcher(new String[] { "192.168.*", "host?.com" });
+		assertTrue(matcher.matches("192.168.0.1"));
+		assertTrue(matcher.matches("host1.com"));
+		assertFalse(matcher.matches("host.com"));
+		assertTrue(new NonProxiedHostsMatcher(new String[] { "*" }).matches("anyhost"));
+	}
+
+	@Test
+	public void testAddressRanges() {
+		NonProxiedHostsMatcher matcher = new NonProxiedHostsMatcher(
+				new String[] { "10.0.0.0/8", "172.16.0.0/12", "fd00::/8" });
+		assertTrue(matcher.matches("10.1.2.3"));
+		assertTrue(matcher.matches("172.31.255.255"));
+		assertFalse(matcher.matches("172.32.0.1"));
+		assertFalse(matcher.matches("11.0.0.1"));
+		assertTrue(matcher.matches("[fd12:3456::1]"));
+		assertFalse(matcher.matches("[fe80::1]"));
+		assertFalse(matcher.matches("10.example.com"));
+	}
+
+	@Test
+	public void testSameAsHostMatchesFilter() {
+		String[] filters = { "ignore.com", "*.eclipse.org", "127.0.0.1", "*local", "h*t.org", "a?c" };
+		String[] hosts = { "ignore.com", "Xignore.com", "www.eclipse.org", "eclipse.org", "127.0.0.1",
+				"1127.0.0.1", "mylocal", "host.org", "ht.org", "abc", "ac", "" };
+		for (String filter : filters) {
+			NonProxiedHostsMatcher matcher = new NonProxiedHostsMatcher(new String[] { filter });
+			for (String host : hosts) {
+				assertEquals(filter + " " + host, StringUtil.hostMatchesFilter(host, filter), matcher.matches(host));
+			}
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -39,7 +39,12 @@ public class AllTeamTests extends ResourceTest {
 		TestSuite suite = new TestSuite();
 		suite.addTest(RepositoryProviderTests.suite());
 		suite.addTest(StreamTests.suite());
+		suite.addTest(PathTreeTests.suite());
+		suite.addTest(ResourceVariantCacheTests.suite());
 		suite.addTest(StorageMergerTests.suite());
+		suite.addTest(ContentComparisonCacheTests.suite());
+		suite.addTest(ThreeWaySynchronizerTests.suite());
+		suite.addTest(ChannelStreamTests.suite());
 		suite.addTest(org.eclipse.team.tests.core.regression.AllTests.suite());
 		return suite;
 	}
@@ -0,0 +1,265 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.team.internal.core.streams.ChannelInputStream;
+import org.eclipse.team.internal.core.streams.ChannelOutputStream;
+import org.eclipse.team.internal.core.streams.ChannelSelector;
+
+/**
+ * Tests the streams of non-blocking socket channels against a local server.
+ */
+public class ChannelStreamTests extends TestCase {
+
+	private ServerSocketChannel server;
+	private SocketChannel client;
+	// the server side of the connection, in blocking mode
+	private SocketChannel peer;
+
+	public ChannelStreamTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(ChannelStreamTests.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		client = SocketChannel.open(server.getLocalAddress());
+		peer = server.accept();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		client.close();
+		peer.close();
+		server.close();
+		super.tearDown();
+	}
+
+	/*
+	 * Cancels the monitor after the given delay
+	 */
+	private void cancelLater(final IProgressMonitor monitor, final long delay) {
+		new Thread(() -> {
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				// Ignore
+			}
+			monitor.setCanceled(true);
+		}).start();
+	}
+
+	private int drain(SocketChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(65536);
+		int total = 0;
+		int n;
+		while ((n = channel.read(buffer)) >= 0) {
+			total += n;
+			buffer.clear();
+		}
+		return total;
+	}
+
+	public void testReadAndWrite() throws IOException {
+		IProgressMonitor monitor = new NullProgressMonitor();
+		try (InputStream in = new ChannelInputStream(client, 5000, monitor);
+				OutputStream out = new ChannelOutputStream(client, 5000, monitor)) {
+			assertFalse(client.isBlocking());
+			out.write("request\n".getBytes());
+			ByteBuffer request = ByteBuffer.allocate(8);
+			while (request.hasRemaining()) {
+				peer.read(request);
+			}
+			assertEquals("request\n", new String(request.array()));
+
+			peer.write(ByteBuffer.wrap("response".getBytes()));
+			byte[] response = new byte[8];
+			int offset = 0;
+			while (offset < response.length) {
+				int n = in.read(response, offset, response.length - offset);
+				assertTrue(n > 0);
+				offset += n;
+			}
+			assertEquals("response", new String(response));
+		}
+	}
+
+	public void testReadEndOfStream() throws IOException {
+		peer.write(ByteBuffer.wrap("x".getBytes()));
+		peer.shutdownOutput();
+		try (InputStream in = new ChannelInputStream(client, 5000, new NullProgressMonitor())) {
+			assertEquals('x', in.read());
+			assertEquals(-1, in.read());
+			assertEquals(-1, in.read(new byte[10], 0, 10));
+		}
+	}
+
+	public void testReadTimeout() throws IOException {
+		try (InputStream in = new ChannelInputStream(client, 300, new NullProgressMonitor())) {
+			long start = System.currentTimeMillis();
+			try {
+				in.read();
+				fail("The read should have timed out");
+			} catch (InterruptedIOException e) {
+				// expected
+			}
+			assertTrue(System.currentTimeMillis() - start >= 250);
+
+			// the stream can be read after a timeout
+			peer.write(ByteBuffer.wrap("x".getBytes()));
+			assertEquals('x', in.read());
+		}
+	}
+
+	public void testReadCanceled() throws IOException {
+		IProgressMonitor monitor = new NullProgressMonitor();
+		try (InputStream in = new ChannelInputStream(client, 0, monitor)) {
+			cancelLater(monitor, 200);
+			try {
+				in.read();
+				fail("The read should have been canceled");
+			} catch (OperationCanceledException e) {
+				// expected
+			}
+			// a canceled monitor is checked before the data that is available
+			peer.write(ByteBuffer.wrap("x".getBytes()));
+			try {
+				in.read();
+				fail("The read should have been canceled");
+			} catch (OperationCanceledException e) {
+				// expected
+			}
+		}
+	}
+
+	public void testPartialWriteTimeout() throws IOException {
+		// the server does not read, so the write fills the socket buffers and stalls
+		byte[] data = new byte[64 * 1024 * 1024];
+		try (OutputStream out = new ChannelOutputStream(client, 300, new NullProgressMonitor())) {
+			try {
+				out.write(data, 0, data.length);
+				fail("The write should have timed out");
+			} catch (InterruptedIOException e) {
+				assertTrue(e.bytesTransferred > 0);
+				assertTrue(e.bytesTransferred < data.length);
+				// exactly the transferred bytes reach the server
+				client.shutdownOutput();
+				assertEquals(e.bytesTransferred, drain(peer));
+			}
+		}
+	}
+
+	public void testWriteCanceled() throws IOException {
+		IProgressMonitor monitor = new NullProgressMonitor();
+		byte[] data = new byte[64 * 1024 * 1024];
+		try (OutputStream out = new ChannelOutputStream(client, 0, monitor)) {
+			cancelLater(monitor, 200);
+			try {
+				out.write(data, 0, data.length);
+				fail("The write should have been canceled");
+			} catch (OperationCanceledException e) {
+				// expected
+			}
+		}
+	}
+
+	public void testSlowReaderDoesNotTimeOut() throws Exception {
+		// the timeout applies to a write that makes no progress, not to the whole write
+		final byte[] data = new byte[8 * 1024 * 1024];
+		final int[] received = new int[1];
+		Thread reader = new Thread(() -> {
+			ByteBuffer buffer = ByteBuffer.allocate(256 * 1024);
+			try {
+				int n;
+				while ((n = peer.read(buffer)) >= 0) {
+					received[0] += n;
+					buffer.clear();
+					Thread.sleep(10);
+				}
+			} catch (IOException | InterruptedException e) {
+				// The test fails on the number of bytes
+			}
+		});
+		reader.start();
+		try (OutputStream out = new ChannelOutputStream(client, 1000, new NullProgressMonitor())) {
+			out.write(data, 0, data.length);
+			client.shutdownOutput();
+		}
+		reader.join(30000);
+		assertEquals(data.length, received[0]);
+	}
+
+	public void testSelector() throws IOException {
+		IProgressMonitor monitor = new NullProgressMonitor();
+		ChannelSelector selector = new ChannelSelector(client, SelectionKey.OP_READ, 300, monitor);
+		try {
+			assertFalse(client.isBlocking());
+			// each select waits for at most one poll interval
+			long deadline = selector.getDeadline();
+			long start = System.currentTimeMillis();
+			selector.select(deadline, "timeout");
+			assertTrue(System.currentTimeMillis() - start < 300);
+			try {
+				for (;;) {
+					selector.select(deadline, "timeout");
+				}
+			} catch (InterruptedIOException e) {
+				assertEquals("timeout", e.getMessage());
+			}
+
+			// a ready channel does not wait
+			peer.write(ByteBuffer.wrap("x".getBytes()));
+			start = System.currentTimeMillis();
+			selector.select(selector.getDeadline(), "timeout");
+			assertTrue(System.currentTimeMillis() - start < 100);
+
+			selector.checkCanceled();
+			monitor.setCanceled(true);
+			try {
+				selector.select(selector.getDeadline(), "timeout");
+				fail("The select should have been canceled");
+			} catch (OperationCanceledException e) {
+				// expected
+			}
+		} finally {
+			selector.close();
+		}
+		// the channel stays open
+		assertTrue(client.isOpen());
+	}
+}
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.core;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IStorage;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.team.core.diff.DiffFilter;
+import org.eclipse.team.core.diff.IDiff;
+import org.eclipse.team.core.diff.provider.TwoWayDiff;
+import org.eclipse.team.core.history.IFileRevision;
+import org.eclipse.team.core.history.provider.FileRevision;
+import org.eclipse.team.internal.core.subscribers.ContentComparisonCache;
+import org.eclipse.team.internal.core.subscribers.SubscriberDiffTreeEventHandler;
+
+public class ContentComparisonCacheTests extends TeamTest {
+
+	/*
+	 * A remote revision that only has a content identifier
+	 */
+	private static class TestRevision extends FileRevision {
+		private final String contentIdentifier;
+
+		TestRevision(String contentIdentifier) {
+			this.contentIdentifier = contentIdentifier;
+		}
+
+		@Override
+		public String getContentIdentifier() {
+			return contentIdentifier;
+		}
+
+		@Override
+		public IStorage getStorage(IProgressMonitor monitor) {
+			return null;
+		}
+
+		@Override
+		public String getName() {
+			return "file.txt";
+		}
+
+		@Override
+		public boolean isPropertyMissing() {
+			return false;
+		}
+
+		@Override
+		public IFileRevision withAllProperties(IProgressMonitor monitor) {
+			return this;
+		}
+	}
+
+	public ContentComparisonCacheTests() {
+		super();
+	}
+
+	public ContentComparisonCacheTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(ContentComparisonCacheTests.class);
+	}
+
+	private IFile createFile(IProject project, String name) throws Exception {
+		IFile file = project.getFile(name);
+		file.create(new ByteArrayInputStream("contents".getBytes()), true, null);
+		return file;
+	}
+
+	public void testCacheHit() throws Exception {
+		IFile file = createFile(getUniqueTestProject(getName()), "file.txt");
+		ContentComparisonCache cache = new ContentComparisonCache();
+		assertNull(cache.get(file, new TestRevision("1.1")));
+
+		cache.put(file, file.getModificationStamp(), new TestRevision("1.1"), true);
+		assertEquals(Boolean.TRUE, cache.get(file, new TestRevision("1.1")));
+		cache.put(file, file.getModificationStamp(), new TestRevision("1.1"), false);
+		assertEquals(Boolean.FALSE, cache.get(file, new TestRevision("1.1")));
+	}
+
+	public void testInvalidation() throws Exception {
+		IFile file = createFile(getUniqueTestProject(getName()), "file.txt");
+		ContentComparisonCache cache = new ContentComparisonCache();
+
+		// a new remote revision invalidates the result
+		cache.put(file, file.getModificationStamp(), new TestRevision("1.1"), true);
+		assertNull(cache.get(file, new TestRevision("1.2")));
+		assertEquals(0, cache.size());
+
+		// a change of the local file invalidates the result
+		cache.put(file, file.getModificationStamp(), new TestRevision("1.1"), true);
+		file.setContents(new ByteArrayInputStream("changed".getBytes()), true, false, null);
+		assertNull(cache.get(file, new TestRevision("1.1")));
+		assertEquals(0, cache.size());
+
+		// a change during the comparison is not missed
+		long stamp = file.getModificationStamp();
+		file.setContents(new ByteArrayInputStream("changed again".getBytes()), true, false, null);
+		cache.put(file, stamp, new TestRevision("1.1"), true);
+		assertNull(cache.get(file, new TestRevision("1.1")));
+
+		// revisions without a content identifier are not cached
+		cache.put(file, file.getModificationStamp(), new TestRevision(null), true);
+		assertEquals(0, cache.size());
+
+		cache.put(file, file.getModificationStamp(), new TestRevision("1.1"), true);
+		cache.clear();
+		assertNull(cache.get(file, new TestRevision("1.1")));
+	}
+
+	public void testCacheIsBounded() throws Exception {
+		IProject project = getUniqueTestProject(getName());
+		IFile file = createFile(project, "file.txt");
+		ContentComparisonCache cache = new ContentComparisonCache();
+		cache.put(file, file.getModificationStamp(), new TestRevision("1.1"), true);
+		for (int i = 0; i < ContentComparisonCache.MAX_ENTRIES; i++) {
+			// the files do not need to exist to be cached
+			cache.put(project.getFile("file" + i), i + 1, new TestRevision("1.1"), true);
+		}
+		assertEquals(ContentComparisonCache.MAX_ENTRIES, cache.size());
+		// the least recently used result was dropped
+		assertNull(cache.get(file, new TestRevision("1.1")));
+	}
+
+	public void testParallelSelectionOrder() {
+		IDiff[] diffs = new IDiff[200];
+		for (int i = 0; i < diffs.length; i++) {
+			diffs[i] = new TwoWayDiff(new Path("/project/file" + i), IDiff.CHANGE, 0);
+		}
+		final Random random = new Random(7);
+		DiffFilter filter = new DiffFilter() {
+			@Override
+			public boolean select(IDiff diff, IProgressMonitor monitor) {
+				int delay;
+				synchronized (random) {
+					delay = random.nextInt(3);
+				}
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				int index = Integer.parseInt(diff.getPath().lastSegment().substring("file".length()));
+				return index % 3 == 0;
+			}
+		};
+		boolean[] selected = SubscriberDiffTreeEventHandler.select(filter, diffs, new NullProgressMonitor());
+		assertEquals(diffs.length, selected.length);
+		for (int i = 0; i < selected.length; i++) {
+			assertEquals(diffs[i].getPath().toString(), i % 3 == 0, selected[i]);
+		}
+	}
+
+	public void testParallelSelectionCanceled() {
+		IDiff[] diffs = new IDiff[20];
+		for (int i = 0; i < diffs.length; i++) {
+			diffs[i] = new TwoWayDiff(new Path("/project/file" + i), IDiff.CHANGE, 0);
+		}
+		DiffFilter filter = new DiffFilter() {
+			@Override
+			public boolean select(IDiff diff, IProgressMonitor monitor) {
+				if (monitor.isCanceled())
+					throw new OperationCanceledException();
+				return true;
+			}
+		};
+		IProgressMonitor monitor = new NullProgressMonitor();
+		monitor.setCanceled(true);
+		try {
+			SubscriberDiffTreeEventHandler.select(filter, diffs, monitor);
+			fail("The selection should have been canceled");
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.core;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.team.internal.core.mapping.PathTree;
+
+public class PathTreeTests extends TestCase {
+
+	public PathTreeTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(PathTreeTests.class);
+	}
+
+	public void testChildren() {
+		PathTree tree = new PathTree();
+		tree.put(new Path("/p/a/b/c.txt"), "c");
+		tree.put(new Path("/p/a/d.txt"), "d");
+		tree.put(new Path("/p/e.txt"), "e");
+
+		assertEquals(3, tree.size());
+		assertTrue(tree.hasChildren(new Path("/p/a")));
+		assertFalse(tree.hasChildren(new Path("/p/e.txt")));
+		assertEquals(asSet("/p/a/b", "/p/a/d.txt"), asSet(tree.getChildren(new Path("/p/a"))));
+		assertEquals(asSet("/p/a", "/p/e.txt"), asSet(tree.getChildren(new Path("/p"))));
+		assertEquals(asSet("/p/a/b/c.txt", "/p/a/d.txt", "/p/e.txt"), asSet(tree.getPaths()));
+	}
+
+	public void testRemove() {
+		PathTree tree = new PathTree();
+		tree.put(new Path("/p/a/b/c.txt"), "c");
+		tree.put(new Path("/p/a"), "a");
+
+		assertEquals("c", tree.remove(new Path("/p/a/b/c.txt")));
+		assertNull(tree.remove(new Path("/p/a/b")));
+		assertEquals(0, tree.getChildren(new Path("/p/a")).length);
+		assertEquals("a", tree.get(new Path("/p/a")));
+
+		assertEquals("a", tree.remove(new Path("/p/a")));
+		assertTrue(tree.isEmpty());
+		assertEquals(0, tree.size());
+	}
+
+	public void testPutNull() {
+		PathTree tree = new PathTree();
+		tree.put(new Path("/p/a/b.txt"), "b");
+		tree.put(new Path("/p/c.txt"), "c");
+
+		// putting null removes the object
+		assertEquals("b", tree.put(new Path("/p/a/b.txt"), null));
+		assertNull(tree.get(new Path("/p/a/b.txt")));
+		assertEquals(1, tree.size());
+		assertEquals(asSet("/p/c.txt"), asSet(tree.getPaths()));
+		assertEquals(asSet("/p/c.txt"), asSet(tree.getChildren(new Path("/p"))));
+		assertFalse(tree.hasChildren(new Path("/p/a")));
+
+		// putting null at a path without an object does not add the path
+		assertNull(tree.put(new Path("/p/d/e.txt"), null));
+		assertEquals(1, tree.size());
+		assertEquals(asSet("/p/c.txt"), asSet(tree.getChildren(new Path("/p"))));
+
+		assertEquals("c", tree.put(new Path("/p/c.txt"), null));
+		assertTrue(tree.isEmpty());
+	}
+
+	public void testPropagatedProperty() {
+		PathTree tree = new PathTree();
+		tree.put(new Path("/p/a/b.txt"), "b");
+		tree.put(new Path("/p/a/c.txt"), "c");
+
+		IPath[] changed = tree.setPropogatedProperty(new Path("/p/a/b.txt"), 1, true);
+		assertEquals(asSet("/p", "/p/a", "/p/a/b.txt"), asSet(changed));
+		changed = tree.setPropogatedProperty(new Path("/p/a/c.txt"), 1, true);
+		assertEquals(asSet("/p/a/c.txt"), asSet(changed));
+
+		// the parents keep the property as long as a descendant has it
+		changed = tree.setPropogatedProperty(new Path("/p/a/b.txt"), 1, false);
+		assertEquals(asSet("/p/a/b.txt"), asSet(changed));
+		assertTrue(tree.getProperty(new Path("/p/a"), 1));
+		changed = tree.setPropogatedProperty(new Path("/p/a/c.txt"), 1, false);
+		assertEquals(asSet("/p", "/p/a", "/p/a/c.txt"), asSet(changed));
+		assertFalse(tree.getProperty(new Path("/p"), 1));
+	}
+
+	private Set<IPath> asSet(IPath[] paths) {
+		return new HashSet<>(Arrays.asList(paths));
+	}
+
+	private Set<IPath> asSet(String... paths) {
+		Set<IPath> result = new HashSet<>();
+		for (String path : paths) {
+			result.add(new Path(path));
+		}
+		return result;
+	}
+}
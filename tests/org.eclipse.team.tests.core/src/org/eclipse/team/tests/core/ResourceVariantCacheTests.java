@@ -0,0 +1,318 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+import org.eclipse.team.core.TeamException;
+import org.eclipse.team.internal.core.ResourceVariantCache;
+import org.eclipse.team.internal.core.ResourceVariantCacheEntry;
+import org.eclipse.team.internal.core.TeamPlugin;
+
+public class ResourceVariantCacheTests extends TestCase {
+
+	private static final String CACHE_ID = "org.eclipse.team.tests.core.cache";
+
+	/*
+	 * A stream that provides its contents and then blocks until it is released
+	 */
+	private static class BlockingInputStream extends InputStream {
+		final CountDownLatch reading = new CountDownLatch(1);
+		final CountDownLatch released = new CountDownLatch(1);
+		private final byte[] contents;
+		private int position;
+
+		BlockingInputStream(String contents) {
+			this.contents = contents.getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (position < contents.length) {
+				return contents[position++] & 0xFF;
+			}
+			reading.countDown();
+			try {
+				released.await();
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			}
+			return -1;
+		}
+	}
+
+	public ResourceVariantCacheTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(ResourceVariantCacheTests.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		ResourceVariantCache.disableCache(CACHE_ID);
+		ResourceVariantCache.enableCaching(CACHE_ID);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		ResourceVariantCache.disableCache(CACHE_ID);
+		InstanceScope.INSTANCE.getNode(TeamPlugin.ID).remove(ResourceVariantCache.PREF_CACHE_SIZE);
+		super.tearDown();
+	}
+
+	private ResourceVariantCache getCache() {
+		return ResourceVariantCache.getCache(CACHE_ID);
+	}
+
+	private ResourceVariantCacheEntry addEntry(String id, String contents) throws TeamException {
+		ResourceVariantCacheEntry entry = getCache().add(id, null);
+		entry.setContents(new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8)), new NullProgressMonitor());
+		return entry;
+	}
+
+	private String getContents(String id) throws TeamException, IOException {
+		ResourceVariantCacheEntry entry = getCache().getCacheEntry(id);
+		assertNotNull(id, entry);
+		assertEquals(id, ResourceVariantCacheEntry.READY, entry.getState());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (InputStream in = entry.getContents()) {
+			byte[] buffer = new byte[1024];
+			int read;
+			while ((read = in.read(buffer)) >= 0) {
+				out.write(buffer, 0, read);
+			}
+		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private Set<String> getContentFiles() {
+		File directory = TeamPlugin.getPlugin().getStateLocation().append(".cache").append(CACHE_ID).toFile();
+		Set<String> names = new HashSet<>(Arrays.asList(directory.list()));
+		names.remove(".index");
+		return names;
+	}
+
+	private Thread write(final ResourceVariantCacheEntry entry, final InputStream stream, final List<Throwable> errors) {
+		Thread thread = new Thread(() -> {
+			try {
+				entry.setContents(stream, new NullProgressMonitor());
+			} catch (TeamException | RuntimeException e) {
+				errors.add(e);
+			}
+		});
+		thread.start();
+		return thread;
+	}
+
+	private void restart() {
+		ResourceVariantCache.closeCache(CACHE_ID, false);
+		ResourceVariantCache.enableCaching(CACHE_ID);
+	}
+
+	public void testSharedContents() throws Exception {
+		ResourceVariantCacheEntry first = addEntry("first", "contents");
+		ResourceVariantCacheEntry second = addEntry("second", "contents");
+		addEntry("third", "other contents");
+		assertEquals(2, getContentFiles().size());
+		assertEquals("contents", getContents("first"));
+		assertEquals("contents", getContents("second"));
+
+		// The shared file remains until the last entry that refers to it is removed
+		first.dispose();
+		assertEquals(2, getContentFiles().size());
+		assertEquals("contents", getContents("second"));
+		second.dispose();
+		assertEquals(1, getContentFiles().size());
+		assertEquals("other contents", getContents("third"));
+	}
+
+	public void testRestoreAfterShutdown() throws Exception {
+		addEntry("first", "contents");
+		addEntry("second", "contents");
+		addEntry("third", "other contents").dispose();
+		ResourceVariantCache.closeCache(CACHE_ID, true);
+		ResourceVariantCache.enableCaching(CACHE_ID);
+
+		assertEquals(2, getCache().getEntries().length);
+		assertEquals("contents", getContents("first"));
+		assertEquals("contents", getContents("second"));
+		assertNull(getCache().getCacheEntry("third"));
+		assertEquals(1, getContentFiles().size());
+	}
+
+	public void testRestoreAfterCrash() throws Exception {
+		addEntry("first", "contents");
+		restart();
+		addEntry("second", "other contents");
+		addEntry("third", "more contents").dispose();
+		restart();
+
+		assertEquals(2, getCache().getEntries().length);
+		assertEquals("contents", getContents("first"));
+		assertEquals("other contents", getContents("second"));
+		assertNull(getCache().getCacheEntry("third"));
+		assertEquals(2, getContentFiles().size());
+	}
+
+	public void testEntriesWithoutContentsAreNotRestored() throws Exception {
+		getCache().add("handle", null);
+		addEntry("contents", "contents");
+		restart();
+
+		assertNull(getCache().getCacheEntry("handle"));
+		assertEquals("contents", getContents("contents"));
+	}
+
+	public void testEviction() throws Exception {
+		InstanceScope.INSTANCE.getNode(TeamPlugin.ID).putLong(ResourceVariantCache.PREF_CACHE_SIZE, 100);
+		restart();
+		String contents = "0123456789012345678901234567890123456789"; // 40 bytes
+		addEntry("first", contents + "1");
+		Thread.sleep(10);
+		addEntry("second", contents + "2");
+		Thread.sleep(10);
+		addEntry("third", contents + "3");
+
+		// The least recently accessed entry is removed
+		assertNull(getCache().getCacheEntry("first"));
+		assertEquals(contents + "2", getContents("second"));
+		assertEquals(contents + "3", getContents("third"));
+		assertEquals(2, getContentFiles().size());
+
+		// The eviction is recorded in the index
+		restart();
+		assertNull(getCache().getCacheEntry("first"));
+		assertEquals(2, getCache().getEntries().length);
+	}
+
+	public void testEntriesAreWrittenConcurrently() throws Exception {
+		List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+		// The ids are chosen so that the entries use different locks
+		BlockingInputStream blocked = new BlockingInputStream("blocked contents");
+		Thread blockedWriter = write(getCache().add("blocked", null), blocked, errors);
+		try {
+			assertTrue(blocked.reading.await(10, TimeUnit.SECONDS));
+
+			// Another entry is written while the first write has not finished
+			Thread otherWriter = write(getCache().add("other", null), new ByteArrayInputStream("other contents".getBytes(StandardCharsets.UTF_8)), errors);
+			otherWriter.join(10000);
+			assertFalse(otherWriter.isAlive());
+			assertEquals("other contents", getContents("other"));
+			assertEquals(ResourceVariantCacheEntry.UNINITIALIZED, getCache().getCacheEntry("blocked").getState());
+		} finally {
+			blocked.released.countDown();
+		}
+		blockedWriter.join(10000);
+		assertFalse(blockedWriter.isAlive());
+		assertEquals(Collections.emptyList(), errors);
+		assertEquals("blocked contents", getContents("blocked"));
+		assertEquals(2, getContentFiles().size());
+	}
+
+	public void testFirstConcurrentWriteWins() throws Exception {
+		List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+		ResourceVariantCacheEntry entry = getCache().add("entry", null);
+		BlockingInputStream first = new BlockingInputStream("first contents");
+		Thread firstWriter = write(entry, first, errors);
+		Thread secondWriter;
+		try {
+			assertTrue(first.reading.await(10, TimeUnit.SECONDS));
+
+			// The second write of the same entry waits for the first one
+			secondWriter = write(entry, new ByteArrayInputStream("second contents".getBytes(StandardCharsets.UTF_8)), errors);
+			secondWriter.join(200);
+			assertTrue(secondWriter.isAlive());
+		} finally {
+			first.released.countDown();
+		}
+		firstWriter.join(10000);
+		secondWriter.join(10000);
+		assertFalse(firstWriter.isAlive());
+		assertFalse(secondWriter.isAlive());
+		assertEquals(Collections.emptyList(), errors);
+		assertEquals("first contents", getContents("entry"));
+		assertEquals(1, getContentFiles().size());
+	}
+
+	public void testConcurrentAddsAndWrites() throws Exception {
+		final int threadCount = 8;
+		final int entryCount = 50;
+		final List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+		final List<ResourceVariantCacheEntry> sharedEntries = Collections.synchronizedList(new ArrayList<>());
+		final CyclicBarrier start = new CyclicBarrier(threadCount);
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < threadCount; t++) {
+			final int thread = t;
+			threads.add(new Thread(() -> {
+				try {
+					start.await();
+					// All threads add the shared entry at the same time
+					sharedEntries.add(getCache().add("shared", null));
+					for (int i = 0; i < entryCount; i++) {
+						addEntry(thread + "-" + i, "contents " + (i % 5));
+					}
+				} catch (Exception e) {
+					errors.add(e);
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join(30000);
+			assertFalse(thread.isAlive());
+		}
+		assertEquals(Collections.emptyList(), errors);
+
+		// The threads got the same entry
+		assertEquals(threadCount, sharedEntries.size());
+		for (ResourceVariantCacheEntry entry : sharedEntries) {
+			assertSame(sharedEntries.get(0), entry);
+		}
+		assertEquals(threadCount * entryCount + 1, getCache().getEntries().length);
+		assertEquals("contents 3", getContents("5-8"));
+		assertEquals(5, getContentFiles().size());
+
+		// The references to the shared content files were counted correctly
+		for (ResourceVariantCacheEntry entry : getCache().getEntries()) {
+			entry.dispose();
+		}
+		assertEquals(0, getCache().getEntries().length);
+		assertEquals(0, getContentFiles().size());
+	}
+}
@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.core;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.QualifiedName;
+import org.eclipse.core.runtime.jobs.ILock;
+import org.eclipse.team.core.TeamException;
+import org.eclipse.team.core.variants.PersistantResourceVariantByteStore;
+import org.eclipse.team.core.variants.SessionResourceVariantByteStore;
+import org.eclipse.team.core.variants.ThreeWaySynchronizer;
+
+public class ThreeWaySynchronizerTests extends TeamTest {
+
+	private static final QualifiedName SYNC_NAME = new QualifiedName("org.eclipse.team.tests.core", "threeway");
+
+	/*
+	 * A persistent store that records how many threads read it at the same time
+	 */
+	private static class RecordingStore extends PersistantResourceVariantByteStore {
+		private int active;
+		int maxActive;
+
+		RecordingStore(QualifiedName name) {
+			super(name);
+		}
+
+		@Override
+		public byte[] getBytes(IResource resource) throws TeamException {
+			synchronized (this) {
+				active++;
+				maxActive = Math.max(maxActive, active);
+			}
+			try {
+				Thread.sleep(5);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			synchronized (this) {
+				active--;
+			}
+			return super.getBytes(resource);
+		}
+	}
+
+	public ThreeWaySynchronizerTests() {
+		super();
+	}
+
+	public ThreeWaySynchronizerTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(ThreeWaySynchronizerTests.class);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		// removing the partner drops the bytes of all synchronizers
+		ResourcesPlugin.getWorkspace().getSynchronizer().remove(SYNC_NAME);
+		super.tearDown();
+	}
+
+	private IProject[] createProjects(int count) throws Exception {
+		IProject[] projects = new IProject[count];
+		for (int i = 0; i < count; i++) {
+			projects[i] = createProject(getName() + i, new String[] { "file.txt" });
+		}
+		return projects;
+	}
+
+	private ILock[] getLocks(ThreeWaySynchronizer synchronizer, IResource resource) throws Exception {
+		Method method = ThreeWaySynchronizer.class.getDeclaredMethod("getLocks", IResource.class);
+		method.setAccessible(true);
+		return (ILock[]) method.invoke(synchronizer, resource);
+	}
+
+	public void testProjectsUseStripes() throws Exception {
+		ThreeWaySynchronizer synchronizer = new ThreeWaySynchronizer(SYNC_NAME);
+		IProject[] projects = createProjects(8);
+		Set<ILock> stripes = new HashSet<>();
+		for (IProject project : projects) {
+			ILock[] locks = getLocks(synchronizer, project);
+			assertEquals(1, locks.length);
+			// the resources of a project share its stripe
+			assertEquals(Arrays.asList(locks), Arrays.asList(getLocks(synchronizer, project.getFile("file.txt"))));
+			stripes.add(locks[0]);
+		}
+		assertTrue(stripes.size() > 1);
+	}
+
+	public void testRootUsesAllStripes() throws Exception {
+		ThreeWaySynchronizer synchronizer = new ThreeWaySynchronizer(SYNC_NAME);
+		IProject[] projects = createProjects(8);
+		List<ILock> all = Arrays.asList(getLocks(synchronizer, ResourcesPlugin.getWorkspace().getRoot()));
+		assertTrue(all.size() > 1);
+		assertEquals(all.size(), new HashSet<>(all).size());
+		// an operation on the root excludes the operations on every project
+		for (IProject project : projects) {
+			assertTrue(all.contains(getLocks(synchronizer, project)[0]));
+		}
+	}
+
+	public void testOtherStoresUseSingleLock() throws Exception {
+		IProject[] projects = createProjects(4);
+		ThreeWaySynchronizer[] others = new ThreeWaySynchronizer[] {
+				new ThreeWaySynchronizer(new SessionResourceVariantByteStore()),
+				new ThreeWaySynchronizer(new RecordingStore(SYNC_NAME)) };
+		for (ThreeWaySynchronizer synchronizer : others) {
+			ILock[] rootLocks = getLocks(synchronizer, ResourcesPlugin.getWorkspace().getRoot());
+			assertEquals(1, rootLocks.length);
+			for (IProject project : projects) {
+				assertEquals(Arrays.asList(rootLocks), Arrays.asList(getLocks(synchronizer, project)));
+			}
+		}
+	}
+
+	public void testSubclassOfPersistentStoreIsLocked() throws Exception {
+		final IProject[] projects = createProjects(4);
+		final RecordingStore store = new RecordingStore(SYNC_NAME);
+		final ThreeWaySynchronizer synchronizer = new ThreeWaySynchronizer(store);
+		for (IProject project : projects) {
+			synchronizer.setRemoteBytes(project.getFile("file.txt"), "1.1".getBytes());
+		}
+
+		final List<Throwable> errors = new ArrayList<>();
+		Thread[] threads = new Thread[projects.length];
+		for (int i = 0; i < threads.length; i++) {
+			final IFile file = projects[i].getFile("file.txt");
+			threads[i] = new Thread(() -> {
+				try {
+					for (int j = 0; j < 20; j++) {
+						assertEquals("1.1", new String(synchronizer.getRemoteBytes(file)));
+					}
+				} catch (Throwable e) {
+					synchronized (errors) {
+						errors.add(e);
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(errors.toString(), 0, errors.size());
+		// the store is not known to be thread-safe, so it is not read concurrently
+		assertEquals(1, store.maxActive);
+	}
+
+	public void testConcurrentAccessWithRootFlush() throws Exception {
+		final IProject[] projects = createProjects(4);
+		final ThreeWaySynchronizer synchronizer = new ThreeWaySynchronizer(SYNC_NAME);
+		final List<Throwable> errors = new ArrayList<>();
+		Thread[] threads = new Thread[projects.length + 1];
+		for (int i = 0; i < projects.length; i++) {
+			final IFile file = projects[i].getFile("file.txt");
+			threads[i] = new Thread(() -> {
+				try {
+					for (int j = 0; j < 50; j++) {
+						synchronizer.setRemoteBytes(file, ("1." + j).getBytes());
+						synchronizer.getRemoteBytes(file);
+					}
+					synchronizer.setRemoteBytes(file, "2.0".getBytes());
+				} catch (Throwable e) {
+					synchronized (errors) {
+						errors.add(e);
+					}
+				}
+			});
+		}
+		threads[projects.length] = new Thread(() -> {
+			try {
+				for (int j = 0; j < 10; j++) {
+					synchronizer.flush(ResourcesPlugin.getWorkspace().getRoot(), IResource.DEPTH_INFINITE);
+				}
+			} catch (Throwable e) {
+				synchronized (errors) {
+					errors.add(e);
+				}
+			}
+		});
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join(30000);
+			assertFalse(thread.isAlive());
+		}
+		assertEquals(errors.toString(), 0, errors.size());
+		for (IProject project : projects) {
+			byte[] bytes = synchronizer.getRemoteBytes(project.getFile("file.txt"));
+			// the last set may have been flushed by the root flush
+			assertTrue(bytes == null || "2.0".equals(new String(bytes)));
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,13 +14,18 @@
 package org.eclipse.team.tests.ccvs.core;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.team.internal.ccvs.core.ICVSRepositoryLocation;
 import org.eclipse.team.internal.ccvs.core.IServerConnection;
 import org.eclipse.team.internal.ccvs.core.connection.CVSAuthenticationException;
@@ -38,8 +43,19 @@ public class TestConnection implements IServerConnection {
 	public static StringBuffer currentLine;
 	
 	private ByteArrayInputStream serverResponse;
+	private IProgressMonitor monitor;
 	
-	private static final String VALID_SERVER_REQUESTS = "Valid-requests Root Valid-responses valid-requests Repository Directory Max-dotdot Static-directory Sticky Checkin-prog Update-prog Entry Kopt Checkin-time Modified Is-modified UseUnchanged Unchanged Notify Questionable Case Argument Argumentx Global_option Gzip-stream wrapper-sendme-rcsOptions Set Kerberos-encrypt Gssapi-encrypt Gssapi-authenticate expand-modules ci co update diff log rlog add remove update-patches gzip-file-contents status rdiff tag rtag import admin export history release watch-on watch-off watch-add watch-remove watchers editors init annotate rannotate noop version";
+	// whether the server closed the connection, so that requests are not answered
+	public boolean closedByServer;
+	
+	// the compressor of the responses and decompressor of the requests after a Gzip-stream request
+	private Deflater deflater;
+	private Inflater inflater;
+	
+	public static final String VALID_SERVER_REQUESTS = "Valid-requests Root Valid-responses valid-requests Repository Directory Max-dotdot Static-directory Sticky Checkin-prog Update-prog Entry Kopt Checkin-time Modified Is-modified UseUnchanged Unchanged Notify Questionable Case Argument Argumentx Global_option Gzip-stream wrapper-sendme-rcsOptions Set Kerberos-encrypt Gssapi-encrypt Gssapi-authenticate expand-modules ci co update diff log rlog add remove update-patches gzip-file-contents status rdiff tag rtag import admin export history release watch-on watch-off watch-add watch-remove watchers editors init annotate rannotate noop version";
+
+	// the requests that the server lists in its response to valid-requests
+	public static String validServerRequests = VALID_SERVER_REQUESTS;
 
 	public static IServerConnection createConnection(ICVSRepositoryLocation location, String password) {
 		currentConnection = new TestConnection();
@@ -54,6 +70,7 @@ public class TestConnection implements IServerConnection {
 	
 	@Override
 	public void open(IProgressMonitor monitor) throws IOException, CVSAuthenticationException {
+		this.monitor = monitor;
 		resetStreams();
 	}
 
@@ -65,6 +82,14 @@ public class TestConnection implements IServerConnection {
 	private void resetStreams() {
 		currentLine = new StringBuffer();
 		previousLines = new ArrayList<>();
+		if (deflater != null) {
+			deflater.end();
+			deflater = null;
+		}
+		if (inflater != null) {
+			inflater.end();
+			inflater = null;
+		}
 	}
 	
 	@Override
@@ -73,6 +98,10 @@ public class TestConnection implements IServerConnection {
 		return new InputStream() {
 			@Override
 			public int read() throws IOException {
+				// like the streams of real connections, poll the monitor the connection was opened with
+				if (monitor != null && monitor.isCanceled()) {
+					throw new OperationCanceledException();
+				}
 				if (serverResponse == null) {
 					throw new IOException("Not prepared to make a response");
 				} else {
@@ -87,25 +116,70 @@ public class TestConnection implements IServerConnection {
 		return new OutputStream() {
 			@Override
 			public void write(int output) throws IOException {
-				byte b = (byte)output;
-				if (b == '\n') {
-					String sentLine = currentLine.toString();
-					previousLines.add(sentLine);
-					currentLine = new StringBuffer();
-					respondToSentLine(sentLine);
-				} else {
-					currentLine.append((char)b);
+				if (inflater == null) {
+					receive((byte)output);
+					return;
+				}
+				inflater.setInput(new byte[] { (byte)output });
+				byte[] buffer = new byte[256];
+				try {
+					int n;
+					while ((n = inflater.inflate(buffer)) > 0) {
+						for (int i = 0; i < n; i++) {
+							receive(buffer[i]);
+						}
+					}
+				} catch (DataFormatException e) {
+					throw new IOException(e.getMessage());
 				}
 			}
 		};
 	}
 
+	private void receive(byte b) {
+		if (b == '\n') {
+			String sentLine = currentLine.toString();
+			previousLines.add(sentLine);
+			currentLine = new StringBuffer();
+			respondToSentLine(sentLine);
+		} else {
+			currentLine.append((char)b);
+		}
+	}
+
+	/*
+	 * Return the bytes of the response, compressed and flushed like a server
+	 * does after a Gzip-stream request
+	 */
+	private byte[] encode(String response) {
+		byte[] bytes = response.getBytes();
+		if (deflater == null)
+			return bytes;
+		deflater.setInput(bytes);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[256];
+		int n;
+		do {
+			n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+			out.write(buffer, 0, n);
+		} while (n == buffer.length);
+		return out.toByteArray();
+	}
+
 	/**
 	 * @param sentLine
 	 */
 	protected void respondToSentLine(String sentLine) {
-		if (sentLine.equals("valid-requests")) {
-			serverResponse = new ByteArrayInputStream((VALID_SERVER_REQUESTS + "\nok\n").getBytes());
+		if (closedByServer) {
+			serverResponse = new ByteArrayInputStream(new byte[0]);
+		} else if (sentLine.equals("valid-requests")) {
+			serverResponse = new ByteArrayInputStream(encode(validServerRequests + "\nok\n"));
+		} else if (sentLine.equals("noop")) {
+			serverResponse = new ByteArrayInputStream(encode("ok\n"));
+		} else if (sentLine.startsWith("Gzip-stream ")) {
+			// the following requests and responses are compressed
+			deflater = new Deflater(Integer.parseInt(sentLine.substring(12)));
+			inflater = new Inflater();
 		}
 	}
 
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.ccvs.core.cvsresources;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.team.internal.ccvs.core.CVSException;
+import org.eclipse.team.internal.ccvs.core.CVSProviderPlugin;
+import org.eclipse.team.internal.ccvs.core.ICVSRepositoryLocation;
+import org.eclipse.team.internal.ccvs.core.client.ConnectionPool;
+import org.eclipse.team.internal.ccvs.core.client.Session;
+import org.eclipse.team.internal.ccvs.core.resources.CVSWorkspaceRoot;
+import org.eclipse.team.internal.ccvs.core.util.KnownRepositories;
+import org.eclipse.team.tests.ccvs.core.CVSTestSetup;
+import org.eclipse.team.tests.ccvs.core.EclipseTest;
+import org.eclipse.team.tests.ccvs.core.TestConnection;
+
+public class ConnectionPoolTest extends EclipseTest {
+
+	private int poolSize;
+	private boolean determineVersion;
+
+	public ConnectionPoolTest() {
+		super();
+	}
+
+	public ConnectionPoolTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		TestSuite suite = new TestSuite(ConnectionPoolTest.class);
+		return new CVSTestSetup(suite);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		poolSize = CVSProviderPlugin.getPlugin().getConnectionPoolSize();
+		determineVersion = CVSProviderPlugin.getPlugin().isDetermineVersionEnabled();
+		// disable version determination to reduce traffic
+		CVSProviderPlugin.getPlugin().setDetermineVersionEnabled(false);
+		CVSProviderPlugin.getPlugin().setConnectionPoolSize(2);
+		ConnectionPool.getInstance().clear();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		ConnectionPool.getInstance().clear();
+		CVSProviderPlugin.getPlugin().setConnectionPoolSize(poolSize);
+		CVSProviderPlugin.getPlugin().setDetermineVersionEnabled(determineVersion);
+		super.tearDown();
+	}
+
+	private Session openSession(IProgressMonitor monitor) throws CVSException {
+		ICVSRepositoryLocation location = KnownRepositories.getInstance().getRepository(":test:user:password@host:/path");
+		Session session = new Session(location, CVSWorkspaceRoot.getCVSFolderFor(ResourcesPlugin.getWorkspace().getRoot()));
+		session.open(monitor, false /* read-only */);
+		return session;
+	}
+
+	public void testConnectionIsReused() throws CVSException {
+		openSession(DEFAULT_MONITOR).close();
+		TestConnection connection = TestConnection.currentConnection;
+
+		openSession(DEFAULT_MONITOR).close();
+		assertSame(connection, TestConnection.currentConnection);
+		// the connection is checked instead of negotiated again
+		assertEquals("noop", TestConnection.getLastLine());
+	}
+
+	public void testClosedConnectionIsNotReused() throws CVSException {
+		openSession(DEFAULT_MONITOR).close();
+		TestConnection connection = TestConnection.currentConnection;
+		connection.closedByServer = true;
+
+		Session session = openSession(DEFAULT_MONITOR);
+		assertNotSame(connection, TestConnection.currentConnection);
+		assertTrue(TestConnection.previousLines.contains("valid-requests"));
+		session.close();
+	}
+
+	public void testMonitorOfReusingSession() throws CVSException {
+		IProgressMonitor first = new NullProgressMonitor();
+		openSession(first).close();
+		TestConnection connection = TestConnection.currentConnection;
+
+		// canceling the operation that opened the connection does not affect the next one
+		first.setCanceled(true);
+		IProgressMonitor second = new NullProgressMonitor();
+		openSession(second).close();
+		assertSame(connection, TestConnection.currentConnection);
+
+		// canceling the next operation while the connection is checked closes it
+		second.setCanceled(true);
+		try {
+			openSession(second);
+			fail("The session should have been canceled");
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+		openSession(DEFAULT_MONITOR).close();
+		assertNotSame(connection, TestConnection.currentConnection);
+	}
+
+	public void testPoolingDisabled() throws CVSException {
+		CVSProviderPlugin.getPlugin().setConnectionPoolSize(0);
+		openSession(DEFAULT_MONITOR).close();
+		TestConnection connection = TestConnection.currentConnection;
+
+		openSession(DEFAULT_MONITOR).close();
+		assertNotSame(connection, TestConnection.currentConnection);
+	}
+}
@@ -0,0 +1,354 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.ccvs.core.cvsresources;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.team.internal.ccvs.core.CVSException;
+import org.eclipse.team.internal.ccvs.core.CVSProviderPlugin;
+import org.eclipse.team.internal.ccvs.core.ICVSRepositoryLocation;
+import org.eclipse.team.internal.ccvs.core.IServerConnection;
+import org.eclipse.team.internal.ccvs.core.Policy;
+import org.eclipse.team.internal.ccvs.core.client.ConnectionPool;
+import org.eclipse.team.internal.ccvs.core.client.Session;
+import org.eclipse.team.internal.ccvs.core.connection.CVSRepositoryLocation;
+import org.eclipse.team.internal.ccvs.core.connection.Connection;
+import org.eclipse.team.internal.ccvs.core.resources.CVSWorkspaceRoot;
+import org.eclipse.team.internal.ccvs.core.util.KnownRepositories;
+import org.eclipse.team.tests.ccvs.core.CVSTestSetup;
+import org.eclipse.team.tests.ccvs.core.EclipseTest;
+import org.eclipse.team.tests.ccvs.core.TestConnection;
+
+/**
+ * Tests reading lines and file contents from the buffered response stream of
+ * a connection, and the compression of the requests and responses after a
+ * Gzip-stream request.
+ */
+public class ConnectionTest extends EclipseTest {
+
+	// the server sends the response in chunks of this size
+	private static final int CHUNK = 5;
+
+	private CVSRepositoryLocation location;
+	private int compressionLevel;
+	private boolean determineVersion;
+
+	/*
+	 * A server connection that sends the given response in small chunks, so
+	 * that the lines span several reads. A read beyond the response that was
+	 * sent so far returns the end of the stream instead of blocking.
+	 */
+	private static class ChunkedConnection implements IServerConnection {
+		private InputStream response;
+		// the requests that were written to the connection
+		final ByteArrayOutputStream requests = new ByteArrayOutputStream();
+
+		ChunkedConnection(byte[] response) {
+			this.response = new ByteArrayInputStream(response);
+		}
+
+		void send(byte[] bytes) {
+			response = new SequenceInputStream(response, new ByteArrayInputStream(bytes));
+		}
+
+		@Override
+		public void open(IProgressMonitor monitor) {
+			// Nothing to do
+		}
+
+		@Override
+		public void close() {
+			// Nothing to do
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return new InputStream() {
+				@Override
+				public int read() throws IOException {
+					return response.read();
+				}
+
+				@Override
+				public int read(byte[] b, int off, int len) throws IOException {
+					return response.read(b, off, Math.min(len, CHUNK));
+				}
+			};
+		}
+
+		@Override
+		public OutputStream getOutputStream() {
+			return requests;
+		}
+	}
+
+	public ConnectionTest() {
+		super();
+	}
+
+	public ConnectionTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		TestSuite suite = new TestSuite(ConnectionTest.class);
+		return new CVSTestSetup(suite);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		location = CVSRepositoryLocation.fromString(":test:user:password@connectiontest:/path");
+		// an encoding that differs from the platform encoding for the non-ASCII bytes
+		location.setEncoding("ISO-8859-1");
+		compressionLevel = CVSProviderPlugin.getPlugin().getCompressionLevel();
+		determineVersion = CVSProviderPlugin.getPlugin().isDetermineVersionEnabled();
+		// disable version determination to reduce traffic
+		CVSProviderPlugin.getPlugin().setDetermineVersionEnabled(false);
+		ConnectionPool.getInstance().clear();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		location.dispose();
+		ConnectionPool.getInstance().clear();
+		TestConnection.validServerRequests = TestConnection.VALID_SERVER_REQUESTS;
+		CVSProviderPlugin.getPlugin().setCompressionLevel(compressionLevel);
+		CVSProviderPlugin.getPlugin().setDetermineVersionEnabled(determineVersion);
+		super.tearDown();
+	}
+
+	private Connection openConnection(byte[] response) throws CVSException {
+		return openConnection(new ChunkedConnection(response));
+	}
+
+	private Connection openConnection(IServerConnection serverConnection) throws CVSException {
+		Connection connection = new Connection(location, serverConnection);
+		connection.open(DEFAULT_MONITOR);
+		return connection;
+	}
+
+	private Session openSession() throws CVSException {
+		ICVSRepositoryLocation repository = KnownRepositories.getInstance().getRepository(":test:user:password@host:/path");
+		Session session = new Session(repository, CVSWorkspaceRoot.getCVSFolderFor(ResourcesPlugin.getWorkspace().getRoot()));
+		session.open(DEFAULT_MONITOR, false /* read-only */);
+		return session;
+	}
+
+	/*
+	 * Compress the responses like a server that flushes its compressor with
+	 * SYNC_FLUSH after each response
+	 */
+	private byte[][] deflate(String... responses) {
+		Deflater deflater = new Deflater(6);
+		byte[][] result = new byte[responses.length][];
+		byte[] buffer = new byte[256];
+		for (int i = 0; i < responses.length; i++) {
+			deflater.setInput(responses[i].getBytes());
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			int n;
+			do {
+				n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+				out.write(buffer, 0, n);
+			} while (n == buffer.length);
+			result[i] = out.toByteArray();
+		}
+		deflater.end();
+		return result;
+	}
+
+	private byte[] concat(byte[]... parts) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (byte[] part : parts) {
+			out.write(part);
+		}
+		return out.toByteArray();
+	}
+
+	private byte[] readFully(InputStream in, int length) throws IOException {
+		byte[] result = new byte[length];
+		int offset = 0;
+		while (offset < length) {
+			int n = in.read(result, offset, length - offset);
+			assertTrue(n > 0);
+			offset += n;
+		}
+		return result;
+	}
+
+	public void testLinesAndContents() throws IOException {
+		// the contents contain newlines and bytes that are not valid in the encoding
+		byte[] contents = new byte[] { 'a', '\n', 'b', (byte) 0xFF, 0, '\n', 'c', (byte) 0x80, '\n', 'd', '\n', 'e' };
+		byte[] response = concat("Created dir/\n".getBytes(), (contents.length + "\n").getBytes(), contents,
+				"M message\nE error\nok\n".getBytes());
+		Connection connection = openConnection(response);
+		try {
+			assertEquals("Created dir/", connection.readLine());
+			assertEquals(String.valueOf(contents.length), connection.readLine());
+			InputStream in = connection.getInputStream();
+			assertEquals('a', in.read());
+			assertTrue(Arrays.equals(Arrays.copyOfRange(contents, 1, contents.length), readFully(in, contents.length - 1)));
+			// a line that does not start with the prefix is not consumed
+			assertNull(connection.readLine("E ".getBytes()));
+			assertEquals("message", connection.readLine("M ".getBytes()));
+			connection.skipLine();
+			assertEquals("ok", connection.readLine());
+		} finally {
+			connection.close();
+		}
+	}
+
+	public void testLongLines() throws IOException {
+		// lines that are longer than the response buffer
+		char[] chars = new char[20000];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) ('a' + i % 26);
+		}
+		String line = new String(chars);
+		byte[] contents = new byte[20000];
+		for (int i = 0; i < contents.length; i++) {
+			contents[i] = (byte) i;
+		}
+		byte[] response = concat(("M " + line + "\n").getBytes(), (line + "\n").getBytes(), line.getBytes(),
+				"\n".getBytes(), contents, "ok\n".getBytes());
+		Connection connection = openConnection(response);
+		try {
+			assertEquals(line, connection.readLine("M ".getBytes()));
+			connection.skipLine();
+			assertEquals(line, connection.readLine());
+			// a large read is served from the buffer and then from the server
+			assertTrue(Arrays.equals(contents, readFully(connection.getInputStream(), contents.length)));
+			assertEquals("ok", connection.readLine());
+		} finally {
+			connection.close();
+		}
+	}
+
+	public void testEndOfStream() throws IOException {
+		Connection connection = openConnection("M last".getBytes());
+		try {
+			// the line is not ended by a newline
+			assertNull(connection.readLine("M last line".getBytes()));
+			assertEquals("last", connection.readLine("M ".getBytes()));
+			assertNull(connection.readLine("M ".getBytes()));
+			assertEquals("", connection.readLine());
+			connection.skipLine();
+			assertEquals(-1, connection.getInputStream().read());
+			assertEquals(-1, connection.getInputStream().read(new byte[10], 0, 10));
+		} finally {
+			connection.close();
+		}
+	}
+
+	public void testServerEncoding() throws IOException {
+		byte[] prefix = new byte[] { 'M', ' ', (byte) 0xE4, ' ' };
+		Connection connection = openConnection(concat(prefix, new byte[] { (byte) 0xF6, '\n', (byte) 0xFC, '\n' }));
+		PrintStream recorder = Policy.recorder;
+		ByteArrayOutputStream recorded = new ByteArrayOutputStream();
+		Policy.recorder = new PrintStream(recorded, true, "UTF-8");
+		try {
+			assertEquals("\u00f6", connection.readLine(prefix));
+			assertEquals("\u00fc", connection.readLine());
+			// the prefix is recorded in the server encoding as well
+			String[] lines = recorded.toString("UTF-8").split("\r?\n");
+			assertEquals(Arrays.asList("M \u00e4 \u00f6", "\u00fc"), Arrays.asList(lines));
+		} finally {
+			Policy.recorder.close();
+			Policy.recorder = recorder;
+			connection.close();
+		}
+	}
+
+	public void testCompressedResponses() throws IOException {
+		ChunkedConnection server = new ChunkedConnection(new byte[0]);
+		Connection connection = openConnection(server);
+		try {
+			connection.startCompression(6);
+			assertTrue(connection.isCompressed());
+			byte[][] responses = deflate("M first\n", "M second\nok\n");
+			// each line is read from the bytes that were sent so far, a read
+			// beyond them would find the end of the stream
+			server.send(responses[0]);
+			assertEquals("first", connection.readLine("M ".getBytes()));
+			server.send(responses[1]);
+			assertEquals("second", connection.readLine("M ".getBytes()));
+			assertEquals("ok", connection.readLine());
+		} finally {
+			connection.close();
+		}
+	}
+
+	public void testCompressedRequestsAreFlushed() throws IOException, DataFormatException {
+		ChunkedConnection server = new ChunkedConnection(new byte[0]);
+		Connection connection = openConnection(server);
+		Inflater inflater = new Inflater();
+		try {
+			// the Gzip-stream request itself is not compressed
+			connection.writeLine("Gzip-stream 6");
+			connection.startCompression(6);
+			assertEquals("Gzip-stream 6\n", server.requests.toString());
+			server.requests.reset();
+
+			// the flushed bytes inflate to the whole request
+			connection.writeLine("noop");
+			connection.flush();
+			inflater.setInput(server.requests.toByteArray());
+			byte[] request = new byte[100];
+			int n = inflater.inflate(request);
+			assertEquals("noop\n", new String(request, 0, n));
+			assertTrue(inflater.needsInput());
+		} finally {
+			inflater.end();
+			connection.close();
+		}
+	}
+
+	public void testGzipStream() throws CVSException {
+		CVSProviderPlugin.getPlugin().setCompressionLevel(6);
+		openSession().close();
+		TestConnection connection = TestConnection.currentConnection;
+		assertTrue(TestConnection.previousLines.contains("Gzip-stream 6"));
+		assertFalse(TestConnection.previousLines.contains("gzip-file-contents 6"));
+
+		// the pooled connection is checked with a compressed noop and reused
+		// if the compressed response is ok
+		openSession().close();
+		assertSame(connection, TestConnection.currentConnection);
+		assertEquals("noop", TestConnection.getLastLine());
+	}
+
+	public void testGzipFileContents() throws CVSException {
+		// the server does not offer Gzip-stream
+		TestConnection.validServerRequests = TestConnection.VALID_SERVER_REQUESTS.replace(" Gzip-stream", "");
+		CVSProviderPlugin.getPlugin().setCompressionLevel(6);
+		openSession().close();
+		assertTrue(TestConnection.previousLines.contains("gzip-file-contents 6"));
+		assertFalse(TestConnection.previousLines.contains("Gzip-stream 6"));
+	}
+}
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.ccvs.core.cvsresources;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.team.core.TeamException;
+import org.eclipse.team.internal.ccvs.core.CVSProviderPlugin;
+import org.eclipse.team.internal.ccvs.core.ICVSFile;
+import org.eclipse.team.internal.ccvs.core.resources.CVSWorkspaceRoot;
+import org.eclipse.team.internal.ccvs.core.resources.EclipseSynchronizer;
+import org.eclipse.team.tests.ccvs.core.CVSTestSetup;
+import org.eclipse.team.tests.ccvs.core.EclipseTest;
+
+/**
+ * Tests that the dirty state of a CVS project is restored from the snapshot
+ * that was written when the project was closed, and that entries which do not
+ * match the resources are not used.
+ */
+public class DecorationStateSnapshotTest extends EclipseTest {
+
+	private static EclipseSynchronizer sync = EclipseSynchronizer.getInstance();
+
+	public DecorationStateSnapshotTest() {
+		super();
+	}
+
+	public DecorationStateSnapshotTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		TestSuite suite = new TestSuite(DecorationStateSnapshotTest.class);
+		return new CVSTestSetup(suite);
+	}
+
+	private File getSnapshotFile(IProject project) {
+		return CVSProviderPlugin.getPlugin().getStateLocation().append("decorations").append(project.getName()).toFile();
+	}
+
+	/*
+	 * Compute the dirty state of all resources of the project and write the
+	 * snapshot by closing the project. The session state is gone when the
+	 * project is opened again.
+	 */
+	private void computeAndClose(IProject project) throws CoreException, TeamException {
+		CVSWorkspaceRoot.getCVSFolderFor(project).isModified(DEFAULT_MONITOR);
+		project.close(DEFAULT_MONITOR);
+		assertTrue(getSnapshotFile(project).exists());
+	}
+
+	private void assertState(IProject project, String path, int state) throws CoreException {
+		IResource resource = path == null ? project : project.findMember(path);
+		assertEquals(resource.getFullPath().toString(), state, sync.getModificationState(resource));
+	}
+
+	public void testStateIsRestored() throws CoreException, TeamException {
+		IProject project = createProject(new String[] { "changed.txt", "folder1/", "folder1/a.txt", "folder2/", "folder2/b.txt" });
+		changeResources(project, new String[] { "changed.txt" }, false);
+		computeAndClose(project);
+		project.open(DEFAULT_MONITOR);
+
+		assertState(project, null, ICVSFile.DIRTY);
+		assertState(project, "changed.txt", ICVSFile.DIRTY);
+		assertState(project, "folder1", ICVSFile.CLEAN);
+		assertState(project, "folder1/a.txt", ICVSFile.CLEAN);
+		assertState(project, "folder2/b.txt", ICVSFile.CLEAN);
+	}
+
+	public void testStaleSnapshot() throws CoreException, TeamException, IOException {
+		IProject project = createProject(new String[] { "folder1/", "folder1/a.txt", "folder2/", "folder2/b.txt" });
+		computeAndClose(project);
+		byte[] clean = Files.readAllBytes(getSnapshotFile(project).toPath());
+		project.open(DEFAULT_MONITOR);
+
+		// Replace the snapshot by the one written before a change, as if it had
+		// not been written again
+		changeResources(project, new String[] { "folder1/a.txt" }, false);
+		computeAndClose(project);
+		Files.write(getSnapshotFile(project).toPath(), clean);
+		project.open(DEFAULT_MONITOR);
+
+		// The entries of the changed file and its parents are not used, the
+		// entries of the unchanged folder still are
+		assertState(project, "folder1/a.txt", ICVSFile.UNKNOWN);
+		assertState(project, "folder1", ICVSFile.UNKNOWN);
+		assertState(project, null, ICVSFile.UNKNOWN);
+		assertState(project, "folder2", ICVSFile.CLEAN);
+		assertState(project, "folder2/b.txt", ICVSFile.CLEAN);
+
+		assertTrue(CVSWorkspaceRoot.getCVSResourceFor(project.getFile("folder1/a.txt")).isModified(DEFAULT_MONITOR));
+		assertTrue(CVSWorkspaceRoot.getCVSFolderFor(project).isModified(DEFAULT_MONITOR));
+	}
+
+	public void testFoldersWithIgnoredMembers() throws CoreException, TeamException {
+		IProject project = createProject(new String[] { "folder1/", "folder1/a.txt" });
+		IFile ignores = project.getFile("folder1/.cvsignore");
+		ignores.create(new ByteArrayInputStream("ignored.txt\nbin\n".getBytes()), false, DEFAULT_MONITOR);
+		addResources(new IResource[] { ignores });
+		commitResources(project, new String[] { "folder1/.cvsignore" });
+		buildResources(project, new String[] { "folder1/ignored.txt", "folder1/bin/", "folder1/bin/b.class" }, false);
+		computeAndClose(project);
+		project.open(DEFAULT_MONITOR);
+
+		// The ignored members have no entries but do not invalidate their parents
+		assertState(project, null, ICVSFile.CLEAN);
+		assertState(project, "folder1", ICVSFile.CLEAN);
+		assertState(project, "folder1/a.txt", ICVSFile.CLEAN);
+		assertState(project, "folder1/.cvsignore", ICVSFile.CLEAN);
+	}
+
+	public void testSnapshotLeftByCrash() throws CoreException, TeamException, IOException {
+		IProject project = createProject(new String[] { "folder1/", "folder1/a.txt" });
+		computeAndClose(project);
+
+		// A snapshot that was only partly written is not used
+		File file = getSnapshotFile(project);
+		try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+			out.setLength(file.length() / 2);
+		}
+		project.open(DEFAULT_MONITOR);
+
+		assertState(project, null, ICVSFile.UNKNOWN);
+		assertState(project, "folder1", ICVSFile.UNKNOWN);
+		assertState(project, "folder1/a.txt", ICVSFile.UNKNOWN);
+		assertFalse(CVSWorkspaceRoot.getCVSFolderFor(project).isModified(DEFAULT_MONITOR));
+	}
+}
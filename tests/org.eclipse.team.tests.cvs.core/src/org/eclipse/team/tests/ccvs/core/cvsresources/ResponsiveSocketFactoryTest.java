@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.ccvs.core.cvsresources;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.team.internal.ccvs.core.util.ResponsiveSocketFactory;
+import org.eclipse.team.tests.ccvs.core.CVSTestSetup;
+import org.eclipse.team.tests.ccvs.core.EclipseTest;
+
+/**
+ * Tests the connection race of the ResponsiveSocketFactory with addresses
+ * that hang, are refused or reach a local server.
+ */
+public class ResponsiveSocketFactoryTest extends EclipseTest {
+
+	// the delay of the factory before the next address is tried
+	private static final long ATTEMPT_DELAY = 250;
+
+	private ServerSocketChannel server;
+
+	/*
+	 * A factory that resolves the host to the given addresses. The attempts
+	 * to the addresses that hang wait until they are closed, and the attempts
+	 * to the other addresses that are not refused connect to the local server.
+	 */
+	private class TestFactory extends ResponsiveSocketFactory {
+		private final InetAddress[] addresses;
+		private final Set<InetAddress> hanging = new HashSet<>();
+		private final Set<InetAddress> refused = new HashSet<>();
+		final List<InetAddress> attempts = new ArrayList<>();
+		final List<Long> attemptTimes = new ArrayList<>();
+		final List<Socket> sockets = new ArrayList<>();
+
+		TestFactory(IProgressMonitor monitor, InetAddress... addresses) {
+			super(monitor, 10000);
+			this.addresses = addresses;
+		}
+
+		TestFactory hang(InetAddress... hangingAddresses) {
+			hanging.addAll(Arrays.asList(hangingAddresses));
+			return this;
+		}
+
+		TestFactory refuse(InetAddress... refusedAddresses) {
+			refused.addAll(Arrays.asList(refusedAddresses));
+			return this;
+		}
+
+		@Override
+		protected InetAddress[] getAllByName(String host) {
+			return addresses;
+		}
+
+		private synchronized void record(InetAddress address) {
+			attempts.add(address);
+			attemptTimes.add(Long.valueOf(System.currentTimeMillis()));
+		}
+
+		@Override
+		protected void connect(Socket socket, InetSocketAddress address, int timeout) throws IOException {
+			record(address.getAddress());
+			synchronized (this) {
+				sockets.add(socket);
+			}
+			if (refused.contains(address.getAddress()))
+				throw new ConnectException("Connection refused");
+			if (hanging.contains(address.getAddress())) {
+				while (!socket.isClosed()) {
+					try {
+						Thread.sleep(10);
+					} catch (InterruptedException e) {
+						// Ignore
+					}
+				}
+				throw new SocketException("Socket closed");
+			}
+			super.connect(socket, (InetSocketAddress) server.getLocalAddress(), timeout);
+		}
+
+		@Override
+		protected void connect(SocketChannel channel, InetSocketAddress address) throws IOException {
+			record(address.getAddress());
+			if (refused.contains(address.getAddress()))
+				throw new ConnectException("Connection refused");
+			super.connect(channel, (InetSocketAddress) server.getLocalAddress());
+		}
+	}
+
+	public ResponsiveSocketFactoryTest() {
+		super();
+	}
+
+	public ResponsiveSocketFactoryTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		TestSuite suite = new TestSuite(ResponsiveSocketFactoryTest.class);
+		return new CVSTestSetup(suite);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		server.close();
+		super.tearDown();
+	}
+
+	private static InetAddress ipv4(int last) throws UnknownHostException {
+		return InetAddress.getByAddress("v4-" + last, new byte[] { 10, 0, 0, (byte) last });
+	}
+
+	private static InetAddress ipv6(int last) throws UnknownHostException {
+		byte[] bytes = new byte[16];
+		bytes[0] = (byte) 0xfd;
+		bytes[15] = (byte) last;
+		return InetAddress.getByAddress("v6-" + last, bytes);
+	}
+
+	/*
+	 * Asserts that the socket is the only connection the server received
+	 */
+	private void assertSingleConnection(Socket socket) throws IOException {
+		try (SocketChannel peer = server.accept()) {
+			socket.getOutputStream().write('x');
+			ByteBuffer buffer = ByteBuffer.allocate(1);
+			peer.read(buffer);
+			assertEquals('x', buffer.get(0));
+		}
+		server.configureBlocking(false);
+		assertNull(server.accept());
+	}
+
+	public void testAddressesAlternateAndAreStaggered() throws Exception {
+		InetAddress[] addresses = new InetAddress[] { ipv6(1), ipv6(2), ipv4(1), ipv4(2) };
+		TestFactory factory = new TestFactory(DEFAULT_MONITOR, addresses).hang(ipv6(1), ipv6(2), ipv4(1));
+		try (Socket socket = factory.createSocket("host", 2401)) {
+			assertTrue(socket.isConnected());
+			assertEquals(Arrays.asList(ipv6(1), ipv4(1), ipv6(2), ipv4(2)), factory.attempts);
+			// an attempt that neither connects nor fails does not hold up the next one for long
+			for (int i = 1; i < factory.attemptTimes.size(); i++) {
+				long delay = factory.attemptTimes.get(i).longValue() - factory.attemptTimes.get(i - 1).longValue();
+				assertTrue(String.valueOf(delay), delay >= ATTEMPT_DELAY - 50);
+				assertTrue(String.valueOf(delay), delay < 4 * ATTEMPT_DELAY);
+			}
+			// the attempts that lost the race are closed
+			for (Socket attempt : factory.sockets) {
+				if (attempt != socket)
+					assertTrue(attempt.isClosed());
+			}
+			assertSingleConnection(socket);
+		}
+	}
+
+	public void testRefusedAddressFailsOver() throws Exception {
+		TestFactory factory = new TestFactory(DEFAULT_MONITOR, ipv4(1), ipv6(1)).refuse(ipv4(1));
+		long start = System.currentTimeMillis();
+		try (Socket socket = factory.createSocket("host", 2401)) {
+			// the next address is tried as soon as the previous one is refused
+			assertTrue(System.currentTimeMillis() - start < ATTEMPT_DELAY);
+			assertEquals(Arrays.asList(ipv4(1), ipv6(1)), factory.attempts);
+			assertSingleConnection(socket);
+		}
+	}
+
+	public void testAllAddressesRefused() throws Exception {
+		TestFactory factory = new TestFactory(DEFAULT_MONITOR, ipv4(1), ipv6(1)).refuse(ipv4(1), ipv6(1));
+		try {
+			factory.createSocket("host", 2401).close();
+			fail("The connect should have failed");
+		} catch (ConnectException e) {
+			// expected
+		}
+		assertEquals(2, factory.attempts.size());
+	}
+
+	public void testCancelStopsAttempts() throws Exception {
+		final IProgressMonitor monitor = new NullProgressMonitor();
+		TestFactory factory = new TestFactory(monitor, ipv4(1)).hang(ipv4(1));
+		new Thread(() -> {
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException e) {
+				// Ignore
+			}
+			monitor.setCanceled(true);
+		}).start();
+		long start = System.currentTimeMillis();
+		try {
+			factory.createSocket("host", 2401).close();
+			fail("The connect should have been canceled");
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+		long elapsed = System.currentTimeMillis() - start;
+		assertTrue(String.valueOf(elapsed), elapsed < 200 + ATTEMPT_DELAY);
+		assertEquals(1, factory.sockets.size());
+		assertTrue(factory.sockets.get(0).isClosed());
+	}
+
+	public void testChannelFailsOver() throws Exception {
+		TestFactory factory = new TestFactory(DEFAULT_MONITOR, ipv4(1), ipv4(2)).refuse(ipv4(1));
+		try (SocketChannel channel = factory.createSocketChannel("host", 2401);
+				SocketChannel peer = server.accept()) {
+			assertTrue(channel.isConnected());
+			assertFalse(channel.isBlocking());
+			assertEquals(peer.getLocalAddress(), channel.getRemoteAddress());
+			assertEquals(Arrays.asList(ipv4(1), ipv4(2)), factory.attempts);
+		}
+	}
+}
@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.ccvs.core.cvsresources;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.team.internal.ccvs.core.CVSException;
+import org.eclipse.team.internal.ccvs.core.resources.RemoteFolderTreeBuilder.RevisionFetcher;
+import org.eclipse.team.tests.ccvs.core.CVSTestSetup;
+import org.eclipse.team.tests.ccvs.core.EclipseTest;
+
+/**
+ * Tests that the revisions of all groups are fetched by the jobs of a
+ * RevisionFetcher, and that their errors and the cancelation reach the caller.
+ */
+public class RevisionFetcherTest extends EclipseTest {
+
+	/*
+	 * Records the fetched groups and fails for the groups that contain "error"
+	 */
+	private static class TestFetcher extends RevisionFetcher {
+		final Set<String> fetched = new HashSet<>();
+		final Set<Thread> threads = new HashSet<>();
+
+		TestFetcher(List<String[]> groups, IProgressMonitor monitor) {
+			super("Test Fetcher", groups, monitor);
+		}
+
+		@Override
+		protected void fetch(String[] fileNames, IProgressMonitor jobMonitor) throws CVSException {
+			if (fileNames[0].equals("error"))
+				throw new CVSException("Failed to fetch " + fileNames[1]);
+			if (fileNames[0].equals("runtime"))
+				throw new IllegalStateException(fileNames[1]);
+			synchronized (this) {
+				fetched.add(fileNames[0]);
+				threads.add(Thread.currentThread());
+			}
+		}
+	}
+
+	public RevisionFetcherTest() {
+		super();
+	}
+
+	public RevisionFetcherTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		TestSuite suite = new TestSuite(RevisionFetcherTest.class);
+		return new CVSTestSetup(suite);
+	}
+
+	private List<String[]> createGroups(int count) {
+		List<String[]> groups = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			groups.add(new String[] { "file" + i });
+		}
+		return groups;
+	}
+
+	public void testAllGroupsAreFetched() throws CVSException {
+		TestFetcher fetcher = new TestFetcher(createGroups(20), DEFAULT_MONITOR);
+		fetcher.run(4);
+		assertEquals(20, fetcher.fetched.size());
+		assertFalse(fetcher.threads.contains(Thread.currentThread()));
+	}
+
+	public void testErrorReachesCaller() {
+		List<String[]> groups = createGroups(10);
+		groups.add(5, new String[] { "error", "group" });
+		TestFetcher fetcher = new TestFetcher(groups, DEFAULT_MONITOR);
+		try {
+			fetcher.run(3);
+			fail("The error should have been reported");
+		} catch (CVSException e) {
+			assertEquals("Failed to fetch group", e.getMessage());
+		}
+	}
+
+	public void testErrorsOfSeveralJobsReachCaller() {
+		// every job fails on its first group
+		List<String[]> groups = new ArrayList<>();
+		groups.add(new String[] { "error", "first" });
+		groups.add(new String[] { "runtime", "second" });
+		final Object lock = new Object();
+		final int[] started = new int[1];
+		RevisionFetcher fetcher = new TestFetcher(groups, DEFAULT_MONITOR) {
+			@Override
+			protected void fetch(String[] fileNames, IProgressMonitor jobMonitor) throws CVSException {
+				// wait until both jobs have taken their group
+				synchronized (lock) {
+					started[0]++;
+					lock.notifyAll();
+					long end = System.currentTimeMillis() + 5000;
+					while (started[0] < 2 && System.currentTimeMillis() < end) {
+						try {
+							lock.wait(end - System.currentTimeMillis());
+						} catch (InterruptedException e) {
+							// Ignore
+						}
+					}
+				}
+				super.fetch(fileNames, jobMonitor);
+			}
+		};
+		try {
+			fetcher.run(2);
+			fail("The errors should have been reported");
+		} catch (CVSException e) {
+			assertTrue(e.getStatus().isMultiStatus());
+			assertEquals(2, e.getStatus().getChildren().length);
+		}
+	}
+
+	public void testCancelationReachesCaller() throws CVSException {
+		final IProgressMonitor monitor = new NullProgressMonitor();
+		TestFetcher fetcher = new TestFetcher(createGroups(100), monitor) {
+			@Override
+			protected void fetch(String[] fileNames, IProgressMonitor jobMonitor) throws CVSException {
+				super.fetch(fileNames, jobMonitor);
+				monitor.setCanceled(true);
+			}
+		};
+		try {
+			fetcher.run(2);
+			fail("The fetch should have been canceled");
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+		// the jobs do not take further groups once the caller is canceled
+		assertTrue(fetcher.fetched.size() <= 2);
+	}
+
+	public void testCancelationOfWaitingCaller() throws CVSException {
+		final IProgressMonitor monitor = new NullProgressMonitor();
+		RevisionFetcher fetcher = new TestFetcher(createGroups(10), monitor) {
+			@Override
+			protected void fetch(String[] fileNames, IProgressMonitor jobMonitor) throws CVSException {
+				// like a session, stop waiting for the server once canceled
+				while (!jobMonitor.isCanceled()) {
+					try {
+						Thread.sleep(10);
+					} catch (InterruptedException e) {
+						// Ignore
+					}
+				}
+				throw new OperationCanceledException();
+			}
+		};
+		Thread canceler = new Thread(() -> {
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException e) {
+				// Ignore
+			}
+			monitor.setCanceled(true);
+		});
+		canceler.start();
+		try {
+			fetcher.run(3);
+			fail("The fetch should have been canceled");
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.ccvs.core.cvsresources;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.team.internal.ccvs.core.util.Util;
+import org.eclipse.team.internal.core.streams.ChannelInputStream;
+import org.eclipse.team.internal.core.streams.ChannelOutputStream;
+import org.eclipse.team.tests.ccvs.core.CVSTestSetup;
+import org.eclipse.team.tests.ccvs.core.EclipseTest;
+
+/**
+ * Tests the socket channels of Util#createSocketChannel against a local server.
+ */
+public class SocketChannelTest extends EclipseTest {
+
+	private ServerSocketChannel server;
+	private String host;
+	private int port;
+
+	public SocketChannelTest() {
+		super();
+	}
+
+	public SocketChannelTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		TestSuite suite = new TestSuite(SocketChannelTest.class);
+		return new CVSTestSetup(suite);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		host = InetAddress.getLoopbackAddress().getHostAddress();
+		port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		server.close();
+		super.tearDown();
+	}
+
+	public void testConnect() throws IOException {
+		IProgressMonitor monitor = new NullProgressMonitor();
+		try (SocketChannel channel = Util.createSocketChannel(host, port, monitor);
+				SocketChannel peer = server.accept()) {
+			assertTrue(channel.isConnected());
+			assertFalse(channel.isBlocking());
+			assertEquals(peer.getLocalAddress(), channel.getRemoteAddress());
+
+			try (InputStream in = new ChannelInputStream(channel, 5000, monitor);
+					OutputStream out = new ChannelOutputStream(channel, 5000, monitor)) {
+				out.write("ping".getBytes());
+				ByteBuffer request = ByteBuffer.allocate(4);
+				while (request.hasRemaining()) {
+					peer.read(request);
+				}
+				assertEquals("ping", new String(request.array()));
+
+				peer.write(ByteBuffer.wrap("pong".getBytes()));
+				peer.shutdownOutput();
+				StringBuilder response = new StringBuilder();
+				int c;
+				while ((c = in.read()) != -1) {
+					response.append((char) c);
+				}
+				assertEquals("pong", response.toString());
+			}
+		}
+	}
+
+	public void testConnectCanceled() throws IOException {
+		IProgressMonitor monitor = new NullProgressMonitor();
+		monitor.setCanceled(true);
+		try {
+			Util.createSocketChannel(host, port, monitor).close();
+			fail("The connect should have been canceled");
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+	}
+
+	public void testConnectRefused() throws IOException {
+		// nobody listens on the port once the server is closed
+		server.close();
+		try {
+			Util.createSocketChannel(host, port, new NullProgressMonitor()).close();
+			fail("The connect should have failed");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+}
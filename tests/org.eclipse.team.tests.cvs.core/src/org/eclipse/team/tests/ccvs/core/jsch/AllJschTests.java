@@ -31,6 +31,7 @@ public class AllJschTests extends EclipseTest {
 	public static Test suite() {
 		TestSuite suite = new TestSuite();
 		suite.addTest(PreferenceInitializerTest.suite());
+		suite.addTest(ResponsiveSocketFactoryTest.suite());
 		return suite;
 	}
 }
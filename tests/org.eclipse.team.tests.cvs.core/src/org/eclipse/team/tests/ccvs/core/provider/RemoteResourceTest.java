@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -30,6 +30,7 @@ import org.eclipse.team.core.TeamException;
 import org.eclipse.team.core.variants.CachedResourceVariant;
 import org.eclipse.team.core.variants.IResourceVariant;
 import org.eclipse.team.internal.ccvs.core.CVSException;
+import org.eclipse.team.internal.ccvs.core.CVSProviderPlugin;
 import org.eclipse.team.internal.ccvs.core.CVSTag;
 import org.eclipse.team.internal.ccvs.core.ICVSFolder;
 import org.eclipse.team.internal.ccvs.core.ICVSRemoteFile;
@@ -41,11 +42,13 @@ import org.eclipse.team.internal.ccvs.core.ILogEntry;
 import org.eclipse.team.internal.ccvs.core.client.Command.LocalOption;
 import org.eclipse.team.internal.ccvs.core.client.listeners.LogEntry;
 import org.eclipse.team.internal.ccvs.core.resources.CVSWorkspaceRoot;
+import org.eclipse.team.internal.ccvs.core.resources.RemoteFile;
 import org.eclipse.team.internal.ccvs.core.resources.RemoteFolder;
 import org.eclipse.team.internal.ccvs.core.resources.RemoteFolderTree;
 import org.eclipse.team.internal.ccvs.core.resources.RemoteFolderTreeBuilder;
 import org.eclipse.team.internal.ccvs.ui.operations.CheckoutToRemoteFolderOperation;
 import org.eclipse.team.internal.ccvs.ui.operations.TagInRepositoryOperation;
+import org.eclipse.team.internal.core.ResourceVariantCache;
 import org.eclipse.team.tests.ccvs.core.CVSTestSetup;
 import org.eclipse.team.tests.ccvs.core.EclipseTest;
 import org.eclipse.team.tests.ccvs.ui.ReflectionUtils;
@@ -624,6 +627,33 @@ public class RemoteResourceTest extends EclipseTest {
 		assertEquals("Contents do not match", contents, fetchedContents);
 	}
 
+	public void testContentsCachedInPreviousSession() throws TeamException, IOException, CoreException {
+		IProject project = createProject(new String[] { "file1.txt"});
+		String contents = "the file contents";
+		setContentsAndEnsureModified(project.getFile("file1.txt"), contents);
+		commitProject(project);
+		RemoteFile remote = (RemoteFile)CVSWorkspaceRoot.getRemoteResourceFor(project.getFile("file1.txt"));
+		assertEquals(contents, asString(remote.getStorage(DEFAULT_MONITOR).getContents()));
+		// restore the cache as in the next session
+		ResourceVariantCache.closeCache(CVSProviderPlugin.ID, true);
+		ResourceVariantCache.enableCaching(CVSProviderPlugin.ID);
+
+		// the restored contents are read without a handle
+		RemoteFile restored = (RemoteFile)CVSWorkspaceRoot.getRemoteResourceFor(project.getFile("file1.txt"));
+		assertTrue(restored.isContentsCached());
+		assertNull(restored.getCachedHandle());
+		assertEquals(contents, asString(restored.getStorage(DEFAULT_MONITOR).getContents()));
+		assertEquals(remote.getRevision(), restored.getRevision());
+
+		// the handle with the executable bit and time stamp is fetched when it is needed
+		RemoteFile handle = restored.getContentsHandle(DEFAULT_MONITOR);
+		assertNotNull(handle);
+		assertSame(handle, restored.getCachedHandle());
+		assertSame(handle, restored.getContentsHandle(DEFAULT_MONITOR));
+		assertEquals(remote.getRevision(), handle.getRevision());
+		assertEquals(contents, asString(restored.getStorage(DEFAULT_MONITOR).getContents()));
+	}
+
 	private String asString(InputStream stream) throws IOException {
 		StringBuilder buffer = new StringBuilder();
 		int b = stream.read();